@@ -12,4 +12,6 @@ public @interface ManyToMany {
   Class<?> targetEntity() default void.class;
 
   String mappedBy() default "";
+
+  boolean cascade() default false;
 }
@@ -13,4 +13,6 @@ public @interface ManyToOne {
 
   // TODO: Implement handling for this parameter
   String mappedBy() default "";
+
+  boolean cascade() default false;
 }
@@ -13,4 +13,6 @@ public @interface OneToMany {
 
   // TODO: Implement handling for this parameter
   String mappedBy() default "";
+
+  boolean cascade() default false;
 }
@@ -0,0 +1,15 @@
+package st4s1k.jdbcplus.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReferenceData {
+
+  String[] indexes() default {};
+
+  long refreshSeconds() default 0;
+}
@@ -0,0 +1,89 @@
+package st4s1k.jdbcplus.cache;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of entity ids: a negative answer is
+ * definite, a positive answer may be a false positive.
+ */
+public class BloomFilter {
+
+  private final AtomicLongArray bits;
+  private final long bitCount;
+  private final int hashCount;
+
+  /**
+   * Create a filter sized for an expected number of ids.
+   *
+   * @param expectedInsertions expected number of ids
+   * @param falsePositiveRate  wanted false positive rate, between 0 and 1
+   */
+  public BloomFilter(final long expectedInsertions, final double falsePositiveRate) {
+    if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid Bloom filter parameters: %d insertions, %f false positive rate",
+          expectedInsertions,
+          falsePositiveRate
+      ));
+    }
+    final double ln2 = Math.log(2);
+    final long optimalBits = (long) Math.ceil(
+        -expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2)
+    );
+    final long words = Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+    if (words > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Bloom filter too large: " + optimalBits + " bits");
+    }
+    this.bits = new AtomicLongArray((int) words);
+    this.bitCount = words * Long.SIZE;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+  }
+
+  /**
+   * Add an id.
+   *
+   * @param id entity id
+   */
+  public void put(final Object id) {
+    final long hash = hash(id);
+    for (int i = 1; i <= hashCount; i++) {
+      final long bit = index(hash, i);
+      final long mask = 1L << bit;
+      bits.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+    }
+  }
+
+  /**
+   * Check whether an id may have been added.
+   *
+   * @param id entity id
+   * @return false if the id was definitely never added
+   */
+  public boolean mightContain(final Object id) {
+    final long hash = hash(id);
+    for (int i = 1; i <= hashCount; i++) {
+      final long bit = index(hash, i);
+      if ((bits.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long index(final long hash, final int i) {
+    final long combinedHash = hash + i * (hash >>> 32 | 1);
+    return (combinedHash & Long.MAX_VALUE) % bitCount;
+  }
+
+  private static long hash(final Object id) {
+    long hash = isIntegral(id) ? ((Number) id).longValue() : Objects.hashCode(id);
+    hash = (hash ^ hash >>> 33) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ hash >>> 33) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ hash >>> 33;
+  }
+
+  private static boolean isIntegral(final Object id) {
+    return id instanceof Long || id instanceof Integer || id instanceof Short || id instanceof Byte;
+  }
+}
@@ -0,0 +1,84 @@
+package st4s1k.jdbcplus.cache;
+
+/**
+ * Immutable snapshot of cache statistics.
+ */
+public final class CacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long expirationCount;
+  private final long size;
+
+  public CacheStats(
+      final long hitCount,
+      final long missCount,
+      final long evictionCount,
+      final long expirationCount,
+      final long size
+  ) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.expirationCount = expirationCount;
+    this.size = size;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  /**
+   * Get the ratio of lookups answered by the cache.
+   *
+   * @return hit ratio, 1.0 when there were no lookups
+   */
+  public double getHitRatio() {
+    final long requestCount = getRequestCount();
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  /**
+   * Get the number of entries removed to respect the size bound.
+   *
+   * @return eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Get the number of entries removed because their time to live elapsed.
+   *
+   * @return expiration count
+   */
+  public long getExpirationCount() {
+    return expirationCount;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "CacheStats(hits=%d, misses=%d, hitRatio=%.3f, evictions=%d, expirations=%d, size=%d)",
+        hitCount,
+        missCount,
+        getHitRatio(),
+        evictionCount,
+        expirationCount,
+        size
+    );
+  }
+}
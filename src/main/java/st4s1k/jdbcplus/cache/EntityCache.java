@@ -0,0 +1,49 @@
+package st4s1k.jdbcplus.cache;
+
+import java.util.Optional;
+
+/**
+ * Second-level cache of the rows of one entity class, keyed by id.
+ * <p>
+ * A row holds the column values of an entity in the order of
+ * {@link st4s1k.jdbcplus.metadata.EntityMetadata#getColumns()},
+ * with to-one relations replaced by the id of the related entity.
+ * Implementations must be thread-safe.
+ */
+public interface EntityCache {
+
+  /**
+   * Get a cached row.
+   *
+   * @param id entity id
+   * @return {@link Optional} cached row
+   */
+  Optional<Object[]> get(Object id);
+
+  /**
+   * Cache a row, replacing any row cached for the same id.
+   *
+   * @param id  entity id
+   * @param row column values
+   */
+  void put(Object id, Object[] row);
+
+  /**
+   * Remove the row cached for an id.
+   *
+   * @param id entity id
+   */
+  void invalidate(Object id);
+
+  /**
+   * Remove all the cached rows.
+   */
+  void invalidateAll();
+
+  /**
+   * Get the cache statistics.
+   *
+   * @return statistics snapshot
+   */
+  CacheStats getStats();
+}
@@ -0,0 +1,140 @@
+package st4s1k.jdbcplus.cache;
+
+import st4s1k.jdbcplus.annotations.Cacheable;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the second-level {@link EntityCache} of every entity class
+ * annotated with {@link Cacheable}, created on first use by the
+ * configured {@link EntityCacheProvider}.
+ * <p>
+ * Every invalidation bumps the version of the entity class, so that a
+ * row read from the database before an invalidation is not cached
+ * after it: see {@link #put(Class, Object, Object[], long)}.
+ */
+public class EntityCacheManager {
+
+  private static final EntityCacheProvider DEFAULT_PROVIDER = (entityClass, cacheable) ->
+      new LruEntityCache(
+          entityClass,
+          cacheable.maxSize(),
+          cacheable.ttlSeconds(),
+          TimeUnit.SECONDS
+      );
+
+  private final Map<Class<?>, EntityCache> caches = new ConcurrentHashMap<>();
+  private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+  private volatile EntityCacheProvider provider = DEFAULT_PROVIDER;
+
+  /**
+   * Replace the provider used for the caches not created yet.
+   *
+   * @param provider cache provider
+   */
+  public void setProvider(final EntityCacheProvider provider) {
+    this.provider = provider == null ? DEFAULT_PROVIDER : provider;
+  }
+
+  /**
+   * Get the cache of an entity class.
+   *
+   * @param entityClass entity class
+   * @return {@link Optional} cache, empty if the class is not cacheable
+   */
+  public Optional<EntityCache> getCache(final Class<?> entityClass) {
+    final Cacheable cacheable = entityClass.getAnnotation(Cacheable.class);
+    if (cacheable == null) {
+      return Optional.empty();
+    }
+    return Optional.of(caches.computeIfAbsent(
+        entityClass,
+        clazz -> provider.create(clazz, cacheable)
+    ));
+  }
+
+  /**
+   * Get the statistics of an entity class cache.
+   *
+   * @param entityClass entity class
+   * @return {@link Optional} statistics, empty if the class is not cacheable
+   */
+  public Optional<CacheStats> getStats(final Class<?> entityClass) {
+    return getCache(entityClass).map(EntityCache::getStats);
+  }
+
+  /**
+   * Get the version of an entity class, to be read before
+   * querying the rows to cache.
+   *
+   * @param entityClass entity class
+   * @return entity class version
+   */
+  public long getVersion(final Class<?> entityClass) {
+    return version(entityClass).get();
+  }
+
+  /**
+   * Cache a row, unless the entity class was invalidated since
+   * {@code version} was read.
+   *
+   * @param entityClass entity class
+   * @param id          entity id
+   * @param row         column values
+   * @param version     entity class version, read before the query
+   */
+  public void put(
+      final Class<?> entityClass,
+      final Object id,
+      final Object[] row,
+      final long version
+  ) {
+    final AtomicLong current = version(entityClass);
+    getCache(entityClass).ifPresent(cache -> {
+      if (current.get() != version) {
+        return;
+      }
+      cache.put(id, row);
+      if (current.get() != version) {
+        cache.invalidate(id);
+      }
+    });
+  }
+
+  /**
+   * Remove a cached row.
+   *
+   * @param entityClass entity class
+   * @param id          entity id
+   */
+  public void invalidate(final Class<?> entityClass, final Object id) {
+    version(entityClass).incrementAndGet();
+    Optional.ofNullable(caches.get(entityClass)).ifPresent(cache -> cache.invalidate(id));
+  }
+
+  /**
+   * Remove all the cached rows of an entity class.
+   *
+   * @param entityClass entity class
+   */
+  public void invalidateAll(final Class<?> entityClass) {
+    version(entityClass).incrementAndGet();
+    Optional.ofNullable(caches.get(entityClass)).ifPresent(EntityCache::invalidateAll);
+  }
+
+  /**
+   * Remove all the cached rows of all the entity classes.
+   */
+  public void invalidateAll() {
+    versions.values().forEach(AtomicLong::incrementAndGet);
+    caches.values().forEach(EntityCache::invalidateAll);
+  }
+
+  private AtomicLong version(final Class<?> entityClass) {
+    return versions.computeIfAbsent(entityClass, clazz -> new AtomicLong());
+  }
+}
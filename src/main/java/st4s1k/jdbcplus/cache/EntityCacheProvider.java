@@ -0,0 +1,13 @@
+package st4s1k.jdbcplus.cache;
+
+import st4s1k.jdbcplus.annotations.Cacheable;
+
+/**
+ * Creates the {@link EntityCache} of an entity class
+ * annotated with {@link Cacheable}.
+ */
+@FunctionalInterface
+public interface EntityCacheProvider {
+
+  EntityCache create(Class<?> entityClass, Cacheable cacheable);
+}
@@ -0,0 +1,131 @@
+package st4s1k.jdbcplus.cache;
+
+import st4s1k.jdbcplus.collections.IdMap;
+
+/**
+ * Tracks which ids of an entity class exist in its table, so that
+ * lookups of ids that definitely do not exist skip the database.
+ * <p>
+ * Existing ids are kept in a {@link BloomFilter}, filled by an initial
+ * key scan and by inserts. Ids known to be absent, because a lookup
+ * missed or the row was removed, are kept in a bounded negative cache,
+ * which also covers the Bloom filter false positives. The filter is only
+ * accurate while all the writes to the table go through the repository.
+ * <p>
+ * Until {@link #markReady()} is called, e.g. while the key scan is
+ * running, every id may exist, but inserts are already recorded.
+ */
+public class ExistenceFilter {
+
+  private final BloomFilter bloomFilter;
+  private final int maxAbsentIds;
+  private final IdMap<Boolean> absentIds;
+  private long generation;
+  private volatile boolean ready;
+
+  /**
+   * Create a filter.
+   *
+   * @param entityClass       entity class
+   * @param expectedIds       expected number of ids
+   * @param falsePositiveRate Bloom filter false positive rate
+   * @param maxAbsentIds      maximum number of ids in the negative cache
+   */
+  public ExistenceFilter(
+      final Class<?> entityClass,
+      final long expectedIds,
+      final double falsePositiveRate,
+      final int maxAbsentIds
+  ) {
+    this.bloomFilter = new BloomFilter(expectedIds, falsePositiveRate);
+    this.maxAbsentIds = maxAbsentIds;
+    this.absentIds = IdMap.forEntity(entityClass);
+  }
+
+  /**
+   * Check whether a row with the id may exist.
+   *
+   * @param id entity id
+   * @return false if the row definitely does not exist
+   */
+  public boolean mightExist(final Object id) {
+    if (!ready) {
+      return true;
+    }
+    synchronized (absentIds) {
+      if (absentIds.containsKey(id)) {
+        return false;
+      }
+    }
+    return bloomFilter.mightContain(id);
+  }
+
+  /**
+   * Start answering lookups, once all the existing ids were recorded.
+   */
+  public void markReady() {
+    ready = true;
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Record that a row with the id exists, e.g. after an insert.
+   *
+   * @param id entity id
+   */
+  public void recordPresent(final Object id) {
+    bloomFilter.put(id);
+    synchronized (absentIds) {
+      generation++;
+      absentIds.remove(id);
+    }
+  }
+
+  /**
+   * Record that no row with the id exists, e.g. after a delete.
+   *
+   * @param id entity id
+   */
+  public void recordAbsent(final Object id) {
+    synchronized (absentIds) {
+      addAbsent(id);
+    }
+  }
+
+  /**
+   * Get the number of recorded inserts, to be read before a lookup
+   * and passed to {@link #recordMiss(Object, long)}.
+   *
+   * @return insert generation
+   */
+  public long getGeneration() {
+    synchronized (absentIds) {
+      return generation;
+    }
+  }
+
+  /**
+   * Record that a lookup found no row with the id, unless
+   * an insert was recorded since the lookup started.
+   *
+   * @param id         entity id
+   * @param generation insert generation read before the lookup
+   */
+  public void recordMiss(final Object id, final long generation) {
+    synchronized (absentIds) {
+      if (this.generation == generation) {
+        addAbsent(id);
+      }
+    }
+  }
+
+  private void addAbsent(final Object id) {
+    if (absentIds.size() >= maxAbsentIds) {
+      absentIds.clear();
+    }
+    absentIds.put(id, Boolean.TRUE);
+  }
+}
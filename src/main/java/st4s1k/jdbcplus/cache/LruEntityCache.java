@@ -0,0 +1,184 @@
+package st4s1k.jdbcplus.cache;
+
+import st4s1k.jdbcplus.collections.IdMap;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link EntityCache} bounded by entry count, evicting the least
+ * recently used row, with an optional time to live per row.
+ * <p>
+ * Rows are indexed by an {@link IdMap}, so integral ids are stored
+ * unboxed, and linked in access order from the eldest to the newest.
+ */
+public class LruEntityCache implements EntityCache {
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final IdMap<Entry> entries;
+  private Entry eldest;
+  private Entry newest;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long expirationCount;
+
+  /**
+   * Create a cache.
+   *
+   * @param maxSize maximum number of rows
+   * @param ttl     time to live of a row, 0 for no expiration
+   * @param unit    time unit of the ttl
+   */
+  public LruEntityCache(final int maxSize, final long ttl, final TimeUnit unit) {
+    this(Object.class, maxSize, ttl, unit, System::nanoTime);
+  }
+
+  /**
+   * Create a cache for the ids of an entity class.
+   *
+   * @param entityClass entity class
+   * @param maxSize     maximum number of rows
+   * @param ttl         time to live of a row, 0 for no expiration
+   * @param unit        time unit of the ttl
+   */
+  public LruEntityCache(
+      final Class<?> entityClass,
+      final int maxSize,
+      final long ttl,
+      final TimeUnit unit
+  ) {
+    this(entityClass, maxSize, ttl, unit, System::nanoTime);
+  }
+
+  LruEntityCache(
+      final int maxSize,
+      final long ttl,
+      final TimeUnit unit,
+      final LongSupplier clock
+  ) {
+    this(Object.class, maxSize, ttl, unit, clock);
+  }
+
+  private LruEntityCache(
+      final Class<?> entityClass,
+      final int maxSize,
+      final long ttl,
+      final TimeUnit unit,
+      final LongSupplier clock
+  ) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.clock = clock;
+    this.entries = IdMap.forEntity(entityClass);
+  }
+
+  @Override
+  public synchronized Optional<Object[]> get(final Object id) {
+    final Entry entry = entries.get(id);
+    if (entry == null) {
+      missCount++;
+      return Optional.empty();
+    }
+    if (entry.isExpired(clock.getAsLong())) {
+      entries.remove(id);
+      unlink(entry);
+      expirationCount++;
+      missCount++;
+      return Optional.empty();
+    }
+    unlink(entry);
+    link(entry);
+    hitCount++;
+    return Optional.of(entry.row);
+  }
+
+  @Override
+  public synchronized void put(final Object id, final Object[] row) {
+    final long expiresAt = ttlNanos > 0 ? clock.getAsLong() + ttlNanos : 0;
+    final Entry entry = new Entry(id, row.clone(), expiresAt);
+    final Entry previous = entries.put(id, entry);
+    if (previous != null) {
+      unlink(previous);
+    }
+    link(entry);
+    if (entries.size() > maxSize) {
+      final Entry evicted = eldest;
+      entries.remove(evicted.id);
+      unlink(evicted);
+      evictionCount++;
+    }
+  }
+
+  @Override
+  public synchronized void invalidate(final Object id) {
+    final Entry entry = entries.remove(id);
+    if (entry != null) {
+      unlink(entry);
+    }
+  }
+
+  @Override
+  public synchronized void invalidateAll() {
+    entries.clear();
+    eldest = null;
+    newest = null;
+  }
+
+  @Override
+  public synchronized CacheStats getStats() {
+    return new CacheStats(hitCount, missCount, evictionCount, expirationCount, entries.size());
+  }
+
+  private void link(final Entry entry) {
+    entry.previous = newest;
+    entry.next = null;
+    if (newest == null) {
+      eldest = entry;
+    } else {
+      newest.next = entry;
+    }
+    newest = entry;
+  }
+
+  private void unlink(final Entry entry) {
+    if (entry.previous == null) {
+      eldest = entry.next;
+    } else {
+      entry.previous.next = entry.next;
+    }
+    if (entry.next == null) {
+      newest = entry.previous;
+    } else {
+      entry.next.previous = entry.previous;
+    }
+    entry.previous = null;
+    entry.next = null;
+  }
+
+  private static final class Entry {
+
+    private final Object id;
+    private final Object[] row;
+    private final long expiresAt;
+    private Entry previous;
+    private Entry next;
+
+    private Entry(final Object id, final Object[] row, final long expiresAt) {
+      this.id = id;
+      this.row = row;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired(final long now) {
+      return expiresAt != 0 && now - expiresAt >= 0;
+    }
+  }
+}
@@ -0,0 +1,334 @@
+package st4s1k.jdbcplus.cache;
+
+import st4s1k.jdbcplus.utils.EntityUtils;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link EntityCache} keeping the rows serialized in direct
+ * {@link ByteBuffer} slabs outside of the garbage collected heap,
+ * for entities with a numeric id.
+ * <p>
+ * Rows are appended to the current slab. When all the slabs are full
+ * the oldest one is recycled, evicting the rows it still holds, so the
+ * cache behaves as a FIFO bounded by its capacity in bytes. Ids are
+ * resolved to a row address through an open-addressing index of
+ * primitive {@code long} keys.
+ */
+public class OffHeapEntityCache implements EntityCache {
+
+  public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+  private static final int HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+  private static final int MIN_SLAB_COUNT = 2;
+
+  private final int slabSize;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+  private final ByteBuffer[] slabs;
+  private final int[] slabLimits;
+  private final LongIndex index = new LongIndex();
+
+  private ByteBuffer scratch = ByteBuffer.allocate(256);
+  private int currentSlab;
+  private int writeOffset;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long expirationCount;
+
+  /**
+   * Create a cache.
+   *
+   * @param capacityBytes total size of the slabs
+   * @param slabSize      size of one slab, and maximum size of a row
+   * @param ttl           time to live of a row, 0 for no expiration
+   * @param unit          time unit of the ttl
+   */
+  public OffHeapEntityCache(
+      final long capacityBytes,
+      final int slabSize,
+      final long ttl,
+      final TimeUnit unit
+  ) {
+    this(capacityBytes, slabSize, ttl, unit, System::nanoTime);
+  }
+
+  OffHeapEntityCache(
+      final long capacityBytes,
+      final int slabSize,
+      final long ttl,
+      final TimeUnit unit,
+      final LongSupplier clock
+  ) {
+    if (slabSize <= HEADER_SIZE || capacityBytes / slabSize < MIN_SLAB_COUNT) {
+      throw new IllegalArgumentException(String.format(
+          "Capacity %d must hold at least %d slabs of %d bytes",
+          capacityBytes,
+          MIN_SLAB_COUNT,
+          slabSize
+      ));
+    }
+    final long slabCount = capacityBytes / slabSize;
+    if (slabCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many slabs: " + slabCount);
+    }
+    this.slabSize = slabSize;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.clock = clock;
+    this.slabs = new ByteBuffer[(int) slabCount];
+    this.slabLimits = new int[(int) slabCount];
+  }
+
+  /**
+   * Get a provider creating off-heap caches of the given capacity
+   * for entities with a numeric id, and {@link LruEntityCache}s
+   * for the other entities.
+   *
+   * @param capacityBytes capacity of every off-heap cache
+   * @return cache provider
+   */
+  public static EntityCacheProvider provider(final long capacityBytes) {
+    return (entityClass, cacheable) -> isNumericId(entityClass)
+        ? new OffHeapEntityCache(
+            capacityBytes,
+            DEFAULT_SLAB_SIZE,
+            cacheable.ttlSeconds(),
+            TimeUnit.SECONDS
+        )
+        : new LruEntityCache(
+            entityClass,
+            cacheable.maxSize(),
+            cacheable.ttlSeconds(),
+            TimeUnit.SECONDS
+        );
+  }
+
+  private static boolean isNumericId(final Class<?> entityClass) {
+    final Class<?> idType = EntityUtils.getIdColumn(entityClass).getType();
+    return Arrays.asList(
+        int.class, long.class, short.class, byte.class,
+        Integer.class, Long.class, Short.class, Byte.class
+    ).contains(idType);
+  }
+
+  @Override
+  public synchronized Optional<Object[]> get(final Object id) {
+    final long address = index.get(toKey(id));
+    if (address == LongIndex.EMPTY) {
+      missCount++;
+      return Optional.empty();
+    }
+    final ByteBuffer slab = slabs[slabOf(address)].duplicate();
+    final int offset = offsetOf(address);
+    final long expiresAt = slab.getLong(offset + Integer.BYTES + Long.BYTES);
+    if (expiresAt != 0 && clock.getAsLong() - expiresAt >= 0) {
+      index.remove(toKey(id));
+      expirationCount++;
+      missCount++;
+      return Optional.empty();
+    }
+    hitCount++;
+    slab.position(offset + HEADER_SIZE);
+    return Optional.of(RowCodec.read(slab));
+  }
+
+  @Override
+  public synchronized void put(final Object id, final Object[] row) {
+    final long key = toKey(id);
+    final int rowSize = encode(row);
+    final int size = HEADER_SIZE + rowSize;
+    if (rowSize < 0 || size > slabSize) {
+      index.remove(key);
+      return;
+    }
+    if (slabs[currentSlab] == null) {
+      slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+    }
+    if (writeOffset + size > slabSize) {
+      currentSlab = (currentSlab + 1) % slabs.length;
+      writeOffset = 0;
+      recycle(currentSlab);
+    }
+    final ByteBuffer slab = slabs[currentSlab].duplicate();
+    slab.position(writeOffset);
+    slab.putInt(size)
+        .putLong(key)
+        .putLong(ttlNanos > 0 ? clock.getAsLong() + ttlNanos : 0)
+        .put(scratch.array(), 0, rowSize);
+    index.put(key, addressOf(currentSlab, writeOffset));
+    writeOffset += size;
+    slabLimits[currentSlab] = writeOffset;
+  }
+
+  @Override
+  public synchronized void invalidate(final Object id) {
+    index.remove(toKey(id));
+  }
+
+  @Override
+  public synchronized void invalidateAll() {
+    index.clear();
+    Arrays.fill(slabLimits, 0);
+    currentSlab = 0;
+    writeOffset = 0;
+  }
+
+  @Override
+  public synchronized CacheStats getStats() {
+    return new CacheStats(hitCount, missCount, evictionCount, expirationCount, index.size());
+  }
+
+  private int encode(final Object[] row) {
+    while (true) {
+      scratch.clear();
+      try {
+        return RowCodec.write(scratch, row) ? scratch.position() : -1;
+      } catch (BufferOverflowException e) {
+        if (scratch.capacity() >= slabSize) {
+          return -1;
+        }
+        scratch = ByteBuffer.allocate(Math.min(scratch.capacity() * 2, slabSize));
+      }
+    }
+  }
+
+  private void recycle(final int slabNumber) {
+    final ByteBuffer slab = slabs[slabNumber];
+    if (slab == null) {
+      slabs[slabNumber] = ByteBuffer.allocateDirect(slabSize);
+      return;
+    }
+    int offset = 0;
+    while (offset < slabLimits[slabNumber]) {
+      final long key = slab.getLong(offset + Integer.BYTES);
+      if (index.get(key) == addressOf(slabNumber, offset)) {
+        index.remove(key);
+        evictionCount++;
+      }
+      offset += slab.getInt(offset);
+    }
+    slabLimits[slabNumber] = 0;
+  }
+
+  private static long toKey(final Object id) {
+    if (id instanceof Number) {
+      return ((Number) id).longValue();
+    }
+    throw new IllegalArgumentException("Off-heap cache requires a numeric id: " + id);
+  }
+
+  private static long addressOf(final int slabNumber, final int offset) {
+    return (long) slabNumber << 32 | offset;
+  }
+
+  private static int slabOf(final long address) {
+    return (int) (address >>> 32);
+  }
+
+  private static int offsetOf(final long address) {
+    return (int) address;
+  }
+
+  /**
+   * Open-addressing hash index from {@code long} keys to
+   * {@code long} addresses, with linear probing.
+   */
+  private static final class LongIndex {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys = new long[16];
+    private long[] values = filled(16);
+    private int size;
+
+    private long get(final long key) {
+      final int mask = keys.length - 1;
+      for (int i = hash(key) & mask; values[i] != EMPTY; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+      }
+      return EMPTY;
+    }
+
+    private void put(final long key, final long value) {
+      if ((size + 1) * 2 > keys.length) {
+        resize(keys.length * 2);
+      }
+      final int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (values[i] != EMPTY) {
+        if (keys[i] == key) {
+          values[i] = value;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = value;
+      size++;
+    }
+
+    private void remove(final long key) {
+      final int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (values[i] != EMPTY && keys[i] != key) {
+        i = (i + 1) & mask;
+      }
+      if (values[i] == EMPTY) {
+        return;
+      }
+      values[i] = EMPTY;
+      size--;
+      for (int j = (i + 1) & mask; values[j] != EMPTY; j = (j + 1) & mask) {
+        final int home = hash(keys[j]) & mask;
+        if (((j - home) & mask) >= ((j - i) & mask)) {
+          keys[i] = keys[j];
+          values[i] = values[j];
+          values[j] = EMPTY;
+          i = j;
+        }
+      }
+    }
+
+    private void clear() {
+      Arrays.fill(values, EMPTY);
+      size = 0;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private void resize(final int capacity) {
+      final long[] oldKeys = keys;
+      final long[] oldValues = values;
+      keys = new long[capacity];
+      values = filled(capacity);
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldValues[i] != EMPTY) {
+          put(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+
+    private static long[] filled(final int capacity) {
+      final long[] array = new long[capacity];
+      Arrays.fill(array, EMPTY);
+      return array;
+    }
+
+    private static int hash(final long key) {
+      final long mixed = key * 0x9E3779B97F4A7C15L;
+      return (int) (mixed ^ mixed >>> 32);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package st4s1k.jdbcplus.cache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in cache of query results, holding the rows returned
+ * for a {@link QueryKey}, bounded by entry count with LRU eviction.
+ * <p>
+ * Every table has a version, incremented when it is invalidated,
+ * which drops all the entries reading from it. A result is only
+ * stored if the versions of its tables did not change while the
+ * query was running, so a concurrent write never leaves a stale entry.
+ */
+public class QueryCache {
+
+  private static final long REFERENCE_SIZE = 8;
+  private static final long OBJECT_HEADER_SIZE = 16;
+
+  private final int maxSize;
+  private final LinkedHashMap<QueryKey, Entry> entries;
+  private final Map<String, Set<QueryKey>> keysByTable = new HashMap<>();
+  private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+  private volatile boolean enabled;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long memoryUsage;
+
+  public QueryCache(final int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enable or disable the cache, disabling drops all the entries.
+   *
+   * @param enabled true to enable
+   */
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      invalidateAll();
+    }
+  }
+
+  /**
+   * Get the cached rows of a query.
+   *
+   * @param key query key
+   * @return {@link Optional} rows
+   */
+  public synchronized Optional<List<Object[]>> get(final QueryKey key) {
+    final Entry entry = entries.get(key);
+    if (entry == null) {
+      missCount++;
+      return Optional.empty();
+    }
+    hitCount++;
+    return Optional.of(entry.rows);
+  }
+
+  /**
+   * Get the current version of the tables of a query,
+   * to be passed to {@link #put(QueryKey, List, long)}.
+   *
+   * @param key query key
+   * @return tables version
+   */
+  public long getVersion(final QueryKey key) {
+    long version = 0;
+    for (final String table : key.getTables()) {
+      version += tableVersion(table).get();
+    }
+    return version;
+  }
+
+  /**
+   * Cache the rows of a query, unless one of its tables
+   * was invalidated since {@code version} was read.
+   *
+   * @param key     query key
+   * @param rows    result rows
+   * @param version tables version read before running the query
+   */
+  public synchronized void put(
+      final QueryKey key,
+      final List<Object[]> rows,
+      final long version
+  ) {
+    if (!enabled || getVersion(key) != version) {
+      return;
+    }
+    final Entry entry = new Entry(List.copyOf(rows));
+    remove(key, entries.put(key, entry));
+    memoryUsage += entry.size;
+    for (final String table : key.getTables()) {
+      keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+    }
+    if (entries.size() > maxSize) {
+      final Iterator<Map.Entry<QueryKey, Entry>> eldest = entries.entrySet().iterator();
+      final Map.Entry<QueryKey, Entry> evicted = eldest.next();
+      eldest.remove();
+      remove(evicted.getKey(), evicted.getValue());
+      evictionCount++;
+    }
+  }
+
+  /**
+   * Drop the entries of all the queries reading from a table.
+   *
+   * @param table table name
+   */
+  public synchronized void invalidateTable(final String table) {
+    tableVersion(table).incrementAndGet();
+    final Set<QueryKey> keys = keysByTable.remove(table);
+    if (keys != null) {
+      for (final QueryKey key : keys) {
+        remove(key, entries.remove(key));
+      }
+    }
+  }
+
+  /**
+   * Drop all the entries.
+   */
+  public synchronized void invalidateAll() {
+    tableVersions.values().forEach(AtomicLong::incrementAndGet);
+    entries.clear();
+    keysByTable.clear();
+    memoryUsage = 0;
+  }
+
+  public synchronized CacheStats getStats() {
+    return new CacheStats(hitCount, missCount, evictionCount, 0, entries.size());
+  }
+
+  /**
+   * Get the estimated heap size of the cached rows.
+   *
+   * @return size in bytes
+   */
+  public synchronized long getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  private AtomicLong tableVersion(final String table) {
+    return tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+  }
+
+  private void remove(final QueryKey key, final Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    memoryUsage -= entry.size;
+    for (final String table : key.getTables()) {
+      final Set<QueryKey> keys = keysByTable.get(table);
+      if (keys != null && !entries.containsKey(key)) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByTable.remove(table);
+        }
+      }
+    }
+  }
+
+  private static long estimateSize(final List<Object[]> rows) {
+    long size = OBJECT_HEADER_SIZE + REFERENCE_SIZE * rows.size();
+    for (final Object[] row : rows) {
+      size += OBJECT_HEADER_SIZE + REFERENCE_SIZE * row.length;
+      for (final Object value : row) {
+        size += estimateSize(value);
+      }
+    }
+    return size;
+  }
+
+  private static long estimateSize(final Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 2 * OBJECT_HEADER_SIZE + ((CharSequence) value).length();
+    } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+      return OBJECT_HEADER_SIZE;
+    }
+    return 2 * OBJECT_HEADER_SIZE;
+  }
+
+  private static final class Entry {
+
+    private final List<Object[]> rows;
+    private final long size;
+
+    private Entry(final List<Object[]> rows) {
+      this.rows = rows;
+      this.size = estimateSize(rows);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package st4s1k.jdbcplus.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Key of a {@link QueryCache} entry: a SQL template with {@code ?}
+ * placeholders and the values bound to them, together with the
+ * tables the query reads from.
+ */
+public final class QueryKey {
+
+  private final String template;
+  private final List<Object> parameters;
+  private final Set<String> tables;
+
+  private QueryKey(
+      final String template,
+      final List<Object> parameters,
+      final Set<String> tables
+  ) {
+    this.template = template;
+    this.parameters = parameters;
+    this.tables = tables;
+  }
+
+  /**
+   * Create a key.
+   *
+   * @param template   SQL template
+   * @param parameters values bound to the template placeholders
+   * @param tables     tables read by the query
+   * @return query key
+   */
+  public static QueryKey of(
+      final String template,
+      final Object[] parameters,
+      final Set<String> tables
+  ) {
+    return new QueryKey(
+        template,
+        Collections.unmodifiableList(Arrays.asList(parameters.clone())),
+        Set.copyOf(tables)
+    );
+  }
+
+  public String getTemplate() {
+    return template;
+  }
+
+  public List<Object> getParameters() {
+    return parameters;
+  }
+
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof QueryKey)) {
+      return false;
+    }
+    final QueryKey queryKey = (QueryKey) o;
+    return template.equals(queryKey.template) && parameters.equals(queryKey.parameters);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(template, parameters);
+  }
+
+  @Override
+  public String toString() {
+    return template + " " + parameters;
+  }
+}
@@ -0,0 +1,265 @@
+package st4s1k.jdbcplus.cache;
+
+import st4s1k.jdbcplus.collections.IdMap;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.lang.System.Logger.Level.ERROR;
+
+/**
+ * In-memory replica of a small, fully loaded table, answering
+ * lookups by id, by column and of all the rows without querying
+ * the database.
+ * <p>
+ * The rows are held in an immutable {@link Snapshot}, with a hash index
+ * on the id and on each indexed column. A refresh loads the whole table
+ * again and swaps the snapshot atomically: readers never lock, and keep
+ * reading the previous snapshot while a refresh is in progress.
+ * A refresh happens on the first read after {@link #invalidate()}
+ * or after the refresh interval elapsed. A refresh that fails keeps
+ * the previous snapshot, and is tried again on the next read.
+ */
+public class ReferenceTable {
+
+  private static final System.Logger LOGGER = System.getLogger("ReferenceTable");
+
+  private final Class<?> entityClass;
+  private final String[] columnNames;
+  private final int idColumnIndex;
+  private final int[] indexedColumns;
+  private final Supplier<List<Object[]>> loader;
+  private final long refreshNanos;
+  private final LongSupplier clock;
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private final AtomicLong loadCount = new AtomicLong();
+  private volatile boolean stale;
+
+  /**
+   * Create a reference table, loaded on first read.
+   *
+   * @param entityClass    entity class
+   * @param columnNames    column names, in the order of the row values
+   * @param idColumnName   id column name
+   * @param indexedColumns names of the columns to index
+   * @param loader         loads all the rows of the table, throws
+   *                       if the table cannot be read
+   * @param refreshPeriod  refresh period, 0 to refresh only when invalidated
+   * @param unit           refresh period unit
+   */
+  public ReferenceTable(
+      final Class<?> entityClass,
+      final String[] columnNames,
+      final String idColumnName,
+      final String[] indexedColumns,
+      final Supplier<List<Object[]>> loader,
+      final long refreshPeriod,
+      final TimeUnit unit
+  ) {
+    this(
+        entityClass,
+        columnNames,
+        idColumnName,
+        indexedColumns,
+        loader,
+        refreshPeriod,
+        unit,
+        System::nanoTime
+    );
+  }
+
+  ReferenceTable(
+      final Class<?> entityClass,
+      final String[] columnNames,
+      final String idColumnName,
+      final String[] indexedColumns,
+      final Supplier<List<Object[]>> loader,
+      final long refreshPeriod,
+      final TimeUnit unit,
+      final LongSupplier clock
+  ) {
+    this.entityClass = entityClass;
+    this.columnNames = columnNames.clone();
+    this.idColumnIndex = getColumnIndex(idColumnName);
+    this.indexedColumns = Arrays.stream(indexedColumns)
+        .mapToInt(this::getColumnIndex)
+        .filter(index -> index >= 0 && index != idColumnIndex)
+        .distinct()
+        .toArray();
+    this.loader = loader;
+    this.refreshNanos = unit.toNanos(refreshPeriod);
+    this.clock = clock;
+  }
+
+  public Class<?> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * Get the number of times the table was loaded.
+   *
+   * @return load count
+   */
+  public long getLoadCount() {
+    return loadCount.get();
+  }
+
+  /**
+   * Get the current snapshot, refreshing it first if it is stale
+   * and no other refresh is in progress.
+   *
+   * @return {@link Optional} snapshot, empty if the table is being
+   * loaded for the first time by another caller or could not be loaded
+   */
+  public Optional<Snapshot> getSnapshot() {
+    final Snapshot current = snapshot.get();
+    if (current != null && !stale && !isExpired(current)) {
+      return Optional.of(current);
+    }
+    if (refreshing.compareAndSet(false, true)) {
+      try {
+        return Optional.of(refresh());
+      } catch (RuntimeException e) {
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+        return Optional.ofNullable(current);
+      } finally {
+        refreshing.set(false);
+      }
+    }
+    return Optional.ofNullable(current);
+  }
+
+  /**
+   * Mark the snapshot as stale, so it is reloaded on the next read.
+   */
+  public void invalidate() {
+    stale = true;
+  }
+
+  private Snapshot refresh() {
+    stale = false;
+    final List<Object[]> rows;
+    try {
+      rows = Optional.ofNullable(loader.get()).orElse(Collections.emptyList());
+    } catch (RuntimeException e) {
+      stale = true;
+      throw e;
+    }
+    final Snapshot loaded = new Snapshot(rows, clock.getAsLong());
+    loadCount.incrementAndGet();
+    snapshot.set(loaded);
+    return loaded;
+  }
+
+  private boolean isExpired(final Snapshot current) {
+    return refreshNanos > 0 && clock.getAsLong() - current.loadedAt >= refreshNanos;
+  }
+
+  private int getColumnIndex(final String columnName) {
+    for (int i = 0; i < columnNames.length; i++) {
+      if (columnNames[i].equals(columnName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Object toKey(final Object value) {
+    if (value instanceof Integer || value instanceof Long
+        || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    return value;
+  }
+
+  /**
+   * Immutable content of a {@link ReferenceTable} at a point in time.
+   * Rows are shared between readers and must not be modified.
+   */
+  public final class Snapshot {
+
+    private final List<Object[]> rows;
+    private final IdMap<Object[]> byId;
+    private final Map<Integer, Map<Object, List<Object[]>>> indexes = new HashMap<>();
+    private final long loadedAt;
+
+    private Snapshot(final List<Object[]> rows, final long loadedAt) {
+      this.rows = List.copyOf(rows);
+      this.byId = IdMap.forEntity(entityClass);
+      this.loadedAt = loadedAt;
+      for (final int column : indexedColumns) {
+        indexes.put(column, new HashMap<>());
+      }
+      for (final Object[] row : this.rows) {
+        if (idColumnIndex >= 0 && row[idColumnIndex] != null) {
+          byId.put(row[idColumnIndex], row);
+        }
+        for (final Map.Entry<Integer, Map<Object, List<Object[]>>> index : indexes.entrySet()) {
+          index.getValue()
+              .computeIfAbsent(toKey(row[index.getKey()]), key -> new ArrayList<>(1))
+              .add(row);
+        }
+      }
+    }
+
+    /**
+     * Get all the rows.
+     *
+     * @return rows, in load order
+     */
+    public List<Object[]> findAll() {
+      return rows;
+    }
+
+    /**
+     * Get a row by id.
+     *
+     * @param id row id
+     * @return {@link Optional} row
+     */
+    public Optional<Object[]> findById(final Object id) {
+      return id == null ? Optional.empty() : Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * Get the rows where a column has a value, using the column
+     * index if there is one, scanning the rows otherwise.
+     *
+     * @param columnName column name
+     * @param value      column value
+     * @return matching rows, empty if the column does not exist
+     */
+    public List<Object[]> findByColumn(final String columnName, final Object value) {
+      final int column = getColumnIndex(columnName);
+      if (column < 0) {
+        return Collections.emptyList();
+      } else if (column == idColumnIndex) {
+        return findById(value)
+            .map(Collections::singletonList)
+            .orElse(Collections.emptyList());
+      }
+      final Object key = toKey(value);
+      final Map<Object, List<Object[]>> index = indexes.get(column);
+      if (index != null) {
+        return Collections.unmodifiableList(index.getOrDefault(key, Collections.emptyList()));
+      }
+      final List<Object[]> result = new ArrayList<>();
+      for (final Object[] row : rows) {
+        if (Objects.equals(toKey(row[column]), key)) {
+          result.add(row);
+        }
+      }
+      return result;
+    }
+
+    public int size() {
+      return rows.size();
+    }
+  }
+}
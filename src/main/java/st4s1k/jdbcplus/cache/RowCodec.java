@@ -0,0 +1,201 @@
+package st4s1k.jdbcplus.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.*;
+import java.util.UUID;
+
+/**
+ * Binary format of the cached rows: a column count followed by
+ * one type tag and the value of every column.
+ */
+final class RowCodec {
+
+  private static final byte NULL = 0;
+  private static final byte INTEGER = 1;
+  private static final byte LONG = 2;
+  private static final byte SHORT = 3;
+  private static final byte BYTE = 4;
+  private static final byte BOOLEAN = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte FLOAT = 7;
+  private static final byte CHARACTER = 8;
+  private static final byte STRING = 9;
+  private static final byte BIG_DECIMAL = 10;
+  private static final byte BIG_INTEGER = 11;
+  private static final byte SQL_DATE = 12;
+  private static final byte SQL_TIME = 13;
+  private static final byte SQL_TIMESTAMP = 14;
+  private static final byte DATE = 15;
+  private static final byte LOCAL_DATE = 16;
+  private static final byte LOCAL_TIME = 17;
+  private static final byte LOCAL_DATE_TIME = 18;
+  private static final byte INSTANT = 19;
+  private static final byte UUID_VALUE = 20;
+  private static final byte BYTES = 21;
+
+  private RowCodec() {
+  }
+
+  /**
+   * Write a row at the position of a buffer.
+   *
+   * @param buffer target buffer
+   * @param row    column values
+   * @return false if a value has no binary format
+   * @throws java.nio.BufferOverflowException if the buffer is too small
+   */
+  static boolean write(final ByteBuffer buffer, final Object[] row) {
+    buffer.putShort((short) row.length);
+    for (final Object value : row) {
+      if (!writeValue(buffer, value)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read a row at the position of a buffer.
+   *
+   * @param buffer source buffer
+   * @return column values
+   */
+  static Object[] read(final ByteBuffer buffer) {
+    final Object[] row = new Object[buffer.getShort()];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = readValue(buffer);
+    }
+    return row;
+  }
+
+  private static boolean writeValue(final ByteBuffer buffer, final Object value) {
+    if (value == null) {
+      buffer.put(NULL);
+    } else if (value instanceof Integer) {
+      buffer.put(INTEGER).putInt((Integer) value);
+    } else if (value instanceof Long) {
+      buffer.put(LONG).putLong((Long) value);
+    } else if (value instanceof Short) {
+      buffer.put(SHORT).putShort((Short) value);
+    } else if (value instanceof Byte) {
+      buffer.put(BYTE).put((Byte) value);
+    } else if (value instanceof Boolean) {
+      buffer.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+    } else if (value instanceof Double) {
+      buffer.put(DOUBLE).putDouble((Double) value);
+    } else if (value instanceof Float) {
+      buffer.put(FLOAT).putFloat((Float) value);
+    } else if (value instanceof Character) {
+      buffer.put(CHARACTER).putChar((Character) value);
+    } else if (value instanceof String) {
+      writeBytes(buffer.put(STRING), ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (value instanceof BigDecimal) {
+      writeBytes(buffer.put(BIG_DECIMAL), value.toString().getBytes(StandardCharsets.US_ASCII));
+    } else if (value instanceof BigInteger) {
+      writeBytes(buffer.put(BIG_INTEGER), ((BigInteger) value).toByteArray());
+    } else if (value instanceof java.sql.Date) {
+      buffer.put(SQL_DATE).putLong(((java.sql.Date) value).getTime());
+    } else if (value instanceof Time) {
+      buffer.put(SQL_TIME).putLong(((Time) value).getTime());
+    } else if (value instanceof Timestamp) {
+      final Timestamp timestamp = (Timestamp) value;
+      buffer.put(SQL_TIMESTAMP).putLong(timestamp.getTime()).putInt(timestamp.getNanos());
+    } else if (value.getClass() == java.util.Date.class) {
+      buffer.put(DATE).putLong(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDate) {
+      buffer.put(LOCAL_DATE).putLong(((LocalDate) value).toEpochDay());
+    } else if (value instanceof LocalTime) {
+      buffer.put(LOCAL_TIME).putLong(((LocalTime) value).toNanoOfDay());
+    } else if (value instanceof LocalDateTime) {
+      final LocalDateTime dateTime = (LocalDateTime) value;
+      buffer.put(LOCAL_DATE_TIME)
+          .putLong(dateTime.toLocalDate().toEpochDay())
+          .putLong(dateTime.toLocalTime().toNanoOfDay());
+    } else if (value instanceof Instant) {
+      final Instant instant = (Instant) value;
+      buffer.put(INSTANT).putLong(instant.getEpochSecond()).putInt(instant.getNano());
+    } else if (value instanceof UUID) {
+      final UUID uuid = (UUID) value;
+      buffer.put(UUID_VALUE)
+          .putLong(uuid.getMostSignificantBits())
+          .putLong(uuid.getLeastSignificantBits());
+    } else if (value instanceof byte[]) {
+      writeBytes(buffer.put(BYTES), (byte[]) value);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private static Object readValue(final ByteBuffer buffer) {
+    final byte tag = buffer.get();
+    switch (tag) {
+      case NULL:
+        return null;
+      case INTEGER:
+        return buffer.getInt();
+      case LONG:
+        return buffer.getLong();
+      case SHORT:
+        return buffer.getShort();
+      case BYTE:
+        return buffer.get();
+      case BOOLEAN:
+        return buffer.get() != 0;
+      case DOUBLE:
+        return buffer.getDouble();
+      case FLOAT:
+        return buffer.getFloat();
+      case CHARACTER:
+        return buffer.getChar();
+      case STRING:
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+      case BIG_DECIMAL:
+        return new BigDecimal(new String(readBytes(buffer), StandardCharsets.US_ASCII));
+      case BIG_INTEGER:
+        return new BigInteger(readBytes(buffer));
+      case SQL_DATE:
+        return new java.sql.Date(buffer.getLong());
+      case SQL_TIME:
+        return new Time(buffer.getLong());
+      case SQL_TIMESTAMP:
+        final Timestamp timestamp = new Timestamp(buffer.getLong());
+        timestamp.setNanos(buffer.getInt());
+        return timestamp;
+      case DATE:
+        return new java.util.Date(buffer.getLong());
+      case LOCAL_DATE:
+        return LocalDate.ofEpochDay(buffer.getLong());
+      case LOCAL_TIME:
+        return LocalTime.ofNanoOfDay(buffer.getLong());
+      case LOCAL_DATE_TIME:
+        return LocalDateTime.of(
+            LocalDate.ofEpochDay(buffer.getLong()),
+            LocalTime.ofNanoOfDay(buffer.getLong())
+        );
+      case INSTANT:
+        return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+      case UUID_VALUE:
+        return new UUID(buffer.getLong(), buffer.getLong());
+      case BYTES:
+        return readBytes(buffer);
+      default:
+        throw new IllegalStateException("Corrupted cached row, unknown type tag: " + tag);
+    }
+  }
+
+  private static void writeBytes(final ByteBuffer buffer, final byte[] bytes) {
+    buffer.putInt(bytes.length).put(bytes);
+  }
+
+  private static byte[] readBytes(final ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,173 @@
+package st4s1k.jdbcplus.collections;
+
+import st4s1k.jdbcplus.annotations.Id;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map from entity ids to non-null values.
+ * <p>
+ * Integral ids are stored unboxed in an {@link IntObjectHashMap} or a
+ * {@link LongObjectHashMap}, chosen by the type of the {@link Id} field.
+ * Other ids, and ids that do not fit the primitive key type, are kept
+ * in a regular {@link HashMap}. An integral id matches whatever boxed
+ * integral type it is looked up with.
+ *
+ * @param <V> value type
+ */
+public final class IdMap<V> {
+
+  private static final ClassValue<Class<?>> ID_TYPES = new ClassValue<>() {
+    @Override
+    protected Class<?> computeValue(final Class<?> type) {
+      return Arrays.stream(type.getDeclaredFields())
+          .filter(field -> field.isAnnotationPresent(Id.class))
+          .findFirst()
+          .<Class<?>>map(Field::getType)
+          .orElse(Object.class);
+    }
+  };
+
+  private final IntObjectHashMap<V> intKeys;
+  private final LongObjectHashMap<V> longKeys;
+  private Map<Object, V> otherKeys;
+
+  private IdMap(final IntObjectHashMap<V> intKeys, final LongObjectHashMap<V> longKeys) {
+    this.intKeys = intKeys;
+    this.longKeys = longKeys;
+  }
+
+  /**
+   * Create a map for ids of the given type.
+   *
+   * @param idType type of the ids
+   * @return empty map
+   */
+  public static <V> IdMap<V> forIdType(final Class<?> idType) {
+    if (idType == int.class || idType == Integer.class
+        || idType == short.class || idType == Short.class
+        || idType == byte.class || idType == Byte.class) {
+      return new IdMap<>(new IntObjectHashMap<>(), null);
+    } else if (idType == long.class || idType == Long.class) {
+      return new IdMap<>(null, new LongObjectHashMap<>());
+    }
+    return new IdMap<>(null, null);
+  }
+
+  /**
+   * Create a map for the ids of an entity class.
+   *
+   * @param entityClass entity class
+   * @return empty map
+   */
+  public static <V> IdMap<V> forEntity(final Class<?> entityClass) {
+    return forIdType(ID_TYPES.get(entityClass));
+  }
+
+  public V get(final Object id) {
+    if (intKeys != null && isIntKey(id)) {
+      return intKeys.get(((Number) id).intValue());
+    } else if (longKeys != null && isLongKey(id)) {
+      return longKeys.get(((Number) id).longValue());
+    }
+    return otherKeys == null ? null : otherKeys.get(id);
+  }
+
+  public boolean containsKey(final Object id) {
+    return get(id) != null;
+  }
+
+  /**
+   * Associate a value with an id.
+   *
+   * @param id    the id
+   * @param value non-null value
+   * @return the previous value, or null
+   */
+  public V put(final Object id, final V value) {
+    if (intKeys != null && isIntKey(id)) {
+      return intKeys.put(((Number) id).intValue(), value);
+    } else if (longKeys != null && isLongKey(id)) {
+      return longKeys.put(((Number) id).longValue(), value);
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("Null values are not supported");
+    }
+    return otherKeys().put(id, value);
+  }
+
+  /**
+   * Associate a value with an id, unless the id already has one.
+   *
+   * @param id    the id
+   * @param value non-null value
+   * @return the current value, or null if the value was added
+   */
+  public V putIfAbsent(final Object id, final V value) {
+    if (intKeys != null && isIntKey(id)) {
+      return intKeys.putIfAbsent(((Number) id).intValue(), value);
+    } else if (longKeys != null && isLongKey(id)) {
+      return longKeys.putIfAbsent(((Number) id).longValue(), value);
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("Null values are not supported");
+    }
+    return otherKeys().putIfAbsent(id, value);
+  }
+
+  /**
+   * Remove the value of an id.
+   *
+   * @param id the id
+   * @return the removed value, or null
+   */
+  public V remove(final Object id) {
+    if (intKeys != null && isIntKey(id)) {
+      return intKeys.remove(((Number) id).intValue());
+    } else if (longKeys != null && isLongKey(id)) {
+      return longKeys.remove(((Number) id).longValue());
+    }
+    return otherKeys == null ? null : otherKeys.remove(id);
+  }
+
+  public int size() {
+    return (intKeys == null ? 0 : intKeys.size())
+        + (longKeys == null ? 0 : longKeys.size())
+        + (otherKeys == null ? 0 : otherKeys.size());
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void clear() {
+    if (intKeys != null) {
+      intKeys.clear();
+    }
+    if (longKeys != null) {
+      longKeys.clear();
+    }
+    otherKeys = null;
+  }
+
+  private Map<Object, V> otherKeys() {
+    if (otherKeys == null) {
+      otherKeys = new HashMap<>();
+    }
+    return otherKeys;
+  }
+
+  private static boolean isLongKey(final Object id) {
+    return id instanceof Long || id instanceof Integer || id instanceof Short || id instanceof Byte;
+  }
+
+  private static boolean isIntKey(final Object id) {
+    if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+      return true;
+    }
+    return id instanceof Long && (Long) id == ((Long) id).intValue();
+  }
+}
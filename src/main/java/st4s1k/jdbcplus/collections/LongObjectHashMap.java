@@ -0,0 +1,191 @@
+package st4s1k.jdbcplus.collections;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to
+ * non-null values, with linear probing and backward shift deletion,
+ * so lookups allocate nothing and keys are stored unboxed.
+ *
+ * @param <V> value type
+ */
+public class LongObjectHashMap<V> {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private Object[] values;
+  private int size;
+
+  public LongObjectHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Create a map holding the expected number of entries without resizing.
+   *
+   * @param expectedSize expected number of entries
+   */
+  public LongObjectHashMap(final int expectedSize) {
+    final int capacity = capacityFor(expectedSize);
+    keys = new long[capacity];
+    values = new Object[capacity];
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(final long key) {
+    final int mask = keys.length - 1;
+    for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return (V) values[i];
+      }
+    }
+    return null;
+  }
+
+  public boolean containsKey(final long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Associate a value with a key.
+   *
+   * @param key   the key
+   * @param value non-null value
+   * @return the previous value, or null
+   */
+  public V put(final long key, final V value) {
+    return put(key, value, true);
+  }
+
+  /**
+   * Associate a value with a key, unless the key already has one.
+   *
+   * @param key   the key
+   * @param value non-null value
+   * @return the current value, or null if the value was added
+   */
+  public V putIfAbsent(final long key, final V value) {
+    return put(key, value, false);
+  }
+
+  /**
+   * Remove the value of a key.
+   *
+   * @param key the key
+   * @return the removed value, or null
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(final long key) {
+    final int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    final Object removed = values[i];
+    if (removed == null) {
+      return null;
+    }
+    values[i] = null;
+    size--;
+    for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+      final int home = hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = keys[j];
+        values[i] = values[j];
+        values[j] = null;
+        i = j;
+      }
+    }
+    return (V) removed;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * Perform an action for every entry, in no particular order.
+   *
+   * @param action the action
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(final EntryConsumer<? super V> action) {
+    for (int i = 0; i < keys.length; i++) {
+      if (values[i] != null) {
+        action.accept(keys[i], (V) values[i]);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V put(final long key, final V value, final boolean replace) {
+    if (value == null) {
+      throw new IllegalArgumentException("Null values are not supported");
+    }
+    final int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (values[i] != null) {
+      if (keys[i] == key) {
+        final V previous = (V) values[i];
+        if (replace) {
+          values[i] = value;
+        }
+        return previous;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size * 2 > keys.length) {
+      resize(keys.length * 2);
+    }
+    return null;
+  }
+
+  private void resize(final int capacity) {
+    final long[] oldKeys = keys;
+    final Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    final int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != null) {
+        int i = hash(oldKeys[j]) & mask;
+        while (values[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private static int capacityFor(final int expectedSize) {
+    final int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2) - 1) << 1;
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+    }
+    return capacity;
+  }
+
+  private static int hash(final long key) {
+    final long mixed = key * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ mixed >>> 32);
+  }
+
+  @FunctionalInterface
+  public interface EntryConsumer<V> {
+
+    void accept(long key, V value);
+  }
+}
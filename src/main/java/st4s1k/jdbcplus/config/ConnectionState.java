@@ -0,0 +1,99 @@
+package st4s1k.jdbcplus.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Known settings of a connection during one operation. Each setting
+ * is read from the driver at most once, changed only when the
+ * requested value differs, and restored by {@link #restore()} only
+ * if it was changed.
+ */
+final class ConnectionState {
+
+  private final Connection connection;
+  private Boolean initialAutoCommit;
+  private boolean autoCommit;
+  private Boolean initialReadOnly;
+  private boolean readOnly;
+  private Integer initialIsolation;
+  private int isolation;
+
+  ConnectionState(final Connection connection) {
+    this.connection = connection;
+  }
+
+  boolean isAutoCommit() throws SQLException {
+    if (initialAutoCommit == null) {
+      autoCommit = connection.getAutoCommit();
+      initialAutoCommit = autoCommit;
+    }
+    return autoCommit;
+  }
+
+  void setAutoCommit(final boolean value) throws SQLException {
+    if (isAutoCommit() != value) {
+      connection.setAutoCommit(value);
+      autoCommit = value;
+    }
+  }
+
+  void setReadOnly(final boolean value) throws SQLException {
+    if (initialReadOnly == null) {
+      if (!value) {
+        return;
+      }
+      readOnly = connection.isReadOnly();
+      initialReadOnly = readOnly;
+    }
+    if (readOnly != value) {
+      connection.setReadOnly(value);
+      readOnly = value;
+    }
+  }
+
+  void setTransactionIsolation(final int level) throws SQLException {
+    if (level == TransactionOptions.DEFAULT_ISOLATION) {
+      return;
+    }
+    if (initialIsolation == null) {
+      isolation = connection.getTransactionIsolation();
+      initialIsolation = isolation;
+    }
+    if (isolation != level) {
+      connection.setTransactionIsolation(level);
+      isolation = level;
+    }
+  }
+
+  /**
+   * Apply the read-only hint and isolation level of the options.
+   *
+   * @param options transaction options
+   * @throws SQLException if a setting cannot be changed
+   */
+  void apply(final TransactionOptions options) throws SQLException {
+    setReadOnly(options.isReadOnly());
+    setTransactionIsolation(options.getIsolation());
+  }
+
+  /**
+   * Restore the settings that were changed.
+   *
+   * @throws SQLException if a setting cannot be restored
+   */
+  void restore() throws SQLException {
+    if (initialAutoCommit != null && autoCommit != initialAutoCommit) {
+      connection.setAutoCommit(initialAutoCommit);
+      autoCommit = initialAutoCommit;
+    }
+    if (initialReadOnly != null && readOnly != initialReadOnly) {
+      connection.setReadOnly(initialReadOnly);
+      readOnly = initialReadOnly;
+    }
+    if (initialIsolation != null && isolation != initialIsolation) {
+      connection.setTransactionIsolation(initialIsolation);
+      isolation = initialIsolation;
+    }
+  }
+}
@@ -1,17 +1,28 @@
 package st4s1k.jdbcplus.config;
 
+import st4s1k.jdbcplus.exceptions.DeadlineExceededException;
 import st4s1k.jdbcplus.exceptions.InstanceAlreadyInitializedException;
 import st4s1k.jdbcplus.exceptions.InstanceNotInitializedException;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
 import st4s1k.jdbcplus.function.ConnectionConsumer;
 import st4s1k.jdbcplus.function.ConnectionFunction;
+import st4s1k.jdbcplus.function.StatementFunction;
+import st4s1k.jdbcplus.pool.JdbcPlusPool;
 
 import javax.sql.DataSource;
 import java.lang.System.Logger;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -24,10 +35,22 @@ public class DatabaseConnection {
   protected static volatile DataSource dataSource;
   protected static volatile Logger logger;
 
+  private final DataSource boundDataSource;
+  private volatile TransactionOptions readOptions = TransactionOptions.defaults();
+  private volatile TransactionOptions writeOptions = TransactionOptions.write();
+  private volatile ReplicaRouter replicaRouter;
+  private volatile GroupCommit groupCommit;
+  private volatile Duration queryTimeout = Duration.ZERO;
+
   protected DatabaseConnection() {
     if (instance != null) {
       throw new InstanceAlreadyInitializedException();
     }
+    boundDataSource = null;
+  }
+
+  private DatabaseConnection(final DataSource dataSource) {
+    boundDataSource = dataSource;
   }
 
   public static DatabaseConnection getInstance() {
@@ -51,13 +74,156 @@ public class DatabaseConnection {
     }
   }
 
+  /**
+   * Create a connection to another data source, independent
+   * of the default instance and of its configuration.
+   *
+   * @param dataSource the data source
+   * @return a new database connection
+   */
+  public static DatabaseConnection of(final DataSource dataSource) {
+    requireNonNull(dataSource);
+    if (logger == null) {
+      synchronized (DatabaseConnection.class) {
+        if (logger == null) {
+          logger = System.getLogger("DatabaseConnection");
+        }
+      }
+    }
+    return new DatabaseConnection(dataSource);
+  }
+
+  /**
+   * Get the data source of this connection.
+   *
+   * @return the data source
+   */
+  public DataSource getDataSource() {
+    return boundDataSource != null ? boundDataSource : dataSource;
+  }
+
+  /**
+   * Get the options of the read-only operations, by default without
+   * the read-only hint, which is set and restored around every select,
+   * and with the connection's isolation level.
+   *
+   * @return read options
+   */
+  public TransactionOptions getReadOptions() {
+    return readOptions;
+  }
+
+  public void setReadOptions(final TransactionOptions readOptions) {
+    this.readOptions = requireNonNull(readOptions);
+  }
+
+  /**
+   * Get the options of the writing operations, without
+   * the read-only hint and with the connection's isolation level.
+   *
+   * @return write options
+   */
+  public TransactionOptions getWriteOptions() {
+    return writeOptions;
+  }
+
+  public void setWriteOptions(final TransactionOptions writeOptions) {
+    this.writeOptions = requireNonNull(writeOptions);
+  }
+
+  public Duration getQueryTimeout() {
+    return queryTimeout;
+  }
+
+  /**
+   * Set the default deadline of the calls, applied when no
+   * {@link Deadline} is bound to the current thread: the statements
+   * of a call, and its wait for a pooled connection, fail with a
+   * {@link DeadlineExceededException} once it has elapsed.
+   *
+   * @param queryTimeout timeout of a call, zero for none
+   */
+  public void setQueryTimeout(final Duration queryTimeout) {
+    this.queryTimeout = requireNonNull(queryTimeout);
+  }
+
+  /**
+   * Get the read replicas.
+   *
+   * @return {@link Optional} replica configuration, empty if
+   * all the statements go to the primary
+   */
+  public Optional<ReplicaConfig> getReplicaConfig() {
+    return Optional.ofNullable(replicaRouter).map(ReplicaRouter::getConfig);
+  }
+
+  /**
+   * Route the reads of {@link #queryTransaction} to read replicas.
+   * Writes, reads inside {@link #inTransaction(Function)} and reads
+   * of a thread within the read-your-writes window of its last write
+   * stay on the primary. A read falls back to the primary if the
+   * replica gives no connection.
+   *
+   * @param replicaConfig the replicas, or null to read from the primary
+   */
+  public void setReplicaConfig(final ReplicaConfig replicaConfig) {
+    this.replicaRouter = replicaConfig == null ? null : new ReplicaRouter(replicaConfig);
+  }
+
+  /**
+   * Get the group commit configuration.
+   *
+   * @return {@link Optional} group commit configuration, empty if
+   * every update commits separately
+   */
+  public Optional<GroupCommitConfig> getGroupCommitConfig() {
+    return Optional.ofNullable(groupCommit).map(GroupCommit::getConfig);
+  }
+
+  /**
+   * Commit the {@link #updateTransaction(String)} calls of concurrent
+   * threads together: the updates queued within the latency budget run
+   * in one transaction, on one connection, and each caller gets the
+   * outcome of its own update. A failing update is rolled back with its
+   * group and retried alone, and the group is committed without it.
+   * Updates inside {@link #inTransaction(Function)}, or within a
+   * {@link Deadline} or a query timeout, commit separately.
+   *
+   * @param groupCommitConfig the group commit, or null to disable it
+   */
+  public void setGroupCommitConfig(final GroupCommitConfig groupCommitConfig) {
+    this.groupCommit = groupCommitConfig == null
+        ? null
+        : new GroupCommit(groupCommitConfig, this::commitGroup);
+  }
+
   public <T> T queryTransaction(
       final String query,
       final Function<ResultSet, T> operation,
       final Supplier<T> defaultResult
   ) {
-    return applyConnection(
-        connection -> queryTransaction(connection, query, operation),
+    return queryTransaction(query, operation, defaultResult, readOptions);
+  }
+
+  /**
+   * Run a select in the current mode of the connection, without
+   * toggling autocommit: in autocommit mode nothing is committed
+   * or rolled back, in manual mode the read transaction is ended.
+   *
+   * @param query         select query
+   * @param operation     reads the result set
+   * @param defaultResult result when the query fails
+   * @param options       read-only hint and isolation level
+   * @return the result of the operation
+   */
+  public <T> T queryTransaction(
+      final String query,
+      final Function<ResultSet, T> operation,
+      final Supplier<T> defaultResult,
+      final TransactionOptions options
+  ) {
+    return applyReadConnection(
+        connection -> queryTransaction(connection, query, operation, options),
         defaultResult
     );
   }
@@ -67,27 +233,70 @@ public class DatabaseConnection {
       final String query,
       final Function<ResultSet, T> operation
   ) throws SQLException {
-    final boolean initialAutocommit = connection.getAutoCommit();
-    connection.setAutoCommit(false);
-    try (final Statement statement = connection.createStatement();
-         final ResultSet resultSet = statement.executeQuery(query)) {
-      final T result = operation.apply(resultSet);
-      connection.commit();
-      return result;
-    } catch (final Exception e) {
-      logger.log(ERROR, e.getLocalizedMessage(), e);
-      connection.rollback();
-      throw e;
-    } finally {
-      if (initialAutocommit) {
-        connection.setAutoCommit(true);
+    return queryTransaction(connection, query, operation, readOptions);
+  }
+
+  protected <T> T queryTransaction(
+      final Connection connection,
+      final String query,
+      final Function<ResultSet, T> operation,
+      final TransactionOptions options
+  ) throws SQLException {
+    return read(connection, options, c -> execute(c, statement -> {
+      try (final ResultSet resultSet = statement.executeQuery(query)) {
+        return operation.apply(resultSet);
       }
-    }
+    }));
   }
 
   public void updateTransaction(final String updateQuery) {
-    applyConnection(
-        connection -> updateTransaction(connection, updateQuery)
+    updateTransaction(updateQuery, writeOptions);
+  }
+
+  /**
+   * Execute an update query in its own transaction.
+   *
+   * @param updateQuery update query
+   * @param options     isolation level
+   */
+  public void updateTransaction(
+      final String updateQuery,
+      final TransactionOptions options
+  ) {
+    update(updateQuery, options, e -> failure(e, () -> null));
+  }
+
+  /**
+   * Execute an update query in its own transaction, failing
+   * instead of only logging the error, for callers that must
+   * know whether the row was written.
+   *
+   * @param updateQuery update query
+   * @throws JdbcPlusException if the transaction is rolled back
+   */
+  public void updateTransactionOrThrow(final String updateQuery) {
+    update(updateQuery, writeOptions, e -> {
+      throw failure(e);
+    });
+  }
+
+  private void update(
+      final String updateQuery,
+      final TransactionOptions options,
+      final Function<SQLException, Void> onFailure
+  ) {
+    final GroupCommit group = groupCommit;
+    if (group != null && !isInTransaction()
+        && Deadline.current().isEmpty() && queryTimeout.isZero()) {
+      groupedUpdate(group, updateQuery, options, onFailure);
+      return;
+    }
+    withConnection(
+        connection -> {
+          updateTransaction(connection, updateQuery, options);
+          return null;
+        },
+        onFailure
     );
   }
 
@@ -95,20 +304,90 @@ public class DatabaseConnection {
       final Connection connection,
       final String updateQuery
   ) throws SQLException {
-    final boolean initialAutocommit = connection.getAutoCommit();
-    connection.setAutoCommit(false);
-    try (final Statement statement = connection.createStatement()) {
-      statement.executeUpdate(updateQuery);
-      connection.commit();
-    } catch (final Exception e) {
-      logger.log(ERROR, e.getLocalizedMessage(), e);
-      connection.rollback();
-      throw e;
-    } finally {
-      if (initialAutocommit) {
-        connection.setAutoCommit(true);
+    updateTransaction(connection, updateQuery, writeOptions);
+  }
+
+  protected void updateTransaction(
+      final Connection connection,
+      final String updateQuery,
+      final TransactionOptions options
+  ) throws SQLException {
+    transactional(connection, options, c -> execute(
+        c,
+        statement -> statement.executeUpdate(updateQuery)
+    ));
+  }
+
+  /**
+   * Execute several batches of update queries on one connection,
+   * each batch as one JDBC batch, all in a single transaction.
+   *
+   * @param batches batches of update queries
+   */
+  public void updateBatchTransaction(final List<List<String>> batches) {
+    updateBatchTransaction(batches, writeOptions);
+  }
+
+  /**
+   * Execute several batches of update queries on one connection,
+   * each batch as one JDBC batch, all in a single transaction.
+   *
+   * @param batches batches of update queries
+   * @param options isolation level
+   */
+  public void updateBatchTransaction(
+      final List<List<String>> batches,
+      final TransactionOptions options
+  ) {
+    applyConnection(
+        connection -> updateBatchTransaction(connection, batches, options)
+    );
+  }
+
+  /**
+   * Execute several batches of update queries on one connection,
+   * each batch as one JDBC batch, all in a single transaction,
+   * failing instead of only logging the error, for callers that
+   * keep the updates to retry them.
+   *
+   * @param batches batches of update queries
+   * @throws JdbcPlusException if the transaction is rolled back
+   */
+  public void updateBatchTransactionOrThrow(final List<List<String>> batches) {
+    withConnection(
+        connection -> {
+          updateBatchTransaction(connection, batches, writeOptions);
+          return null;
+        },
+        e -> {
+          throw failure(e);
+        }
+    );
+  }
+
+  protected void updateBatchTransaction(
+      final Connection connection,
+      final List<List<String>> batches
+  ) throws SQLException {
+    updateBatchTransaction(connection, batches, writeOptions);
+  }
+
+  protected void updateBatchTransaction(
+      final Connection connection,
+      final List<List<String>> batches,
+      final TransactionOptions options
+  ) throws SQLException {
+    transactional(connection, options, c -> execute(c, statement -> {
+      for (final List<String> batch : batches) {
+        if (!batch.isEmpty()) {
+          for (final String updateQuery : batch) {
+            statement.addBatch(updateQuery);
+          }
+          statement.executeBatch();
+        }
       }
-    }
+      return null;
+    }));
   }
 
   public <T> Optional<T> queryTransaction(
@@ -122,23 +401,468 @@ public class DatabaseConnection {
     );
   }
 
-  private <T> T applyConnection(
-      final ConnectionFunction<T> connectionFunction,
-      final Supplier<T> defaultResult
+  /**
+   * Open a {@link QueryCursor} over the rows of a select, on the
+   * connection of the current unit of work, if any, otherwise on a
+   * connection of its own, released when the cursor is closed.
+   *
+   * @param query     select query
+   * @param fetchSize rows fetched per round trip
+   * @return open cursor, to be closed by the caller
+   */
+  public QueryCursor openCursor(final String query, final int fetchSize) {
+    return withinQueryTimeout(() -> {
+      final Optional<UnitOfWork> unitOfWork = UnitOfWork.current(this);
+      final int timeout = Deadline.current().map(Deadline::getQueryTimeout).orElse(0);
+      try {
+        final Connection connection = unitOfWork.isPresent()
+            ? unitOfWork.get().getConnection()
+            : getConnection(getDataSource());
+        return QueryCursor.open(
+            connection,
+            unitOfWork.isEmpty(),
+            query,
+            fetchSize,
+            timeout,
+            readOptions
+        );
+      } catch (final SQLException e) {
+        unitOfWork.ifPresent(UnitOfWork::setRollbackOnly);
+        throw failure(e);
+      }
+    });
+  }
+
+  /**
+   * Run a unit of work in one transaction: all the statements executed
+   * through this connection on the current thread, including the ones
+   * of the repositories, reuse one {@link Connection}, committed once
+   * at the end. Nested calls join the transaction already open.
+   * <p>
+   * The transaction is rolled back if the work throws, rethrowing the
+   * exception, or if any of its statements failed, throwing a
+   * {@link JdbcPlusException}.
+   *
+   * @param work the unit of work
+   * @return the result of the work
+   */
+  public <T> T inTransaction(final Function<DatabaseConnection, T> work) {
+    return inTransaction(writeOptions, work);
+  }
+
+  /**
+   * Run a unit of work in one transaction, with the given options.
+   * The options of the statements executed inside are ignored.
+   *
+   * @param options read-only hint and isolation level
+   * @param work    the unit of work
+   * @return the result of the work
+   * @see #inTransaction(Function)
+   */
+  public <T> T inTransaction(
+      final TransactionOptions options,
+      final Function<DatabaseConnection, T> work
+  ) {
+    if (isInTransaction()) {
+      return work.apply(this);
+    }
+    if (Deadline.current().isEmpty() && !queryTimeout.isZero()) {
+      return Deadline.after(queryTimeout).call(() -> inTransaction(options, work));
+    }
+    final UnitOfWork unitOfWork;
+    try {
+      unitOfWork = UnitOfWork.begin(this, getConnection(getDataSource()), options);
+    } catch (final SQLException e) {
+      throw failure(e);
+    }
+    final List<Runnable> callbacks;
+    final T result;
+    try {
+      try {
+        result = work.apply(this);
+      } catch (final Throwable e) {
+        rollback(unitOfWork);
+        throw e;
+      }
+      if (unitOfWork.isRollbackOnly()) {
+        rollback(unitOfWork);
+        throw JdbcPlusException.of("Transaction rolled back, a statement failed");
+      }
+      try {
+        unitOfWork.commit();
+      } catch (final SQLException e) {
+        logger.log(ERROR, e.getLocalizedMessage(), e);
+        rollback(unitOfWork);
+        throw JdbcPlusException.of(e);
+      }
+      if (!options.isReadOnly()) {
+        recordWrite();
+      }
+      callbacks = unitOfWork.getAfterCommit();
+    } finally {
+      release(unitOfWork);
+    }
+    callbacks.forEach(Runnable::run);
+    return result;
+  }
+
+  /**
+   * Run a unit of work in one transaction.
+   *
+   * @param work the unit of work
+   * @see #inTransaction(Function)
+   */
+  public void inTransaction(final Runnable work) {
+    inTransaction(databaseConnection -> {
+      work.run();
+      return null;
+    });
+  }
+
+  /**
+   * Check whether a unit of work is open on the current thread.
+   *
+   * @return true inside {@link #inTransaction(Function)}
+   */
+  public boolean isInTransaction() {
+    return UnitOfWork.current(this).isPresent();
+  }
+
+  /**
+   * Run an action once the current transaction is committed,
+   * or immediately if there is no transaction open.
+   *
+   * @param action the action
+   */
+  public void afterCommit(final Runnable action) {
+    UnitOfWork.current(this).ifPresentOrElse(
+        unitOfWork -> unitOfWork.afterCommit(action),
+        action
+    );
+  }
+
+  /**
+   * Run an action if the current transaction is rolled back,
+   * nothing if there is no transaction open.
+   *
+   * @param action the action
+   */
+  public void afterRollback(final Runnable action) {
+    UnitOfWork.current(this).ifPresent(unitOfWork -> unitOfWork.afterRollback(action));
+  }
+
+  private <T> T read(
+      final Connection connection,
+      final TransactionOptions options,
+      final ConnectionFunction<T> work
+  ) throws SQLException {
+    final Optional<UnitOfWork> unitOfWork = getUnitOfWork(connection);
+    if (unitOfWork.isPresent()) {
+      return joined(unitOfWork.get(), work);
+    }
+    final ConnectionState state = new ConnectionState(connection);
+    try {
+      state.apply(options);
+      final boolean manualCommit = !state.isAutoCommit();
+      try {
+        final T result = work.apply(connection);
+        if (manualCommit) {
+          connection.commit();
+        }
+        return result;
+      } catch (final Exception e) {
+        logger.log(ERROR, e.getLocalizedMessage(), e);
+        if (manualCommit) {
+          connection.rollback();
+        }
+        throw e;
+      }
+    } finally {
+      state.restore();
+    }
+  }
+
+  private <T> T transactional(
+      final Connection connection,
+      final TransactionOptions options,
+      final ConnectionFunction<T> work
+  ) throws SQLException {
+    final Optional<UnitOfWork> unitOfWork = getUnitOfWork(connection);
+    if (unitOfWork.isPresent()) {
+      return joined(unitOfWork.get(), work);
+    }
+    final ConnectionState state = new ConnectionState(connection);
+    try {
+      state.apply(options);
+      state.setAutoCommit(false);
+      try {
+        final T result = work.apply(connection);
+        connection.commit();
+        recordWrite();
+        return result;
+      } catch (final Throwable e) {
+        logger.log(ERROR, e.getLocalizedMessage(), e);
+        connection.rollback();
+        throw e;
+      }
+    } finally {
+      state.restore();
+    }
+  }
+
+  private void groupedUpdate(
+      final GroupCommit group,
+      final String updateQuery,
+      final TransactionOptions options,
+      final Function<SQLException, Void> onFailure
   ) {
-    try (final Connection connection = dataSource.getConnection()) {
-      return connectionFunction.apply(connection);
+    try {
+      group.submit(updateQuery, options).join();
+      recordWrite();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof SQLException) {
+        onFailure.apply((SQLException) e.getCause());
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  private void commitGroup(final List<GroupCommit.Write> writes) {
+    final Map<TransactionOptions, List<GroupCommit.Write>> groups = new LinkedHashMap<>();
+    for (final GroupCommit.Write write : writes) {
+      groups.computeIfAbsent(write.getOptions(), options -> new ArrayList<>()).add(write);
+    }
+    groups.forEach(this::commitGroup);
+  }
+
+  private void commitGroup(
+      final TransactionOptions options,
+      final List<GroupCommit.Write> writes
+  ) {
+    final List<GroupCommit.Write> pending = new ArrayList<>(writes);
+    while (!pending.isEmpty()) {
+      final int failed;
+      try (final Connection connection = getConnection(getDataSource())) {
+        failed = commitGroup(connection, options, pending);
+      } catch (final SQLException e) {
+        pending.forEach(write -> write.fail(e));
+        return;
+      }
+      if (failed < 0) {
+        pending.forEach(GroupCommit.Write::succeed);
+        return;
+      }
+      commitGroup(options, List.of(pending.remove(failed)));
+    }
+  }
+
+  /**
+   * Run the writes of a group in one transaction.
+   *
+   * @return index of the failed write, rolled back with the
+   * group, or -1 once the group is committed
+   * @throws SQLException if the group cannot be committed,
+   *                      or if its only write fails
+   */
+  private int commitGroup(
+      final Connection connection,
+      final TransactionOptions options,
+      final List<GroupCommit.Write> writes
+  ) throws SQLException {
+    final ConnectionState state = new ConnectionState(connection);
+    try {
+      state.apply(options);
+      state.setAutoCommit(false);
+      try (final Statement statement = connection.createStatement()) {
+        for (int i = 0; i < writes.size(); i++) {
+          try {
+            statement.executeUpdate(writes.get(i).getQuery());
+          } catch (final SQLException e) {
+            connection.rollback();
+            if (writes.size() == 1) {
+              throw e;
+            }
+            return i;
+          }
+        }
+      }
+      try {
+        connection.commit();
+      } catch (final SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+      return -1;
+    } finally {
+      state.restore();
+    }
+  }
+
+  private void recordWrite() {
+    Optional.ofNullable(replicaRouter).ifPresent(ReplicaRouter::recordWrite);
+  }
+
+  private Optional<UnitOfWork> getUnitOfWork(final Connection connection) {
+    return UnitOfWork.current(this).filter(u -> u.getConnection() == connection);
+  }
+
+  private <T> T joined(
+      final UnitOfWork unitOfWork,
+      final ConnectionFunction<T> work
+  ) throws SQLException {
+    try {
+      return work.apply(unitOfWork.getConnection());
+    } catch (final Throwable e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+      unitOfWork.setRollbackOnly();
+      throw e;
+    }
+  }
+
+  private void rollback(final UnitOfWork unitOfWork) {
+    try {
+      unitOfWork.rollback();
     } catch (final SQLException e) {
       logger.log(ERROR, e.getLocalizedMessage(), e);
-      return defaultResult.get();
     }
+    unitOfWork.getAfterRollback().forEach(Runnable::run);
   }
 
-  private void applyConnection(final ConnectionConsumer connectionFunction) {
-    try (final Connection connection = dataSource.getConnection()) {
-      connectionFunction.accept(connection);
+  private void release(final UnitOfWork unitOfWork) {
+    try {
+      unitOfWork.close();
     } catch (final SQLException e) {
       logger.log(ERROR, e.getLocalizedMessage(), e);
     }
   }
+
+  private <T> T applyConnection(
+      final ConnectionFunction<T> connectionFunction,
+      final Supplier<T> defaultResult
+  ) {
+    return withConnection(connectionFunction, e -> failure(e, defaultResult));
+  }
+
+  private <T> T withConnection(
+      final ConnectionFunction<T> connectionFunction,
+      final Function<SQLException, T> onFailure
+  ) {
+    return withinQueryTimeout(() -> {
+      final Optional<UnitOfWork> unitOfWork = UnitOfWork.current(this);
+      if (unitOfWork.isPresent()) {
+        try {
+          return connectionFunction.apply(unitOfWork.get().getConnection());
+        } catch (final SQLException e) {
+          return onFailure.apply(e);
+        }
+      }
+      try (final Connection connection = getConnection(getDataSource())) {
+        return connectionFunction.apply(connection);
+      } catch (final SQLException e) {
+        return onFailure.apply(e);
+      }
+    });
+  }
+
+  private <T> T applyReadConnection(
+      final ConnectionFunction<T> connectionFunction,
+      final Supplier<T> defaultResult
+  ) {
+    final ReplicaRouter router = replicaRouter;
+    if (router == null || isInTransaction() || router.isPinnedToPrimary()) {
+      return applyConnection(connectionFunction, defaultResult);
+    }
+    return withinQueryTimeout(() -> {
+      final int replica = router.acquire();
+      try {
+        final Connection connection;
+        try {
+          connection = getConnection(router.getDataSource(replica));
+        } catch (final SQLException e) {
+          logger.log(ERROR, e.getLocalizedMessage(), e);
+          return applyConnection(connectionFunction, defaultResult);
+        }
+        try (connection) {
+          return connectionFunction.apply(connection);
+        } catch (final SQLException e) {
+          return failure(e, defaultResult);
+        }
+      } finally {
+        router.release(replica);
+      }
+    });
+  }
+
+  private <T> T withinQueryTimeout(final Supplier<T> call) {
+    final Duration timeout = queryTimeout;
+    if (timeout.isZero() || Deadline.current().isPresent()) {
+      return call.get();
+    }
+    return Deadline.after(timeout).call(call);
+  }
+
+  private Connection getConnection(final DataSource source) throws SQLException {
+    final Optional<Deadline> deadline = Deadline.current();
+    if (deadline.isEmpty()) {
+      return source.getConnection();
+    }
+    deadline.get().check();
+    if (source instanceof JdbcPlusPool && deadline.get().isBounded()) {
+      return ((JdbcPlusPool) source).getConnection(deadline.get().remaining());
+    }
+    return source.getConnection();
+  }
+
+  private <T> T execute(
+      final Connection connection,
+      final StatementFunction<T> work
+  ) throws SQLException {
+    final Optional<Deadline> deadline = Deadline.current();
+    try (final Statement statement = connection.createStatement()) {
+      if (deadline.isEmpty()) {
+        return work.apply(statement);
+      }
+      try {
+        deadline.get().register(statement);
+        return work.apply(statement);
+      } finally {
+        deadline.get().unregister(statement);
+      }
+    }
+  }
+
+  private <T> T failure(final SQLException e, final Supplier<T> defaultResult) {
+    final RuntimeException failure = failure(e);
+    if (failure instanceof DeadlineExceededException) {
+      throw failure;
+    }
+    return defaultResult.get();
+  }
+
+  /**
+   * Log a failed statement, and translate it to a
+   * {@link DeadlineExceededException} if it timed out
+   * or if the call has to stop.
+   */
+  private RuntimeException failure(final SQLException e) {
+    logger.log(ERROR, e.getLocalizedMessage(), e);
+    final boolean stopped = Deadline.current()
+        .filter(deadline -> deadline.isExpired() || deadline.isCancelled())
+        .isPresent();
+    if (e instanceof SQLTimeoutException || stopped) {
+      return DeadlineExceededException.of(e.getLocalizedMessage(), e);
+    }
+    return JdbcPlusException.of(e);
+  }
+
+  private void applyConnection(final ConnectionConsumer connectionFunction) {
+    applyConnection(
+        connection -> {
+          connectionFunction.accept(connection);
+          return null;
+        },
+        () -> null
+    );
+  }
 }
@@ -0,0 +1,227 @@
+package st4s1k.jdbcplus.config;
+
+import st4s1k.jdbcplus.exceptions.DeadlineExceededException;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static java.lang.System.Logger.Level.ERROR;
+
+/**
+ * A point in time by which a call has to complete, which can also
+ * be cancelled before.
+ * <p>
+ * A deadline is bound to the current thread while the work of
+ * {@link #call(Supplier)} runs, so it covers every statement executed
+ * by the call, including the relation loading. The statements get
+ * the time left as query timeout, waiting for a pooled connection
+ * is limited to the time left, and {@link #cancel()} cancels the
+ * statements in flight. Expired and cancelled calls fail with a
+ * {@link DeadlineExceededException}. Nested deadlines keep the
+ * earliest expiry and observe the cancellation of both.
+ */
+public final class Deadline {
+
+  private static final System.Logger LOGGER = System.getLogger("Deadline");
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+  private static final long UNBOUNDED = Long.MAX_VALUE;
+
+  private final long expiresAt;
+  private final Deadline inner;
+  private final Deadline outer;
+  private final Set<Statement> statements;
+  private volatile boolean cancelled;
+
+  private Deadline(final long expiresAt) {
+    this.expiresAt = expiresAt;
+    this.inner = null;
+    this.outer = null;
+    this.statements = ConcurrentHashMap.newKeySet();
+  }
+
+  private Deadline(final Deadline inner, final Deadline outer) {
+    this.expiresAt = inner.remainingNanos() <= outer.remainingNanos()
+        ? inner.expiresAt
+        : outer.expiresAt;
+    this.inner = inner;
+    this.outer = outer;
+    this.statements = null;
+  }
+
+  /**
+   * Create a deadline expiring after a timeout.
+   *
+   * @param timeout time left
+   * @return new deadline
+   */
+  public static Deadline after(final Duration timeout) {
+    return new Deadline(System.nanoTime() + timeout.toNanos());
+  }
+
+  /**
+   * Create a deadline that never expires, but can be cancelled.
+   *
+   * @return new deadline
+   */
+  public static Deadline none() {
+    return new Deadline(UNBOUNDED);
+  }
+
+  /**
+   * Get the deadline bound to the current thread.
+   *
+   * @return {@link Optional} deadline
+   */
+  public static Optional<Deadline> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  /**
+   * Run a call within this deadline, joined with the
+   * deadline already bound to the current thread, if any.
+   *
+   * @param work the call
+   * @return the result of the call
+   * @throws DeadlineExceededException if the deadline has
+   *                                   expired or was cancelled
+   */
+  public <T> T call(final Supplier<T> work) {
+    final Deadline current = CURRENT.get();
+    final Deadline bound = current == null ? this : new Deadline(this, current);
+    bound.check();
+    CURRENT.set(bound);
+    try {
+      return work.get();
+    } finally {
+      if (current == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(current);
+      }
+    }
+  }
+
+  /**
+   * Run a call within this deadline.
+   *
+   * @param work the call
+   * @see #call(Supplier)
+   */
+  public void run(final Runnable work) {
+    call(() -> {
+      work.run();
+      return null;
+    });
+  }
+
+  public boolean isBounded() {
+    return expiresAt != UNBOUNDED;
+  }
+
+  /**
+   * Get the time left.
+   *
+   * @return nanoseconds left, {@link Long#MAX_VALUE} if unbounded,
+   * zero or negative once expired
+   */
+  public long remainingNanos() {
+    return isBounded() ? expiresAt - System.nanoTime() : UNBOUNDED;
+  }
+
+  public Duration remaining() {
+    return Duration.ofNanos(remainingNanos());
+  }
+
+  public boolean isExpired() {
+    return remainingNanos() <= 0;
+  }
+
+  public boolean isCancelled() {
+    return inner == null ? cancelled : inner.isCancelled() || outer.isCancelled();
+  }
+
+  /**
+   * Cancel the call, and the statements it has in flight.
+   */
+  public void cancel() {
+    if (inner != null) {
+      inner.cancel();
+      return;
+    }
+    cancelled = true;
+    for (final Statement statement : statements) {
+      try {
+        statement.cancel();
+      } catch (final SQLException e) {
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Fail if the deadline has expired or was cancelled.
+   *
+   * @throws DeadlineExceededException if the call has to stop
+   */
+  public void check() {
+    if (isCancelled()) {
+      throw DeadlineExceededException.of("Call cancelled");
+    }
+    if (isExpired()) {
+      throw DeadlineExceededException.of("Deadline exceeded");
+    }
+  }
+
+  /**
+   * Get the query timeout of a statement started now.
+   *
+   * @return whole seconds left, at least 1, or 0 if unbounded
+   */
+  int getQueryTimeout() {
+    if (!isBounded()) {
+      return 0;
+    }
+    final long seconds = (remainingNanos() + 999_999_999L) / 1_000_000_000L;
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, seconds));
+  }
+
+  /**
+   * Apply the time left to a statement and track it until
+   * {@link #unregister(Statement)}, to cancel it with the call.
+   *
+   * @param statement the statement
+   * @throws SQLException              if the timeout cannot be set
+   * @throws DeadlineExceededException if the call has to stop
+   */
+  void register(final Statement statement) throws SQLException {
+    final int queryTimeout = getQueryTimeout();
+    if (queryTimeout > 0) {
+      statement.setQueryTimeout(queryTimeout);
+    }
+    track(statement);
+    check();
+  }
+
+  void unregister(final Statement statement) {
+    if (inner == null) {
+      statements.remove(statement);
+    } else {
+      inner.unregister(statement);
+      outer.unregister(statement);
+    }
+  }
+
+  private void track(final Statement statement) {
+    if (inner == null) {
+      statements.add(statement);
+    } else {
+      inner.track(statement);
+      outer.track(statement);
+    }
+  }
+}
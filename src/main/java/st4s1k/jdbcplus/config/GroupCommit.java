@@ -0,0 +1,110 @@
+package st4s1k.jdbcplus.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Queues the writes of concurrent threads into groups, committed
+ * together.
+ * <p>
+ * The first thread to queue a write while no group is forming leads
+ * the group: it waits for the others until the latency budget elapses
+ * or the group is full, then commits the group on its own thread.
+ * The other threads wait for the outcome of their own write. A new
+ * group forms while the previous one is being committed.
+ */
+final class GroupCommit {
+
+  private final GroupCommitConfig config;
+  private final Consumer<List<Write>> committer;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition full = lock.newCondition();
+  private List<Write> queue = new ArrayList<>();
+  private boolean forming;
+
+  GroupCommit(final GroupCommitConfig config, final Consumer<List<Write>> committer) {
+    this.config = config;
+    this.committer = committer;
+  }
+
+  GroupCommitConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Queue a write, leading its group if none is forming.
+   *
+   * @param query   update query
+   * @param options isolation level of the group
+   * @return outcome of the write, completed once its group is committed
+   */
+  CompletableFuture<Void> submit(final String query, final TransactionOptions options) {
+    final Write write = new Write(query, options);
+    final List<Write> group;
+    lock.lock();
+    try {
+      queue.add(write);
+      if (forming) {
+        if (queue.size() >= config.getMaxGroupSize()) {
+          full.signal();
+        }
+        return write.result;
+      }
+      forming = true;
+      try {
+        long remaining = config.getMaxDelay().toNanos();
+        while (queue.size() < config.getMaxGroupSize() && remaining > 0) {
+          remaining = full.awaitNanos(remaining);
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      group = queue;
+      queue = new ArrayList<>();
+      forming = false;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      committer.accept(group);
+    } catch (final RuntimeException e) {
+      group.forEach(w -> w.fail(e));
+    }
+    return write.result;
+  }
+
+  /**
+   * A queued write and its outcome.
+   */
+  static final class Write {
+
+    private final String query;
+    private final TransactionOptions options;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private Write(final String query, final TransactionOptions options) {
+      this.query = query;
+      this.options = options;
+    }
+
+    String getQuery() {
+      return query;
+    }
+
+    TransactionOptions getOptions() {
+      return options;
+    }
+
+    void succeed() {
+      result.complete(null);
+    }
+
+    void fail(final Throwable e) {
+      result.completeExceptionally(e);
+    }
+  }
+}
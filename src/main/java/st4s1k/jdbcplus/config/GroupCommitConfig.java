@@ -0,0 +1,62 @@
+package st4s1k.jdbcplus.config;
+
+import java.time.Duration;
+
+/**
+ * Group commit of a {@link DatabaseConnection}.
+ * <p>
+ * Configurations are immutable: every setter returns a new
+ * configuration, starting from {@link #of(Duration)}.
+ */
+public final class GroupCommitConfig {
+
+  private final Duration maxDelay;
+  private int maxGroupSize = 100;
+
+  private GroupCommitConfig(final Duration maxDelay) {
+    if (maxDelay.isNegative()) {
+      throw new IllegalArgumentException("maxDelay must not be negative");
+    }
+    this.maxDelay = maxDelay;
+  }
+
+  private GroupCommitConfig(final GroupCommitConfig other) {
+    this.maxDelay = other.maxDelay;
+    this.maxGroupSize = other.maxGroupSize;
+  }
+
+  /**
+   * Create a configuration grouping up to 100 writes.
+   *
+   * @param maxDelay latency budget: how long the first write
+   *                 of a group waits for others
+   * @return group commit configuration
+   */
+  public static GroupCommitConfig of(final Duration maxDelay) {
+    return new GroupCommitConfig(maxDelay);
+  }
+
+  /**
+   * Set the number of queued writes that ends the wait of a
+   * group before the latency budget has elapsed.
+   *
+   * @param maxGroupSize writes per group
+   * @return new group commit configuration
+   */
+  public GroupCommitConfig maxGroupSize(final int maxGroupSize) {
+    if (maxGroupSize < 1) {
+      throw new IllegalArgumentException("maxGroupSize must be at least 1");
+    }
+    final GroupCommitConfig config = new GroupCommitConfig(this);
+    config.maxGroupSize = maxGroupSize;
+    return config;
+  }
+
+  public Duration getMaxDelay() {
+    return maxDelay;
+  }
+
+  public int getMaxGroupSize() {
+    return maxGroupSize;
+  }
+}
@@ -0,0 +1,18 @@
+package st4s1k.jdbcplus.config;
+
+/**
+ * How reads are spread over the replicas of a {@link ReplicaConfig}.
+ */
+public enum LoadBalancingPolicy {
+
+  /**
+   * Each replica in turn.
+   */
+  ROUND_ROBIN,
+
+  /**
+   * The replica with the fewest reads in progress, ties
+   * broken in turn.
+   */
+  LEAST_IN_FLIGHT
+}
@@ -0,0 +1,173 @@
+package st4s1k.jdbcplus.config;
+
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static java.lang.System.Logger.Level.ERROR;
+
+/**
+ * A forward-only, read-only cursor over the rows of a select,
+ * holding its statement and, outside a unit of work, its own
+ * connection until it is closed. Rows are fetched from the
+ * database in batches of the fetch size.
+ * <p>
+ * The cursor may be advanced and closed from different threads,
+ * one at a time.
+ */
+public final class QueryCursor implements AutoCloseable {
+
+  private static final System.Logger LOGGER = System.getLogger("QueryCursor");
+
+  private final Connection connection;
+  private final ConnectionState state;
+  private final Statement statement;
+  private final ResultSet resultSet;
+  private boolean closed;
+
+  private QueryCursor(
+      final Connection connection,
+      final ConnectionState state,
+      final Statement statement,
+      final ResultSet resultSet
+  ) {
+    this.connection = connection;
+    this.state = state;
+    this.statement = statement;
+    this.resultSet = resultSet;
+  }
+
+  /**
+   * Execute a select on a connection. An owned connection is switched
+   * to manual commit, which most drivers need to honor the fetch size,
+   * and is restored and closed with the cursor, or if the select fails.
+   *
+   * @param connection the connection
+   * @param owned      whether the cursor closes the connection
+   * @param query      select query
+   * @param fetchSize  rows fetched per round trip
+   * @param timeout    query timeout in seconds, 0 for none
+   * @param options    read-only hint and isolation level
+   * @return open cursor
+   * @throws SQLException if the select fails
+   */
+  static QueryCursor open(
+      final Connection connection,
+      final boolean owned,
+      final String query,
+      final int fetchSize,
+      final int timeout,
+      final TransactionOptions options
+  ) throws SQLException {
+    final ConnectionState state = owned ? new ConnectionState(connection) : null;
+    Statement statement = null;
+    try {
+      if (state != null) {
+        state.apply(options);
+        state.setAutoCommit(false);
+      }
+      statement = connection.createStatement(
+          ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY
+      );
+      statement.setFetchSize(fetchSize);
+      if (timeout > 0) {
+        statement.setQueryTimeout(timeout);
+      }
+      return new QueryCursor(connection, state, statement, statement.executeQuery(query));
+    } catch (final SQLException e) {
+      if (statement != null) {
+        statement.close();
+      }
+      if (state != null) {
+        release(connection, state);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Move to the next row.
+   *
+   * @return false once the rows are exhausted or the cursor is closed
+   */
+  public synchronized boolean next() {
+    if (closed) {
+      return false;
+    }
+    try {
+      return resultSet.next();
+    } catch (final SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+  }
+
+  /**
+   * Get the result set, positioned on the current row.
+   *
+   * @return the result set
+   */
+  public ResultSet getResultSet() {
+    return resultSet;
+  }
+
+  /**
+   * Change the number of rows fetched by the next round trips.
+   *
+   * @param fetchSize rows per round trip, a hint to the driver
+   */
+  public synchronized void setFetchSize(final int fetchSize) {
+    if (closed) {
+      return;
+    }
+    try {
+      resultSet.setFetchSize(fetchSize);
+    } catch (final SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+  }
+
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Close the statement, ending the read transaction and
+   * releasing the connection if the cursor owns it.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      statement.close();
+    } catch (final SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+    if (state != null) {
+      try {
+        release(connection, state);
+      } catch (final SQLException e) {
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      }
+    }
+  }
+
+  private static void release(
+      final Connection connection,
+      final ConnectionState state
+  ) throws SQLException {
+    try (connection) {
+      if (!state.isAutoCommit()) {
+        connection.commit();
+      }
+      state.restore();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package st4s1k.jdbcplus.config;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Read replicas of a {@link DatabaseConnection}.
+ * <p>
+ * Configurations are immutable: every setter returns a new
+ * configuration, starting from {@link #of(List)}.
+ */
+public final class ReplicaConfig {
+
+  private final List<DataSource> replicas;
+  private LoadBalancingPolicy policy = LoadBalancingPolicy.ROUND_ROBIN;
+  private Duration readYourWritesWindow = Duration.ofSeconds(1);
+
+  private ReplicaConfig(final List<DataSource> replicas) {
+    if (replicas.isEmpty()) {
+      throw new IllegalArgumentException("At least one replica is required");
+    }
+    this.replicas = List.copyOf(replicas);
+  }
+
+  private ReplicaConfig(final ReplicaConfig other) {
+    this.replicas = other.replicas;
+    this.policy = other.policy;
+    this.readYourWritesWindow = other.readYourWritesWindow;
+  }
+
+  /**
+   * Create a configuration with the default settings:
+   * round-robin and a one second read-your-writes window.
+   *
+   * @param replicas replica data sources
+   * @return replica configuration
+   */
+  public static ReplicaConfig of(final List<DataSource> replicas) {
+    return new ReplicaConfig(replicas);
+  }
+
+  /**
+   * Set how the reads are spread over the replicas.
+   *
+   * @param policy load balancing policy
+   * @return new replica configuration
+   */
+  public ReplicaConfig policy(final LoadBalancingPolicy policy) {
+    final ReplicaConfig config = new ReplicaConfig(this);
+    config.policy = requireNonNull(policy);
+    return config;
+  }
+
+  /**
+   * Set how long the reads of a thread stay on the primary after
+   * the thread wrote, so it reads its own writes despite the
+   * replication lag.
+   *
+   * @param readYourWritesWindow window, zero to always read from the replicas
+   * @return new replica configuration
+   */
+  public ReplicaConfig readYourWritesWindow(final Duration readYourWritesWindow) {
+    final ReplicaConfig config = new ReplicaConfig(this);
+    config.readYourWritesWindow = requireNonNull(readYourWritesWindow);
+    return config;
+  }
+
+  public List<DataSource> getReplicas() {
+    return replicas;
+  }
+
+  public LoadBalancingPolicy getPolicy() {
+    return policy;
+  }
+
+  public Duration getReadYourWritesWindow() {
+    return readYourWritesWindow;
+  }
+}
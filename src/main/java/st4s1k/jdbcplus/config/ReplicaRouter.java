@@ -0,0 +1,90 @@
+package st4s1k.jdbcplus.config;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the replica of each read, following the
+ * {@link LoadBalancingPolicy}, and remembers when each
+ * thread last wrote to the primary.
+ */
+final class ReplicaRouter {
+
+  private final ReplicaConfig config;
+  private final List<DataSource> replicas;
+  private final AtomicInteger[] inFlight;
+  private final AtomicInteger next = new AtomicInteger();
+  private final long windowNanos;
+  private final ThreadLocal<Long> lastWrite = new ThreadLocal<>();
+
+  ReplicaRouter(final ReplicaConfig config) {
+    this.config = config;
+    this.replicas = config.getReplicas();
+    this.inFlight = new AtomicInteger[replicas.size()];
+    for (int i = 0; i < inFlight.length; i++) {
+      inFlight[i] = new AtomicInteger();
+    }
+    this.windowNanos = config.getReadYourWritesWindow().toNanos();
+  }
+
+  ReplicaConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Record a write of the current thread to the primary.
+   */
+  void recordWrite() {
+    if (windowNanos > 0) {
+      lastWrite.set(System.nanoTime());
+    }
+  }
+
+  /**
+   * Check whether the current thread wrote within the
+   * read-your-writes window.
+   *
+   * @return true if the thread has to read from the primary
+   */
+  boolean isPinnedToPrimary() {
+    final Long writtenAt = lastWrite.get();
+    if (writtenAt == null) {
+      return false;
+    }
+    if (System.nanoTime() - writtenAt < windowNanos) {
+      return true;
+    }
+    lastWrite.remove();
+    return false;
+  }
+
+  /**
+   * Choose a replica and count the read in progress,
+   * until {@link #release(int)}.
+   *
+   * @return replica index
+   */
+  int acquire() {
+    final int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+    int chosen = start;
+    if (config.getPolicy() == LoadBalancingPolicy.LEAST_IN_FLIGHT) {
+      for (int i = 1; i < replicas.size(); i++) {
+        final int candidate = (start + i) % replicas.size();
+        if (inFlight[candidate].get() < inFlight[chosen].get()) {
+          chosen = candidate;
+        }
+      }
+    }
+    inFlight[chosen].incrementAndGet();
+    return chosen;
+  }
+
+  void release(final int replica) {
+    inFlight[replica].decrementAndGet();
+  }
+
+  DataSource getDataSource(final int replica) {
+    return replicas.get(replica);
+  }
+}
@@ -0,0 +1,105 @@
+package st4s1k.jdbcplus.config;
+
+import java.sql.Connection;
+
+/**
+ * Per-operation transaction settings of a {@link DatabaseConnection}:
+ * the read-only hint and the isolation level. Options are immutable.
+ */
+public final class TransactionOptions {
+
+  /**
+   * Isolation level meaning the current level of the connection is kept.
+   */
+  public static final int DEFAULT_ISOLATION = -1;
+
+  private static final TransactionOptions READ = new TransactionOptions(true, DEFAULT_ISOLATION);
+  private static final TransactionOptions WRITE = new TransactionOptions(false, DEFAULT_ISOLATION);
+
+  private final boolean readOnly;
+  private final int isolation;
+
+  private TransactionOptions(final boolean readOnly, final int isolation) {
+    this.readOnly = readOnly;
+    this.isolation = isolation;
+  }
+
+  /**
+   * Get the options keeping the current read-only mode and isolation
+   * level of the connection, so that no setting is changed.
+   *
+   * @return default options
+   */
+  public static TransactionOptions defaults() {
+    return WRITE;
+  }
+
+  /**
+   * Get the options of read-only operations, with the read-only hint.
+   *
+   * @return read options
+   */
+  public static TransactionOptions read() {
+    return READ;
+  }
+
+  /**
+   * Get the options of writing operations.
+   *
+   * @return write options
+   */
+  public static TransactionOptions write() {
+    return WRITE;
+  }
+
+  /**
+   * Set the read-only hint.
+   *
+   * @param readOnly true to hint the driver that nothing is written
+   * @return new options
+   */
+  public TransactionOptions withReadOnly(final boolean readOnly) {
+    return new TransactionOptions(readOnly, isolation);
+  }
+
+  /**
+   * Set the isolation level.
+   *
+   * @param isolation a {@link Connection} {@code TRANSACTION_*} level,
+   *                  or {@link #DEFAULT_ISOLATION}
+   * @return new options
+   */
+  public TransactionOptions withIsolation(final int isolation) {
+    return new TransactionOptions(readOnly, isolation);
+  }
+
+  public boolean isReadOnly() {
+    return readOnly;
+  }
+
+  public int getIsolation() {
+    return isolation;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof TransactionOptions)) {
+      return false;
+    }
+    final TransactionOptions that = (TransactionOptions) o;
+    return readOnly == that.readOnly && isolation == that.isolation;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Boolean.hashCode(readOnly) + isolation;
+  }
+
+  @Override
+  public String toString() {
+    return "TransactionOptions{readOnly=" + readOnly + ", isolation=" + isolation + "}";
+  }
+}
@@ -0,0 +1,125 @@
+package st4s1k.jdbcplus.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Transaction of a {@link DatabaseConnection}, bound to the current
+ * thread while open: all the statements executed through the owning
+ * connection on this thread reuse one {@link Connection}, which is
+ * committed, or rolled back, once when the unit of work completes.
+ */
+final class UnitOfWork {
+
+  private static final ThreadLocal<Map<DatabaseConnection, UnitOfWork>> CURRENT =
+      ThreadLocal.withInitial(IdentityHashMap::new);
+
+  private final DatabaseConnection owner;
+  private final Connection connection;
+  private final ConnectionState state;
+  private final List<Runnable> afterCommit = new ArrayList<>();
+  private final List<Runnable> afterRollback = new ArrayList<>();
+  private boolean rollbackOnly;
+
+  private UnitOfWork(
+      final DatabaseConnection owner,
+      final Connection connection,
+      final ConnectionState state
+  ) {
+    this.owner = owner;
+    this.connection = connection;
+    this.state = state;
+  }
+
+  /**
+   * Start a unit of work on a connection and bind it to the current thread.
+   *
+   * @param owner      the database connection owning the unit of work
+   * @param connection the connection
+   * @param options    read-only hint and isolation level
+   * @return the unit of work
+   * @throws SQLException if the transaction cannot be started
+   */
+  static UnitOfWork begin(
+      final DatabaseConnection owner,
+      final Connection connection,
+      final TransactionOptions options
+  ) throws SQLException {
+    final ConnectionState state = new ConnectionState(connection);
+    try {
+      state.apply(options);
+      state.setAutoCommit(false);
+    } catch (final SQLException e) {
+      connection.close();
+      throw e;
+    }
+    final UnitOfWork unitOfWork = new UnitOfWork(owner, connection, state);
+    CURRENT.get().put(owner, unitOfWork);
+    return unitOfWork;
+  }
+
+  /**
+   * Get the unit of work of a database connection bound to the current thread.
+   *
+   * @param owner the database connection
+   * @return {@link Optional} unit of work
+   */
+  static Optional<UnitOfWork> current(final DatabaseConnection owner) {
+    return Optional.ofNullable(CURRENT.get().get(owner));
+  }
+
+  Connection getConnection() {
+    return connection;
+  }
+
+  void setRollbackOnly() {
+    rollbackOnly = true;
+  }
+
+  boolean isRollbackOnly() {
+    return rollbackOnly;
+  }
+
+  void afterCommit(final Runnable action) {
+    afterCommit.add(action);
+  }
+
+  void afterRollback(final Runnable action) {
+    afterRollback.add(action);
+  }
+
+  void commit() throws SQLException {
+    connection.commit();
+  }
+
+  void rollback() throws SQLException {
+    connection.rollback();
+  }
+
+  /**
+   * Unbind the unit of work, restore the connection settings and release the connection.
+   *
+   * @throws SQLException if the connection cannot be released
+   */
+  void close() throws SQLException {
+    final Map<DatabaseConnection, UnitOfWork> current = CURRENT.get();
+    current.remove(owner);
+    if (current.isEmpty()) {
+      CURRENT.remove();
+    }
+    try {
+      state.restore();
+    } finally {
+      connection.close();
+    }
+  }
+
+  List<Runnable> getAfterCommit() {
+    return afterCommit;
+  }
+
+  List<Runnable> getAfterRollback() {
+    return afterRollback;
+  }
+}
@@ -0,0 +1,15 @@
+package st4s1k.jdbcplus.exceptions;
+
+public class DeadlineExceededException extends JdbcPlusException {
+  protected DeadlineExceededException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public static DeadlineExceededException of(String message) {
+    return new DeadlineExceededException(message, null);
+  }
+
+  public static DeadlineExceededException of(String message, Throwable cause) {
+    return new DeadlineExceededException(message, cause);
+  }
+}
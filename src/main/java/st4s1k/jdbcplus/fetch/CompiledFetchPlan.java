@@ -0,0 +1,261 @@
+package st4s1k.jdbcplus.fetch;
+
+import st4s1k.jdbcplus.annotations.JoinColumn;
+import st4s1k.jdbcplus.annotations.JoinTable;
+import st4s1k.jdbcplus.annotations.ManyToMany;
+import st4s1k.jdbcplus.annotations.ManyToOne;
+import st4s1k.jdbcplus.exceptions.InvalidMappingException;
+import st4s1k.jdbcplus.metadata.EntityMetadata;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static st4s1k.jdbcplus.utils.EntityUtils.*;
+
+/**
+ * The tree of relation paths of a {@link FetchPlan}, together
+ * with the queries needed to load it. Compiled once per plan
+ * by the {@link MetadataRegistry}.
+ *
+ * @param <T> root entity type
+ */
+public final class CompiledFetchPlan<T> {
+
+  private final FetchPlan<T> fetchPlan;
+  private final FetchNode root;
+
+  private CompiledFetchPlan(final FetchPlan<T> fetchPlan, final FetchNode root) {
+    this.fetchPlan = fetchPlan;
+    this.root = root;
+  }
+
+  /**
+   * Build the relation tree of a plan and precompute its queries.
+   *
+   * @param fetchPlan the fetch plan
+   * @param registry  metadata registry
+   * @return compiled fetch plan
+   */
+  public static <T> CompiledFetchPlan<T> compile(
+      final FetchPlan<T> fetchPlan,
+      final MetadataRegistry registry
+  ) {
+    final FetchNode root = new FetchNode(
+        null,
+        null,
+        FetchNode.Kind.ROOT,
+        registry.getEntityMetadata(fetchPlan.getEntityClass()),
+        FetchStrategy.BATCH
+    );
+    expand(root, fetchPlan.getDepth(), fetchPlan.getDepthStrategy(), registry);
+    for (final Map.Entry<String, FetchStrategy> path : fetchPlan.getPaths().entrySet()) {
+      addPath(root, path.getKey(), path.getValue(), registry);
+    }
+    compileQueries(root);
+    return new CompiledFetchPlan<>(fetchPlan, root);
+  }
+
+  public FetchPlan<T> getFetchPlan() {
+    return fetchPlan;
+  }
+
+  public FetchNode getRoot() {
+    return root;
+  }
+
+  /**
+   * Get the query loading the root entities.
+   *
+   * @return root node query
+   */
+  public NodeQuery getRootQuery() {
+    return root.getQuery().orElseThrow();
+  }
+
+  private static void expand(
+      final FetchNode node,
+      final int depth,
+      final FetchStrategy strategy,
+      final MetadataRegistry registry
+  ) {
+    if (depth > 0) {
+      for (final Field field : node.getMetadata().getRelationFields()) {
+        expand(getOrAddChild(node, field, strategy, registry), depth - 1, strategy, registry);
+      }
+    }
+  }
+
+  private static void addPath(
+      final FetchNode root,
+      final String path,
+      final FetchStrategy strategy,
+      final MetadataRegistry registry
+  ) {
+    FetchNode node = root;
+    final String[] fieldNames = path.split("\\.");
+    for (int i = 0; i < fieldNames.length; i++) {
+      final EntityMetadata<?> metadata = node.getMetadata();
+      final String fieldName = fieldNames[i];
+      final Field field = metadata.getRelationField(fieldName)
+          .orElseThrow(() -> InvalidMappingException.of(String.format(
+              "Invalid fetch path %s: %s has no relation field %s",
+              path,
+              metadata.getEntityClass().getName(),
+              fieldName
+          )));
+      final boolean last = i == fieldNames.length - 1;
+      node = getOrAddChild(node, field, last ? strategy : FetchStrategy.BATCH, registry);
+      if (last) {
+        node.setStrategy(strategy);
+      }
+    }
+  }
+
+  private static FetchNode getOrAddChild(
+      final FetchNode node,
+      final Field field,
+      final FetchStrategy strategy,
+      final MetadataRegistry registry
+  ) {
+    return node.getChild(field.getName()).orElseGet(() -> node.addChild(new FetchNode(
+        node,
+        field,
+        getKind(field),
+        registry.getEntityMetadata(getTargetEntity(field)),
+        strategy
+    )));
+  }
+
+  private static FetchNode.Kind getKind(final Field field) {
+    if (field.isAnnotationPresent(ManyToMany.class)) {
+      return FetchNode.Kind.MANY_TO_MANY;
+    } else if (EntityMetadata.isToOneField(field)) {
+      return FetchNode.Kind.TO_ONE;
+    }
+    return FetchNode.Kind.ONE_TO_MANY;
+  }
+
+  private static void compileQueries(final FetchNode node) {
+    if (node.isToMany() && node.getStrategy() == FetchStrategy.JOIN) {
+      node.setStrategy(FetchStrategy.BATCH);
+    }
+    final boolean queryRoot = node.getKind() == FetchNode.Kind.ROOT
+        || node.getStrategy() == FetchStrategy.BATCH
+        || node.isToMany();
+    if (queryRoot) {
+      node.setQuery(buildQuery(node));
+    }
+    for (final FetchNode child : node.getChildren()) {
+      compileQueries(child);
+    }
+  }
+
+  private static NodeQuery buildQuery(final FetchNode node) {
+    final List<String> columns = new ArrayList<>();
+    final StringBuilder from = new StringBuilder();
+    final EntityMetadata<?> metadata = node.getMetadata();
+    from.append(metadata.getTableName()).append(' ').append(NodeQuery.ROOT_ALIAS);
+    if (node.getKind() == FetchNode.Kind.MANY_TO_MANY) {
+      from.append(String.format(
+          " join %s j on j.%s = %s.%s",
+          getJoinTable(node.getField()).name(),
+          getJoinTableColumnName(node, false),
+          NodeQuery.ROOT_ALIAS,
+          metadata.getIdColumnName()
+      ));
+    }
+    node.setColumnOffset(0);
+    addColumns(node, NodeQuery.ROOT_ALIAS, columns, from, new ArrayList<>(List.of(node)));
+    switch (node.getKind()) {
+      case TO_ONE:
+        return new NodeQuery(
+            select(columns, from),
+            NodeQuery.ROOT_ALIAS + "." + metadata.getIdColumnName(),
+            0,
+            metadata.getIdType()
+        );
+      case ONE_TO_MANY:
+        final Field backReference = getRelationalField(
+            metadata.getEntityClass(),
+            node.getParent().getMetadata().getEntityClass(),
+            ManyToOne.class
+        );
+        return new NodeQuery(
+            select(columns, from),
+            NodeQuery.ROOT_ALIAS + "." + getColumnName(backReference),
+            metadata.getColumnIndex(backReference) + 1,
+            node.getParent().getMetadata().getIdType()
+        );
+      case MANY_TO_MANY:
+        final String ownerColumn = "j." + getJoinTableColumnName(node, true);
+        columns.add(ownerColumn);
+        return new NodeQuery(
+            select(columns, from),
+            ownerColumn,
+            columns.size(),
+            node.getParent().getMetadata().getIdType()
+        );
+      default:
+        return new NodeQuery(select(columns, from), null, 0, null);
+    }
+  }
+
+  private static void addColumns(
+      final FetchNode node,
+      final String alias,
+      final List<String> columns,
+      final StringBuilder from,
+      final List<FetchNode> joined
+  ) {
+    final EntityMetadata<?> metadata = node.getMetadata();
+    for (final String columnName : metadata.getColumnNames()) {
+      columns.add(alias + "." + columnName);
+    }
+    for (final FetchNode child : node.getChildren()) {
+      if (child.getKind() == FetchNode.Kind.TO_ONE && child.getStrategy() == FetchStrategy.JOIN) {
+        final String childAlias = "t" + joined.size();
+        joined.add(child);
+        final int foreignKeyIndex = metadata.getColumnIndex(child.getField());
+        from.append(String.format(
+            " left join %s %s on %s.%s = %s.%s",
+            child.getMetadata().getTableName(),
+            childAlias,
+            alias,
+            metadata.getColumnName(foreignKeyIndex),
+            childAlias,
+            child.getMetadata().getIdColumnName()
+        ));
+        child.setColumnOffset(columns.size());
+        addColumns(child, childAlias, columns, from, joined);
+      }
+    }
+  }
+
+  private static String getJoinTableColumnName(
+      final FetchNode node,
+      final boolean ownerSide
+  ) {
+    final Field field = node.getField();
+    final JoinTable joinTable = getJoinTable(field);
+    final boolean mappedBy = !field.getAnnotation(ManyToMany.class).mappedBy().isEmpty();
+    final JoinColumn joinColumn = ownerSide != mappedBy
+        ? joinTable.joinColumn()
+        : joinTable.inverseJoinColumn();
+    final Class<?> clazz = ownerSide
+        ? node.getParent().getMetadata().getEntityClass()
+        : node.getMetadata().getEntityClass();
+    return getEntityJoinColumnName(clazz, joinColumn);
+  }
+
+  private static String select(final List<String> columns, final CharSequence from) {
+    return String.format("select %s from %s", String.join(", ", columns), from);
+  }
+
+  @Override
+  public String toString() {
+    return fetchPlan.toString();
+  }
+}
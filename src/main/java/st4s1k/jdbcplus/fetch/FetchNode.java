@@ -0,0 +1,115 @@
+package st4s1k.jdbcplus.fetch;
+
+import st4s1k.jdbcplus.metadata.EntityMetadata;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A relation path of a {@link CompiledFetchPlan}.
+ */
+public final class FetchNode {
+
+  public enum Kind {
+    ROOT,
+    TO_ONE,
+    ONE_TO_MANY,
+    MANY_TO_MANY
+  }
+
+  private final FetchNode parent;
+  private final Field field;
+  private final Kind kind;
+  private final EntityMetadata<?> metadata;
+  private final Map<String, FetchNode> children = new LinkedHashMap<>();
+  private FetchStrategy strategy;
+  private NodeQuery query;
+  private int columnOffset;
+
+  FetchNode(
+      final FetchNode parent,
+      final Field field,
+      final Kind kind,
+      final EntityMetadata<?> metadata,
+      final FetchStrategy strategy
+  ) {
+    this.parent = parent;
+    this.field = field;
+    this.kind = kind;
+    this.metadata = metadata;
+    this.strategy = strategy;
+  }
+
+  public FetchNode getParent() {
+    return parent;
+  }
+
+  public Field getField() {
+    return field;
+  }
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  public EntityMetadata<?> getMetadata() {
+    return metadata;
+  }
+
+  public FetchStrategy getStrategy() {
+    return strategy;
+  }
+
+  public boolean isToMany() {
+    return kind == Kind.ONE_TO_MANY || kind == Kind.MANY_TO_MANY;
+  }
+
+  public Collection<FetchNode> getChildren() {
+    return children.values();
+  }
+
+  public Optional<FetchNode> getChild(final String fieldName) {
+    return Optional.ofNullable(children.get(fieldName));
+  }
+
+  /**
+   * Get the query loading this node, present for the root node
+   * and for the nodes which are not joined into their parent's query.
+   *
+   * @return {@link Optional} node query
+   */
+  public Optional<NodeQuery> getQuery() {
+    return Optional.ofNullable(query);
+  }
+
+  int getColumnOffset() {
+    return columnOffset;
+  }
+
+  void setColumnOffset(final int columnOffset) {
+    this.columnOffset = columnOffset;
+  }
+
+  void setStrategy(final FetchStrategy strategy) {
+    this.strategy = strategy;
+  }
+
+  void setQuery(final NodeQuery query) {
+    this.query = query;
+  }
+
+  FetchNode addChild(final FetchNode child) {
+    children.put(child.getField().getName(), child);
+    return child;
+  }
+
+  @Override
+  public String toString() {
+    return field == null
+        ? metadata.getEntityClass().getSimpleName()
+        : parent + "." + field.getName() + "(" + strategy + ")";
+  }
+}
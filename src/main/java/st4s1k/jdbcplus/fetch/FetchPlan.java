@@ -0,0 +1,151 @@
+package st4s1k.jdbcplus.fetch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Describes which relations are loaded together with an entity.
+ * <p>
+ * A plan lists relation paths, like {@code "entity"} or
+ * {@code "entity.entity4"}, each with a {@link FetchStrategy}.
+ * Intermediate path elements that are not listed explicitly are
+ * loaded with {@link FetchStrategy#BATCH}. A depth can be given to
+ * include all the relations up to that depth. Relations that are
+ * not part of the plan are not queried: to-one fields are set to a
+ * reference holding only the id, to-many fields are left untouched.
+ * <p>
+ * Plans are immutable and value-comparable; their queries are compiled
+ * once and cached by the {@link st4s1k.jdbcplus.metadata.MetadataRegistry}.
+ *
+ * @param <T> root entity type
+ */
+public final class FetchPlan<T> {
+
+  private final Class<T> entityClass;
+  private final Map<String, FetchStrategy> paths;
+  private final int depth;
+  private final FetchStrategy depthStrategy;
+
+  private FetchPlan(
+      final Class<T> entityClass,
+      final Map<String, FetchStrategy> paths,
+      final int depth,
+      final FetchStrategy depthStrategy
+  ) {
+    this.entityClass = requireNonNull(entityClass);
+    this.paths = Collections.unmodifiableMap(paths);
+    this.depth = depth;
+    this.depthStrategy = requireNonNull(depthStrategy);
+  }
+
+  /**
+   * Create a plan, that loads only the columns of the entity.
+   *
+   * @param entityClass root entity class
+   * @return fetch plan
+   */
+  public static <T> FetchPlan<T> of(final Class<T> entityClass) {
+    return new FetchPlan<>(entityClass, new LinkedHashMap<>(), 0, FetchStrategy.BATCH);
+  }
+
+  /**
+   * Add a relation path, loaded with {@link FetchStrategy#BATCH}.
+   *
+   * @param path dot separated relation path
+   * @return new fetch plan
+   */
+  public FetchPlan<T> fetch(final String path) {
+    return fetch(path, FetchStrategy.BATCH);
+  }
+
+  /**
+   * Add a relation path, loaded with the given strategy.
+   *
+   * @param path     dot separated relation path
+   * @param strategy fetch strategy
+   * @return new fetch plan
+   */
+  public FetchPlan<T> fetch(final String path, final FetchStrategy strategy) {
+    final Map<String, FetchStrategy> newPaths = new LinkedHashMap<>(paths);
+    newPaths.put(requireNonNull(path), requireNonNull(strategy));
+    return new FetchPlan<>(entityClass, newPaths, depth, depthStrategy);
+  }
+
+  /**
+   * Include all the relations up to the given depth,
+   * loaded with {@link FetchStrategy#BATCH}.
+   *
+   * @param depth relation depth
+   * @return new fetch plan
+   */
+  public FetchPlan<T> depth(final int depth) {
+    return depth(depth, FetchStrategy.BATCH);
+  }
+
+  /**
+   * Include all the relations up to the given depth,
+   * loaded with the given strategy. Explicit paths
+   * keep their own strategy.
+   *
+   * @param depth    relation depth
+   * @param strategy fetch strategy
+   * @return new fetch plan
+   */
+  public FetchPlan<T> depth(final int depth, final FetchStrategy strategy) {
+    if (depth < 0) {
+      throw new IllegalArgumentException("Fetch depth cannot be negative: " + depth);
+    }
+    return new FetchPlan<>(entityClass, new LinkedHashMap<>(paths), depth, strategy);
+  }
+
+  public Class<T> getEntityClass() {
+    return entityClass;
+  }
+
+  public Map<String, FetchStrategy> getPaths() {
+    return paths;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public FetchStrategy getDepthStrategy() {
+    return depthStrategy;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final FetchPlan<?> that = (FetchPlan<?>) o;
+    return depth == that.depth
+        && entityClass.equals(that.entityClass)
+        && paths.equals(that.paths)
+        && depthStrategy == that.depthStrategy;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(entityClass, paths, depth, depthStrategy);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "FetchPlan(%s, paths=%s, depth=%d, depthStrategy=%s)",
+        entityClass.getSimpleName(),
+        paths,
+        depth,
+        depthStrategy
+    );
+  }
+}
@@ -0,0 +1,379 @@
+package st4s1k.jdbcplus.fetch;
+
+import st4s1k.jdbcplus.collections.IdMap;
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.metadata.EntityMetadata;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+import st4s1k.jdbcplus.repo.IdentityMap;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static st4s1k.jdbcplus.utils.EntityUtils.getTargetEntity;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.getClassInstance;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.toWrapperType;
+
+/**
+ * Loads entities together with the relations of a {@link CompiledFetchPlan}.
+ * <p>
+ * Joined relations are mapped from the rows of their parent's query,
+ * batched relations are loaded level by level with one {@code in (...)}
+ * query per relation path and lazy to-many relations are loaded on
+ * first access. All the loaded instances are shared through the
+ * {@link IdentityMap}. References to entities outside the plan hold only
+ * the id and are shared within one execution, never through the
+ * identity map, so that later lookups do not mistake them for loaded
+ * entities.
+ */
+public class FetchPlanExecutor {
+
+  private static final System.Logger LOGGER = System.getLogger("FetchPlanExecutor");
+  private static final int BATCH_SIZE = 500;
+
+  private final DatabaseConnection databaseConnection;
+  private final MetadataRegistry metadataRegistry;
+  private final Object identityScope;
+
+  public FetchPlanExecutor(
+      final DatabaseConnection databaseConnection,
+      final MetadataRegistry metadataRegistry
+  ) {
+    this(databaseConnection, metadataRegistry, IdentityMap.DEFAULT_SCOPE);
+  }
+
+  /**
+   * Create an executor sharing the {@link IdentityMap} of a scope.
+   *
+   * @param databaseConnection database connection
+   * @param metadataRegistry   metadata registry
+   * @param identityScope      scope of the identity map
+   */
+  public FetchPlanExecutor(
+      final DatabaseConnection databaseConnection,
+      final MetadataRegistry metadataRegistry,
+      final Object identityScope
+  ) {
+    this.databaseConnection = databaseConnection;
+    this.metadataRegistry = metadataRegistry;
+    this.identityScope = identityScope;
+  }
+
+  /**
+   * Fetch all entities of the plan's root class.
+   *
+   * @param fetchPlan compiled fetch plan
+   * @return a list of found entities
+   */
+  public <T> List<T> findAll(final CompiledFetchPlan<T> fetchPlan) {
+    return find(fetchPlan, fetchPlan.getRootQuery().getSelect());
+  }
+
+  /**
+   * Fetch all entities of the plan's root class,
+   * where column has specified value.
+   *
+   * @param fetchPlan compiled fetch plan
+   * @param column    table column
+   * @param value     specified value
+   * @return a list of found entities
+   */
+  public <T> List<T> findByColumn(
+      final CompiledFetchPlan<T> fetchPlan,
+      final String column,
+      final Object value
+  ) {
+    return find(fetchPlan, fetchPlan.getRootQuery().sqlWhere(column, value));
+  }
+
+  private <T> List<T> find(
+      final CompiledFetchPlan<T> fetchPlan,
+      final String query
+  ) {
+    final Class<T> clazz = fetchPlan.getFetchPlan().getEntityClass();
+    try (final IdentityMap identityMap = IdentityMap.open(identityScope)) {
+      final Execution execution = new Execution(identityMap);
+      final List<Object> entities = execution.query(fetchPlan.getRoot(), query, null);
+      execution.drain();
+      final List<T> result = new ArrayList<>(entities.size());
+      entities.forEach(entity -> result.add(clazz.cast(entity)));
+      return result;
+    }
+  }
+
+  private List<Object> loadLazily(
+      final FetchNode node,
+      final Object owner,
+      final Object ownerId
+  ) {
+    try (final IdentityMap identityMap = IdentityMap.open(identityScope)) {
+      final EntityMetadata<?> ownerMetadata = node.getParent().getMetadata();
+      identityMap.put(getRawClass(ownerMetadata), ownerId, owner);
+      final Execution execution = new Execution(identityMap);
+      final List<Object> elements = new ArrayList<>();
+      final Bucket owners = new Bucket(node);
+      owners.add(ownerId, elements);
+      execution.loadBatch(node, owners);
+      execution.drain();
+      return elements;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<Object> getRawClass(final EntityMetadata<?> metadata) {
+    return (Class<Object>) metadata.getEntityClass();
+  }
+
+  private static void setField(
+      final Field field,
+      final Object entity,
+      final Object value
+  ) {
+    if (value == null && field.getType().isPrimitive()) {
+      return;
+    }
+    try {
+      field.set(entity, value);
+    } catch (IllegalAccessException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+  }
+
+  private static Collection<Object> newCollection(final Field field) {
+    return Set.class.isAssignableFrom(field.getType())
+        ? new LinkedHashSet<>()
+        : new ArrayList<>();
+  }
+
+  /**
+   * Keys of a batched relation, in insertion order, each with the
+   * collection receiving the loaded entities. Keys of to-one relations
+   * map to an empty collection, which is never written.
+   */
+  private static final class Bucket {
+
+    private final IdMap<Collection<Object>> collections;
+    private final List<Object> keys = new ArrayList<>();
+
+    private Bucket(final FetchNode node) {
+      this.collections = IdMap.forIdType(node.getQuery().orElseThrow().getKeyType());
+    }
+
+    private void add(final Object key, final Collection<Object> collection) {
+      if (collections.putIfAbsent(key, collection) == null) {
+        keys.add(key);
+      }
+    }
+
+    private Collection<Object> get(final Object key) {
+      return collections.get(key);
+    }
+  }
+
+  /**
+   * State of a single plan execution: relations still to be
+   * loaded in batches, the collections already populated, the
+   * entities already mapped from a row and the id-only references.
+   */
+  private class Execution {
+
+    private final IdentityMap identityMap;
+    private final Map<FetchNode, Bucket> pending = new LinkedHashMap<>();
+    private final Map<Field, Set<Object>> populated = new HashMap<>();
+    private final Set<Object> loaded = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Class<?>, IdMap<Object>> references = new HashMap<>();
+
+    private Execution(final IdentityMap identityMap) {
+      this.identityMap = identityMap;
+    }
+
+    private List<Object> query(
+        final FetchNode node,
+        final String query,
+        final Bucket owners
+    ) {
+      return databaseConnection.queryTransaction(
+          query,
+          resultSet -> mapRows(resultSet, node, owners),
+          Collections::emptyList
+      );
+    }
+
+    private List<Object> mapRows(
+        final ResultSet resultSet,
+        final FetchNode node,
+        final Bucket owners
+    ) {
+      final List<Object> entities = new ArrayList<>();
+      try {
+        final NodeQuery nodeQuery = node.getQuery().orElseThrow();
+        while (resultSet.next()) {
+          final Object entity = mapEntity(resultSet, node);
+          if (entity == null) {
+            continue;
+          }
+          entities.add(entity);
+          if (owners != null && node.isToMany()) {
+            final Object ownerId = resultSet.getObject(
+                nodeQuery.getKeyIndex(),
+                toWrapperType(nodeQuery.getKeyType())
+            );
+            Optional.ofNullable(owners.get(ownerId)).ifPresent(c -> c.add(entity));
+          }
+        }
+      } catch (SQLException e) {
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+        return Collections.emptyList();
+      }
+      return entities;
+    }
+
+    private Object mapEntity(
+        final ResultSet resultSet,
+        final FetchNode node
+    ) throws SQLException {
+      final EntityMetadata<?> metadata = node.getMetadata();
+      final Class<Object> clazz = getRawClass(metadata);
+      final int offset = node.getColumnOffset();
+      final Field idField = metadata.getIdField();
+      final Object id = resultSet.getObject(
+          offset + metadata.getColumnIndex(idField) + 1,
+          toWrapperType(metadata.getIdType())
+      );
+      if (id == null) {
+        return null;
+      }
+      final Object entity = identityMap.get(clazz, id)
+          .orElseGet(() -> identityMap.put(clazz, id, Optional
+              .ofNullable(references.get(clazz))
+              .map(classReferences -> classReferences.remove(id))
+              .orElseGet(() -> getClassInstance(clazz))));
+      loaded.add(entity);
+      for (int i = 0; i < metadata.getColumnCount(); i++) {
+        final Field column = metadata.getColumn(i);
+        final int columnIndex = offset + i + 1;
+        if (EntityMetadata.isToOneField(column)) {
+          setField(column, entity, mapToOne(resultSet, node, column, columnIndex));
+        } else {
+          final Object value = resultSet.getObject(columnIndex, toWrapperType(column.getType()));
+          setField(column, entity, value);
+        }
+      }
+      for (final FetchNode child : node.getChildren()) {
+        if (child.isToMany()) {
+          populateToMany(child, entity, id);
+        }
+      }
+      return entity;
+    }
+
+    private Object mapToOne(
+        final ResultSet resultSet,
+        final FetchNode node,
+        final Field column,
+        final int columnIndex
+    ) throws SQLException {
+      final Optional<FetchNode> child = node.getChild(column.getName());
+      if (child.isPresent() && child.get().getStrategy() == FetchStrategy.JOIN) {
+        return mapEntity(resultSet, child.get());
+      }
+      final EntityMetadata<?> targetMetadata =
+          metadataRegistry.getEntityMetadata(getTargetEntity(column));
+      final Object foreignKey = resultSet.getObject(
+          columnIndex,
+          toWrapperType(targetMetadata.getIdType())
+      );
+      if (foreignKey == null) {
+        return null;
+      }
+      final Object reference = getReference(targetMetadata, foreignKey);
+      child.filter(c -> c.getStrategy() == FetchStrategy.BATCH)
+          .filter(c -> !isLoaded(c, reference))
+          .ifPresent(c -> pending.computeIfAbsent(c, Bucket::new)
+              .add(foreignKey, Collections.emptyList()));
+      return reference;
+    }
+
+    /**
+     * Check whether a to-one entity needs no batch load: it was already
+     * mapped from a row, and its node has no relations to load.
+     */
+    private boolean isLoaded(final FetchNode node, final Object entity) {
+      return node.getChildren().isEmpty() && loaded.contains(entity);
+    }
+
+    private Object getReference(
+        final EntityMetadata<?> metadata,
+        final Object id
+    ) {
+      final Class<Object> clazz = getRawClass(metadata);
+      return identityMap.get(clazz, id).orElseGet(() -> {
+        final IdMap<Object> classReferences =
+            references.computeIfAbsent(clazz, IdMap::forEntity);
+        return Optional.ofNullable(classReferences.get(id)).orElseGet(() -> {
+          final Object reference = getClassInstance(clazz);
+          setField(metadata.getIdField(), reference, id);
+          classReferences.put(id, reference);
+          return reference;
+        });
+      });
+    }
+
+    private void populateToMany(
+        final FetchNode node,
+        final Object owner,
+        final Object ownerId
+    ) {
+      final Field field = node.getField();
+      if (!populated.computeIfAbsent(field, f -> Collections.newSetFromMap(new IdentityHashMap<>()))
+          .add(owner)) {
+        return;
+      }
+      if (node.getStrategy() == FetchStrategy.LAZY
+          && field.getType().isAssignableFrom(LazyList.class)) {
+        setField(field, owner, new LazyList<>(() -> loadLazily(node, owner, ownerId)));
+      } else {
+        final Collection<Object> collection = newCollection(field);
+        setField(field, owner, collection);
+        pending.computeIfAbsent(node, Bucket::new).add(ownerId, collection);
+      }
+    }
+
+    private void drain() {
+      while (!pending.isEmpty()) {
+        final Iterator<Map.Entry<FetchNode, Bucket>> iterator = pending.entrySet().iterator();
+        final Map.Entry<FetchNode, Bucket> next = iterator.next();
+        iterator.remove();
+        loadBatch(next.getKey(), next.getValue());
+      }
+    }
+
+    private void loadBatch(
+        final FetchNode node,
+        final Bucket bucket
+    ) {
+      final NodeQuery nodeQuery = node.getQuery().orElseThrow();
+      final Class<Object> clazz = getRawClass(node.getMetadata());
+      final List<Object> batch = new ArrayList<>(Math.min(bucket.keys.size(), BATCH_SIZE));
+      for (final Object key : bucket.keys) {
+        if (!node.isToMany() && identityMap.get(clazz, key)
+            .filter(entity -> isLoaded(node, entity))
+            .isPresent()) {
+          continue;
+        }
+        batch.add(key);
+        if (batch.size() == BATCH_SIZE) {
+          query(node, nodeQuery.sqlIn(batch), bucket);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        query(node, nodeQuery.sqlIn(batch), bucket);
+      }
+    }
+  }
+}
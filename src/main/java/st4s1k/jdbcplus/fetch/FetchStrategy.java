@@ -0,0 +1,26 @@
+package st4s1k.jdbcplus.fetch;
+
+/**
+ * How a relation path of a {@link FetchPlan} is loaded.
+ */
+public enum FetchStrategy {
+
+  /**
+   * Load a to-one relation in the same query, using a left join.
+   * To-many relations are loaded as {@link #BATCH}.
+   */
+  JOIN,
+
+  /**
+   * Load the relation of all the entities of a level with
+   * one {@code in (...)} query per relation.
+   */
+  BATCH,
+
+  /**
+   * Do not load the relation up front. To-one relations are
+   * set to a reference holding only the id, to-many relations
+   * are loaded on first access to the collection.
+   */
+  LAZY
+}
@@ -0,0 +1,76 @@
+package st4s1k.jdbcplus.fetch;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * List of related entities, loaded on first access.
+ *
+ * @param <E> element type
+ */
+public class LazyList<E> extends AbstractList<E> {
+
+  private final Supplier<List<E>> loader;
+  private volatile List<E> elements;
+
+  public LazyList(final Supplier<List<E>> loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * Check whether the elements have already been loaded.
+   *
+   * @return true if loaded
+   */
+  public boolean isLoaded() {
+    return elements != null;
+  }
+
+  private List<E> elements() {
+    List<E> result = elements;
+    if (result == null) {
+      synchronized (this) {
+        result = elements;
+        if (result == null) {
+          result = new ArrayList<>(loader.get());
+          elements = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public E get(final int index) {
+    return elements().get(index);
+  }
+
+  @Override
+  public int size() {
+    return elements().size();
+  }
+
+  @Override
+  public E set(final int index, final E element) {
+    return elements().set(index, element);
+  }
+
+  @Override
+  public void add(final int index, final E element) {
+    elements().add(index, element);
+    modCount++;
+  }
+
+  @Override
+  public E remove(final int index) {
+    modCount++;
+    return elements().remove(index);
+  }
+
+  @Override
+  public String toString() {
+    return isLoaded() ? elements.toString() : "[not loaded]";
+  }
+}
@@ -0,0 +1,106 @@
+package st4s1k.jdbcplus.fetch;
+
+import st4s1k.jdbcplus.utils.EntityUtils;
+
+import java.util.Collection;
+
+import static java.util.stream.Collectors.joining;
+import static st4s1k.jdbcplus.utils.EntityUtils.getStringValueForSql;
+
+/**
+ * Precompiled select of a {@link FetchNode}, including
+ * the to-one relations joined into the same query.
+ */
+public final class NodeQuery {
+
+  static final String ROOT_ALIAS = "t0";
+
+  private final String select;
+  private final String keyColumn;
+  private final int keyIndex;
+  private final Class<?> keyType;
+
+  NodeQuery(
+      final String select,
+      final String keyColumn,
+      final int keyIndex,
+      final Class<?> keyType
+  ) {
+    this.select = select;
+    this.keyColumn = keyColumn;
+    this.keyIndex = keyIndex;
+    this.keyType = keyType;
+  }
+
+  /**
+   * Get the select, without a where clause.
+   *
+   * @return SQL query string
+   */
+  public String getSelect() {
+    return select;
+  }
+
+  /**
+   * Get the column the node is looked up by, when it is
+   * loaded for a batch of ids or owners.
+   *
+   * @return qualified column name
+   */
+  public String getKeyColumn() {
+    return keyColumn;
+  }
+
+  /**
+   * Get the result set index of the owner id,
+   * when the node is a to-many relation.
+   *
+   * @return column index, or 0
+   */
+  public int getKeyIndex() {
+    return keyIndex;
+  }
+
+  public Class<?> getKeyType() {
+    return keyType;
+  }
+
+  /**
+   * Generates the select for rows, where column has specified value.
+   *
+   * @param column column of the node table
+   * @param value  the column value
+   * @return SQL query string
+   */
+  public String sqlWhere(final String column, final Object value) {
+    return String.format(
+        "%s where %s.%s = %s",
+        select,
+        ROOT_ALIAS,
+        column,
+        getStringValueForSql(value)
+    );
+  }
+
+  /**
+   * Generates the select for a batch of keys.
+   *
+   * @param keys ids or owner ids
+   * @return SQL query string
+   */
+  public String sqlIn(final Collection<?> keys) {
+    return String.format(
+        "%s where %s in (%s)",
+        select,
+        keyColumn,
+        keys.stream()
+            .map(EntityUtils::getStringValueForSql)
+            .collect(joining(", "))
+    );
+  }
+
+  @Override
+  public String toString() {
+    return select;
+  }
+}
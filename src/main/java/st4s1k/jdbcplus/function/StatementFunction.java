@@ -0,0 +1,9 @@
+package st4s1k.jdbcplus.function;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+@FunctionalInterface
+public interface StatementFunction<T> {
+  T apply(Statement statement) throws SQLException;
+}
@@ -0,0 +1,30 @@
+package st4s1k.jdbcplus.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Transport of {@link InvalidationEvent}s between the nodes
+ * sharing a database.
+ */
+public interface InvalidationBus extends AutoCloseable {
+
+  /**
+   * Send events to all the subscribers, including the ones of
+   * the publishing node, which are expected to skip their own events.
+   *
+   * @param events events to send
+   */
+  void publish(List<InvalidationEvent> events);
+
+  /**
+   * Register a listener for all the published events.
+   *
+   * @param listener event listener
+   * @return subscription, closing it unregisters the listener
+   */
+  AutoCloseable subscribe(Consumer<InvalidationEvent> listener);
+
+  @Override
+  void close();
+}
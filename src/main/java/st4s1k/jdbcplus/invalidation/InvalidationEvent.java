@@ -0,0 +1,77 @@
+package st4s1k.jdbcplus.invalidation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Notification that rows of an entity class were written by a node,
+ * so other nodes have to evict them from their caches.
+ */
+public final class InvalidationEvent {
+
+  private final String origin;
+  private final Class<?> entityClass;
+  private final Set<Object> ids;
+  private final Set<String> tables;
+
+  /**
+   * Create an event.
+   *
+   * @param origin      id of the node that wrote the rows
+   * @param entityClass entity class
+   * @param ids         ids of the written rows, empty if unknown
+   * @param tables      tables written
+   */
+  public InvalidationEvent(
+      final String origin,
+      final Class<?> entityClass,
+      final Collection<?> ids,
+      final Collection<String> tables
+  ) {
+    this.origin = Objects.requireNonNull(origin);
+    this.entityClass = entityClass;
+    this.ids = Collections.unmodifiableSet(new LinkedHashSet<>(ids));
+    this.tables = Collections.unmodifiableSet(new LinkedHashSet<>(tables));
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  /**
+   * Get the entity class of the written rows.
+   *
+   * @return entity class, null if it is unknown to this node
+   */
+  public Class<?> getEntityClass() {
+    return entityClass;
+  }
+
+  /**
+   * Get the ids of the written rows. An empty set means
+   * that any row of the entity class may have been written.
+   *
+   * @return row ids
+   */
+  public Set<Object> getIds() {
+    return ids;
+  }
+
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "InvalidationEvent(origin=%s, entityClass=%s, ids=%s, tables=%s)",
+        origin,
+        entityClass == null ? null : entityClass.getName(),
+        ids,
+        tables
+    );
+  }
+}
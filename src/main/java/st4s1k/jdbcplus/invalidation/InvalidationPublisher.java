@@ -0,0 +1,171 @@
+package st4s1k.jdbcplus.invalidation;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.Logger.Level.ERROR;
+
+/**
+ * Collects the writes of a node and publishes them to an
+ * {@link InvalidationBus} in batches, coalescing all the writes
+ * of an entity class since the last flush into one event.
+ * <p>
+ * With a zero flush interval every write is published immediately,
+ * otherwise pending writes are flushed periodically by a daemon thread,
+ * or as soon as {@code maxPendingIds} ids are pending. The writes of
+ * a flush that fails stay pending, to be published by the next one.
+ */
+public class InvalidationPublisher implements AutoCloseable {
+
+  private static final System.Logger LOGGER = System.getLogger("InvalidationPublisher");
+
+  private final InvalidationBus bus;
+  private final String origin;
+  private final int maxPendingIds;
+  private final ScheduledExecutorService flusher;
+  private Map<Class<?>, Pending> pending = new LinkedHashMap<>();
+  private int pendingIds;
+
+  /**
+   * Create a publisher.
+   *
+   * @param bus           the invalidation bus
+   * @param origin        id of this node
+   * @param flushInterval maximum delay before a write is published
+   * @param maxPendingIds number of pending ids triggering a flush
+   */
+  public InvalidationPublisher(
+      final InvalidationBus bus,
+      final String origin,
+      final Duration flushInterval,
+      final int maxPendingIds
+  ) {
+    this.bus = bus;
+    this.origin = origin;
+    this.maxPendingIds = maxPendingIds;
+    if (flushInterval.isZero()) {
+      this.flusher = null;
+    } else {
+      this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "jdbcplus-invalidation-publisher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      final long intervalNanos = flushInterval.toNanos();
+      flusher.scheduleWithFixedDelay(
+          this::flushQuietly,
+          intervalNanos,
+          intervalNanos,
+          TimeUnit.NANOSECONDS
+      );
+    }
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  /**
+   * Record a write.
+   *
+   * @param entityClass entity class
+   * @param ids         ids of the written rows, empty if unknown
+   * @param tables      tables written
+   */
+  public void publish(
+      final Class<?> entityClass,
+      final Collection<?> ids,
+      final Collection<String> tables
+  ) {
+    final boolean flush;
+    synchronized (this) {
+      final Pending entry = pending.computeIfAbsent(entityClass, c -> new Pending());
+      if (ids.isEmpty()) {
+        entry.allIds = true;
+      }
+      for (final Object id : ids) {
+        if (entry.ids.add(id)) {
+          pendingIds++;
+        }
+      }
+      entry.tables.addAll(tables);
+      flush = flusher == null || pendingIds >= maxPendingIds;
+    }
+    if (flush) {
+      flushQuietly();
+    }
+  }
+
+  /**
+   * Publish all the pending writes.
+   *
+   * @throws RuntimeException if the bus fails, after putting the
+   *                          writes back in the pending ones
+   */
+  public void flush() {
+    final Map<Class<?>, Pending> flushed;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      flushed = pending;
+      pending = new LinkedHashMap<>();
+      pendingIds = 0;
+    }
+    final List<InvalidationEvent> events = new ArrayList<>(flushed.size());
+    flushed.forEach((entityClass, entry) -> events.add(new InvalidationEvent(
+        origin,
+        entityClass,
+        entry.allIds ? Collections.emptySet() : entry.ids,
+        entry.tables
+    )));
+    try {
+      bus.publish(events);
+    } catch (RuntimeException e) {
+      requeue(flushed);
+      throw e;
+    }
+  }
+
+  /**
+   * Publish the pending writes and stop the flusher thread.
+   */
+  @Override
+  public void close() {
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    flush();
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+  }
+
+  private synchronized void requeue(final Map<Class<?>, Pending> failed) {
+    pending.forEach((entityClass, entry) -> failed.merge(entityClass, entry, Pending::merge));
+    pending = failed;
+    pendingIds = failed.values().stream().mapToInt(entry -> entry.ids.size()).sum();
+  }
+
+  private static final class Pending {
+
+    private final Set<Object> ids = new LinkedHashSet<>();
+    private final Set<String> tables = new LinkedHashSet<>();
+    private boolean allIds;
+
+    private Pending merge(final Pending other) {
+      ids.addAll(other.ids);
+      tables.addAll(other.tables);
+      allIds |= other.allIds;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package st4s1k.jdbcplus.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static java.lang.System.Logger.Level.ERROR;
+
+/**
+ * In-process {@link InvalidationBus}, delivering the events
+ * synchronously to the listeners of the same JVM, e.g. to several
+ * repositories in tests.
+ */
+public class LoopbackInvalidationBus implements InvalidationBus {
+
+  private static final System.Logger LOGGER = System.getLogger("LoopbackInvalidationBus");
+
+  private final List<Consumer<InvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(final List<InvalidationEvent> events) {
+    for (final InvalidationEvent event : events) {
+      for (final Consumer<InvalidationEvent> listener : listeners) {
+        try {
+          listener.accept(event);
+        } catch (RuntimeException e) {
+          LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public AutoCloseable subscribe(final Consumer<InvalidationEvent> listener) {
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+
+  @Override
+  public void close() {
+    listeners.clear();
+  }
+}
@@ -0,0 +1,352 @@
+package st4s1k.jdbcplus.invalidation;
+
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.utils.EntityUtils;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.util.stream.Collectors.joining;
+import static st4s1k.jdbcplus.utils.EntityUtils.getStringValueForSql;
+
+/**
+ * {@link InvalidationBus} using a table of the shared database as
+ * the transport: published events are inserted as rows, and every
+ * subscribed node polls the rows appended since its last poll.
+ * <p>
+ * The table has an identity primary key, giving the order of the
+ * events, and is created by {@link #createTable()}. Concurrent
+ * publishers may commit their rows out of id order, so the ids skipped
+ * by a poll are polled again until they show up or the gap timeout
+ * elapses, after which they are assumed to be rolled back. Rows are
+ * never deleted by the bus, old events can be purged with
+ * {@link #purge(long)} once all the nodes have seen them.
+ */
+public class TableInvalidationBus implements InvalidationBus {
+
+  public static final String DEFAULT_TABLE = "jdbcplus_invalidations";
+
+  private static final System.Logger LOGGER = System.getLogger("TableInvalidationBus");
+  private static final String SEPARATOR = ",";
+  private static final int MAX_GAPS = 10_000;
+
+  private final DatabaseConnection databaseConnection;
+  private final String table;
+  private final Duration pollInterval;
+  private final Duration gapTimeout;
+  private final List<Consumer<InvalidationEvent>> listeners = new CopyOnWriteArrayList<>();
+  private final Map<Long, Long> gaps = new LinkedHashMap<>();
+  private ScheduledExecutorService poller;
+  private volatile long lastSeenId;
+
+  /**
+   * Create a bus, waiting up to a minute for the skipped ids.
+   *
+   * @param databaseConnection connection to the shared database
+   * @param table              event table name
+   * @param pollInterval       delay between two polls
+   */
+  public TableInvalidationBus(
+      final DatabaseConnection databaseConnection,
+      final String table,
+      final Duration pollInterval
+  ) {
+    this(databaseConnection, table, pollInterval, Duration.ofMinutes(1));
+  }
+
+  /**
+   * Create a bus.
+   *
+   * @param databaseConnection connection to the shared database
+   * @param table              event table name
+   * @param pollInterval       delay between two polls
+   * @param gapTimeout         how long an id skipped by a poll is
+   *                           polled again, waiting for its commit
+   */
+  public TableInvalidationBus(
+      final DatabaseConnection databaseConnection,
+      final String table,
+      final Duration pollInterval,
+      final Duration gapTimeout
+  ) {
+    this.databaseConnection = databaseConnection;
+    this.table = table;
+    this.pollInterval = pollInterval;
+    this.gapTimeout = gapTimeout;
+  }
+
+  /**
+   * Create the event table, if it does not exist.
+   */
+  public void createTable() {
+    databaseConnection.updateTransaction(String.format(
+        "create table if not exists %s ("
+            + "id bigint generated by default as identity primary key, "
+            + "origin varchar(64) not null, "
+            + "entity_class varchar(512), "
+            + "entity_ids clob, "
+            + "table_names varchar(4000))",
+        table
+    ));
+  }
+
+  /**
+   * Insert the events, in one transaction.
+   *
+   * @param events events to send
+   * @throws st4s1k.jdbcplus.exceptions.JdbcPlusException if the
+   *                                                      insert fails
+   */
+  @Override
+  public void publish(final List<InvalidationEvent> events) {
+    final List<String> inserts = new ArrayList<>(events.size());
+    for (final InvalidationEvent event : events) {
+      inserts.add(String.format(
+          "insert into %s(origin, entity_class, entity_ids, table_names) "
+              + "values (%s, %s, %s, %s)",
+          table,
+          getStringValueForSql(encode(event.getOrigin())),
+          getStringValueForSql(event.getEntityClass() == null
+              ? null
+              : encode(event.getEntityClass().getName())),
+          getStringValueForSql(event.getIds().stream()
+              .map(id -> encode(String.valueOf(id)))
+              .collect(joining(SEPARATOR))),
+          getStringValueForSql(event.getTables().stream()
+              .map(TableInvalidationBus::encode)
+              .collect(joining(SEPARATOR)))
+      ));
+    }
+    if (!inserts.isEmpty()) {
+      databaseConnection.updateBatchTransactionOrThrow(List.of(inserts));
+    }
+  }
+
+  /**
+   * Register a listener, starting to poll on the first subscription.
+   * Only the events published after the subscription are delivered.
+   *
+   * @param listener event listener
+   * @return subscription, closing it unregisters the listener
+   */
+  @Override
+  public synchronized AutoCloseable subscribe(final Consumer<InvalidationEvent> listener) {
+    listeners.add(listener);
+    if (poller == null) {
+      lastSeenId = findLastId();
+      gaps.clear();
+      poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "jdbcplus-invalidation-poller");
+        thread.setDaemon(true);
+        return thread;
+      });
+      final long intervalNanos = pollInterval.toNanos();
+      poller.scheduleWithFixedDelay(
+          this::pollQuietly,
+          intervalNanos,
+          intervalNanos,
+          TimeUnit.NANOSECONDS
+      );
+    }
+    return () -> listeners.remove(listener);
+  }
+
+  /**
+   * Deliver the events published since the last poll, and the ones
+   * committed since then with an id skipped by an earlier poll.
+   */
+  public synchronized void poll() {
+    final long now = System.nanoTime();
+    gaps.values().removeIf(deadline -> deadline - now < 0);
+    final String query = String.format(
+        "select id, origin, entity_class, entity_ids, table_names "
+            + "from %s where id > %d%s order by id",
+        table,
+        lastSeenId,
+        gaps.isEmpty() ? "" : gaps.keySet().stream()
+            .map(String::valueOf)
+            .collect(joining(", ", " or id in (", ")"))
+    );
+    final List<Row> rows = databaseConnection.queryTransaction(
+        query,
+        this::readRows,
+        Collections::emptyList
+    );
+    for (final Row row : Optional.ofNullable(rows).orElse(Collections.emptyList())) {
+      if (row.id > lastSeenId) {
+        for (long id = lastSeenId + 1; id < row.id && gaps.size() < MAX_GAPS; id++) {
+          gaps.put(id, now + gapTimeout.toNanos());
+        }
+        lastSeenId = row.id;
+        deliver(row.toEvent());
+      } else if (gaps.remove(row.id) != null) {
+        deliver(row.toEvent());
+      }
+    }
+  }
+
+  /**
+   * Delete the events up to an id.
+   *
+   * @param maxId last id to delete
+   */
+  public void purge(final long maxId) {
+    databaseConnection.updateTransaction(
+        String.format("delete from %s where id <= %d", table, maxId)
+    );
+  }
+
+  @Override
+  public synchronized void close() {
+    if (poller != null) {
+      poller.shutdownNow();
+      poller = null;
+    }
+    listeners.clear();
+  }
+
+  private long findLastId() {
+    final Long lastId = databaseConnection.queryTransaction(
+        String.format("select max(id) from %s", table),
+        resultSet -> {
+          try {
+            return resultSet.next() ? resultSet.getLong(1) : 0L;
+          } catch (SQLException e) {
+            LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+            throw JdbcPlusException.of(e);
+          }
+        },
+        () -> 0L
+    );
+    return lastId == null ? 0 : lastId;
+  }
+
+  private void deliver(final InvalidationEvent event) {
+    for (final Consumer<InvalidationEvent> listener : listeners) {
+      try {
+        listener.accept(event);
+      } catch (RuntimeException e) {
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      }
+    }
+  }
+
+  private void pollQuietly() {
+    try {
+      poll();
+    } catch (RuntimeException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+  }
+
+  private List<Row> readRows(final ResultSet resultSet) {
+    final List<Row> rows = new ArrayList<>();
+    try {
+      while (resultSet.next()) {
+        rows.add(new Row(
+            resultSet.getLong(1),
+            resultSet.getString(2),
+            resultSet.getString(3),
+            resultSet.getString(4),
+            resultSet.getString(5)
+        ));
+      }
+    } catch (SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+    return rows;
+  }
+
+  private static String encode(final String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+  private static String decode(final String value) {
+    return URLDecoder.decode(value, StandardCharsets.UTF_8);
+  }
+
+  private static List<String> split(final String values) {
+    if (values == null || values.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<String> result = new ArrayList<>();
+    for (final String value : values.split(SEPARATOR)) {
+      result.add(decode(value));
+    }
+    return result;
+  }
+
+  private static Class<?> findClass(final String className) {
+    if (className == null) {
+      return null;
+    }
+    try {
+      return Class.forName(decode(className));
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static Object parseId(final Class<?> idType, final String value) {
+    if (idType == int.class || idType == Integer.class) {
+      return Integer.valueOf(value);
+    } else if (idType == long.class || idType == Long.class) {
+      return Long.valueOf(value);
+    } else if (idType == short.class || idType == Short.class) {
+      return Short.valueOf(value);
+    } else if (idType == byte.class || idType == Byte.class) {
+      return Byte.valueOf(value);
+    } else if (idType == UUID.class) {
+      return UUID.fromString(value);
+    }
+    return value;
+  }
+
+  private static final class Row {
+
+    private final long id;
+    private final String origin;
+    private final String entityClass;
+    private final String entityIds;
+    private final String tableNames;
+
+    private Row(
+        final long id,
+        final String origin,
+        final String entityClass,
+        final String entityIds,
+        final String tableNames
+    ) {
+      this.id = id;
+      this.origin = origin;
+      this.entityClass = entityClass;
+      this.entityIds = entityIds;
+      this.tableNames = tableNames;
+    }
+
+    private InvalidationEvent toEvent() {
+      final Class<?> clazz = findClass(entityClass);
+      final List<Object> ids = new ArrayList<>();
+      if (clazz != null) {
+        final Class<?> idType = EntityUtils.getIdColumn(clazz).getType();
+        for (final String value : split(entityIds)) {
+          ids.add(parseId(idType, value));
+        }
+      }
+      return new InvalidationEvent(decode(origin), clazz, ids, split(tableNames));
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package st4s1k.jdbcplus.metadata;
+
+import st4s1k.jdbcplus.annotations.Table;
+import st4s1k.jdbcplus.exceptions.InvalidMappingException;
+import st4s1k.jdbcplus.utils.EntityUtils;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Mapping metadata of an entity class, computed once
+ * and cached by the {@link MetadataRegistry}.
+ *
+ * @param <T> entity type
+ */
+public class EntityMetadata<T> {
+
+  private final Class<T> entityClass;
+  private final String tableName;
+  private final Field idField;
+  private final String idColumnName;
+  private final Field[] columns;
+  private final String[] columnNames;
+  private final Field[] toOneFields;
+  private final Field[] oneToManyFields;
+  private final Field[] manyToManyFields;
+  private final Map<String, Field> relationFields;
+
+  protected EntityMetadata(final Class<T> entityClass) {
+    this.entityClass = entityClass;
+    this.tableName = EntityUtils.getTableName(entityClass);
+    this.idField = EntityUtils.getIdColumn(entityClass);
+    this.idColumnName = EntityUtils.getIdColumnName(idField);
+    this.columns = EntityUtils.getColumns(entityClass);
+    this.columnNames = EntityUtils.getColumnNames(entityClass);
+    this.toOneFields = Arrays.stream(columns)
+        .filter(EntityMetadata::isToOneField)
+        .toArray(Field[]::new);
+    this.oneToManyFields = EntityUtils.getOneToManyFields(entityClass);
+    this.manyToManyFields = EntityUtils.getManyToManyFields(entityClass);
+    this.relationFields = Arrays.stream(new Field[][]{toOneFields, oneToManyFields, manyToManyFields})
+        .flatMap(Arrays::stream)
+        .collect(toMap(Field::getName, field -> field, (a, b) -> a, LinkedHashMap::new));
+    idField.setAccessible(true);
+    Arrays.stream(columns).forEach(field -> field.setAccessible(true));
+    relationFields.values().forEach(field -> field.setAccessible(true));
+  }
+
+  public static <T> EntityMetadata<T> of(final Class<T> entityClass) {
+    return new EntityMetadata<>(entityClass);
+  }
+
+  public static boolean isToOneField(final Field field) {
+    return field.getType().isAnnotationPresent(Table.class);
+  }
+
+  public Class<T> getEntityClass() {
+    return entityClass;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public Field getIdField() {
+    return idField;
+  }
+
+  public Class<?> getIdType() {
+    return idField.getType();
+  }
+
+  public String getIdColumnName() {
+    return idColumnName;
+  }
+
+  public Field[] getColumns() {
+    return columns.clone();
+  }
+
+  public String[] getColumnNames() {
+    return columnNames.clone();
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public Field getColumn(final int index) {
+    return columns[index];
+  }
+
+  public String getColumnName(final int index) {
+    return columnNames[index];
+  }
+
+  public int getColumnIndex(final Field field) {
+    for (int i = 0; i < columns.length; i++) {
+      if (columns[i].equals(field)) {
+        return i;
+      }
+    }
+    throw InvalidMappingException.of(String.format(
+        "Field %s is not a column of %s",
+        field.getName(),
+        entityClass.getName()
+    ));
+  }
+
+  public Field[] getToOneFields() {
+    return toOneFields.clone();
+  }
+
+  public Field[] getOneToManyFields() {
+    return oneToManyFields.clone();
+  }
+
+  public Field[] getManyToManyFields() {
+    return manyToManyFields.clone();
+  }
+
+  /**
+   * Get a relation field by its name.
+   *
+   * @param fieldName field name
+   * @return {@link Optional} relation field
+   */
+  public Optional<Field> getRelationField(final String fieldName) {
+    return Optional.ofNullable(relationFields.get(fieldName));
+  }
+
+  /**
+   * Get all the relation fields.
+   *
+   * @return relation fields
+   */
+  public Field[] getRelationFields() {
+    return relationFields.values().toArray(Field[]::new);
+  }
+}
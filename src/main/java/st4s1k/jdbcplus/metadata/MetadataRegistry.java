@@ -0,0 +1,45 @@
+package st4s1k.jdbcplus.metadata;
+
+import st4s1k.jdbcplus.fetch.CompiledFetchPlan;
+import st4s1k.jdbcplus.fetch.FetchPlan;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of entity metadata and of the queries compiled for fetch plans.
+ */
+public class MetadataRegistry {
+
+  private final Map<Class<?>, EntityMetadata<?>> entities = new ConcurrentHashMap<>();
+  private final Map<FetchPlan<?>, CompiledFetchPlan<?>> fetchPlans = new ConcurrentHashMap<>();
+
+  /**
+   * Get the metadata of an entity class.
+   *
+   * @param clazz entity class
+   * @return entity metadata
+   */
+  @SuppressWarnings("unchecked")
+  public <T> EntityMetadata<T> getEntityMetadata(final Class<T> clazz) {
+    return (EntityMetadata<T>) entities.computeIfAbsent(clazz, EntityMetadata::of);
+  }
+
+  /**
+   * Get the queries compiled for a fetch plan,
+   * compiling them on first use.
+   *
+   * @param fetchPlan the fetch plan
+   * @return compiled fetch plan
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompiledFetchPlan<T> getCompiledFetchPlan(final FetchPlan<T> fetchPlan) {
+    final CompiledFetchPlan<?> compiledFetchPlan = fetchPlans.get(fetchPlan);
+    if (compiledFetchPlan != null) {
+      return (CompiledFetchPlan<T>) compiledFetchPlan;
+    }
+    final CompiledFetchPlan<T> newCompiledFetchPlan = CompiledFetchPlan.compile(fetchPlan, this);
+    final CompiledFetchPlan<?> previous = fetchPlans.putIfAbsent(fetchPlan, newCompiledFetchPlan);
+    return previous == null ? newCompiledFetchPlan : (CompiledFetchPlan<T>) previous;
+  }
+}
@@ -0,0 +1,183 @@
+package st4s1k.jdbcplus.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+import static st4s1k.jdbcplus.pool.PoolEntry.*;
+
+/**
+ * Lock-free holder of the {@link PoolEntry pool entries}.
+ * <p>
+ * Entries are claimed with a compare-and-set of their state. A borrower
+ * first scans the entries it returned last on the same thread, which
+ * are most likely still idle and uncontended, then all the entries,
+ * then waits for an entry to be handed off directly by a returning
+ * thread. Returned entries go straight to a waiting borrower if there
+ * is one, otherwise to the thread-local list of the returning thread.
+ */
+final class ConnectionBag {
+
+  private static final int MAX_THREAD_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<PoolEntry>> threadEntries =
+      ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_ENTRIES));
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final IntConsumer onShortage;
+
+  /**
+   * Create a bag.
+   *
+   * @param onShortage called with the number of waiting borrowers
+   *                   when no entry is available
+   */
+  ConnectionBag(final IntConsumer onShortage) {
+    this.onShortage = onShortage;
+  }
+
+  /**
+   * Claim an idle entry, waiting for one up to the timeout.
+   *
+   * @param timeoutNanos maximum wait
+   * @return the entry, now in use, or null on timeout
+   * @throws InterruptedException if interrupted while waiting
+   */
+  PoolEntry borrow(final long timeoutNanos) throws InterruptedException {
+    final List<PoolEntry> local = threadEntries.get();
+    for (int i = local.size() - 1; i >= 0; i--) {
+      final PoolEntry entry = local.remove(i);
+      if (entry.compareAndSet(NOT_IN_USE, IN_USE)) {
+        return entry;
+      }
+    }
+    final int waiting = waiters.incrementAndGet();
+    try {
+      for (final PoolEntry entry : entries) {
+        if (entry.compareAndSet(NOT_IN_USE, IN_USE)) {
+          if (waiting > 1) {
+            onShortage.accept(waiting - 1);
+          }
+          return entry;
+        }
+      }
+      onShortage.accept(waiting);
+      long remaining = timeoutNanos;
+      while (remaining > 0) {
+        final long start = System.nanoTime();
+        final PoolEntry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || entry.compareAndSet(NOT_IN_USE, IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Give back an entry in use, handing it off to a waiting borrower
+   * if there is one.
+   *
+   * @param entry the entry
+   */
+  void requite(final PoolEntry entry) {
+    entry.setState(NOT_IN_USE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(10_000);
+      } else {
+        Thread.yield();
+      }
+    }
+    final List<PoolEntry> local = threadEntries.get();
+    if (local.size() < MAX_THREAD_ENTRIES) {
+      local.add(entry);
+    }
+  }
+
+  /**
+   * Add a new idle entry, handing it off to a waiting borrower
+   * if there is one.
+   *
+   * @param entry the entry
+   */
+  void add(final PoolEntry entry) {
+    entries.add(entry);
+    while (waiters.get() > 0 && entry.getState() == NOT_IN_USE && !handoffQueue.offer(entry)) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Claim an idle entry for removal.
+   *
+   * @param entry the entry
+   * @return true if the entry was idle and is now reserved
+   */
+  boolean reserve(final PoolEntry entry) {
+    return entry.compareAndSet(NOT_IN_USE, RESERVED);
+  }
+
+  /**
+   * Remove an entry that is in use or reserved.
+   *
+   * @param entry the entry
+   * @return true if the entry was removed
+   */
+  boolean remove(final PoolEntry entry) {
+    if (!entry.compareAndSet(IN_USE, REMOVED) && !entry.compareAndSet(RESERVED, REMOVED)) {
+      return false;
+    }
+    entries.remove(entry);
+    return true;
+  }
+
+  /**
+   * Get the entries in a state.
+   *
+   * @param state entry state
+   * @return snapshot of the matching entries
+   */
+  List<PoolEntry> values(final int state) {
+    final List<PoolEntry> result = new ArrayList<>();
+    for (final PoolEntry entry : entries) {
+      if (entry.getState() == state) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  List<PoolEntry> values() {
+    return new ArrayList<>(entries);
+  }
+
+  int getCount(final int state) {
+    int count = 0;
+    for (final PoolEntry entry : entries) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int getWaitingCount() {
+    return waiters.get();
+  }
+
+  int size() {
+    return entries.size();
+  }
+}
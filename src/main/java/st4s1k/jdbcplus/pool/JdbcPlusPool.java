@@ -0,0 +1,398 @@
+package st4s1k.jdbcplus.pool;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.lang.System.Logger.Level.WARNING;
+import static st4s1k.jdbcplus.pool.PoolEntry.*;
+
+/**
+ * Bounded connection pool, wrapping the {@link DataSource} of a driver.
+ * It can be passed to {@link st4s1k.jdbcplus.config.DatabaseConnection#init(DataSource)}.
+ * <p>
+ * Connections are held in a lock-free {@link ConnectionBag} favouring
+ * the connection last used by the borrowing thread. New connections
+ * are opened in the background when borrowers have to wait, up to the
+ * maximum pool size. Connections idle for longer than the bypass window
+ * are validated before being handed out. A housekeeping thread closes
+ * idle and expired connections, keeps the minimum number of idle
+ * connections open and reports connections held for longer than the
+ * leak detection threshold, with the stack of their borrower.
+ */
+public class JdbcPlusPool implements DataSource, AutoCloseable {
+
+  private static final System.Logger LOGGER = System.getLogger("JdbcPlusPool");
+
+  private final PoolConfig config;
+  private final ConnectionBag bag;
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  private final AtomicInteger pendingConnections = new AtomicInteger();
+  private final ThreadPoolExecutor connectionAdder;
+  private final ScheduledExecutorService housekeeper;
+  private final LatencyHistogram waitTimes = new LatencyHistogram();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder closed = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder leaks = new LongAdder();
+  private volatile boolean shutdown;
+
+  /**
+   * Create a pool and open its minimum number of idle connections.
+   *
+   * @param config pool configuration
+   */
+  public JdbcPlusPool(final PoolConfig config) {
+    this.config = config;
+    this.bag = new ConnectionBag(this::onShortage);
+    this.connectionAdder = new ThreadPoolExecutor(
+        1,
+        1,
+        5,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        daemonThreads("jdbcplus-pool-adder")
+    );
+    this.connectionAdder.allowCoreThreadTimeOut(true);
+    this.housekeeper = Executors.newSingleThreadScheduledExecutor(
+        daemonThreads("jdbcplus-pool-housekeeper")
+    );
+    final long periodNanos = config.getHousekeepingPeriod().toNanos();
+    housekeeper.scheduleWithFixedDelay(
+        this::housekeep,
+        periodNanos,
+        periodNanos,
+        TimeUnit.NANOSECONDS
+    );
+    fillPool();
+  }
+
+  public PoolConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Borrow a connection, waiting up to the connection timeout.
+   * Closing the connection returns it to the pool.
+   *
+   * @return a pooled connection
+   * @throws SQLTransientConnectionException if no connection
+   *                                         became available in time
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return getConnection(config.getConnectionTimeout());
+  }
+
+  /**
+   * Borrow a connection, waiting up to a timeout, at most the
+   * connection timeout, e.g. the time left before a deadline.
+   *
+   * @param timeout maximum wait
+   * @return a pooled connection
+   * @throws SQLTransientConnectionException if no connection
+   *                                         became available in time
+   */
+  public Connection getConnection(final Duration timeout) throws SQLException {
+    if (shutdown) {
+      throw new SQLException("Pool is closed", "08003");
+    }
+    final long start = System.nanoTime();
+    final long timeoutNanos = Math.min(
+        timeout.toNanos(),
+        config.getConnectionTimeout().toNanos()
+    );
+    long remaining = timeoutNanos;
+    try {
+      while (remaining > 0) {
+        final PoolEntry entry = bag.borrow(remaining);
+        if (entry == null) {
+          break;
+        }
+        final long now = System.nanoTime();
+        if (isExpired(entry, now) || !isAlive(entry, now)) {
+          closeEntry(entry);
+          remaining = timeoutNanos - (System.nanoTime() - start);
+          continue;
+        }
+        waitTimes.record(now - start);
+        final boolean leakDetection = !config.getLeakDetectionThreshold().isZero();
+        entry.borrowed(now, leakDetection ? new Exception("Connection borrowed here") : null);
+        return ProxyConnection.of(this, entry);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection", e);
+    }
+    waitTimes.record(System.nanoTime() - start);
+    timeouts.increment();
+    throw new SQLTransientConnectionException(String.format(
+        "Connection not available, timed out after %d ms, %s",
+        TimeUnit.NANOSECONDS.toMillis(timeoutNanos),
+        getMetrics()
+    ));
+  }
+
+  @Override
+  public Connection getConnection(
+      final String username,
+      final String password
+  ) throws SQLException {
+    throw new SQLFeatureNotSupportedException("Pooled connections share the pool credentials");
+  }
+
+  /**
+   * Get the current counters of the pool.
+   *
+   * @return pool metrics
+   */
+  public PoolMetrics getMetrics() {
+    final int active = bag.getCount(IN_USE);
+    final int idle = bag.getCount(NOT_IN_USE);
+    return new PoolMetrics(
+        totalConnections.get(),
+        active,
+        idle,
+        bag.getWaitingCount(),
+        created.sum(),
+        closed.sum(),
+        timeouts.sum(),
+        leaks.sum()
+    );
+  }
+
+  /**
+   * Get the histogram of the time spent waiting in {@link #getConnection()}.
+   *
+   * @return wait time histogram
+   */
+  public LatencyHistogram getWaitTimes() {
+    return waitTimes;
+  }
+
+  /**
+   * Close the idle connections and stop the background threads.
+   * Connections in use are closed when they are returned.
+   */
+  @Override
+  public void close() {
+    shutdown = true;
+    housekeeper.shutdownNow();
+    connectionAdder.shutdownNow();
+    for (final PoolEntry entry : bag.values()) {
+      if (bag.reserve(entry)) {
+        closeEntry(entry);
+      }
+    }
+  }
+
+  public boolean isClosed() {
+    return shutdown;
+  }
+
+  void recycle(final PoolEntry entry) {
+    final long now = System.nanoTime();
+    if (shutdown || entry.isEvicted() || isExpired(entry, now)) {
+      closeEntry(entry);
+      fillPool();
+      return;
+    }
+    entry.setLastAccess(now);
+    bag.requite(entry);
+  }
+
+  private void onShortage(final int waiting) {
+    if (shutdown) {
+      return;
+    }
+    final int queued = pendingConnections.get();
+    for (int i = queued; i < waiting; i++) {
+      if (totalConnections.get() + pendingConnections.get() >= config.getMaximumPoolSize()) {
+        return;
+      }
+      pendingConnections.incrementAndGet();
+      try {
+        connectionAdder.execute(this::addConnection);
+      } catch (RejectedExecutionException e) {
+        pendingConnections.decrementAndGet();
+        return;
+      }
+    }
+  }
+
+  private void addConnection() {
+    try {
+      if (shutdown || !reserveSlot()) {
+        return;
+      }
+      try {
+        final Connection connection = config.getDataSource().getConnection();
+        final PoolEntry entry = new PoolEntry(
+            connection,
+            System.nanoTime(),
+            connection.getAutoCommit(),
+            connection.getTransactionIsolation()
+        );
+        created.increment();
+        bag.add(entry);
+      } catch (SQLException | RuntimeException e) {
+        totalConnections.decrementAndGet();
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      }
+    } finally {
+      pendingConnections.decrementAndGet();
+    }
+  }
+
+  private boolean reserveSlot() {
+    while (true) {
+      final int total = totalConnections.get();
+      if (total >= config.getMaximumPoolSize()) {
+        return false;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void fillPool() {
+    if (shutdown) {
+      return;
+    }
+    final int missing = Math.min(
+        config.getMaximumPoolSize() - totalConnections.get(),
+        config.getMinimumIdle() - bag.getCount(NOT_IN_USE)
+    ) - pendingConnections.get();
+    for (int i = 0; i < missing; i++) {
+      pendingConnections.incrementAndGet();
+      try {
+        connectionAdder.execute(this::addConnection);
+      } catch (RejectedExecutionException e) {
+        pendingConnections.decrementAndGet();
+        return;
+      }
+    }
+  }
+
+  private void closeEntry(final PoolEntry entry) {
+    if (!bag.remove(entry)) {
+      return;
+    }
+    totalConnections.decrementAndGet();
+    closed.increment();
+    try {
+      entry.getConnection().close();
+    } catch (SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+  }
+
+  private boolean isExpired(final PoolEntry entry, final long now) {
+    final long maxLifetime = config.getMaxLifetime().toNanos();
+    return maxLifetime > 0 && now - entry.getCreatedAt() >= maxLifetime;
+  }
+
+  private boolean isAlive(final PoolEntry entry, final long now) {
+    if (now - entry.getLastAccess() < config.getAliveBypassWindow().toNanos()) {
+      return true;
+    }
+    try {
+      final int timeoutSeconds = (int) Math.max(1, config.getValidationTimeout().toSeconds());
+      return entry.getConnection().isValid(timeoutSeconds);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private void housekeep() {
+    try {
+      final long now = System.nanoTime();
+      final long idleTimeout = config.getIdleTimeout().toNanos();
+      int removable = bag.getCount(NOT_IN_USE) - config.getMinimumIdle();
+      for (final PoolEntry entry : bag.values(NOT_IN_USE)) {
+        final boolean idleTooLong = idleTimeout > 0
+            && removable > 0
+            && now - entry.getLastAccess() >= idleTimeout;
+        if ((idleTooLong || isExpired(entry, now)) && bag.reserve(entry)) {
+          closeEntry(entry);
+          removable--;
+        }
+      }
+      final long leakThreshold = config.getLeakDetectionThreshold().toNanos();
+      if (leakThreshold > 0) {
+        for (final PoolEntry entry : bag.values(IN_USE)) {
+          if (now - entry.getBorrowedAt() >= leakThreshold && entry.markLeakReported()) {
+            leaks.increment();
+            LOGGER.log(
+                WARNING,
+                String.format(
+                    "Connection held for more than %d ms, possible leak",
+                    config.getLeakDetectionThreshold().toMillis()
+                ),
+                entry.getBorrowStack()
+            );
+          }
+        }
+      }
+      fillPool();
+    } catch (RuntimeException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+  }
+
+  private static ThreadFactory daemonThreads(final String name) {
+    return runnable -> {
+      final Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return config.getDataSource().getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(final PrintWriter out) throws SQLException {
+    config.getDataSource().setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(final int seconds) throws SQLException {
+    config.getDataSource().setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return config.getDataSource().getLoginTimeout();
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    return config.getDataSource().getParentLogger();
+  }
+
+  @Override
+  public <T> T unwrap(final Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return config.getDataSource().unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || config.getDataSource().isWrapperFor(iface);
+  }
+}
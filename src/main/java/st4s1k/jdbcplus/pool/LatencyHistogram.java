@@ -0,0 +1,119 @@
+package st4s1k.jdbcplus.pool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations, in power of two nanosecond
+ * buckets: recording is a few atomic increments, percentiles are
+ * exact to a factor of two.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Record a duration.
+   *
+   * @param nanos duration in nanoseconds, negative values count as 0
+   */
+  public void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    counts.incrementAndGet(bucket(value));
+    count.increment();
+    totalNanos.add(value);
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getMax(final TimeUnit unit) {
+    return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get the mean of the recorded durations.
+   *
+   * @param unit time unit
+   * @return mean duration, 0 if nothing was recorded
+   */
+  public double getMean(final TimeUnit unit) {
+    final long recorded = count.sum();
+    return recorded == 0
+        ? 0
+        : (double) totalNanos.sum() / recorded / unit.toNanos(1);
+  }
+
+  /**
+   * Get an upper bound of a percentile of the recorded durations.
+   *
+   * @param percentile percentile, between 0 and 100
+   * @param unit       time unit
+   * @return upper bound of the bucket holding the percentile,
+   * 0 if nothing was recorded
+   */
+  public long getPercentile(final double percentile, final TimeUnit unit) {
+    final long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, percentile) / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return unit.convert(Math.min(upperBound(i), maxNanos.get()), TimeUnit.NANOSECONDS);
+      }
+    }
+    return getMax(unit);
+  }
+
+  /**
+   * Get the number of recorded durations per bucket, bucket {@code i}
+   * holding the durations below {@code 2^i} nanoseconds and not below
+   * the bound of the previous bucket.
+   *
+   * @return bucket counts
+   */
+  public long[] getBucketCounts() {
+    final long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+    }
+    return snapshot;
+  }
+
+  private static int bucket(final long nanos) {
+    return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+  }
+
+  private static long upperBound(final int bucket) {
+    return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "LatencyHistogram{count=%d, meanMicros=%.1f, p50Micros=%d, p99Micros=%d, maxMicros=%d}",
+        getCount(),
+        getMean(TimeUnit.MICROSECONDS),
+        getPercentile(50, TimeUnit.MICROSECONDS),
+        getPercentile(99, TimeUnit.MICROSECONDS),
+        getMax(TimeUnit.MICROSECONDS)
+    );
+  }
+}
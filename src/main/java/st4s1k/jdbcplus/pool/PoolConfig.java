@@ -0,0 +1,215 @@
+package st4s1k.jdbcplus.pool;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of a {@link JdbcPlusPool}.
+ * <p>
+ * Configurations are immutable: every setter returns a new
+ * configuration, starting from {@link #of(DataSource)}.
+ */
+public final class PoolConfig {
+
+  private final DataSource dataSource;
+  private int maximumPoolSize = 10;
+  private int minimumIdle = 0;
+  private Duration connectionTimeout = Duration.ofSeconds(30);
+  private Duration idleTimeout = Duration.ofMinutes(10);
+  private Duration maxLifetime = Duration.ofMinutes(30);
+  private Duration validationTimeout = Duration.ofSeconds(5);
+  private Duration aliveBypassWindow = Duration.ofMillis(500);
+  private Duration leakDetectionThreshold = Duration.ZERO;
+  private Duration housekeepingPeriod = Duration.ofSeconds(30);
+
+  private PoolConfig(final DataSource dataSource) {
+    this.dataSource = requireNonNull(dataSource);
+  }
+
+  private PoolConfig(final PoolConfig other) {
+    this.dataSource = other.dataSource;
+    this.maximumPoolSize = other.maximumPoolSize;
+    this.minimumIdle = other.minimumIdle;
+    this.connectionTimeout = other.connectionTimeout;
+    this.idleTimeout = other.idleTimeout;
+    this.maxLifetime = other.maxLifetime;
+    this.validationTimeout = other.validationTimeout;
+    this.aliveBypassWindow = other.aliveBypassWindow;
+    this.leakDetectionThreshold = other.leakDetectionThreshold;
+    this.housekeepingPeriod = other.housekeepingPeriod;
+  }
+
+  /**
+   * Create a configuration with the default settings.
+   *
+   * @param dataSource data source creating the physical connections
+   * @return pool configuration
+   */
+  public static PoolConfig of(final DataSource dataSource) {
+    return new PoolConfig(dataSource);
+  }
+
+  /**
+   * Set the maximum number of connections, idle and in use.
+   *
+   * @param maximumPoolSize maximum pool size, at least 1
+   * @return new pool configuration
+   */
+  public PoolConfig maximumPoolSize(final int maximumPoolSize) {
+    if (maximumPoolSize < 1) {
+      throw new IllegalArgumentException("maximumPoolSize must be at least 1");
+    }
+    final PoolConfig config = new PoolConfig(this);
+    config.maximumPoolSize = maximumPoolSize;
+    return config;
+  }
+
+  /**
+   * Set the number of idle connections kept open.
+   *
+   * @param minimumIdle minimum number of idle connections
+   * @return new pool configuration
+   */
+  public PoolConfig minimumIdle(final int minimumIdle) {
+    if (minimumIdle < 0) {
+      throw new IllegalArgumentException("minimumIdle must not be negative");
+    }
+    final PoolConfig config = new PoolConfig(this);
+    config.minimumIdle = minimumIdle;
+    return config;
+  }
+
+  /**
+   * Set how long {@link JdbcPlusPool#getConnection()} waits for a connection.
+   *
+   * @param connectionTimeout connection timeout
+   * @return new pool configuration
+   */
+  public PoolConfig connectionTimeout(final Duration connectionTimeout) {
+    final PoolConfig config = new PoolConfig(this);
+    config.connectionTimeout = requireNonNull(connectionTimeout);
+    return config;
+  }
+
+  /**
+   * Set how long a connection may stay idle before it is closed,
+   * as long as more than {@code minimumIdle} connections are idle.
+   *
+   * @param idleTimeout idle timeout, zero to never close idle connections
+   * @return new pool configuration
+   */
+  public PoolConfig idleTimeout(final Duration idleTimeout) {
+    final PoolConfig config = new PoolConfig(this);
+    config.idleTimeout = requireNonNull(idleTimeout);
+    return config;
+  }
+
+  /**
+   * Set the maximum lifetime of a connection, after which
+   * it is closed as soon as it is not in use.
+   *
+   * @param maxLifetime maximum lifetime, zero for no limit
+   * @return new pool configuration
+   */
+  public PoolConfig maxLifetime(final Duration maxLifetime) {
+    final PoolConfig config = new PoolConfig(this);
+    config.maxLifetime = requireNonNull(maxLifetime);
+    return config;
+  }
+
+  /**
+   * Set how long the validation of a connection may take.
+   *
+   * @param validationTimeout validation timeout
+   * @return new pool configuration
+   */
+  public PoolConfig validationTimeout(final Duration validationTimeout) {
+    final PoolConfig config = new PoolConfig(this);
+    config.validationTimeout = requireNonNull(validationTimeout);
+    return config;
+  }
+
+  /**
+   * Set how long after its last use a connection is handed out
+   * without being validated first.
+   *
+   * @param aliveBypassWindow validation bypass window
+   * @return new pool configuration
+   */
+  public PoolConfig aliveBypassWindow(final Duration aliveBypassWindow) {
+    final PoolConfig config = new PoolConfig(this);
+    config.aliveBypassWindow = requireNonNull(aliveBypassWindow);
+    return config;
+  }
+
+  /**
+   * Set how long a connection may be in use before it is
+   * reported as a possible leak, with the stack of its borrower.
+   *
+   * @param leakDetectionThreshold leak threshold, zero to disable leak detection
+   * @return new pool configuration
+   */
+  public PoolConfig leakDetectionThreshold(final Duration leakDetectionThreshold) {
+    final PoolConfig config = new PoolConfig(this);
+    config.leakDetectionThreshold = requireNonNull(leakDetectionThreshold);
+    return config;
+  }
+
+  /**
+   * Set the period of the background task closing idle and expired
+   * connections, reporting leaks and refilling the pool.
+   *
+   * @param housekeepingPeriod housekeeping period
+   * @return new pool configuration
+   */
+  public PoolConfig housekeepingPeriod(final Duration housekeepingPeriod) {
+    if (housekeepingPeriod.isZero() || housekeepingPeriod.isNegative()) {
+      throw new IllegalArgumentException("housekeepingPeriod must be positive");
+    }
+    final PoolConfig config = new PoolConfig(this);
+    config.housekeepingPeriod = housekeepingPeriod;
+    return config;
+  }
+
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  public int getMaximumPoolSize() {
+    return maximumPoolSize;
+  }
+
+  public int getMinimumIdle() {
+    return Math.min(minimumIdle, maximumPoolSize);
+  }
+
+  public Duration getConnectionTimeout() {
+    return connectionTimeout;
+  }
+
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public Duration getMaxLifetime() {
+    return maxLifetime;
+  }
+
+  public Duration getValidationTimeout() {
+    return validationTimeout;
+  }
+
+  public Duration getAliveBypassWindow() {
+    return aliveBypassWindow;
+  }
+
+  public Duration getLeakDetectionThreshold() {
+    return leakDetectionThreshold;
+  }
+
+  public Duration getHousekeepingPeriod() {
+    return housekeepingPeriod;
+  }
+}
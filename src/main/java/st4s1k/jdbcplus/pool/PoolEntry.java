@@ -0,0 +1,106 @@
+package st4s1k.jdbcplus.pool;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A physical connection of a {@link JdbcPlusPool}, with its state
+ * in the {@link ConnectionBag} and its usage timestamps.
+ */
+final class PoolEntry {
+
+  static final int NOT_IN_USE = 0;
+  static final int IN_USE = 1;
+  static final int RESERVED = 2;
+  static final int REMOVED = -1;
+
+  private final AtomicInteger state = new AtomicInteger(NOT_IN_USE);
+  private final Connection connection;
+  private final long createdAt;
+  private final boolean defaultAutoCommit;
+  private final int defaultTransactionIsolation;
+  private volatile long lastAccess;
+  private volatile long borrowedAt;
+  private volatile Throwable borrowStack;
+  private volatile boolean leakReported;
+  private volatile boolean evicted;
+
+  PoolEntry(
+      final Connection connection,
+      final long now,
+      final boolean defaultAutoCommit,
+      final int defaultTransactionIsolation
+  ) {
+    this.connection = connection;
+    this.createdAt = now;
+    this.lastAccess = now;
+    this.defaultAutoCommit = defaultAutoCommit;
+    this.defaultTransactionIsolation = defaultTransactionIsolation;
+  }
+
+  Connection getConnection() {
+    return connection;
+  }
+
+  int getState() {
+    return state.get();
+  }
+
+  void setState(final int newState) {
+    state.set(newState);
+  }
+
+  boolean compareAndSet(final int expected, final int newState) {
+    return state.compareAndSet(expected, newState);
+  }
+
+  long getCreatedAt() {
+    return createdAt;
+  }
+
+  long getLastAccess() {
+    return lastAccess;
+  }
+
+  void setLastAccess(final long lastAccess) {
+    this.lastAccess = lastAccess;
+  }
+
+  boolean getDefaultAutoCommit() {
+    return defaultAutoCommit;
+  }
+
+  int getDefaultTransactionIsolation() {
+    return defaultTransactionIsolation;
+  }
+
+  long getBorrowedAt() {
+    return borrowedAt;
+  }
+
+  Throwable getBorrowStack() {
+    return borrowStack;
+  }
+
+  void borrowed(final long now, final Throwable stack) {
+    this.borrowedAt = now;
+    this.borrowStack = stack;
+    this.leakReported = false;
+  }
+
+  boolean markLeakReported() {
+    if (leakReported) {
+      return false;
+    }
+    leakReported = true;
+    return true;
+  }
+
+  boolean isEvicted() {
+    return evicted;
+  }
+
+  void evict() {
+    evicted = true;
+  }
+}
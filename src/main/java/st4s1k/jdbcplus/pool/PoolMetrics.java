@@ -0,0 +1,104 @@
+package st4s1k.jdbcplus.pool;
+
+/**
+ * Point in time counters of a {@link JdbcPlusPool}.
+ */
+public final class PoolMetrics {
+
+  private final int total;
+  private final int active;
+  private final int idle;
+  private final int waiting;
+  private final long created;
+  private final long closed;
+  private final long timeouts;
+  private final long leaks;
+
+  PoolMetrics(
+      final int total,
+      final int active,
+      final int idle,
+      final int waiting,
+      final long created,
+      final long closed,
+      final long timeouts,
+      final long leaks
+  ) {
+    this.total = total;
+    this.active = active;
+    this.idle = idle;
+    this.waiting = waiting;
+    this.created = created;
+    this.closed = closed;
+    this.timeouts = timeouts;
+    this.leaks = leaks;
+  }
+
+  /**
+   * Get the number of open connections, idle and in use.
+   *
+   * @return total connections
+   */
+  public int getTotal() {
+    return total;
+  }
+
+  public int getActive() {
+    return active;
+  }
+
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * Get the number of threads waiting for a connection.
+   *
+   * @return waiting threads
+   */
+  public int getWaiting() {
+    return waiting;
+  }
+
+  public long getCreated() {
+    return created;
+  }
+
+  public long getClosed() {
+    return closed;
+  }
+
+  /**
+   * Get the number of borrow attempts that timed out.
+   *
+   * @return timeouts
+   */
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * Get the number of connections reported as possible leaks.
+   *
+   * @return leaks
+   */
+  public long getLeaks() {
+    return leaks;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "PoolMetrics{total=%d, active=%d, idle=%d, waiting=%d, created=%d, closed=%d, "
+            + "timeouts=%d, leaks=%d}",
+        total,
+        active,
+        idle,
+        waiting,
+        created,
+        closed,
+        timeouts,
+        leaks
+    );
+  }
+}
@@ -0,0 +1,148 @@
+package st4s1k.jdbcplus.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle of a borrowed {@link PoolEntry}, given to the borrower as
+ * a {@link Connection} proxy. Closing it returns the entry to the pool,
+ * after closing the statements left open and restoring the connection
+ * defaults that were changed; the handle cannot be used afterwards.
+ */
+final class ProxyConnection implements InvocationHandler {
+
+  private static final String SQL_STATE_CONNECTION_ERROR = "08";
+  private static final int MAX_TRACKED_STATEMENTS = 64;
+
+  private final JdbcPlusPool pool;
+  private final PoolEntry entry;
+  private final List<Statement> statements = new ArrayList<>();
+  private boolean closed;
+  private boolean autoCommit;
+  private boolean autoCommitChanged;
+  private boolean readOnlyChanged;
+  private boolean isolationChanged;
+
+  private ProxyConnection(final JdbcPlusPool pool, final PoolEntry entry) {
+    this.pool = pool;
+    this.entry = entry;
+    this.autoCommit = entry.getDefaultAutoCommit();
+  }
+
+  static Connection of(final JdbcPlusPool pool, final PoolEntry entry) {
+    return (Connection) Proxy.newProxyInstance(
+        ProxyConnection.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        new ProxyConnection(pool, entry)
+    );
+  }
+
+  @Override
+  public Object invoke(
+      final Object proxy,
+      final Method method,
+      final Object[] args
+  ) throws Throwable {
+    switch (method.getName()) {
+      case "close":
+        close();
+        return null;
+      case "isClosed":
+        return closed;
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "ProxyConnection{" + entry.getConnection() + ", closed=" + closed + "}";
+      case "isWrapperFor":
+        if (((Class<?>) args[0]).isInstance(proxy)) {
+          return true;
+        }
+        break;
+      case "unwrap":
+        if (((Class<?>) args[0]).isInstance(proxy)) {
+          return proxy;
+        }
+        break;
+      case "setAutoCommit":
+        autoCommit = (Boolean) args[0];
+        autoCommitChanged = autoCommit != entry.getDefaultAutoCommit();
+        break;
+      case "setReadOnly":
+        readOnlyChanged = true;
+        break;
+      case "setTransactionIsolation":
+        isolationChanged = true;
+        break;
+      default:
+        break;
+    }
+    if (closed) {
+      throw new SQLException("Connection is closed", "08003");
+    }
+    try {
+      final Object result = method.invoke(entry.getConnection(), args);
+      if (result instanceof Statement) {
+        if (statements.size() >= MAX_TRACKED_STATEMENTS) {
+          statements.removeIf(ProxyConnection::isStatementClosed);
+        }
+        statements.add((Statement) result);
+      }
+      return result;
+    } catch (InvocationTargetException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        final String sqlState = ((SQLException) cause).getSQLState();
+        if (sqlState != null && sqlState.startsWith(SQL_STATE_CONNECTION_ERROR)) {
+          entry.evict();
+        }
+      }
+      throw cause;
+    }
+  }
+
+  private void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    final Connection connection = entry.getConnection();
+    try {
+      for (final Statement statement : statements) {
+        statement.close();
+      }
+      statements.clear();
+      if (!autoCommit) {
+        connection.rollback();
+      }
+      if (autoCommitChanged) {
+        connection.setAutoCommit(entry.getDefaultAutoCommit());
+      }
+      if (readOnlyChanged) {
+        connection.setReadOnly(false);
+      }
+      if (isolationChanged) {
+        connection.setTransactionIsolation(entry.getDefaultTransactionIsolation());
+      }
+    } catch (SQLException e) {
+      entry.evict();
+    }
+    pool.recycle(entry);
+  }
+
+  private static boolean isStatementClosed(final Statement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+}
@@ -1,18 +1,46 @@
 package st4s1k.jdbcplus.repo;
 
 import st4s1k.jdbcplus.annotations.*;
+import st4s1k.jdbcplus.cache.EntityCacheManager;
+import st4s1k.jdbcplus.cache.ExistenceFilter;
+import st4s1k.jdbcplus.cache.QueryCache;
+import st4s1k.jdbcplus.cache.QueryKey;
+import st4s1k.jdbcplus.cache.ReferenceTable;
+import st4s1k.jdbcplus.collections.IdMap;
 import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.config.Deadline;
+import st4s1k.jdbcplus.config.QueryCursor;
+import st4s1k.jdbcplus.exceptions.DeadlineExceededException;
 import st4s1k.jdbcplus.exceptions.InvalidMappingException;
 import st4s1k.jdbcplus.exceptions.InvalidResultSetException;
 import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.fetch.FetchPlan;
+import st4s1k.jdbcplus.fetch.FetchPlanExecutor;
+import st4s1k.jdbcplus.invalidation.InvalidationBus;
+import st4s1k.jdbcplus.invalidation.InvalidationEvent;
+import st4s1k.jdbcplus.invalidation.InvalidationPublisher;
+import st4s1k.jdbcplus.metadata.EntityMetadata;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
 
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.System.Logger;
 import static java.lang.System.Logger.Level.ERROR;
@@ -21,27 +49,235 @@ import static java.util.Collections.emptyList;
 import static java.util.function.Predicate.not;
 import static st4s1k.jdbcplus.utils.EntityUtils.*;
 import static st4s1k.jdbcplus.utils.JdbcPlusUtils.getClassInstance;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.newDefaultExecutor;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.toWrapperType;
 
 public class AbstractJdbcPlusRepository {
 
   private static volatile AbstractJdbcPlusRepository instance;
-  private static volatile DatabaseConnection databaseConnection;
-  private static volatile Logger logger;
+  private static final Logger logger = getLogger("AbstractJdbcPlusRepository");
+  private static final int BATCH_SIZE = 500;
+  private static final int QUERY_CACHE_SIZE = 1_000;
+  private static final int MAX_ABSENT_IDS = 100_000;
+  private static final Duration INVALIDATION_FLUSH_INTERVAL = Duration.ofMillis(5);
+  private static final int MAX_PENDING_INVALIDATIONS = 10_000;
 
   public static AbstractJdbcPlusRepository getInstance() {
     if (instance == null) {
       synchronized (AbstractJdbcPlusRepository.class) {
         if (instance == null) {
-          instance = new AbstractJdbcPlusRepository();
-          databaseConnection = DatabaseConnection.getInstance();
-          logger = getLogger("AbstractJdbcPlusRepository");
+          instance = new AbstractJdbcPlusRepository(
+              DatabaseConnection.getInstance(),
+              IdentityMap.DEFAULT_SCOPE
+          );
         }
       }
     }
     return instance;
   }
 
-  private AbstractJdbcPlusRepository() {
+  private final DatabaseConnection databaseConnection;
+  private final Object identityScope;
+  private final MetadataRegistry metadataRegistry;
+  private final FetchPlanExecutor fetchPlanExecutor;
+  private final JoinTableSync joinTableSync;
+  private final CascadingSave cascadingSave;
+  private final EntityCacheManager entityCacheManager;
+  private final QueryCache queryCache;
+  private final Map<Class<?>, ExistenceFilter> existenceFilters = new ConcurrentHashMap<>();
+  private final Map<Class<?>, ReferenceTable> referenceTables = new ConcurrentHashMap<>();
+  private final String nodeId = UUID.randomUUID().toString();
+  private volatile InvalidationPublisher invalidationPublisher;
+  private AutoCloseable invalidationSubscription;
+  private volatile Executor scanExecutor;
+
+  /**
+   * Create a repository of a {@link JdbcPlusContext}, with its own
+   * metadata, caches and identity map scope.
+   *
+   * @param databaseConnection the context's database connection
+   */
+  AbstractJdbcPlusRepository(final DatabaseConnection databaseConnection) {
+    this(databaseConnection, new Object());
+  }
+
+  private AbstractJdbcPlusRepository(
+      final DatabaseConnection databaseConnection,
+      final Object identityScope
+  ) {
+    this.databaseConnection = databaseConnection;
+    this.identityScope = identityScope;
+    metadataRegistry = new MetadataRegistry();
+    entityCacheManager = new EntityCacheManager();
+    queryCache = new QueryCache(QUERY_CACHE_SIZE);
+    fetchPlanExecutor =
+        new FetchPlanExecutor(databaseConnection, metadataRegistry, identityScope);
+    joinTableSync = new JoinTableSync(databaseConnection, metadataRegistry);
+    cascadingSave = new CascadingSave(this, databaseConnection, metadataRegistry, joinTableSync);
+  }
+
+  public DatabaseConnection getDatabaseConnection() {
+    return databaseConnection;
+  }
+
+  public MetadataRegistry getMetadataRegistry() {
+    return metadataRegistry;
+  }
+
+  public EntityCacheManager getEntityCacheManager() {
+    return entityCacheManager;
+  }
+
+  /**
+   * Enable the {@link ExistenceFilter} of an entity class, recording
+   * the ids of its table with one key scan. From then on, lookups,
+   * saves and removals of ids that definitely do not exist skip
+   * the database round trip. All the writes to the table must go
+   * through the repository.
+   *
+   * @param clazz             entity class
+   * @param expectedIds       expected number of rows
+   * @param falsePositiveRate Bloom filter false positive rate
+   * @return the existence filter
+   */
+  public ExistenceFilter enableExistenceFilter(
+      final Class<?> clazz,
+      final long expectedIds,
+      final double falsePositiveRate
+  ) {
+    final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final ExistenceFilter existenceFilter =
+        new ExistenceFilter(clazz, expectedIds, falsePositiveRate, MAX_ABSENT_IDS);
+    existenceFilters.put(clazz, existenceFilter);
+    final List<Object> ids = databaseConnection.queryTransaction(
+        String.format("select %s from %s", metadata.getIdColumnName(), metadata.getTableName()),
+        resultSet -> getIds(resultSet, metadata.getIdType()),
+        Collections::emptyList
+    );
+    Optional.ofNullable(ids).orElse(emptyList()).forEach(existenceFilter::recordPresent);
+    existenceFilter.markReady();
+    return existenceFilter;
+  }
+
+  /**
+   * Disable the {@link ExistenceFilter} of an entity class.
+   *
+   * @param clazz entity class
+   */
+  public void disableExistenceFilter(final Class<?> clazz) {
+    existenceFilters.remove(clazz);
+  }
+
+  public Optional<ExistenceFilter> getExistenceFilter(final Class<?> clazz) {
+    return Optional.ofNullable(existenceFilters.get(clazz));
+  }
+
+  /**
+   * Set the executor of the range scans of
+   * {@link #findAllParallel(Class, int, Consumer)}, which is not shut
+   * down by the repository. Without one, each scan creates its own.
+   *
+   * @param scanExecutor the executor, or null to create one per scan
+   */
+  public void setScanExecutor(final Executor scanExecutor) {
+    this.scanExecutor = scanExecutor;
+  }
+
+  /**
+   * Connect the caches of this node to an {@link InvalidationBus}, with
+   * the default flush interval.
+   *
+   * @param bus the invalidation bus, or null to disconnect
+   * @see #setInvalidationBus(InvalidationBus, Duration)
+   */
+  public void setInvalidationBus(final InvalidationBus bus) {
+    setInvalidationBus(bus, INVALIDATION_FLUSH_INTERVAL);
+  }
+
+  /**
+   * Connect the caches of this node to an {@link InvalidationBus}.
+   * The writes made through the repository are published to the bus,
+   * coalesced per flush interval, and the writes published by the
+   * other nodes evict the local entity cache, query cache and
+   * existence filter entries.
+   *
+   * @param bus           the invalidation bus, or null to disconnect
+   * @param flushInterval maximum delay before a write is published
+   */
+  public synchronized void setInvalidationBus(
+      final InvalidationBus bus,
+      final Duration flushInterval
+  ) {
+    Optional.ofNullable(invalidationPublisher).ifPresent(InvalidationPublisher::close);
+    invalidationPublisher = null;
+    if (invalidationSubscription != null) {
+      try {
+        invalidationSubscription.close();
+      } catch (Exception e) {
+        logger.log(ERROR, e.getLocalizedMessage(), e);
+      }
+      invalidationSubscription = null;
+    }
+    if (bus != null) {
+      invalidationSubscription = bus.subscribe(this::onInvalidation);
+      invalidationPublisher = new InvalidationPublisher(
+          bus,
+          nodeId,
+          flushInterval,
+          MAX_PENDING_INVALIDATIONS
+      );
+    }
+  }
+
+  /**
+   * Evict all the cached entities and queries of an entity class,
+   * on this node and, through the {@link InvalidationBus}, on the
+   * other nodes. To be called after writing the table without the
+   * repository, e.g. with a bulk update.
+   *
+   * @param clazz entity class
+   */
+  public void evictAll(final Class<?> clazz) {
+    final String table = metadataRegistry.getEntityMetadata(clazz).getTableName();
+    evictLocally(clazz);
+    Optional.ofNullable(invalidationPublisher).ifPresent(publisher ->
+        publisher.publish(clazz, emptyList(), List.of(table)));
+  }
+
+  /**
+   * Get the query result cache used by {@link #find(Object)} and
+   * {@link #findByColumn(String, Object, Class)}, disabled by default.
+   *
+   * @return query cache
+   */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
+  /**
+   * Get the in-memory replica of an entity class annotated
+   * with {@link ReferenceData}, created on first use.
+   *
+   * @param clazz entity class
+   * @return {@link Optional} reference table, empty if the class is not reference data
+   */
+  public Optional<ReferenceTable> getReferenceTable(final Class<?> clazz) {
+    final ReferenceData referenceData = clazz.getAnnotation(ReferenceData.class);
+    if (referenceData == null) {
+      return Optional.empty();
+    }
+    return Optional.of(referenceTables.computeIfAbsent(clazz, c -> {
+      final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(c);
+      return new ReferenceTable(
+          c,
+          metadata.getColumnNames(),
+          metadata.getIdColumnName(),
+          referenceData.indexes(),
+          () -> loadReferenceRows(metadata.getEntityClass()),
+          referenceData.refreshSeconds(),
+          TimeUnit.SECONDS
+      );
+    }));
   }
 
   @SuppressWarnings("unchecked")
@@ -164,33 +400,166 @@ public class AbstractJdbcPlusRepository {
     return "";
   }
 
+  /**
+   * Generates SELECT sql query for a table.
+   *
+   * @param table  the database table
+   * @param column the column name
+   * @param values the column values
+   * @return SQL query string
+   */
+  public String sqlSelectAllByColumnIn(
+      final String table,
+      final String column,
+      final Collection<?> values
+  ) {
+    if (values.isEmpty()) {
+      return "";
+    }
+    final String valueList = values.stream()
+        .map(value -> getStringValueForSql(value))
+        .collect(Collectors.joining(", "));
+    return sqlSelectAll(table) + " where " + column + " in (" + valueList + ")";
+  }
+
   /**
    * Create, or Update, a row in the table associated with the entity.
+   * <p>
+   * If the entity has relations marked with {@code cascade = true},
+   * the related entities are saved too, in foreign key order,
+   * with one JDBC batch per table, in a single transaction.
+   * <p>
+   * The join tables of owning {@link ManyToMany} fields are synchronized
+   * with the loaded collections, writing only the added and removed links,
+   * in the transaction writing the entity row.
+   * <p>
+   * The second-level cache entries of the saved entities, and the
+   * cached queries reading from their tables, are invalidated.
+   * <p>
+   * When the {@link ExistenceFilter} tells that the id definitely
+   * does not exist, the entity is inserted without checking first.
    *
    * @param entity the entity
    * @return {@link Optional} saved entity
    */
   public <T> Optional<T> save(final T entity) {
-    findById(entity)
-        .ifPresentOrElse(
-            e -> databaseConnection.updateTransaction(sqlUpdate(e)),
-            () -> databaseConnection.updateTransaction(sqlInsert(entity))
-        );
+    if (cascadingSave.isCascading(entity.getClass())) {
+      for (final Object savedEntity : cascadingSave.save(entity)) {
+        recordPresent(savedEntity);
+        forgetEntity(savedEntity);
+      }
+      return findById(entity);
+    }
+    final String write = mightExist(entity.getClass(), getIdColumnValue(entity))
+        ? findById(entity).map(this::sqlUpdate).orElseGet(() -> sqlInsert(entity))
+        : sqlInsert(entity);
+    final List<List<String>> joinTableBatches =
+        joinTableSync.getStatements(entity.getClass(), List.of(entity));
+    if (joinTableBatches.isEmpty()) {
+      databaseConnection.updateTransaction(write);
+    } else {
+      final List<List<String>> batches = new ArrayList<>();
+      batches.add(List.of(write));
+      batches.addAll(joinTableBatches);
+      databaseConnection.updateBatchTransaction(batches);
+    }
+    recordPresent(entity);
+    forgetEntity(entity);
     return findById(entity);
   }
 
   /**
-   * Remove a row in the table associated with the entity.
+   * Create, or Update, the rows of entities of one class, detecting
+   * the existing rows with one {@code in (...)} query and writing them
+   * as one JDBC batch, followed by their join table changes, in a
+   * single transaction. Entities with cascading relations are saved
+   * one by one, as by {@link #save(Object)}.
+   *
+   * @param clazz    entity class
+   * @param entities the entities
+   */
+  public <T> void saveAll(final Class<T> clazz, final Collection<? extends T> entities) {
+    saveAll(clazz, entities, databaseConnection::updateBatchTransaction);
+  }
+
+  /**
+   * Save entities as {@link #saveAll(Class, Collection)} does,
+   * failing if the transaction is rolled back.
+   *
+   * @param clazz    entity class
+   * @param entities the entities
+   * @throws JdbcPlusException if the entities are not saved
+   */
+  <T> void saveAllOrThrow(final Class<T> clazz, final Collection<? extends T> entities) {
+    saveAll(clazz, entities, databaseConnection::updateBatchTransactionOrThrow);
+  }
+
+  private <T> void saveAll(
+      final Class<T> clazz,
+      final Collection<? extends T> entities,
+      final Consumer<List<List<String>>> writer
+  ) {
+    if (entities.isEmpty()) {
+      return;
+    }
+    final List<Object> saved = new ArrayList<>();
+    if (cascadingSave.isCascading(clazz)) {
+      for (final T entity : entities) {
+        saved.addAll(cascadingSave.save(entity, writer));
+      }
+    } else {
+      saved.addAll(entities);
+      cascadingSave.saveAll(clazz, saved, writer);
+    }
+    for (final Object entity : saved) {
+      recordPresent(entity);
+      forgetEntity(entity);
+    }
+  }
+
+  /**
+   * Remove a row in the table associated with the entity,
+   * invalidating its second-level cache entry and the cached
+   * queries reading from the table.
    *
    * @param entity the entity
    * @return {@link Optional} removed entity
    */
   public <T> Optional<T> remove(final T entity) {
+    final Object idValue = getIdColumnValue(entity);
+    if (!mightExist(entity.getClass(), idValue)) {
+      return Optional.empty();
+    }
     final Optional<T> foundEntity = findById(entity);
-    foundEntity.ifPresent(e -> databaseConnection.updateTransaction(sqlRemove(e)));
+    if (foundEntity.isPresent() && removeRow(foundEntity.get()) && idValue != null) {
+      final Runnable recordAbsent = () -> getExistenceFilter(entity.getClass())
+          .ifPresent(filter -> filter.recordAbsent(idValue));
+      if (databaseConnection.isInTransaction()) {
+        databaseConnection.afterCommit(recordAbsent);
+      } else {
+        recordAbsent.run();
+      }
+    }
+    forgetEntity(entity);
     return foundEntity;
   }
 
+  /**
+   * Delete the row of an entity, logging a failure.
+   *
+   * @return false if the row was not deleted
+   */
+  private boolean removeRow(final Object entity) {
+    try {
+      databaseConnection.updateTransactionOrThrow(sqlRemove(entity));
+      return true;
+    } catch (final DeadlineExceededException e) {
+      throw e;
+    } catch (final JdbcPlusException e) {
+      return false;
+    }
+  }
+
   /**
    * Find all entities, having entity fields equal to related columns.
    *
@@ -198,35 +567,49 @@ public class AbstractJdbcPlusRepository {
    * @return a list of found entities
    */
   public <T> List<T> find(final T entity) {
-    return Optional.ofNullable(entity)
-        .map(e -> databaseConnection.queryTransaction(
+    return withIdentityMap(() -> Optional.ofNullable(entity)
+        .map(e -> queryObjects(
             sqlSelectAllByColumns(
                 getTableName(entity.getClass()),
                 getColumnNames(entity.getClass()),
                 getColumnValues(entity)
             ),
-            resultSet -> getObjects(resultSet, getGenerifiedClass(entity)),
-            Collections::<T>emptyList
+            getGenerifiedClass(entity),
+            () -> queryKey(
+                entity.getClass(),
+                getColumnNames(entity.getClass()),
+                getColumnValues(entity)
+            )
         ))
-        .orElse(emptyList());
+        .orElse(emptyList()));
   }
 
   /**
    * Fetch all entities.
+   * <p>
+   * Entities of {@link ReferenceData} classes are read from
+   * their in-memory {@link ReferenceTable}.
    *
    * @return a list of found entities
    */
   public <T> List<T> findAll(final Class<T> clazz) {
-    return databaseConnection.queryTransaction(
-        sqlSelectAll(getTableName(clazz)),
-        resultSet -> getObjects(resultSet, clazz),
-        Collections::emptyList
-    );
+    return withIdentityMap(() -> getReferenceSnapshot(clazz)
+        .map(snapshot -> getObjects(snapshot.findAll(), clazz))
+        .orElseGet(() -> databaseConnection.queryTransaction(
+            sqlSelectAll(getTableName(clazz)),
+            resultSet -> getObjects(resultSet, clazz),
+            Collections::emptyList
+        )));
   }
 
   /**
    * Fetch all entities where from associated table,
    * where column has specified value.
+   * <p>
+   * When the {@link QueryCache} is enabled, the result is cached
+   * until the table is written by {@link #save(Object)} or {@link #remove(Object)}.
+   * Entities of {@link ReferenceData} classes are read from
+   * their in-memory {@link ReferenceTable}.
    *
    * @param column table column
    * @param value  specified value
@@ -237,17 +620,90 @@ public class AbstractJdbcPlusRepository {
       final Object value,
       final Class<T> clazz
   ) {
-    return Optional.ofNullable(column)
-        .map(field -> databaseConnection.queryTransaction(
-            sqlSelectAllByColumn(getTableName(clazz), field, value),
-            resultSet -> getObjects(resultSet, clazz),
-            Collections::<T>emptyList
+    return findByColumn(column, value, clazz, Collections::emptyList);
+  }
+
+  /**
+   * Fetch entities as {@link #findByColumn(String, Object, Class)} does,
+   * returning the result of {@code onFailure} if the select fails.
+   */
+  private <T> List<T> findByColumn(
+      final String column,
+      final Object value,
+      final Class<T> clazz,
+      final Supplier<List<T>> onFailure
+  ) {
+    return withIdentityMap(() -> Optional.ofNullable(column)
+        .map(field -> getReferenceSnapshot(clazz)
+            .map(snapshot -> getObjects(snapshot.findByColumn(field, toColumnValue(value)), clazz))
+            .orElseGet(() -> queryObjects(
+                sqlSelectAllByColumn(getTableName(clazz), field, value),
+                clazz,
+                () -> queryKey(clazz, new String[]{field}, new Object[]{value}),
+                onFailure
+            )))
+        .orElse(emptyList()));
+  }
+
+  /**
+   * Fetch all entities, with the relations of a fetch plan.
+   *
+   * @param fetchPlan the fetch plan
+   * @return a list of found entities
+   */
+  public <T> List<T> findAll(final FetchPlan<T> fetchPlan) {
+    return withIdentityMap(() -> fetchPlanExecutor.findAll(
+        metadataRegistry.getCompiledFetchPlan(fetchPlan)
+    ));
+  }
+
+  /**
+   * Fetch all entities, where column has specified value,
+   * with the relations of a fetch plan.
+   *
+   * @param column    table column
+   * @param value     specified value
+   * @param fetchPlan the fetch plan
+   * @return a list of found entities
+   */
+  public <T> List<T> findByColumn(
+      final String column,
+      final Object value,
+      final FetchPlan<T> fetchPlan
+  ) {
+    return withIdentityMap(() -> Optional.ofNullable(column)
+        .map(c -> fetchPlanExecutor.findByColumn(
+            metadataRegistry.getCompiledFetchPlan(fetchPlan),
+            c,
+            value
         ))
-        .orElse(emptyList());
+        .orElse(emptyList()));
+  }
+
+  /**
+   * Find entity by id, with the relations of a fetch plan.
+   *
+   * @param idValue   entity id
+   * @param fetchPlan the fetch plan
+   * @return {@link Optional} found entity
+   */
+  public <T> Optional<T> findById(
+      final Object idValue,
+      final FetchPlan<T> fetchPlan
+  ) {
+    final String idColumnName = metadataRegistry
+        .getEntityMetadata(fetchPlan.getEntityClass())
+        .getIdColumnName();
+    return findByColumn(idColumnName, idValue, fetchPlan).stream().findFirst();
   }
 
   /**
    * Find entity by id and given Class.
+   * <p>
+   * Entities already loaded by the current repository call
+   * or session are taken from the {@link IdentityMap}, then
+   * entities of {@link Cacheable} classes from the second-level cache.
+   * Ids that the {@link ExistenceFilter} knows to be absent are not queried.
    *
    * @param idValue entity id
    * @param clazz   entity class
@@ -257,8 +713,99 @@ public class AbstractJdbcPlusRepository {
       final Object idValue,
       final Class<X> clazz
   ) {
-    final List<X> entityList = findByColumn(getIdColumnName(clazz), idValue, clazz);
-    return entityList.stream().findFirst();
+    return withIdentityMap(() -> {
+      final Optional<X> mappedEntity = IdentityMap.current(identityScope)
+          .flatMap(identityMap -> identityMap.get(clazz, idValue));
+      if (mappedEntity.isPresent() || !mightExist(clazz, idValue)) {
+        return mappedEntity;
+      }
+      return findCached(idValue, clazz).or(() -> {
+        final Optional<ExistenceFilter> existenceFilter = getExistenceFilter(clazz);
+        final long generation = existenceFilter.map(ExistenceFilter::getGeneration).orElse(0L);
+        final long cacheVersion = entityCacheManager.getVersion(clazz);
+        final String idColumnName = getIdColumnName(clazz);
+        final List<X> entityList = isCaching(clazz)
+            ? queryCachedObjects(
+                sqlSelectAllByColumn(getTableName(clazz), idColumnName, idValue),
+                clazz,
+                cacheVersion
+            )
+            : findByColumn(idColumnName, idValue, clazz, () -> null);
+        if (entityList == null) {
+          return Optional.empty();
+        }
+        final Optional<X> foundEntity = entityList.stream().findFirst();
+        if (foundEntity.isEmpty() && idValue != null) {
+          existenceFilter.ifPresent(filter -> filter.recordMiss(idValue, generation));
+        }
+        return foundEntity;
+      });
+    });
+  }
+
+  /**
+   * Find entities by ids and given Class, in the order of the ids.
+   * <p>
+   * Entities found in the {@link IdentityMap} or in the second-level
+   * cache, and ids that the {@link ExistenceFilter} knows to be absent,
+   * are not queried, the others are loaded with {@code in (...)}
+   * queries. Ids without a row are skipped.
+   *
+   * @param idValues entity ids
+   * @param clazz    entity class
+   * @return a list of found entities
+   */
+  public <X> List<X> findAllById(
+      final Collection<?> idValues,
+      final Class<X> clazz
+  ) {
+    return withIdentityMap(() -> {
+      final IdentityMap identityMap = IdentityMap.current(identityScope).orElseThrow();
+      final IdMap<X> found = IdMap.forIdType(metadataRegistry.getEntityMetadata(clazz).getIdType());
+      final List<Object> missing = new ArrayList<>();
+      for (final Object idValue : new LinkedHashSet<>(idValues)) {
+        if (idValue != null && mightExist(clazz, idValue)) {
+          identityMap.get(clazz, idValue)
+              .or(() -> findReferenced(idValue, clazz))
+              .or(() -> findCached(idValue, clazz))
+              .ifPresentOrElse(entity -> found.put(idValue, entity), () -> missing.add(idValue));
+        }
+      }
+      final String table = getTableName(clazz);
+      final String idColumnName = getIdColumnName(clazz);
+      final Optional<ExistenceFilter> existenceFilter = getExistenceFilter(clazz);
+      final long generation = existenceFilter.map(ExistenceFilter::getGeneration).orElse(0L);
+      final long cacheVersion = entityCacheManager.getVersion(clazz);
+      final boolean caching = isCaching(clazz);
+      final List<Object> queried = new ArrayList<>();
+      for (int from = 0; from < missing.size(); from += BATCH_SIZE) {
+        final List<Object> batch =
+            missing.subList(from, Math.min(from + BATCH_SIZE, missing.size()));
+        final String query = sqlSelectAllByColumnIn(table, idColumnName, batch);
+        final List<X> entities = caching
+            ? queryCachedObjects(query, clazz, cacheVersion)
+            : databaseConnection.queryTransaction(
+                query,
+                resultSet -> getObjects(resultSet, clazz),
+                () -> null
+            );
+        if (entities == null) {
+          continue;
+        }
+        queried.addAll(batch);
+        for (final X entity : entities) {
+          found.put(getIdColumnValue(entity), entity);
+        }
+      }
+      existenceFilter.ifPresent(filter -> queried.stream()
+          .filter(not(found::containsKey))
+          .forEach(idValue -> filter.recordMiss(idValue, generation)));
+      final List<X> result = new ArrayList<>(idValues.size());
+      for (final Object idValue : idValues) {
+        Optional.ofNullable(found.get(idValue)).ifPresent(result::add);
+      }
+      return result;
+    });
   }
 
   /**
@@ -271,15 +818,633 @@ public class AbstractJdbcPlusRepository {
     final Class<T> clazz = getGenerifiedClass(entity);
     final String idColumnName = getIdColumnName(clazz);
     final Object idColumnValue = getIdColumnValue(entity);
-    final List<T> entityList = findByColumn(idColumnName, idColumnValue, clazz);
-    return Optional.ofNullable(entityList)
-        .filter(not(List::isEmpty))
-        .filter(list -> list.size() == 1)
-        .map(list -> list.get(0));
+    return withIdentityMap(() -> {
+      final List<T> entityList = findByColumn(idColumnName, idColumnValue, clazz);
+      return Optional.ofNullable(entityList)
+          .filter(not(List::isEmpty))
+          .filter(list -> list.size() == 1)
+          .map(list -> list.get(0));
+    });
+  }
+
+  /**
+   * Run a unit of work in one database transaction, reusing one
+   * connection for all the repository calls made on the current thread
+   * and committing once at the end. The calls also share one
+   * {@link IdentityMap}. Cache entries written during a transaction
+   * that is rolled back are evicted, and invalidations are published
+   * to the {@link InvalidationBus} only once the transaction commits.
+   *
+   * @param work the unit of work
+   * @return the result of the work
+   * @see DatabaseConnection#inTransaction(java.util.function.Function)
+   */
+  public <R> R inTransaction(final Supplier<R> work) {
+    return databaseConnection.inTransaction(connection -> withIdentityMap(work));
+  }
+
+  /**
+   * Stream all entities of a class from a forward-only cursor,
+   * mapping each row only when it is consumed. The stream holds
+   * a connection until it is closed or exhausted.
+   *
+   * @param clazz     entity class
+   * @param fetchSize rows fetched per round trip
+   * @return stream of the entities, to be closed by the caller
+   */
+  public <T> Stream<T> stream(
+      final Class<T> clazz,
+      final int fetchSize
+  ) {
+    return stream(sqlSelectAll(getTableName(clazz)), clazz, fetchSize);
+  }
+
+  /**
+   * Stream the entities where column has specified value from
+   * a forward-only cursor, mapping each row only when it is
+   * consumed. The stream holds a connection until it is closed
+   * or exhausted.
+   *
+   * @param column    table column
+   * @param value     specified value
+   * @param clazz     entity class
+   * @param fetchSize rows fetched per round trip
+   * @return stream of the entities, to be closed by the caller
+   */
+  public <T> Stream<T> streamByColumn(
+      final String column,
+      final Object value,
+      final Class<T> clazz,
+      final int fetchSize
+  ) {
+    return stream(sqlSelectAllByColumn(getTableName(clazz), column, value), clazz, fetchSize);
+  }
+
+  private <T> Stream<T> stream(
+      final String query,
+      final Class<T> clazz,
+      final int fetchSize
+  ) {
+    final QueryCursor cursor = databaseConnection.openCursor(query, fetchSize);
+    final Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(
+        Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL
+    ) {
+      @Override
+      public boolean tryAdvance(final Consumer<? super T> action) {
+        if (!cursor.next()) {
+          cursor.close();
+          return false;
+        }
+        action.accept(getObject(cursor.getResultSet(), clazz));
+        return true;
+      }
+    };
+    return StreamSupport.stream(rows, false).onClose(cursor::close);
+  }
+
+  /**
+   * Scan all entities of a class in parallel, splitting the table
+   * into ranges of integral ids between the minimum and maximum id,
+   * each scanned with its own cursor and connection on the executor
+   * set by {@link #setScanExecutor(Executor)}, or else on a pool of
+   * one thread per range. Tables with other ids are scanned at once.
+   *
+   * @param clazz      entity class
+   * @param partitions number of id ranges
+   * @param sink       thread-safe consumer of the entities, called concurrently
+   */
+  public <T> void findAllParallel(
+      final Class<T> clazz,
+      final int partitions,
+      final Consumer<? super T> sink
+  ) {
+    final Executor sharedExecutor = scanExecutor;
+    if (sharedExecutor != null) {
+      findAllParallel(clazz, partitions, sink, sharedExecutor);
+      return;
+    }
+    final ExecutorService executor = newDefaultExecutor(Math.max(1, partitions));
+    try {
+      findAllParallel(clazz, partitions, sink, executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Scan all entities of a class in parallel on an executor.
+   * The first range scan that fails cancels the others, within
+   * a shared {@link Deadline}, and its exception is rethrown.
+   *
+   * @param clazz      entity class
+   * @param partitions number of id ranges
+   * @param sink       thread-safe consumer of the entities, called concurrently
+   * @param executor   executor of the range scans
+   * @see #findAllParallel(Class, int, Consumer)
+   */
+  public <T> void findAllParallel(
+      final Class<T> clazz,
+      final int partitions,
+      final Consumer<? super T> sink,
+      final Executor executor
+  ) {
+    if (partitions < 1) {
+      throw new IllegalArgumentException("partitions must be at least 1");
+    }
+    final Optional<Deadline> callerDeadline = Deadline.current();
+    final Deadline scanDeadline = Deadline.none();
+    final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    final List<CompletableFuture<Void>> scans = new ArrayList<>(partitions);
+    for (final String query : getRangeQueries(clazz, partitions)) {
+      final Runnable scan = () -> scanDeadline.run(() -> {
+        try (final Stream<T> entities = stream(query, clazz, BATCH_SIZE)) {
+          entities.forEach(entity -> {
+            scanDeadline.check();
+            sink.accept(entity);
+          });
+        }
+      });
+      scans.add(CompletableFuture.runAsync(
+          () -> callerDeadline.ifPresentOrElse(deadline -> deadline.run(scan), scan),
+          executor
+      ).whenComplete((ignored, e) -> {
+        if (e != null && firstFailure.compareAndSet(null, unwrap(e))) {
+          scanDeadline.cancel();
+        }
+      }));
+    }
+    try {
+      CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new)).join();
+    } catch (final CompletionException e) {
+      final Throwable failure = Optional.ofNullable(firstFailure.get()).orElse(unwrap(e));
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      throw JdbcPlusException.of(e);
+    }
+  }
+
+  private static Throwable unwrap(final Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  private List<String> getRangeQueries(final Class<?> clazz, final int partitions) {
+    final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final String selectAll = sqlSelectAll(metadata.getTableName());
+    final Class<?> idType = toWrapperType(metadata.getIdType());
+    final boolean integral = idType == Long.class
+        || idType == Integer.class
+        || idType == Short.class
+        || idType == Byte.class;
+    if (partitions < 2 || !integral) {
+      return List.of(selectAll);
+    }
+    final String idColumn = metadata.getIdColumnName();
+    final long[] range = databaseConnection.queryTransaction(
+        String.format(
+            "select min(%s), max(%s) from %s",
+            idColumn,
+            idColumn,
+            metadata.getTableName()
+        ),
+        this::getRange,
+        () -> null
+    );
+    if (range == null || range[1] - range[0] < 0) {
+      return List.of(selectAll);
+    }
+    final long step = (range[1] - range[0]) / partitions + 1;
+    final List<String> queries = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      final List<String> bounds = new ArrayList<>(2);
+      if (i > 0) {
+        bounds.add(String.format("%s >= %d", idColumn, range[0] + i * step));
+      }
+      if (i < partitions - 1) {
+        bounds.add(String.format("%s < %d", idColumn, range[0] + (i + 1) * step));
+      }
+      queries.add(String.format("%s where %s", selectAll, String.join(" and ", bounds)));
+    }
+    return queries;
+  }
+
+  private long[] getRange(final ResultSet resultSet) {
+    try {
+      if (!resultSet.next() || resultSet.getObject(1) == null) {
+        return null;
+      }
+      return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+    } catch (SQLException e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Publish all entities of a class, reading and mapping
+   * the rows only as the subscribers request them.
+   *
+   * @param clazz    entity class
+   * @param executor executor emitting the entities
+   * @return publisher of the entities
+   * @see QueryPublisher
+   */
+  public <T> Flow.Publisher<T> publishAll(
+      final Class<T> clazz,
+      final Executor executor
+  ) {
+    return publish(sqlSelectAll(getTableName(clazz)), clazz, executor);
+  }
+
+  /**
+   * Publish the entities where column has specified value, reading
+   * and mapping the rows only as the subscribers request them.
+   *
+   * @param column   table column
+   * @param value    specified value
+   * @param clazz    entity class
+   * @param executor executor emitting the entities
+   * @return publisher of the entities
+   * @see QueryPublisher
+   */
+  public <T> Flow.Publisher<T> publishByColumn(
+      final String column,
+      final Object value,
+      final Class<T> clazz,
+      final Executor executor
+  ) {
+    return publish(sqlSelectAllByColumn(getTableName(clazz), column, value), clazz, executor);
+  }
+
+  private <T> Flow.Publisher<T> publish(
+      final String query,
+      final Class<T> clazz,
+      final Executor executor
+  ) {
+    return new QueryPublisher<>(
+        fetchSize -> databaseConnection.openCursor(query, fetchSize),
+        resultSet -> getObject(resultSet, clazz),
+        executor
+    );
+  }
+
+  /**
+   * Open an explicit session, sharing one {@link IdentityMap}
+   * between all the repository calls made on the current thread
+   * until the session is closed.
+   *
+   * @return the session identity map
+   */
+  public IdentityMap openSession() {
+    return IdentityMap.open(identityScope);
+  }
+
+  /**
+   * Run a repository call in a session and, if the connection has
+   * a query timeout and no {@link Deadline} is bound yet, within one
+   * deadline covering the whole call, relation loading included.
+   */
+  private <R> R withIdentityMap(final Supplier<R> operation) {
+    final Duration timeout = databaseConnection.getQueryTimeout();
+    if (timeout != null && !timeout.isZero() && Deadline.current().isEmpty()) {
+      return Deadline.after(timeout).call(() -> withIdentityMap(operation));
+    }
+    final IdentityMap identityMap = IdentityMap.open(identityScope);
+    try {
+      return operation.get();
+    } finally {
+      identityMap.close();
+    }
+  }
+
+  private <T> List<T> queryObjects(
+      final String query,
+      final Class<T> clazz,
+      final Supplier<QueryKey> queryKey
+  ) {
+    return queryObjects(query, clazz, queryKey, Collections::emptyList);
+  }
+
+  private <T> List<T> queryObjects(
+      final String query,
+      final Class<T> clazz,
+      final Supplier<QueryKey> queryKey,
+      final Supplier<List<T>> onFailure
+  ) {
+    if (!queryCache.isEnabled() || databaseConnection.isInTransaction()) {
+      return databaseConnection.queryTransaction(
+          query,
+          resultSet -> getObjects(resultSet, clazz),
+          onFailure
+      );
+    }
+    final QueryKey key = queryKey.get();
+    return queryCache.get(key)
+        .map(rows -> rows.stream()
+            .map(row -> getObject(row, clazz))
+            .collect(Collectors.toList()))
+        .orElseGet(() -> {
+          final long version = queryCache.getVersion(key);
+          final List<Object[]> rows = databaseConnection.queryTransaction(
+              query,
+              resultSet -> readRows(resultSet, clazz),
+              () -> null
+          );
+          if (rows == null) {
+            return onFailure.get();
+          }
+          queryCache.put(key, rows, version);
+          return rows.stream()
+              .map(row -> getObject(row, clazz))
+              .collect(Collectors.toList());
+        });
+  }
+
+  /**
+   * Read the rows of a result set as cache rows, in the order of
+   * {@link EntityMetadata#getColumns()}, with the ids of the related
+   * entities: the values read, not those of the mapped instances,
+   * which a session may have modified.
+   *
+   * @return the rows, or null if the result set cannot be read
+   */
+  private List<Object[]> readRows(final ResultSet resultSet, final Class<?> clazz) {
+    final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final List<Object[]> rows = new ArrayList<>();
+    try {
+      while (resultSet.next()) {
+        final Object[] row = new Object[metadata.getColumnCount()];
+        for (int i = 0; i < row.length; i++) {
+          final Field column = metadata.getColumn(i);
+          final Class<?> type = EntityMetadata.isToOneField(column)
+              ? metadataRegistry.getEntityMetadata(getTargetEntity(column)).getIdType()
+              : column.getType();
+          row[i] = resultSet.getObject(metadata.getColumnName(i), toWrapperType(type));
+        }
+        rows.add(row);
+      }
+    } catch (SQLException e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+      return null;
+    }
+    return rows;
+  }
+
+  private QueryKey queryKey(
+      final Class<?> clazz,
+      final String[] columns,
+      final Object[] values
+  ) {
+    final String table = metadataRegistry.getEntityMetadata(clazz).getTableName();
+    final String conditions = Arrays.stream(columns)
+        .map(column -> column + " = ?")
+        .collect(Collectors.joining(", "));
+    final Object[] parameters = Arrays.stream(values)
+        .map(this::toColumnValue)
+        .toArray();
+    return QueryKey.of(sqlSelectAll(table) + " where " + conditions, parameters, Set.of(table));
+  }
+
+  private Object toColumnValue(final Object value) {
+    return value != null && value.getClass().isAnnotationPresent(Table.class)
+        ? getIdColumnValue(value)
+        : value;
+  }
+
+  /**
+   * Get the snapshot of a reference table, outside transactions only:
+   * a transaction reads the table itself, so that it sees its own
+   * writes, and does not load its uncommitted rows into the snapshot.
+   */
+  private Optional<ReferenceTable.Snapshot> getReferenceSnapshot(final Class<?> clazz) {
+    if (databaseConnection.isInTransaction()) {
+      return Optional.empty();
+    }
+    return getReferenceTable(clazz).flatMap(ReferenceTable::getSnapshot);
+  }
+
+  /**
+   * Load all the rows of a reference table, failing if the table
+   * cannot be read, so that the previous snapshot is kept.
+   */
+  private <T> List<Object[]> loadReferenceRows(final Class<T> clazz) {
+    return withIdentityMap(() -> {
+      final List<T> entities = databaseConnection.queryTransaction(
+          sqlSelectAll(getTableName(clazz)),
+          resultSet -> getObjects(resultSet, clazz),
+          () -> {
+            throw JdbcPlusException.of("Could not load reference table " + getTableName(clazz));
+          }
+      );
+      final List<Object[]> rows = new ArrayList<>();
+      Optional.ofNullable(entities).ifPresent(list ->
+          list.forEach(entity -> rows.add(getRow(clazz, entity))));
+      return rows;
+    });
+  }
+
+  /**
+   * Check whether a row with the id may exist, according
+   * to the {@link ExistenceFilter} of the entity class.
+   *
+   * @param clazz   entity class
+   * @param idValue entity id
+   * @return false if the row definitely does not exist
+   */
+  boolean mightExist(final Class<?> clazz, final Object idValue) {
+    return idValue == null
+        || getExistenceFilter(clazz).map(filter -> filter.mightExist(idValue)).orElse(true);
+  }
+
+  /**
+   * Record that the row of an entity exists, again once the current
+   * transaction commits: a lookup that started after the first record
+   * may not see the row until then.
+   */
+  private void recordPresent(final Object entity) {
+    final Object idValue = getIdColumnValue(entity);
+    if (idValue != null) {
+      getExistenceFilter(entity.getClass()).ifPresent(filter -> {
+        filter.recordPresent(idValue);
+        if (databaseConnection.isInTransaction()) {
+          databaseConnection.afterCommit(() -> filter.recordPresent(idValue));
+        }
+      });
+    }
+  }
+
+  private List<Object> getIds(
+      final ResultSet resultSet,
+      final Class<?> idType
+  ) {
+    final List<Object> ids = new ArrayList<>();
+    try {
+      while (resultSet.next()) {
+        ids.add(resultSet.getObject(1, toWrapperType(idType)));
+      }
+    } catch (SQLException e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+    return ids;
+  }
+
+  private <T> void forgetEntity(final T entity) {
+    final Object idValue = getIdColumnValue(entity);
+    final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(entity.getClass());
+    entityCacheManager.invalidate(entity.getClass(), idValue);
+    queryCache.invalidateTable(metadata.getTableName());
+    Optional.ofNullable(referenceTables.get(entity.getClass()))
+        .ifPresent(ReferenceTable::invalidate);
+    IdentityMap.current(identityScope).ifPresent(identityMap ->
+        identityMap.remove(entity.getClass(), idValue));
+    final Runnable publish = () -> Optional.ofNullable(invalidationPublisher)
+        .ifPresent(publisher -> publisher.publish(
+            entity.getClass(),
+            idValue == null ? emptyList() : List.of(idValue),
+            List.of(metadata.getTableName())
+        ));
+    if (databaseConnection.isInTransaction()) {
+      databaseConnection.afterRollback(() -> evictLocally(entity.getClass()));
+      databaseConnection.afterCommit(() -> {
+        evictLocally(entity.getClass());
+        publish.run();
+      });
+    } else {
+      publish.run();
+    }
+  }
+
+  private void evictLocally(final Class<?> clazz) {
+    entityCacheManager.invalidateAll(clazz);
+    queryCache.invalidateTable(metadataRegistry.getEntityMetadata(clazz).getTableName());
+    Optional.ofNullable(referenceTables.get(clazz)).ifPresent(ReferenceTable::invalidate);
+  }
+
+  private void onInvalidation(final InvalidationEvent event) {
+    if (nodeId.equals(event.getOrigin())) {
+      return;
+    }
+    final Class<?> clazz = event.getEntityClass();
+    if (clazz != null) {
+      Optional.ofNullable(referenceTables.get(clazz)).ifPresent(ReferenceTable::invalidate);
+      if (event.getIds().isEmpty()) {
+        entityCacheManager.invalidateAll(clazz);
+      } else {
+        final Optional<ExistenceFilter> existenceFilter = getExistenceFilter(clazz);
+        for (final Object id : event.getIds()) {
+          entityCacheManager.invalidate(clazz, id);
+          existenceFilter.ifPresent(filter -> filter.recordPresent(id));
+        }
+      }
+    }
+    event.getTables().forEach(queryCache::invalidateTable);
+  }
+
+  private <T> Optional<T> findReferenced(
+      final Object idValue,
+      final Class<T> clazz
+  ) {
+    return getReferenceSnapshot(clazz)
+        .flatMap(snapshot -> snapshot.findById(idValue))
+        .map(row -> getObject(row, clazz));
+  }
+
+  /**
+   * Find an entity in the second-level cache, which transactions
+   * bypass, as they may have written the row.
+   */
+  private <T> Optional<T> findCached(
+      final Object idValue,
+      final Class<T> clazz
+  ) {
+    if (databaseConnection.isInTransaction()) {
+      return Optional.empty();
+    }
+    return entityCacheManager.getCache(clazz)
+        .flatMap(cache -> cache.get(idValue))
+        .map(row -> getObject(row, clazz));
+  }
+
+  /**
+   * Check whether the entities of a class read now are put in the
+   * second-level cache: not by transactions, which may see uncommitted
+   * rows, nor for {@link ReferenceData} classes, read from their
+   * {@link ReferenceTable}.
+   */
+  private boolean isCaching(final Class<?> clazz) {
+    return !databaseConnection.isInTransaction()
+        && !clazz.isAnnotationPresent(ReferenceData.class)
+        && entityCacheManager.getCache(clazz).isPresent();
+  }
+
+  /**
+   * Query entities, putting the rows read from the result set in the
+   * second-level cache, unless the entity class was invalidated since
+   * {@code cacheVersion} was read. The rows are not taken from the
+   * mapped instances, which may be ones a session modified.
+   *
+   * @return the entities, or null if the select fails
+   */
+  private <T> List<T> queryCachedObjects(
+      final String query,
+      final Class<T> clazz,
+      final long cacheVersion
+  ) {
+    final List<Object[]> rows = databaseConnection.queryTransaction(
+        query,
+        resultSet -> readRows(resultSet, clazz),
+        () -> null
+    );
+    if (rows == null) {
+      return null;
+    }
+    final EntityMetadata<T> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final int idIndex = metadata.getColumnIndex(metadata.getIdField());
+    for (final Object[] row : rows) {
+      entityCacheManager.put(clazz, row[idIndex], row, cacheVersion);
+    }
+    return getObjects(rows, clazz);
+  }
+
+  private <T> Object[] getRow(
+      final Class<T> clazz,
+      final T entity
+  ) {
+    final EntityMetadata<T> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final Object[] row = new Object[metadata.getColumnCount()];
+    try {
+      for (int i = 0; i < row.length; i++) {
+        final Field column = metadata.getColumn(i);
+        final Object value = column.get(entity);
+        row[i] = value != null && EntityMetadata.isToOneField(column)
+            ? getIdColumnValue(value)
+            : value;
+      }
+    } catch (IllegalAccessException e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+    return row;
+  }
+
+  private <T> T registerEntity(
+      final Class<T> clazz,
+      final Object idValue,
+      final T entity
+  ) {
+    return IdentityMap.current(identityScope)
+        .map(identityMap -> identityMap.put(clazz, idValue, entity))
+        .orElse(entity);
   }
 
   /**
    * Extract entity from result set with given Class.
+   * <p>
+   * Inside a repository call or session, a row whose id was already
+   * mapped resolves to the same instance. New instances are registered
+   * before their relations are populated, which breaks relation cycles.
    *
    * @param resultSet the result set
    * @param clazz     entity class object
@@ -289,11 +1454,85 @@ public class AbstractJdbcPlusRepository {
       final ResultSet resultSet,
       final Class<T> clazz
   ) {
+    final Optional<IdentityMap> identityMap = IdentityMap.current(identityScope);
+    final Object idValue = identityMap.isPresent() ? getIdValue(resultSet, clazz) : null;
+    if (idValue != null) {
+      final Optional<T> mappedEntity = identityMap.get().get(clazz, idValue);
+      if (mappedEntity.isPresent()) {
+        return mappedEntity.get();
+      }
+    }
     final T entity = getClassInstance(clazz);
+    if (idValue != null && entity != null) {
+      identityMap.get().put(clazz, idValue, entity);
+    }
     populateColumnFields(resultSet, entity);
     return entity;
   }
 
+  /**
+   * Extract entity from a second-level cache row with given Class.
+   * <p>
+   * The row holds the column values in the order of
+   * {@link EntityMetadata#getColumns()}, with the ids of the
+   * related entities, which are resolved by {@link #findById(Object, Class)}.
+   *
+   * @param row   the column values
+   * @param clazz entity class object
+   * @return extracted entity
+   */
+  public <T> T getObject(
+      final Object[] row,
+      final Class<T> clazz
+  ) {
+    final EntityMetadata<T> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final T entity = getClassInstance(clazz);
+    try {
+      final Field idField = metadata.getIdField();
+      final Object idValue = row[metadata.getColumnIndex(idField)];
+      idField.set(entity, idValue);
+      final T registeredEntity = registerEntity(clazz, idValue, entity);
+      if (registeredEntity != entity) {
+        return registeredEntity;
+      }
+      for (int i = 0; i < row.length; i++) {
+        final Field column = metadata.getColumn(i);
+        final Object value = row[i];
+        if (value == null) {
+          if (!column.getType().isPrimitive()) {
+            column.set(entity, null);
+          }
+        } else if (EntityMetadata.isToOneField(column)) {
+          final Class<?> relatedObjectClass = getTargetEntity(column);
+          column.set(entity, findById(value, relatedObjectClass)
+              .orElseThrow(() -> new InvalidResultSetException(String.format(
+                  "Cannot find entity of type: %s, with given id: %s",
+                  relatedObjectClass.getSimpleName(),
+                  value
+              ))));
+        } else {
+          column.set(entity, value);
+        }
+      }
+    } catch (IllegalAccessException e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+    }
+    return entity;
+  }
+
+  private Object getIdValue(
+      final ResultSet resultSet,
+      final Class<?> clazz
+  ) {
+    try {
+      final Field idColumn = getIdColumn(clazz);
+      return resultSet.getObject(getIdColumnName(idColumn), idColumn.getType());
+    } catch (SQLException e) {
+      logger.log(ERROR, e.getLocalizedMessage(), e);
+      return null;
+    }
+  }
+
   /**
    * Extract multiple entities from result set with a given entity Class.
    *
@@ -317,6 +1556,24 @@ public class AbstractJdbcPlusRepository {
     return list;
   }
 
+  /**
+   * Extract entities from second-level cache rows with given Class.
+   *
+   * @param rows  the rows
+   * @param clazz entity class object
+   * @return a list of extracted entities
+   */
+  public <T> List<T> getObjects(
+      final List<Object[]> rows,
+      final Class<T> clazz
+  ) {
+    final List<T> list = new ArrayList<>(rows.size());
+    for (final Object[] row : rows) {
+      list.add(getObject(row, clazz));
+    }
+    return list;
+  }
+
   /**
    * Populates entity fields from result set
    * using a map of column names and fields.
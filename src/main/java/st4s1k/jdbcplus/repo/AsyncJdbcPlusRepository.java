@@ -0,0 +1,246 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.config.Deadline;
+import st4s1k.jdbcplus.exceptions.DeadlineExceededException;
+import st4s1k.jdbcplus.pool.JdbcPlusPool;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.Objects.requireNonNull;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.newDefaultExecutor;
+
+/**
+ * Asynchronous facade of a {@link JdbcPlusRepository}, returning
+ * {@link CompletableFuture}s so that independent lookups can run
+ * concurrently.
+ * <p>
+ * The calls run on an executor, by default one virtual thread per
+ * call where the runtime supports them, otherwise a bounded daemon
+ * pool. A bulkhead limits the calls running at once, by default to
+ * the size of the {@link JdbcPlusPool} of the repository, so the
+ * waiting happens in the facade instead of the connection pool.
+ * Sessions and the read-your-writes window of replicas are bound
+ * to threads, so they do not span asynchronous calls.
+ * <p>
+ * Every call runs within a {@link Deadline}: cancelling the returned
+ * future cancels the statements the call has in flight.
+ *
+ * @param <T> entity type
+ */
+public class AsyncJdbcPlusRepository<T> implements AutoCloseable {
+
+  private static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+  private final JdbcPlusRepository<T> repository;
+  private final Executor executor;
+  private final ExecutorService ownedExecutor;
+  private final Semaphore bulkhead;
+
+  private AsyncJdbcPlusRepository(
+      final JdbcPlusRepository<T> repository,
+      final Executor executor,
+      final ExecutorService ownedExecutor,
+      final int maxConcurrency
+  ) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be at least 1");
+    }
+    this.repository = requireNonNull(repository);
+    this.executor = requireNonNull(executor);
+    this.ownedExecutor = ownedExecutor;
+    this.bulkhead = new Semaphore(maxConcurrency, true);
+  }
+
+  /**
+   * Create a facade with the default executor and bulkhead.
+   *
+   * @param repository the repository
+   * @return asynchronous repository
+   */
+  public static <T> AsyncJdbcPlusRepository<T> of(final JdbcPlusRepository<T> repository) {
+    return of(repository, getPoolSize(repository));
+  }
+
+  /**
+   * Create a facade with the default executor.
+   *
+   * @param repository     the repository
+   * @param maxConcurrency maximum number of calls running at once
+   * @return asynchronous repository
+   */
+  public static <T> AsyncJdbcPlusRepository<T> of(
+      final JdbcPlusRepository<T> repository,
+      final int maxConcurrency
+  ) {
+    final ExecutorService executor = newDefaultExecutor(maxConcurrency);
+    return new AsyncJdbcPlusRepository<>(repository, executor, executor, maxConcurrency);
+  }
+
+  /**
+   * Create a facade running the calls on an executor,
+   * which is not shut down by {@link #close()}.
+   *
+   * @param repository     the repository
+   * @param executor       the executor
+   * @param maxConcurrency maximum number of calls running at once
+   * @return asynchronous repository
+   */
+  public static <T> AsyncJdbcPlusRepository<T> of(
+      final JdbcPlusRepository<T> repository,
+      final Executor executor,
+      final int maxConcurrency
+  ) {
+    return new AsyncJdbcPlusRepository<>(repository, executor, null, maxConcurrency);
+  }
+
+  public JdbcPlusRepository<T> getRepository() {
+    return repository;
+  }
+
+  /**
+   * Run any call of the repository asynchronously, within the bulkhead.
+   *
+   * @param call the call
+   * @return future result of the call
+   */
+  public <R> CompletableFuture<R> supplyAsync(final Function<JdbcPlusRepository<T>, R> call) {
+    return supplyAsync(Deadline.none(), call);
+  }
+
+  /**
+   * Run any call of the repository asynchronously, within the bulkhead,
+   * failing with a {@link DeadlineExceededException} unless it completes
+   * within a timeout, counted from now. Waiting for the bulkhead fails
+   * fast once the timeout has elapsed.
+   *
+   * @param timeout timeout of the call
+   * @param call    the call
+   * @return future result of the call
+   */
+  public <R> CompletableFuture<R> supplyAsync(
+      final Duration timeout,
+      final Function<JdbcPlusRepository<T>, R> call
+  ) {
+    return supplyAsync(Deadline.after(timeout), call);
+  }
+
+  /**
+   * Run a call within a deadline, which is cancelled with the returned
+   * future, cancelling the statements the call has in flight.
+   */
+  private <R> CompletableFuture<R> supplyAsync(
+      final Deadline deadline,
+      final Function<JdbcPlusRepository<T>, R> call
+  ) {
+    final CompletableFuture<R> future = CompletableFuture.supplyAsync(
+        () -> deadline.call(() -> {
+          acquire(deadline);
+          try {
+            return call.apply(repository);
+          } finally {
+            bulkhead.release();
+          }
+        }),
+        executor
+    );
+    future.whenComplete((result, e) -> {
+      if (e instanceof CancellationException) {
+        deadline.cancel();
+      }
+    });
+    return future;
+  }
+
+  private void acquire(final Deadline deadline) {
+    try {
+      if (!deadline.isBounded()) {
+        bulkhead.acquire();
+      } else if (!bulkhead.tryAcquire(deadline.remainingNanos(), NANOSECONDS)) {
+        throw DeadlineExceededException.of("Deadline exceeded waiting for the bulkhead");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+    try {
+      deadline.check();
+    } catch (final DeadlineExceededException e) {
+      bulkhead.release();
+      throw e;
+    }
+  }
+
+  public CompletableFuture<Optional<T>> saveAsync(final T entity) {
+    return supplyAsync(r -> r.save(entity));
+  }
+
+  public CompletableFuture<Optional<T>> updateAsync(final T entity) {
+    return supplyAsync(r -> r.update(entity));
+  }
+
+  public CompletableFuture<Optional<T>> removeAsync(final T entity) {
+    return supplyAsync(r -> r.remove(entity));
+  }
+
+  public CompletableFuture<List<T>> findAsync(final T entity) {
+    return supplyAsync(r -> r.find(entity));
+  }
+
+  public CompletableFuture<Optional<T>> findByIdAsync(final Object id) {
+    return supplyAsync(r -> r.findById(id));
+  }
+
+  public CompletableFuture<List<T>> findAllByIdAsync(final Collection<?> ids) {
+    return supplyAsync(r -> r.findAllById(ids));
+  }
+
+  public CompletableFuture<List<T>> findAllAsync() {
+    return supplyAsync(JdbcPlusRepository::findAll);
+  }
+
+  public CompletableFuture<Optional<T>> findByIdAsync(final Object id, final Duration timeout) {
+    return supplyAsync(timeout, r -> r.findById(id));
+  }
+
+  public CompletableFuture<List<T>> findByColumnAsync(final String column, final Object value) {
+    return supplyAsync(r -> r.findByColumn(column, value));
+  }
+
+  /**
+   * Get the number of calls that can start without waiting.
+   *
+   * @return available bulkhead permits
+   */
+  public int getAvailableConcurrency() {
+    return bulkhead.availablePermits();
+  }
+
+  /**
+   * Shut down the default executor, letting the submitted calls finish.
+   */
+  @Override
+  public void close() {
+    Optional.ofNullable(ownedExecutor).ifPresent(ExecutorService::shutdown);
+  }
+
+  private static int getPoolSize(final JdbcPlusRepository<?> repository) {
+    return Optional.ofNullable(repository.getAbstractJdbcPlusRepository())
+        .map(AbstractJdbcPlusRepository::getDatabaseConnection)
+        .map(DatabaseConnection::getDataSource)
+        .filter(JdbcPlusPool.class::isInstance)
+        .map(pool -> ((JdbcPlusPool) pool).getConfig().getMaximumPoolSize())
+        .orElse(DEFAULT_MAX_CONCURRENCY);
+  }
+}
@@ -0,0 +1,291 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.annotations.ManyToMany;
+import st4s1k.jdbcplus.annotations.ManyToOne;
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.exceptions.InvalidMappingException;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.fetch.LazyList;
+import st4s1k.jdbcplus.metadata.EntityMetadata;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+import st4s1k.jdbcplus.utils.EntityUtils;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.util.stream.Collectors.joining;
+import static st4s1k.jdbcplus.utils.EntityUtils.*;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.toWrapperType;
+
+/**
+ * Saves an entity together with the entities reachable through
+ * its cascading relations.
+ * <p>
+ * The graph is ordered by foreign key dependency: tables referenced
+ * by a to-one relation are written before the tables referencing them.
+ * Existing rows are detected with one {@code in (...)} query per table,
+ * skipping the ids that the existence filter knows to be absent,
+ * then every table is flushed as one JDBC batch, followed by the
+ * join table changes of the saved {@link ManyToMany} owners, all in
+ * one transaction.
+ */
+class CascadingSave {
+
+  private static final System.Logger LOGGER = System.getLogger("CascadingSave");
+  private static final int BATCH_SIZE = 500;
+
+  private final AbstractJdbcPlusRepository repository;
+  private final DatabaseConnection databaseConnection;
+  private final MetadataRegistry metadataRegistry;
+  private final JoinTableSync joinTableSync;
+
+  CascadingSave(
+      final AbstractJdbcPlusRepository repository,
+      final DatabaseConnection databaseConnection,
+      final MetadataRegistry metadataRegistry,
+      final JoinTableSync joinTableSync
+  ) {
+    this.repository = repository;
+    this.databaseConnection = databaseConnection;
+    this.metadataRegistry = metadataRegistry;
+    this.joinTableSync = joinTableSync;
+  }
+
+  /**
+   * Check whether an entity class has any cascading relation.
+   *
+   * @param clazz entity class
+   * @return true if saving the entity cascades
+   */
+  boolean isCascading(final Class<?> clazz) {
+    return Arrays.stream(metadataRegistry.getEntityMetadata(clazz).getRelationFields())
+        .anyMatch(EntityUtils::isCascaded);
+  }
+
+  /**
+   * Save the entity graph.
+   *
+   * @param root the entity
+   * @return all the saved entities
+   */
+  List<Object> save(final Object root) {
+    return save(root, databaseConnection::updateBatchTransaction);
+  }
+
+  /**
+   * Save the entity graph.
+   *
+   * @param root   the entity
+   * @param writer executes the batches in one transaction
+   * @return all the saved entities
+   */
+  List<Object> save(final Object root, final Consumer<List<List<String>>> writer) {
+    final Graph graph = new Graph();
+    graph.collect(root);
+    final List<List<String>> batches = new ArrayList<>();
+    final List<Class<?>> tableOrder = graph.getTableOrder();
+    for (final Class<?> clazz : tableOrder) {
+      batches.add(getStatements(clazz, graph.entities.get(clazz)));
+    }
+    for (final Class<?> clazz : tableOrder) {
+      batches.addAll(joinTableSync.getStatements(clazz, graph.entities.get(clazz)));
+    }
+    writer.accept(batches);
+    final List<Object> saved = new ArrayList<>();
+    graph.entities.values().forEach(saved::addAll);
+    return saved;
+  }
+
+  /**
+   * Save entities of one class without cascading.
+   *
+   * @param clazz    entity class
+   * @param entities the entities
+   * @param writer   executes the batches in one transaction
+   */
+  void saveAll(
+      final Class<?> clazz,
+      final List<Object> entities,
+      final Consumer<List<List<String>>> writer
+  ) {
+    final List<List<String>> batches = new ArrayList<>();
+    batches.add(getStatements(clazz, entities));
+    batches.addAll(joinTableSync.getStatements(clazz, entities));
+    writer.accept(batches);
+  }
+
+  private List<String> getStatements(
+      final Class<?> clazz,
+      final List<Object> entities
+  ) {
+    final Set<Object> existingIds = findExistingIds(clazz, entities);
+    final List<String> statements = new ArrayList<>(entities.size());
+    for (final Object entity : entities) {
+      final String statement = existingIds.contains(getIdColumnValue(entity))
+          ? repository.sqlUpdate(entity)
+          : repository.sqlInsert(entity);
+      if (!statement.isEmpty()) {
+        statements.add(statement);
+      }
+    }
+    return statements;
+  }
+
+  private Set<Object> findExistingIds(
+      final Class<?> clazz,
+      final List<Object> entities
+  ) {
+    final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(clazz);
+    final Set<Object> existingIds = new HashSet<>();
+    final List<Object> ids = new ArrayList<>(entities.size());
+    for (final Object entity : entities) {
+      Optional.ofNullable(getIdColumnValue(entity))
+          .filter(id -> repository.mightExist(clazz, id))
+          .ifPresent(ids::add);
+    }
+    for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+      final String query = String.format(
+          "select %s from %s where %s in (%s)",
+          metadata.getIdColumnName(),
+          metadata.getTableName(),
+          metadata.getIdColumnName(),
+          ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())).stream()
+              .map(EntityUtils::getStringValueForSql)
+              .collect(joining(", "))
+      );
+      Optional.ofNullable(databaseConnection.queryTransaction(
+          query,
+          resultSet -> getIds(resultSet, metadata.getIdType()),
+          Collections::<Object>emptyList
+      )).ifPresent(existingIds::addAll);
+    }
+    return existingIds;
+  }
+
+  private List<Object> getIds(
+      final ResultSet resultSet,
+      final Class<?> idType
+  ) {
+    final List<Object> ids = new ArrayList<>();
+    try {
+      while (resultSet.next()) {
+        ids.add(resultSet.getObject(1, toWrapperType(idType)));
+      }
+    } catch (SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      return Collections.emptyList();
+    }
+    return ids;
+  }
+
+  private static Object getFieldValue(final Field field, final Object entity) {
+    try {
+      field.setAccessible(true);
+      return field.get(entity);
+    } catch (IllegalAccessException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+  }
+
+  private static void setFieldValue(
+      final Field field,
+      final Object entity,
+      final Object value
+  ) {
+    try {
+      field.setAccessible(true);
+      field.set(entity, value);
+    } catch (IllegalAccessException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+  }
+
+  private static Collection<?> getLoadedCollection(final Field field, final Object entity) {
+    final Object value = getFieldValue(field, entity);
+    if (value instanceof LazyList && !((LazyList<?>) value).isLoaded()) {
+      return Collections.emptyList();
+    }
+    return value instanceof Collection ? (Collection<?>) value : Collections.emptyList();
+  }
+
+  /**
+   * Entities of a cascaded save, grouped by class in the order
+   * they have to be written, with the dependencies between classes.
+   */
+  private class Graph {
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Class<?>, List<Object>> entities = new LinkedHashMap<>();
+
+    private void collect(final Object entity) {
+      if (entity == null || !visited.add(entity)) {
+        return;
+      }
+      final EntityMetadata<?> metadata = metadataRegistry.getEntityMetadata(entity.getClass());
+      for (final Field field : metadata.getToOneFields()) {
+        if (isCascaded(field)) {
+          collect(getFieldValue(field, entity));
+        }
+      }
+      entities.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+      for (final Field field : metadata.getOneToManyFields()) {
+        if (isCascaded(field)) {
+          final Field backReference = getRelationalField(
+              getTargetEntity(field),
+              entity.getClass(),
+              ManyToOne.class
+          );
+          for (final Object child : getLoadedCollection(field, entity)) {
+            if (getFieldValue(backReference, child) == null) {
+              setFieldValue(backReference, child, entity);
+            }
+            collect(child);
+          }
+        }
+      }
+      for (final Field field : metadata.getManyToManyFields()) {
+        if (isCascaded(field)) {
+          getLoadedCollection(field, entity).forEach(this::collect);
+        }
+      }
+    }
+
+    private List<Class<?>> getTableOrder() {
+      final Map<Class<?>, Set<Class<?>>> dependencies = new LinkedHashMap<>();
+      for (final Map.Entry<Class<?>, List<Object>> entry : entities.entrySet()) {
+        final Class<?> clazz = entry.getKey();
+        final Set<Class<?>> classDependencies = new LinkedHashSet<>();
+        final Field[] toOneFields = metadataRegistry.getEntityMetadata(clazz).getToOneFields();
+        for (final Object entity : entry.getValue()) {
+          for (final Field field : toOneFields) {
+            final Object target = getFieldValue(field, entity);
+            if (target != null && visited.contains(target) && !target.getClass().equals(clazz)) {
+              classDependencies.add(target.getClass());
+            }
+          }
+        }
+        dependencies.put(clazz, classDependencies);
+      }
+      final List<Class<?>> order = new ArrayList<>(dependencies.size());
+      while (!dependencies.isEmpty()) {
+        final Class<?> next = dependencies.entrySet().stream()
+            .filter(entry -> order.containsAll(entry.getValue()))
+            .map(Map.Entry::getKey)
+            .findFirst()
+            .orElseThrow(() -> InvalidMappingException.of(String.format(
+                "Cannot order cascaded save, cyclic foreign keys between: %s",
+                dependencies.keySet().stream().map(Class::getName).collect(joining(", "))
+            )));
+        order.add(next);
+        dependencies.remove(next);
+      }
+      return order;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.collections.IdMap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static st4s1k.jdbcplus.utils.EntityUtils.getIdColumnValue;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.newDefaultExecutor;
+
+/**
+ * Coalesces the concurrent {@code findById} calls of a repository.
+ * <p>
+ * The ids requested within a short window are loaded together with
+ * {@link JdbcPlusRepository#findAllById(java.util.Collection)}, one
+ * {@code in (...)} query, as soon as the window elapses or a batch is
+ * full. An id already waiting or being loaded is not requested twice:
+ * its callers share the lookup, and the entity it finds.
+ *
+ * @param <T> entity type
+ */
+public final class CoalescingLoader<T> implements AutoCloseable {
+
+  private static final Duration DEFAULT_WINDOW = Duration.ofMillis(1);
+  private static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+  private final JdbcPlusRepository<T> repository;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final ConcurrentHashMap<Object, CompletableFuture<Optional<T>>> inFlight =
+      new ConcurrentHashMap<>();
+  private final ScheduledExecutorService timer;
+  private final ExecutorService executor;
+  private final Object lock = new Object();
+  private List<Object> batch = new ArrayList<>();
+  private boolean closed;
+
+  private CoalescingLoader(
+      final JdbcPlusRepository<T> repository,
+      final Duration window,
+      final int maxBatchSize
+  ) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be at least 1");
+    }
+    this.repository = requireNonNull(repository);
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "jdbcplus-loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor = newDefaultExecutor(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a loader collecting the ids of one millisecond,
+   * up to 500 ids per query.
+   *
+   * @param repository the repository
+   * @return coalescing loader
+   */
+  public static <T> CoalescingLoader<T> of(final JdbcPlusRepository<T> repository) {
+    return of(repository, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * Create a loader.
+   *
+   * @param repository   the repository
+   * @param window       how long the first id of a batch waits for others
+   * @param maxBatchSize number of ids that loads a batch at once
+   * @return coalescing loader
+   */
+  public static <T> CoalescingLoader<T> of(
+      final JdbcPlusRepository<T> repository,
+      final Duration window,
+      final int maxBatchSize
+  ) {
+    return new CoalescingLoader<>(repository, window, maxBatchSize);
+  }
+
+  /**
+   * Find entity by id, together with the ids requested concurrently.
+   * <p>
+   * <b>The callers requesting the same id while it is waiting or being
+   * loaded are completed with the same instance.</b> It must be treated
+   * as read-only: a caller changing it changes the entity the others
+   * see. Callers that modify the entity should load it with
+   * {@link JdbcPlusRepository#findById(Object)} instead.
+   *
+   * @param id entity id
+   * @return future {@link Optional} found entity
+   * @throws IllegalStateException if the loader is closed
+   */
+  public CompletableFuture<Optional<T>> findByIdAsync(final Object id) {
+    requireNonNull(id);
+    final CompletableFuture<Optional<T>> lookup = new CompletableFuture<>();
+    final CompletableFuture<Optional<T>> sharedLookup = inFlight.putIfAbsent(id, lookup);
+    if (sharedLookup != null) {
+      return sharedLookup.copy();
+    }
+    enqueue(id);
+    return lookup.copy();
+  }
+
+  /**
+   * Load the waiting ids, and stop the loader once they are loaded.
+   */
+  @Override
+  public void close() {
+    final List<Object> ids;
+    synchronized (lock) {
+      closed = true;
+      ids = batch;
+      batch = new ArrayList<>();
+    }
+    timer.shutdownNow();
+    if (!ids.isEmpty()) {
+      execute(ids);
+    }
+    executor.shutdown();
+  }
+
+  private void enqueue(final Object id) {
+    final List<Object> ids;
+    synchronized (lock) {
+      if (closed) {
+        final IllegalStateException e = new IllegalStateException("Loader is closed");
+        inFlight.remove(id).completeExceptionally(e);
+        throw e;
+      }
+      ids = batch;
+      ids.add(id);
+      if (ids.size() < maxBatchSize) {
+        if (ids.size() == 1) {
+          timer.schedule(() -> loadOnTime(ids), windowNanos, NANOSECONDS);
+        }
+        return;
+      }
+      batch = new ArrayList<>();
+    }
+    execute(ids);
+  }
+
+  /**
+   * Load a batch whose window elapsed, unless it was
+   * loaded before because it was full.
+   */
+  private void loadOnTime(final List<Object> ids) {
+    synchronized (lock) {
+      if (batch != ids) {
+        return;
+      }
+      batch = new ArrayList<>();
+    }
+    execute(ids);
+  }
+
+  /**
+   * Load a batch on the executor, or on the calling thread if the
+   * executor was shut down by a concurrent {@link #close()} after
+   * the batch was taken, so that its lookups still complete.
+   */
+  private void execute(final List<Object> ids) {
+    try {
+      executor.execute(() -> load(ids));
+    } catch (final RejectedExecutionException e) {
+      load(ids);
+    }
+  }
+
+  private void load(final List<Object> ids) {
+    final List<T> entities;
+    try {
+      entities = repository.findAllById(ids);
+    } catch (final RuntimeException e) {
+      ids.forEach(id -> Optional.ofNullable(inFlight.remove(id))
+          .ifPresent(lookup -> lookup.completeExceptionally(e)));
+      return;
+    }
+    final IdMap<T> found = entities.isEmpty()
+        ? IdMap.forIdType(Object.class)
+        : IdMap.forEntity(entities.get(0).getClass());
+    for (final T entity : entities) {
+      found.put(getIdColumnValue(entity), entity);
+    }
+    for (final Object id : ids) {
+      Optional.ofNullable(inFlight.remove(id))
+          .ifPresent(lookup -> lookup.complete(Optional.ofNullable(found.get(id))));
+    }
+  }
+}
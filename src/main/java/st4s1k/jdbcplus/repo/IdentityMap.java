@@ -0,0 +1,155 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.collections.IdMap;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Identity map of the entities loaded during a repository call
+ * or an explicit session, keyed by entity class and id.
+ * <p>
+ * The map is bound to the current thread while open. Nested calls
+ * join the already open map, so every row is mapped to a single
+ * shared instance and relation cycles are resolved to the instance
+ * that is still being populated. Integral ids are stored unboxed.
+ * <p>
+ * Every {@link JdbcPlusContext} has its own scope, so the entities
+ * of different databases never share an instance.
+ */
+public class IdentityMap implements AutoCloseable {
+
+  /**
+   * Scope of the default repository.
+   */
+  public static final Object DEFAULT_SCOPE = new Object();
+
+  private static final ThreadLocal<Map<Object, IdentityMap>> CURRENT = new ThreadLocal<>();
+
+  private final Object scope;
+  private final Map<Class<?>, IdMap<Object>> entities = new HashMap<>();
+  private int openCount;
+
+  private IdentityMap(final Object scope) {
+    this.scope = scope;
+  }
+
+  /**
+   * Open an identity map of the default scope on the current
+   * thread, or join the one that is already open.
+   *
+   * @return the identity map bound to the current thread
+   */
+  public static IdentityMap open() {
+    return open(DEFAULT_SCOPE);
+  }
+
+  /**
+   * Open an identity map of a scope on the current thread,
+   * or join the one that is already open.
+   *
+   * @param scope the scope, compared by identity
+   * @return the identity map bound to the current thread
+   */
+  public static IdentityMap open(final Object scope) {
+    Map<Object, IdentityMap> scopes = CURRENT.get();
+    if (scopes == null) {
+      scopes = new IdentityHashMap<>(2);
+      CURRENT.set(scopes);
+    }
+    final IdentityMap identityMap = scopes.computeIfAbsent(scope, IdentityMap::new);
+    identityMap.openCount++;
+    return identityMap;
+  }
+
+  /**
+   * Get the identity map of the default scope bound to the current thread.
+   *
+   * @return {@link Optional} identity map
+   */
+  public static Optional<IdentityMap> current() {
+    return current(DEFAULT_SCOPE);
+  }
+
+  /**
+   * Get the identity map of a scope bound to the current thread.
+   *
+   * @param scope the scope, compared by identity
+   * @return {@link Optional} identity map
+   */
+  public static Optional<IdentityMap> current(final Object scope) {
+    return Optional.ofNullable(CURRENT.get()).map(scopes -> scopes.get(scope));
+  }
+
+  /**
+   * Find an already mapped entity.
+   *
+   * @param clazz entity class
+   * @param id    entity id
+   * @return {@link Optional} mapped entity
+   */
+  public <T> Optional<T> get(final Class<T> clazz, final Object id) {
+    return Optional.ofNullable(entities.get(clazz))
+        .map(map -> map.get(id))
+        .map(clazz::cast);
+  }
+
+  /**
+   * Register an entity, unless an entity with the same id
+   * has already been registered.
+   *
+   * @param clazz  entity class
+   * @param id     entity id
+   * @param entity the entity
+   * @return the registered entity
+   */
+  public <T> T put(final Class<T> clazz, final Object id, final T entity) {
+    final Object registered = entities
+        .computeIfAbsent(clazz, IdMap::forEntity)
+        .putIfAbsent(id, entity);
+    return registered == null ? entity : clazz.cast(registered);
+  }
+
+  /**
+   * Forget an entity, e.g. after it was removed.
+   *
+   * @param clazz entity class
+   * @param id    entity id
+   */
+  public void remove(final Class<?> clazz, final Object id) {
+    Optional.ofNullable(entities.get(clazz)).ifPresent(map -> map.remove(id));
+  }
+
+  /**
+   * Get the number of mapped entities.
+   *
+   * @return number of mapped entities
+   */
+  public int size() {
+    return entities.values().stream().mapToInt(IdMap::size).sum();
+  }
+
+  /**
+   * Leave the identity map, unbinding it from the current thread
+   * once every nested open has been closed.
+   *
+   * @throws IllegalStateException if the map is not open on the
+   *                               current thread
+   */
+  @Override
+  public void close() {
+    final Map<Object, IdentityMap> scopes = CURRENT.get();
+    if (scopes == null || scopes.get(scope) != this) {
+      throw new IllegalStateException("Identity map is not open on the current thread");
+    }
+    if (--openCount == 0) {
+      entities.clear();
+      scopes.remove(scope);
+      if (scopes.isEmpty()) {
+        CURRENT.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.cache.EntityCacheManager;
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+
+import javax.sql.DataSource;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A data source together with its own {@link DatabaseConnection},
+ * metadata registry, caches, identity map scope and transaction
+ * configuration, so that one application can work with several
+ * databases. {@link JdbcPlusRepository} subclasses bind to a context
+ * through their constructor.
+ * <p>
+ * The static singletons initialized with
+ * {@link DatabaseConnection#init(DataSource)} are the default context.
+ */
+public final class JdbcPlusContext implements AutoCloseable {
+
+  private static final System.Logger LOGGER = System.getLogger("JdbcPlusContext");
+
+  private final DatabaseConnection databaseConnection;
+  private final AbstractJdbcPlusRepository repository;
+  private final boolean owned;
+
+  private JdbcPlusContext(
+      final DatabaseConnection databaseConnection,
+      final AbstractJdbcPlusRepository repository,
+      final boolean owned
+  ) {
+    this.databaseConnection = databaseConnection;
+    this.repository = repository;
+    this.owned = owned;
+  }
+
+  /**
+   * Create a context owning a data source.
+   *
+   * @param dataSource the data source
+   * @return a new context
+   */
+  public static JdbcPlusContext of(final DataSource dataSource) {
+    final DatabaseConnection databaseConnection = DatabaseConnection.of(requireNonNull(dataSource));
+    return new JdbcPlusContext(
+        databaseConnection,
+        new AbstractJdbcPlusRepository(databaseConnection),
+        true
+    );
+  }
+
+  /**
+   * Get the default context, backed by the static singletons.
+   *
+   * @return the default context
+   */
+  public static JdbcPlusContext getDefault() {
+    final AbstractJdbcPlusRepository repository = AbstractJdbcPlusRepository.getInstance();
+    return new JdbcPlusContext(repository.getDatabaseConnection(), repository, false);
+  }
+
+  public DataSource getDataSource() {
+    return databaseConnection.getDataSource();
+  }
+
+  public DatabaseConnection getDatabaseConnection() {
+    return databaseConnection;
+  }
+
+  public AbstractJdbcPlusRepository getRepository() {
+    return repository;
+  }
+
+  public MetadataRegistry getMetadataRegistry() {
+    return repository.getMetadataRegistry();
+  }
+
+  public EntityCacheManager getEntityCacheManager() {
+    return repository.getEntityCacheManager();
+  }
+
+  /**
+   * Disconnect the context from its invalidation bus and close
+   * its data source, if it can be closed, e.g. a pool.
+   * Closing the default context does nothing.
+   */
+  @Override
+  public void close() {
+    if (!owned) {
+      return;
+    }
+    repository.setInvalidationBus(null);
+    final DataSource dataSource = getDataSource();
+    if (dataSource instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) dataSource).close();
+      } catch (Exception e) {
+        LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      }
+    }
+  }
+}
@@ -1,25 +1,53 @@
 package st4s1k.jdbcplus.repo;
 
+import st4s1k.jdbcplus.cache.CacheStats;
+import st4s1k.jdbcplus.fetch.FetchPlan;
 import st4s1k.jdbcplus.utils.EntityUtils;
 
 import java.lang.reflect.ParameterizedType;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public abstract class JdbcPlusRepository<T> {
 
+  private static final int DEFAULT_FETCH_SIZE = 500;
+
   private final AbstractJdbcPlusRepository abstractJdbcPlusRepository;
   private final Class<T> entityClass;
 
-  @SuppressWarnings("unchecked")
   public JdbcPlusRepository() {
-    entityClass = (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass())
-        .getActualTypeArguments()[0];
+    entityClass = getEntityClass();
     abstractJdbcPlusRepository = AbstractJdbcPlusRepository.getInstance();
   }
 
+  /**
+   * Create a repository bound to a {@link JdbcPlusContext}.
+   *
+   * @param context the context
+   */
+  public JdbcPlusRepository(final JdbcPlusContext context) {
+    entityClass = getEntityClass();
+    abstractJdbcPlusRepository = context.getRepository();
+  }
+
+  AbstractJdbcPlusRepository getAbstractJdbcPlusRepository() {
+    return abstractJdbcPlusRepository;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Class<T> getEntityClass() {
+    return (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass())
+        .getActualTypeArguments()[0];
+  }
+
   /**
    * Get database table name associated with the entity.
    *
@@ -39,6 +67,20 @@ public abstract class JdbcPlusRepository<T> {
     return abstractJdbcPlusRepository.save(entity);
   }
 
+  /**
+   * Create, or Update, the rows of many entities as one JDBC batch.
+   *
+   * @param entities the entities
+   * @see AbstractJdbcPlusRepository#saveAll(Class, Collection)
+   */
+  public void saveAll(final Collection<? extends T> entities) {
+    abstractJdbcPlusRepository.saveAll(entityClass, entities);
+  }
+
+  void saveAllOrThrow(final Collection<? extends T> entities) {
+    abstractJdbcPlusRepository.saveAllOrThrow(entityClass, entities);
+  }
+
   /**
    * Update a row in the table associated with the entity.
    *
@@ -79,6 +121,36 @@ public abstract class JdbcPlusRepository<T> {
     return abstractJdbcPlusRepository.findById(id, entityClass);
   }
 
+  /**
+   * Find entities by ids, in the order of the ids.
+   *
+   * @param ids entity ids
+   * @return a list of found entities
+   */
+  public List<T> findAllById(final Collection<?> ids) {
+    return abstractJdbcPlusRepository.findAllById(ids, entityClass);
+  }
+
+  /**
+   * Run a unit of work in one database transaction.
+   *
+   * @param work the unit of work
+   * @return the result of the work
+   * @see AbstractJdbcPlusRepository#inTransaction(Supplier)
+   */
+  public <R> R inTransaction(final Supplier<R> work) {
+    return abstractJdbcPlusRepository.inTransaction(work);
+  }
+
+  /**
+   * Get the second-level cache statistics of the entity.
+   *
+   * @return {@link Optional} statistics, empty if the entity is not cacheable
+   */
+  public Optional<CacheStats> getCacheStats() {
+    return abstractJdbcPlusRepository.getEntityCacheManager().getStats(entityClass);
+  }
+
   /**
    * Fetch all entities.
    *
@@ -88,6 +160,37 @@ public abstract class JdbcPlusRepository<T> {
     return abstractJdbcPlusRepository.findAll(entityClass);
   }
 
+  /**
+   * Find entity by id, with the relations of a fetch plan.
+   *
+   * @param id        entity id
+   * @param fetchPlan the fetch plan
+   * @return {@link Optional} found entity
+   */
+  public Optional<T> findById(final Object id, final FetchPlan<T> fetchPlan) {
+    return abstractJdbcPlusRepository.findById(id, fetchPlan);
+  }
+
+  /**
+   * Fetch all entities, with the relations of a fetch plan.
+   *
+   * @param fetchPlan the fetch plan
+   * @return a list of found entities
+   */
+  public List<T> findAll(final FetchPlan<T> fetchPlan) {
+    return abstractJdbcPlusRepository.findAll(fetchPlan);
+  }
+
+  /**
+   * Create a fetch plan for the entity, which loads
+   * no relations until paths are added to it.
+   *
+   * @return fetch plan
+   */
+  public FetchPlan<T> fetchPlan() {
+    return FetchPlan.of(entityClass);
+  }
+
   /**
    * Fetch all entities where from associated table,
    * where column has specified value.
@@ -103,6 +206,138 @@ public abstract class JdbcPlusRepository<T> {
     return abstractJdbcPlusRepository.findByColumn(column, value, entityClass);
   }
 
+  /**
+   * Scan all entities in parallel, one id range per partition,
+   * each on its own connection.
+   *
+   * @param partitions number of id ranges
+   * @param sink       thread-safe consumer of the entities, called concurrently
+   * @see AbstractJdbcPlusRepository#findAllParallel(Class, int, Consumer)
+   */
+  public void findAllParallel(final int partitions, final Consumer<? super T> sink) {
+    abstractJdbcPlusRepository.findAllParallel(entityClass, partitions, sink);
+  }
+
+  /**
+   * Stream all entities from a forward-only cursor, mapping each
+   * row only when it is consumed. The stream holds a connection
+   * until it is closed, e.g. with try-with-resources, or exhausted.
+   *
+   * @return stream of the entities
+   */
+  public Stream<T> stream() {
+    return stream(DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * Stream all entities from a forward-only cursor.
+   *
+   * @param fetchSize rows fetched per round trip
+   * @return stream of the entities
+   * @see #stream()
+   */
+  public Stream<T> stream(final int fetchSize) {
+    return abstractJdbcPlusRepository.stream(entityClass, fetchSize);
+  }
+
+  /**
+   * Stream the entities where column has specified value from
+   * a forward-only cursor.
+   *
+   * @param column table column
+   * @param value  specified value
+   * @return stream of the entities
+   * @see #stream()
+   */
+  public Stream<T> streamByColumn(final String column, final Object value) {
+    return streamByColumn(column, value, DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * Stream the entities where column has specified value from
+   * a forward-only cursor.
+   *
+   * @param column    table column
+   * @param value     specified value
+   * @param fetchSize rows fetched per round trip
+   * @return stream of the entities
+   * @see #stream()
+   */
+  public Stream<T> streamByColumn(
+      final String column,
+      final Object value,
+      final int fetchSize
+  ) {
+    return abstractJdbcPlusRepository.streamByColumn(column, value, entityClass, fetchSize);
+  }
+
+  /**
+   * Publish all entities, with backpressure: the rows are read
+   * from a cursor only as the subscribers request them.
+   *
+   * @return publisher of the entities
+   */
+  public Flow.Publisher<T> publishAll() {
+    return publishAll(QueryPublisher.getDefaultExecutor());
+  }
+
+  /**
+   * Publish all entities on an executor, with backpressure.
+   *
+   * @param executor executor emitting the entities
+   * @return publisher of the entities
+   */
+  public Flow.Publisher<T> publishAll(final Executor executor) {
+    return abstractJdbcPlusRepository.publishAll(entityClass, executor);
+  }
+
+  /**
+   * Publish the entities where column has specified value, with
+   * backpressure: the rows are read from a cursor only as the
+   * subscribers request them.
+   *
+   * @param column table column
+   * @param value  specified value
+   * @return publisher of the entities
+   */
+  public Flow.Publisher<T> publishByColumn(final String column, final Object value) {
+    return abstractJdbcPlusRepository.publishByColumn(
+        column,
+        value,
+        entityClass,
+        QueryPublisher.getDefaultExecutor()
+    );
+  }
+
+  /**
+   * Open a session, in which every entity is loaded only once
+   * and shared between all the repository calls made on the
+   * current thread, until the session is closed.
+   *
+   * @return the session identity map
+   */
+  public IdentityMap openSession() {
+    return abstractJdbcPlusRepository.openSession();
+  }
+
+  /**
+   * Fetch all entities where from associated table,
+   * where column has specified value, with the relations
+   * of a fetch plan.
+   *
+   * @param column    table column
+   * @param value     specified value
+   * @param fetchPlan the fetch plan
+   * @return a list of found entities
+   */
+  public List<T> findByColumn(
+      final String column,
+      final Object value,
+      final FetchPlan<T> fetchPlan
+  ) {
+    return abstractJdbcPlusRepository.findByColumn(column, value, fetchPlan);
+  }
+
   /**
    * Extract entity from result set
    *
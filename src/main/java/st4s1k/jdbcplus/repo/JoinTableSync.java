@@ -0,0 +1,215 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.annotations.JoinTable;
+import st4s1k.jdbcplus.annotations.ManyToMany;
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.fetch.LazyList;
+import st4s1k.jdbcplus.metadata.EntityMetadata;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+import st4s1k.jdbcplus.utils.EntityUtils;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.util.stream.Collectors.joining;
+import static st4s1k.jdbcplus.utils.EntityUtils.*;
+import static st4s1k.jdbcplus.utils.JdbcPlusUtils.toWrapperType;
+
+/**
+ * Synchronizes the join tables of owning {@link ManyToMany} fields
+ * with the in-memory collections.
+ * <p>
+ * The persisted links of all the owners are read with one query per
+ * join table, and only the difference is written back: one delete per
+ * owner for the removed links and one insert per added link, batched
+ * per join table. Collections that are {@code null} or lazy and not
+ * loaded are left untouched.
+ */
+class JoinTableSync {
+
+  private static final System.Logger LOGGER = System.getLogger("JoinTableSync");
+  private static final int BATCH_SIZE = 500;
+
+  private final DatabaseConnection databaseConnection;
+  private final MetadataRegistry metadataRegistry;
+
+  JoinTableSync(
+      final DatabaseConnection databaseConnection,
+      final MetadataRegistry metadataRegistry
+  ) {
+    this.databaseConnection = databaseConnection;
+    this.metadataRegistry = metadataRegistry;
+  }
+
+  /**
+   * Get the update queries synchronizing the join tables of the owners,
+   * one batch per join table.
+   *
+   * @param clazz  owner class
+   * @param owners owners of the same class
+   * @return batches of update queries, without empty batches
+   * @throws JdbcPlusException if the persisted links cannot be read
+   */
+  List<List<String>> getStatements(
+      final Class<?> clazz,
+      final List<?> owners
+  ) {
+    final List<List<String>> batches = new ArrayList<>();
+    for (final Field field : metadataRegistry.getEntityMetadata(clazz).getManyToManyFields()) {
+      if (field.getAnnotation(ManyToMany.class).mappedBy().isEmpty()) {
+        final List<String> batch = getStatements(clazz, field, owners);
+        if (!batch.isEmpty()) {
+          batches.add(batch);
+        }
+      }
+    }
+    return batches;
+  }
+
+  private List<String> getStatements(
+      final Class<?> clazz,
+      final Field field,
+      final List<?> owners
+  ) {
+    final Map<Object, Set<Object>> links = new LinkedHashMap<>();
+    for (final Object owner : owners) {
+      final Object ownerId = getIdColumnValue(owner);
+      getLoadedCollection(field, owner).ifPresent(targets -> {
+        final Set<Object> targetIds = links.computeIfAbsent(ownerId, id -> new LinkedHashSet<>());
+        for (final Object target : targets) {
+          Optional.ofNullable(target).map(EntityUtils::getIdColumnValue).ifPresent(targetIds::add);
+        }
+      });
+    }
+    if (links.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final JoinTable joinTable = getJoinTable(field);
+    final EntityMetadata<?> targetMetadata =
+        metadataRegistry.getEntityMetadata(getTargetEntity(field));
+    final String table = joinTable.name();
+    final String joinColumn = getEntityJoinColumnName(clazz, joinTable.joinColumn());
+    final String inverseJoinColumn = getEntityJoinColumnName(
+        targetMetadata.getEntityClass(),
+        joinTable.inverseJoinColumn()
+    );
+    final Map<Object, Set<Object>> persistedLinks = findLinks(
+        table,
+        joinColumn,
+        inverseJoinColumn,
+        metadataRegistry.getEntityMetadata(clazz).getIdType(),
+        targetMetadata.getIdType(),
+        new ArrayList<>(links.keySet())
+    );
+    final List<String> deletes = new ArrayList<>();
+    final List<String> inserts = new ArrayList<>();
+    for (final Map.Entry<Object, Set<Object>> entry : links.entrySet()) {
+      final Object ownerId = entry.getKey();
+      final Set<Object> persisted = persistedLinks.getOrDefault(ownerId, Collections.emptySet());
+      final List<Object> removed = new ArrayList<>(persisted);
+      removed.removeAll(entry.getValue());
+      for (int from = 0; from < removed.size(); from += BATCH_SIZE) {
+        deletes.add(String.format(
+            "delete from %s where %s = %s and %s in (%s)",
+            table,
+            joinColumn,
+            getStringValueForSql(ownerId),
+            inverseJoinColumn,
+            toSqlList(removed.subList(from, Math.min(from + BATCH_SIZE, removed.size())))
+        ));
+      }
+      for (final Object targetId : entry.getValue()) {
+        if (!persisted.contains(targetId)) {
+          inserts.add(String.format(
+              "insert into %s(%s, %s) values (%s, %s)",
+              table,
+              joinColumn,
+              inverseJoinColumn,
+              getStringValueForSql(ownerId),
+              getStringValueForSql(targetId)
+          ));
+        }
+      }
+    }
+    deletes.addAll(inserts);
+    return deletes;
+  }
+
+  private Map<Object, Set<Object>> findLinks(
+      final String table,
+      final String joinColumn,
+      final String inverseJoinColumn,
+      final Class<?> ownerIdType,
+      final Class<?> targetIdType,
+      final List<Object> ownerIds
+  ) {
+    final Map<Object, Set<Object>> links = new HashMap<>();
+    for (int from = 0; from < ownerIds.size(); from += BATCH_SIZE) {
+      final String query = String.format(
+          "select %s, %s from %s where %s in (%s)",
+          joinColumn,
+          inverseJoinColumn,
+          table,
+          joinColumn,
+          toSqlList(ownerIds.subList(from, Math.min(from + BATCH_SIZE, ownerIds.size())))
+      );
+      databaseConnection.queryTransaction(
+          query,
+          resultSet -> readLinks(resultSet, ownerIdType, targetIdType, links),
+          () -> {
+            throw JdbcPlusException.of("Could not read the links of join table " + table);
+          }
+      );
+    }
+    return links;
+  }
+
+  private Map<Object, Set<Object>> readLinks(
+      final ResultSet resultSet,
+      final Class<?> ownerIdType,
+      final Class<?> targetIdType,
+      final Map<Object, Set<Object>> links
+  ) {
+    try {
+      while (resultSet.next()) {
+        links.computeIfAbsent(
+            resultSet.getObject(1, toWrapperType(ownerIdType)),
+            id -> new HashSet<>()
+        ).add(resultSet.getObject(2, toWrapperType(targetIdType)));
+      }
+    } catch (SQLException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+    return links;
+  }
+
+  private static String toSqlList(final List<Object> values) {
+    return values.stream()
+        .map(EntityUtils::getStringValueForSql)
+        .collect(joining(", "));
+  }
+
+  private static Optional<Collection<?>> getLoadedCollection(
+      final Field field,
+      final Object owner
+  ) {
+    final Object value;
+    try {
+      field.setAccessible(true);
+      value = field.get(owner);
+    } catch (IllegalAccessException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+      throw JdbcPlusException.of(e);
+    }
+    if (!(value instanceof Collection)
+        || value instanceof LazyList && !((LazyList<?>) value).isLoaded()) {
+      return Optional.empty();
+    }
+    return Optional.of((Collection<?>) value);
+  }
+}
@@ -0,0 +1,172 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.config.QueryCursor;
+
+import java.sql.ResultSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Publishes the rows of a select, mapped one by one, as they are
+ * requested. Every subscription opens its own {@link QueryCursor}
+ * on the first request, fetching as many rows per round trip as
+ * requested, up to a maximum, and closes it once the rows are
+ * exhausted, on error or on cancellation.
+ * <p>
+ * Rows are emitted on the executor, by one task at a time.
+ *
+ * @param <T> entity type
+ */
+final class QueryPublisher<T> implements Flow.Publisher<T> {
+
+  static final int MAX_FETCH_SIZE = 1_000;
+
+  private final IntFunction<QueryCursor> cursorFactory;
+  private final Function<ResultSet, T> mapper;
+  private final Executor executor;
+
+  QueryPublisher(
+      final IntFunction<QueryCursor> cursorFactory,
+      final Function<ResultSet, T> mapper,
+      final Executor executor
+  ) {
+    this.cursorFactory = cursorFactory;
+    this.mapper = mapper;
+    this.executor = executor;
+  }
+
+  /**
+   * Get the shared executor of the publishers created without one,
+   * with daemon threads created on demand.
+   *
+   * @return default executor
+   */
+  static Executor getDefaultExecutor() {
+    return DefaultExecutor.INSTANCE;
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+    final CursorSubscription subscription = new CursorSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private static final class DefaultExecutor {
+
+    private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+      final Thread thread = new Thread(runnable, "jdbcplus-publisher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private final class CursorSubscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super T> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private QueryCursor cursor;
+    private int fetchSize;
+    private boolean done;
+
+    private CursorSubscription(final Flow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Request must be positive, was: " + n);
+      } else {
+        demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        executor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      do {
+        if (!done) {
+          emit();
+        }
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void emit() {
+      try {
+        final long requested = demand.get();
+        if (stopped() || requested == 0) {
+          return;
+        }
+        final int size = (int) Math.min(requested, MAX_FETCH_SIZE);
+        if (cursor == null) {
+          cursor = cursorFactory.apply(size);
+        } else if (size != fetchSize) {
+          cursor.setFetchSize(size);
+        }
+        fetchSize = size;
+        long emitted = 0;
+        while (emitted < requested) {
+          if (stopped()) {
+            return;
+          }
+          if (!cursor.next()) {
+            finish();
+            subscriber.onComplete();
+            return;
+          }
+          subscriber.onNext(mapper.apply(cursor.getResultSet()));
+          emitted++;
+        }
+        if (requested != Long.MAX_VALUE) {
+          demand.addAndGet(-emitted);
+        }
+      } catch (final RuntimeException e) {
+        finish();
+        subscriber.onError(e);
+      }
+    }
+
+    private boolean stopped() {
+      if (cancelled) {
+        finish();
+        return true;
+      }
+      final Throwable error = invalidRequest;
+      if (error != null) {
+        finish();
+        subscriber.onError(error);
+        return true;
+      }
+      return false;
+    }
+
+    private void finish() {
+      done = true;
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package st4s1k.jdbcplus.repo;
+
+/**
+ * Maps the {@code @Id} value of an entity to the
+ * shard holding its row.
+ */
+@FunctionalInterface
+public interface ShardFunction {
+
+  /**
+   * Get the shard of an id.
+   *
+   * @param id         entity id, not null
+   * @param shardCount number of shards
+   * @return shard index, from 0 to {@code shardCount - 1}
+   */
+  int getShard(Object id, int shardCount);
+
+  /**
+   * Get the default shard function: integral ids modulo the
+   * number of shards, other ids by their hash code.
+   *
+   * @return the default shard function
+   */
+  static ShardFunction modulo() {
+    return (id, shardCount) -> id instanceof Long
+        || id instanceof Integer
+        || id instanceof Short
+        || id instanceof Byte
+        ? Math.floorMod(((Number) id).longValue(), shardCount)
+        : Math.floorMod(id.hashCode(), shardCount);
+  }
+}
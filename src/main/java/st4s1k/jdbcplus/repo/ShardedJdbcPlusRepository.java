@@ -0,0 +1,315 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static st4s1k.jdbcplus.utils.EntityUtils.getIdColumnValue;
+
+/**
+ * Repository of an entity partitioned across several databases,
+ * one {@link JdbcPlusContext} per shard, by a {@link ShardFunction}
+ * over the {@code @Id} value.
+ * <p>
+ * Operations on one entity are routed to its shard. Queries are
+ * scattered to all the shards in parallel and their results gathered
+ * in shard order or, given an ordering, merged with a k-way merge
+ * of the results sorted per shard. Transactions do not span shards.
+ *
+ * @param <T> entity type
+ */
+public abstract class ShardedJdbcPlusRepository<T> implements AutoCloseable {
+
+  private final List<AbstractJdbcPlusRepository> shards;
+  private final ShardFunction shardFunction;
+  private final Executor executor;
+  private final ExecutorService ownedExecutor;
+  private final Class<T> entityClass;
+
+  /**
+   * Create a repository querying the shards on a daemon
+   * thread pool with one thread per shard, shut down by
+   * {@link #close()}.
+   *
+   * @param shards        shard contexts, in shard order
+   * @param shardFunction shard function
+   */
+  protected ShardedJdbcPlusRepository(
+      final List<JdbcPlusContext> shards,
+      final ShardFunction shardFunction
+  ) {
+    this(shards, shardFunction, newExecutor(shards.size()), true);
+  }
+
+  /**
+   * Create a repository querying the shards on an executor,
+   * which is not shut down by {@link #close()}.
+   *
+   * @param shards        shard contexts, in shard order
+   * @param shardFunction shard function
+   * @param executor      executor of the scattered queries
+   */
+  protected ShardedJdbcPlusRepository(
+      final List<JdbcPlusContext> shards,
+      final ShardFunction shardFunction,
+      final Executor executor
+  ) {
+    this(shards, shardFunction, executor, false);
+  }
+
+  @SuppressWarnings("unchecked")
+  private ShardedJdbcPlusRepository(
+      final List<JdbcPlusContext> shards,
+      final ShardFunction shardFunction,
+      final Executor executor,
+      final boolean ownsExecutor
+  ) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    this.shards = new ArrayList<>(shards.size());
+    shards.forEach(context -> this.shards.add(context.getRepository()));
+    this.shardFunction = Objects.requireNonNull(shardFunction);
+    this.executor = Objects.requireNonNull(executor);
+    this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+    this.entityClass = (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass())
+        .getActualTypeArguments()[0];
+  }
+
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  /**
+   * Get the shard of an id.
+   *
+   * @param id entity id
+   * @return shard index
+   */
+  public int getShard(final Object id) {
+    if (id == null) {
+      throw JdbcPlusException.of(String.format(
+          "Cannot route %s without id to a shard",
+          entityClass.getName()
+      ));
+    }
+    return shardFunction.getShard(id, shards.size());
+  }
+
+  /**
+   * Create or update the row of the entity in its shard.
+   *
+   * @param entity the entity
+   * @return {@link Optional} saved entity
+   */
+  public Optional<T> save(final T entity) {
+    return shardOf(entity).save(entity);
+  }
+
+  /**
+   * Remove the row of the entity from its shard.
+   *
+   * @param entity the entity
+   * @return {@link Optional} removed entity
+   */
+  public Optional<T> remove(final T entity) {
+    return shardOf(entity).remove(entity);
+  }
+
+  /**
+   * Find entity by id, in its shard.
+   *
+   * @param id entity id
+   * @return {@link Optional} found entity
+   */
+  public Optional<T> findById(final Object id) {
+    return shards.get(getShard(id)).findById(id, entityClass);
+  }
+
+  /**
+   * Fetch all entities of all the shards.
+   *
+   * @return a list of found entities, in shard order
+   */
+  public List<T> findAll() {
+    return concat(scatter(shard -> shard.findAll(entityClass)));
+  }
+
+  /**
+   * Fetch all entities of all the shards, in the given order.
+   *
+   * @param order entity ordering
+   * @return a list of found entities
+   */
+  public List<T> findAll(final Comparator<? super T> order) {
+    return merge(scatter(shard -> sorted(shard.findAll(entityClass), order)), order);
+  }
+
+  /**
+   * Fetch the entities of all the shards, where column has specified value.
+   *
+   * @param column table column
+   * @param value  specified value
+   * @return a list of found entities, in shard order
+   */
+  public List<T> findByColumn(final String column, final Object value) {
+    return concat(scatter(shard -> shard.findByColumn(column, value, entityClass)));
+  }
+
+  /**
+   * Fetch the entities of all the shards, where column has
+   * specified value, in the given order.
+   *
+   * @param column table column
+   * @param value  specified value
+   * @param order  entity ordering
+   * @return a list of found entities
+   */
+  public List<T> findByColumn(
+      final String column,
+      final Object value,
+      final Comparator<? super T> order
+  ) {
+    return merge(
+        scatter(shard -> sorted(shard.findByColumn(column, value, entityClass), order)),
+        order
+    );
+  }
+
+  /**
+   * Find the entities of all the shards, having entity fields
+   * equal to related columns.
+   *
+   * @param entity the entity
+   * @return a list of found entities, in shard order
+   */
+  public List<T> find(final T entity) {
+    return concat(scatter(shard -> shard.find(entity)));
+  }
+
+  /**
+   * Shut down the default executor, letting the submitted queries finish.
+   */
+  @Override
+  public void close() {
+    Optional.ofNullable(ownedExecutor).ifPresent(ExecutorService::shutdown);
+  }
+
+  private AbstractJdbcPlusRepository shardOf(final T entity) {
+    return shards.get(getShard(getIdColumnValue(entity)));
+  }
+
+  private List<List<T>> scatter(final Function<AbstractJdbcPlusRepository, List<T>> query) {
+    final List<CompletableFuture<List<T>>> futures = new ArrayList<>(shards.size());
+    for (final AbstractJdbcPlusRepository shard : shards) {
+      futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+    }
+    final List<List<T>> results = new ArrayList<>(futures.size());
+    try {
+      for (final CompletableFuture<List<T>> future : futures) {
+        results.add(future.join());
+      }
+    } catch (final CompletionException e) {
+      futures.forEach(future -> future.cancel(false));
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw JdbcPlusException.of(e);
+    }
+    return results;
+  }
+
+  private static <T> List<T> sorted(final List<T> entities, final Comparator<? super T> order) {
+    final List<T> sorted = new ArrayList<>(entities);
+    sorted.sort(order);
+    return sorted;
+  }
+
+  private static <T> List<T> concat(final List<List<T>> results) {
+    final List<T> entities = new ArrayList<>(results.stream().mapToInt(List::size).sum());
+    results.forEach(entities::addAll);
+    return entities;
+  }
+
+  private static <T> List<T> merge(
+      final List<List<T>> sortedResults,
+      final Comparator<? super T> order
+  ) {
+    final List<T> entities = new ArrayList<>(sortedResults.stream().mapToInt(List::size).sum());
+    new MergingIterator<>(sortedResults, order).forEachRemaining(entities::add);
+    return entities;
+  }
+
+  private static ExecutorService newExecutor(final int threads) {
+    return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+      final Thread thread = new Thread(runnable, "jdbcplus-shard-query");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Iterates over sorted lists in their merged order, keeping only the
+   * head of each list in a heap. Equal entities keep the shard order.
+   */
+  private static final class MergingIterator<T> implements Iterator<T> {
+
+    private final PriorityQueue<Head<T>> heads;
+
+    private MergingIterator(
+        final List<List<T>> sortedLists,
+        final Comparator<? super T> order
+    ) {
+      final Comparator<Head<T>> byValue = (a, b) -> order.compare(a.value, b.value);
+      heads = new PriorityQueue<>(
+          Math.max(1, sortedLists.size()),
+          byValue.thenComparingInt(head -> head.index)
+      );
+      for (int i = 0; i < sortedLists.size(); i++) {
+        advance(new Head<>(i, sortedLists.get(i).iterator()));
+      }
+    }
+
+    private void advance(final Head<T> head) {
+      if (head.rest.hasNext()) {
+        head.value = head.rest.next();
+        heads.add(head);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      final Head<T> head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      final T value = head.value;
+      advance(head);
+      return value;
+    }
+  }
+
+  private static final class Head<T> {
+
+    private final int index;
+    private final Iterator<T> rest;
+    private T value;
+
+    private Head(final int index, final Iterator<T> rest) {
+      this.index = index;
+      this.rest = rest;
+    }
+  }
+}
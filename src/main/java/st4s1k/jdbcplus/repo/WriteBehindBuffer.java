@@ -0,0 +1,202 @@
+package st4s1k.jdbcplus.repo;
+
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.System.Logger.Level.ERROR;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static st4s1k.jdbcplus.utils.EntityUtils.getIdColumnValue;
+
+/**
+ * Write-behind mode of {@link JdbcPlusRepository#save(Object)}, for
+ * tables written at a high rate, such as counters and telemetry.
+ * <p>
+ * Saved entities are buffered by id, the latest state replacing the
+ * pending one, and a background thread writes them as by
+ * {@link JdbcPlusRepository#saveAll(java.util.Collection)}, one JDBC
+ * batch per transaction, once a batch is full or at every flush
+ * interval. A batch that fails stays pending, to be retried by the
+ * next flush. The buffer holds at most the configured capacity:
+ * saving a new id waits for a flush to make room.
+ * <p>
+ * Saved entities are not visible to the reads of the repository
+ * until they are flushed. {@link #close()} flushes the pending ones.
+ *
+ * @param <T> entity type
+ */
+public final class WriteBehindBuffer<T> implements AutoCloseable {
+
+  private static final System.Logger LOGGER = System.getLogger("WriteBehindBuffer");
+
+  private final JdbcPlusRepository<T> repository;
+  private final WriteBehindConfig config;
+  private final ConcurrentHashMap<Object, T> pending = new ConcurrentHashMap<>();
+  private final Semaphore capacity;
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final ScheduledExecutorService flusher;
+  private volatile boolean closed;
+
+  private WriteBehindBuffer(
+      final JdbcPlusRepository<T> repository,
+      final WriteBehindConfig config
+  ) {
+    this.repository = requireNonNull(repository);
+    this.config = requireNonNull(config);
+    this.capacity = new Semaphore(config.getCapacity());
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "jdbcplus-write-behind");
+      thread.setDaemon(true);
+      return thread;
+    });
+    final long interval = config.getFlushInterval().toNanos();
+    flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, NANOSECONDS);
+  }
+
+  /**
+   * Create a write-behind buffer with the default thresholds.
+   *
+   * @param repository the repository
+   * @return write-behind buffer
+   */
+  public static <T> WriteBehindBuffer<T> of(final JdbcPlusRepository<T> repository) {
+    return of(repository, WriteBehindConfig.of());
+  }
+
+  /**
+   * Create a write-behind buffer.
+   *
+   * @param repository the repository
+   * @param config     size, time and capacity thresholds
+   * @return write-behind buffer
+   */
+  public static <T> WriteBehindBuffer<T> of(
+      final JdbcPlusRepository<T> repository,
+      final WriteBehindConfig config
+  ) {
+    return new WriteBehindBuffer<>(repository, config);
+  }
+
+  /**
+   * Buffer the entity, replacing the pending state of the same id.
+   * Waits for a flush if the buffer is full.
+   *
+   * @param entity the entity, with its id set
+   * @throws IllegalStateException if the buffer is closed
+   */
+  public void save(final T entity) {
+    if (closed) {
+      throw new IllegalStateException("Write-behind buffer is closed");
+    }
+    final Object id = Optional.ofNullable(getIdColumnValue(entity))
+        .orElseThrow(() -> new IllegalArgumentException("Buffered entities need an id"));
+    if (pending.replace(id, entity) != null) {
+      return;
+    }
+    try {
+      capacity.acquire();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw JdbcPlusException.of(e);
+    }
+    if (pending.put(id, entity) != null) {
+      capacity.release();
+    }
+    if (closed) {
+      flush();
+    } else if (pending.size() >= config.getBatchSize()) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Write all the pending entities, in batches.
+   *
+   * @throws RuntimeException if a batch fails, after putting its
+   *                          entities back in the buffer
+   */
+  public synchronized void flush() {
+    while (!pending.isEmpty()) {
+      final List<T> batch = takeBatch();
+      try {
+        repository.saveAllOrThrow(batch);
+      } catch (final RuntimeException e) {
+        requeue(batch);
+        throw e;
+      }
+      capacity.release(batch.size());
+    }
+  }
+
+  /**
+   * Get the number of entities waiting to be written.
+   *
+   * @return pending entities
+   */
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  /**
+   * Stop the background flushes and write the pending entities.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    flusher.shutdown();
+    flush();
+  }
+
+  private void scheduleFlush() {
+    if (flushScheduled.compareAndSet(false, true)) {
+      try {
+        flusher.execute(() -> {
+          flushScheduled.set(false);
+          flushQuietly();
+        });
+      } catch (final RejectedExecutionException e) {
+        flushScheduled.set(false);
+      }
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (final RuntimeException e) {
+      LOGGER.log(ERROR, e.getLocalizedMessage(), e);
+    }
+  }
+
+  private List<T> takeBatch() {
+    final List<T> batch = new ArrayList<>(Math.min(pending.size(), config.getBatchSize()));
+    for (final Object id : pending.keySet()) {
+      if (batch.size() == config.getBatchSize()) {
+        break;
+      }
+      Optional.ofNullable(pending.remove(id)).ifPresent(batch::add);
+    }
+    return batch;
+  }
+
+  /**
+   * Put the entities of a failed batch back, unless a newer
+   * state of the same id was saved meanwhile.
+   */
+  private void requeue(final List<T> batch) {
+    for (final T entity : batch) {
+      if (pending.putIfAbsent(getIdColumnValue(entity), entity) != null) {
+        capacity.release();
+      }
+    }
+  }
+}
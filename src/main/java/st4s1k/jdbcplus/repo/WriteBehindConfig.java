@@ -0,0 +1,97 @@
+package st4s1k.jdbcplus.repo;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Thresholds of a {@link WriteBehindBuffer}.
+ * <p>
+ * Configurations are immutable: every setter returns a new
+ * configuration, starting from {@link #of()}.
+ */
+public final class WriteBehindConfig {
+
+  private int batchSize = 500;
+  private Duration flushInterval = Duration.ofMillis(200);
+  private int capacity = 10_000;
+
+  private WriteBehindConfig() {
+  }
+
+  private WriteBehindConfig(final WriteBehindConfig other) {
+    this.batchSize = other.batchSize;
+    this.flushInterval = other.flushInterval;
+    this.capacity = other.capacity;
+  }
+
+  /**
+   * Create a configuration with the default settings: batches of
+   * 500 entities, flushed every 200 milliseconds, and at most
+   * 10,000 pending entities.
+   *
+   * @return write-behind configuration
+   */
+  public static WriteBehindConfig of() {
+    return new WriteBehindConfig();
+  }
+
+  /**
+   * Set the number of pending entities that triggers a flush,
+   * which is also the size of the batches written.
+   *
+   * @param batchSize entities per batch
+   * @return new write-behind configuration
+   */
+  public WriteBehindConfig batchSize(final int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be at least 1");
+    }
+    final WriteBehindConfig config = new WriteBehindConfig(this);
+    config.batchSize = batchSize;
+    return config;
+  }
+
+  /**
+   * Set the longest time a pending entity waits to be written.
+   *
+   * @param flushInterval interval between two flushes
+   * @return new write-behind configuration
+   */
+  public WriteBehindConfig flushInterval(final Duration flushInterval) {
+    if (flushInterval.isNegative() || flushInterval.isZero()) {
+      throw new IllegalArgumentException("flushInterval must be positive");
+    }
+    final WriteBehindConfig config = new WriteBehindConfig(this);
+    config.flushInterval = requireNonNull(flushInterval);
+    return config;
+  }
+
+  /**
+   * Set the maximum number of pending entities: once reached,
+   * saving a new entity waits for a flush to make room.
+   *
+   * @param capacity maximum number of pending entities
+   * @return new write-behind configuration
+   */
+  public WriteBehindConfig capacity(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1");
+    }
+    final WriteBehindConfig config = new WriteBehindConfig(this);
+    config.capacity = capacity;
+    return config;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public Duration getFlushInterval() {
+    return flushInterval;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+}
@@ -212,6 +212,19 @@ public class EntityUtils {
     ));
   }
 
+  public static boolean isCascaded(final Field field) {
+    if (field.isAnnotationPresent(OneToOne.class)) {
+      return field.getAnnotation(OneToOne.class).cascade();
+    } else if (field.isAnnotationPresent(ManyToOne.class)) {
+      return field.getAnnotation(ManyToOne.class).cascade();
+    } else if (field.isAnnotationPresent(OneToMany.class)) {
+      return field.getAnnotation(OneToMany.class).cascade();
+    } else if (field.isAnnotationPresent(ManyToMany.class)) {
+      return field.getAnnotation(ManyToMany.class).cascade();
+    }
+    return false;
+  }
+
   public static Class<?> getObjectOrCollectionType(final Field field) {
     final Class<?> fieldType = field.getType();
     if (Collection.class.isAssignableFrom(fieldType)) {
@@ -275,7 +288,14 @@ public class EntityUtils {
     return fields;
   }
 
-  // TODO: Implement *ToMany fields' population on select
+  /**
+   * Get all the {@link OneToMany} and {@link ManyToMany} fields.
+   * These are populated on select only when requested by a
+   * {@link st4s1k.jdbcplus.fetch.FetchPlan}.
+   *
+   * @param clazz entity class
+   * @return to-many fields
+   */
   public static Field[] getToManyFields(final Class<?> clazz) {
     return concatenateArrays(
         Field.class,
@@ -1,10 +1,15 @@
 package st4s1k.jdbcplus.utils;
 
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.UnaryOperator;
 
 import static java.lang.Character.isLowerCase;
 import static java.lang.Character.isUpperCase;
+import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.ERROR;
 
 public class JdbcPlusUtils {
@@ -70,6 +75,21 @@ public class JdbcPlusUtils {
     return postProcess.apply(result.toString());
   }
 
+  /**
+   * Get the wrapper type of a primitive type,
+   * or the type itself if it is not primitive.
+   *
+   * @param clazz the type
+   * @return wrapper type
+   */
+  @SuppressWarnings("unchecked")
+  public static <X> Class<X> toWrapperType(final Class<X> clazz) {
+    if (!clazz.isPrimitive()) {
+      return clazz;
+    }
+    return (Class<X>) MethodType.methodType(clazz).wrap().returnType();
+  }
+
   /**
    * This method accepts a class object (type) as a parameter and
    * returns an instance of that class.
@@ -86,4 +106,26 @@ public class JdbcPlusUtils {
       return null;
     }
   }
+
+  /**
+   * Create an executor with one virtual thread per task, where the
+   * runtime supports them, otherwise a bounded pool of daemon threads.
+   *
+   * @param maxConcurrency number of threads of the bounded pool
+   * @return new executor, to be shut down by the caller
+   */
+  public static ExecutorService newDefaultExecutor(final int maxConcurrency) {
+    try {
+      final Method newVirtualThreadPerTaskExecutor =
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+    } catch (final ReflectiveOperationException e) {
+      LOGGER.log(DEBUG, "Virtual threads not supported, using a bounded pool");
+      return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+        final Thread thread = new Thread(runnable, "jdbcplus-async");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
 }
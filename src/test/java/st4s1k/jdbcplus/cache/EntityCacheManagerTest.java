@@ -0,0 +1,38 @@
+package st4s1k.jdbcplus.cache;
+
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.repo.Entity7;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityCacheManagerTest {
+
+  @Test
+  void testPutWithTheCurrentVersionCachesTheRow() {
+    // Given
+    final var manager = new EntityCacheManager();
+    final long version = manager.getVersion(Entity7.class);
+
+    // When
+    manager.put(Entity7.class, 1, new Object[]{1, "name1"}, version);
+
+    // Then
+    assertThat(manager.getCache(Entity7.class).orElseThrow().get(1))
+        .hasValueSatisfying(row -> assertThat(row).containsExactly(1, "name1"));
+  }
+
+  @Test
+  void testRowReadBeforeAnInvalidationIsNotCached() {
+    // Given
+    final var manager = new EntityCacheManager();
+    final long version = manager.getVersion(Entity7.class);
+    manager.invalidate(Entity7.class, 1);
+
+    // When
+    manager.put(Entity7.class, 1, new Object[]{1, "stale"}, version);
+
+    // Then
+    assertThat(manager.getCache(Entity7.class).orElseThrow().get(1)).isEmpty();
+    assertThat(manager.getVersion(Entity7.class)).isNotEqualTo(version);
+  }
+}
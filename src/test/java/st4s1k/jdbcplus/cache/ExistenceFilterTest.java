@@ -0,0 +1,82 @@
+package st4s1k.jdbcplus.cache;
+
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.repo.Entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExistenceFilterTest {
+
+  @Test
+  void testMightExistIsTrueUntilReady() {
+    // Given
+    final var existenceFilter = new ExistenceFilter(Entity.class, 1_000, 0.01, 100);
+
+    // When
+    final var beforeReady = existenceFilter.mightExist(1);
+    existenceFilter.markReady();
+    final var afterReady = existenceFilter.mightExist(1);
+
+    // Then
+    assertThat(beforeReady).isTrue();
+    assertThat(afterReady).isFalse();
+  }
+
+  @Test
+  void testRecordedIdsAlwaysMightExist() {
+    // Given
+    final var existenceFilter = new ExistenceFilter(Entity.class, 10_000, 0.01, 100);
+    existenceFilter.markReady();
+
+    // When
+    for (int id = 0; id < 10_000; id++) {
+      existenceFilter.recordPresent(id);
+    }
+
+    // Then
+    int falsePositives = 0;
+    for (int id = 0; id < 10_000; id++) {
+      assertThat(existenceFilter.mightExist(id)).isTrue();
+      if (existenceFilter.mightExist(id + 10_000)) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(200);
+  }
+
+  @Test
+  void testRecordAbsentOverridesBloomFilter() {
+    // Given
+    final var existenceFilter = new ExistenceFilter(Entity.class, 1_000, 0.01, 100);
+    existenceFilter.markReady();
+    existenceFilter.recordPresent(1);
+
+    // When
+    existenceFilter.recordAbsent(1);
+
+    // Then
+    assertThat(existenceFilter.mightExist(1)).isFalse();
+
+    // When
+    existenceFilter.recordPresent(1);
+
+    // Then
+    assertThat(existenceFilter.mightExist(1)).isTrue();
+  }
+
+  @Test
+  void testRecordMissIsIgnoredAfterConcurrentInsert() {
+    // Given
+    final var existenceFilter = new ExistenceFilter(Entity.class, 1_000, 0.01, 100);
+    existenceFilter.markReady();
+    existenceFilter.recordPresent(2);
+    final var generation = existenceFilter.getGeneration();
+    existenceFilter.recordPresent(1);
+
+    // When
+    existenceFilter.recordMiss(2, generation);
+
+    // Then
+    assertThat(existenceFilter.mightExist(2)).isTrue();
+  }
+}
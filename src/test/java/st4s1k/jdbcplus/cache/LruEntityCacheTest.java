@@ -0,0 +1,90 @@
+package st4s1k.jdbcplus.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruEntityCacheTest {
+
+  @Test
+  void testGetReturnsCopyOfPutRow() {
+    // Given
+    final var cache = new LruEntityCache(10, 0, TimeUnit.SECONDS);
+    final Object[] row = {1, "SomeEntity"};
+    cache.put(1, row);
+    row[1] = "Changed";
+
+    // When
+    final var result = cache.get(1);
+
+    // Then
+    assertThat(result).hasValueSatisfying(r -> assertThat(r).containsExactly(1, "SomeEntity"));
+    assertThat(cache.get(2)).isEmpty();
+    assertThat(cache.getStats().getHitCount()).isEqualTo(1);
+    assertThat(cache.getStats().getMissCount()).isEqualTo(1);
+    assertThat(cache.getStats().getHitRatio()).isEqualTo(0.5);
+  }
+
+  @Test
+  void testPutEvictsLeastRecentlyUsedRow() {
+    // Given
+    final var cache = new LruEntityCache(2, 0, TimeUnit.SECONDS);
+    cache.put(1, new Object[]{1});
+    cache.put(2, new Object[]{2});
+    cache.get(1);
+
+    // When
+    cache.put(3, new Object[]{3});
+
+    // Then
+    assertThat(cache.get(1)).isPresent();
+    assertThat(cache.get(2)).isEmpty();
+    assertThat(cache.get(3)).isPresent();
+    assertThat(cache.getStats().getEvictionCount()).isEqualTo(1);
+    assertThat(cache.getStats().getSize()).isEqualTo(2);
+  }
+
+  @Test
+  void testGetExpiresRowAfterTtl() {
+    // Given
+    final var now = new AtomicLong();
+    final var cache = new LruEntityCache(10, 5, TimeUnit.SECONDS, now::get);
+    cache.put(1, new Object[]{1});
+    now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+
+    // When
+    final var beforeTtl = cache.get(1);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    final var afterTtl = cache.get(1);
+
+    // Then
+    assertThat(beforeTtl).isPresent();
+    assertThat(afterTtl).isEmpty();
+    assertThat(cache.getStats().getExpirationCount()).isEqualTo(1);
+    assertThat(cache.getStats().getSize()).isZero();
+  }
+
+  @Test
+  void testInvalidate() {
+    // Given
+    final var cache = new LruEntityCache(10, 0, TimeUnit.SECONDS);
+    cache.put(1, new Object[]{1});
+    cache.put(2, new Object[]{2});
+
+    // When
+    cache.invalidate(1);
+
+    // Then
+    assertThat(cache.get(1)).isEmpty();
+    assertThat(cache.get(2)).isPresent();
+
+    // When
+    cache.invalidateAll();
+
+    // Then
+    assertThat(cache.get(2)).isEmpty();
+  }
+}
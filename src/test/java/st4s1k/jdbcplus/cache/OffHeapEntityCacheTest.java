@@ -0,0 +1,132 @@
+package st4s1k.jdbcplus.cache;
+
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.annotations.Cacheable;
+import st4s1k.jdbcplus.repo.Entity7;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapEntityCacheTest {
+
+  @Test
+  void testGetReturnsDeserializedRow() {
+    // Given
+    final var cache = new OffHeapEntityCache(1 << 12, 1 << 10, 0, TimeUnit.SECONDS);
+    final var timestamp = new Timestamp(1_000);
+    timestamp.setNanos(123_456_789);
+    final Object[] row = {
+        1L, "\u00dcn\u00efcode", null, 2, true, 1.5, new BigDecimal("10.25"), timestamp,
+        LocalDate.of(2020, 1, 2), LocalDateTime.of(2020, 1, 2, 3, 4, 5, 6), new UUID(1, 2)
+    };
+    cache.put(1L, row);
+
+    // When
+    final var result = cache.get(1);
+
+    // Then
+    assertThat(result).hasValueSatisfying(r -> assertThat(r).containsExactly(row));
+    assertThat(cache.get(2)).isEmpty();
+    assertThat(cache.getStats().getHitCount()).isEqualTo(1);
+    assertThat(cache.getStats().getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testPutReplacesRowOfSameId() {
+    // Given
+    final var cache = new OffHeapEntityCache(1 << 12, 1 << 10, 0, TimeUnit.SECONDS);
+    cache.put(1, new Object[]{1, "old"});
+
+    // When
+    cache.put(1, new Object[]{1, "new"});
+
+    // Then
+    assertThat(cache.get(1)).hasValueSatisfying(r -> assertThat(r).containsExactly(1, "new"));
+    assertThat(cache.getStats().getSize()).isEqualTo(1);
+  }
+
+  @Test
+  void testPutRecyclesOldestSlabWhenFull() {
+    // Given
+    final var cache = new OffHeapEntityCache(256, 128, 0, TimeUnit.SECONDS);
+    for (int id = 0; id < 20; id++) {
+      cache.put(id, new Object[]{id, "entity" + id});
+    }
+
+    // When
+    final var oldest = cache.get(0);
+    final var newest = cache.get(19);
+
+    // Then
+    assertThat(oldest).isEmpty();
+    assertThat(newest).hasValueSatisfying(r -> assertThat(r).containsExactly(19, "entity19"));
+    assertThat(cache.getStats().getEvictionCount()).isPositive();
+    assertThat(cache.getStats().getSize() + cache.getStats().getEvictionCount()).isEqualTo(20);
+  }
+
+  @Test
+  void testPutIgnoresRowsWithoutBinaryFormat() {
+    // Given
+    final var cache = new OffHeapEntityCache(1 << 12, 1 << 10, 0, TimeUnit.SECONDS);
+    cache.put(1, new Object[]{1, "old"});
+
+    // When
+    cache.put(1, new Object[]{1, new Object()});
+
+    // Then
+    assertThat(cache.get(1)).isEmpty();
+  }
+
+  @Test
+  void testGetExpiresRowAfterTtl() {
+    // Given
+    final var now = new AtomicLong();
+    final var cache = new OffHeapEntityCache(1 << 12, 1 << 10, 5, TimeUnit.SECONDS, now::get);
+    cache.put(1, new Object[]{1});
+    now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+    // When
+    final var result = cache.get(1);
+
+    // Then
+    assertThat(result).isEmpty();
+    assertThat(cache.getStats().getExpirationCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testInvalidateKeepsOtherRowsReachable() {
+    // Given
+    final var cache = new OffHeapEntityCache(1 << 20, 1 << 16, 0, TimeUnit.SECONDS);
+    for (long id = 0; id < 10_000; id++) {
+      cache.put(id, new Object[]{id});
+    }
+
+    // When
+    for (long id = 0; id < 10_000; id += 2) {
+      cache.invalidate(id);
+    }
+
+    // Then
+    for (long id = 0; id < 10_000; id++) {
+      assertThat(cache.get(id).isPresent()).isEqualTo(id % 2 == 1);
+    }
+    assertThat(cache.getStats().getSize()).isEqualTo(5_000);
+  }
+
+  @Test
+  void testProviderCreatesOffHeapCacheForNumericIds() {
+    // When
+    final var cache = OffHeapEntityCache.provider(1 << 22)
+        .create(Entity7.class, Entity7.class.getAnnotation(Cacheable.class));
+
+    // Then
+    assertThat(cache).isInstanceOf(OffHeapEntityCache.class);
+  }
+}
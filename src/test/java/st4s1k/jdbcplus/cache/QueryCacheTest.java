@@ -0,0 +1,94 @@
+package st4s1k.jdbcplus.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCacheTest {
+
+  private QueryCache queryCache;
+
+  @BeforeEach
+  void setUp() {
+    queryCache = new QueryCache(2);
+    queryCache.setEnabled(true);
+  }
+
+  @Test
+  void testGetReturnsRowsOfEqualKey() {
+    // Given
+    final var key = key("entities", "name", "a");
+    final var sameKey = key("entities", "name", "a");
+    final var otherKey = key("entities", "name", "b");
+    queryCache.put(key, List.<Object[]>of(new Object[]{1, "a"}), queryCache.getVersion(key));
+
+    // When
+    final var result = queryCache.get(sameKey);
+
+    // Then
+    assertThat(result).hasValueSatisfying(rows -> assertThat(rows).hasSize(1));
+    assertThat(queryCache.get(otherKey)).isEmpty();
+    assertThat(queryCache.getStats().getHitRatio()).isEqualTo(0.5);
+    assertThat(queryCache.getMemoryUsage()).isPositive();
+  }
+
+  @Test
+  void testInvalidateTableDropsOnlyQueriesReadingTheTable() {
+    // Given
+    final var key = key("entities", "name", "a");
+    final var otherKey = key("entity1s", "name", "a");
+    queryCache.put(key, List.of(), queryCache.getVersion(key));
+    queryCache.put(otherKey, List.of(), queryCache.getVersion(otherKey));
+
+    // When
+    queryCache.invalidateTable("entities");
+
+    // Then
+    assertThat(queryCache.get(key)).isEmpty();
+    assertThat(queryCache.get(otherKey)).isPresent();
+  }
+
+  @Test
+  void testPutIgnoresResultReadBeforeInvalidation() {
+    // Given
+    final var key = key("entities", "name", "a");
+    final var version = queryCache.getVersion(key);
+    queryCache.invalidateTable("entities");
+
+    // When
+    queryCache.put(key, List.of(), version);
+
+    // Then
+    assertThat(queryCache.get(key)).isEmpty();
+  }
+
+  @Test
+  void testPutEvictsLeastRecentlyUsedQuery() {
+    // Given
+    final var first = key("entities", "id", 1);
+    final var second = key("entities", "id", 2);
+    final var third = key("entities", "id", 3);
+    queryCache.put(first, List.of(), queryCache.getVersion(first));
+    queryCache.put(second, List.of(), queryCache.getVersion(second));
+
+    // When
+    queryCache.put(third, List.of(), queryCache.getVersion(third));
+
+    // Then
+    assertThat(queryCache.get(first)).isEmpty();
+    assertThat(queryCache.getStats().getEvictionCount()).isEqualTo(1);
+    assertThat(queryCache.getStats().getSize()).isEqualTo(2);
+  }
+
+  private static QueryKey key(final String table, final String column, final Object value) {
+    return QueryKey.of(
+        String.format("select * from %s where %s = ?", table, column),
+        new Object[]{value},
+        Set.of(table)
+    );
+  }
+}
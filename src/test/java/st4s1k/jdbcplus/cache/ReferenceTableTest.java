@@ -0,0 +1,134 @@
+package st4s1k.jdbcplus.cache;
+
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.repo.Entity8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReferenceTableTest {
+
+  private static final String[] COLUMNS = {"id", "code", "name"};
+
+  private final List<Object[]> rows = new ArrayList<>(List.of(
+      new Object[]{1, "MD", "Moldova"},
+      new Object[]{2, "RO", "Romania"},
+      new Object[]{3, "RO", "Romania, again"}
+  ));
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicBoolean failing = new AtomicBoolean();
+
+  private ReferenceTable referenceTable(final long refreshSeconds) {
+    return new ReferenceTable(
+        Entity8.class,
+        COLUMNS,
+        "id",
+        new String[]{"code"},
+        () -> {
+          if (failing.get()) {
+            throw new IllegalStateException("database down");
+          }
+          return List.copyOf(rows);
+        },
+        refreshSeconds,
+        TimeUnit.SECONDS,
+        now::get
+    );
+  }
+
+  @Test
+  void testSnapshotAnswersLookups() {
+    // Given
+    final var referenceTable = referenceTable(0);
+
+    // When
+    final var snapshot = referenceTable.getSnapshot().orElseThrow();
+
+    // Then
+    assertThat(snapshot.findAll()).hasSize(3);
+    assertThat(snapshot.findById(2L)).hasValueSatisfying(row -> assertThat(row[1]).isEqualTo("RO"));
+    assertThat(snapshot.findById(4)).isEmpty();
+    assertThat(snapshot.findByColumn("code", "RO")).extracting(row -> row[0]).containsExactly(2, 3);
+    assertThat(snapshot.findByColumn("name", "Moldova"))
+        .extracting(row -> row[0])
+        .containsExactly(1);
+    assertThat(snapshot.findByColumn("id", 1)).hasSize(1);
+    assertThat(snapshot.findByColumn("missing", 1)).isEmpty();
+    assertThat(referenceTable.getLoadCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testInvalidateReloadsOnNextRead() {
+    // Given
+    final var referenceTable = referenceTable(0);
+    final var before = referenceTable.getSnapshot().orElseThrow();
+    rows.add(new Object[]{4, "UA", "Ukraine"});
+
+    // When
+    final var unchanged = referenceTable.getSnapshot().orElseThrow();
+    referenceTable.invalidate();
+    final var after = referenceTable.getSnapshot().orElseThrow();
+
+    // Then
+    assertThat(unchanged).isSameAs(before);
+    assertThat(before.findByColumn("code", "UA")).isEmpty();
+    assertThat(after.findByColumn("code", "UA")).hasSize(1);
+    assertThat(referenceTable.getLoadCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testSnapshotIsRefreshedAfterRefreshPeriod() {
+    // Given
+    final var referenceTable = referenceTable(60);
+    final var before = referenceTable.getSnapshot().orElseThrow();
+
+    // When
+    now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+    final var fresh = referenceTable.getSnapshot().orElseThrow();
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    final var refreshed = referenceTable.getSnapshot().orElseThrow();
+
+    // Then
+    assertThat(fresh).isSameAs(before);
+    assertThat(refreshed).isNotSameAs(before);
+  }
+
+  @Test
+  void testFailedRefreshKeepsThePreviousSnapshot() {
+    // Given
+    final var referenceTable = referenceTable(0);
+    final var before = referenceTable.getSnapshot().orElseThrow();
+    rows.add(new Object[]{4, "UA", "Ukraine"});
+    referenceTable.invalidate();
+    failing.set(true);
+
+    // When
+    final var duringFailure = referenceTable.getSnapshot();
+    failing.set(false);
+    final var afterRecovery = referenceTable.getSnapshot().orElseThrow();
+
+    // Then
+    assertThat(duringFailure).containsSame(before);
+    assertThat(afterRecovery.findByColumn("code", "UA")).hasSize(1);
+    assertThat(referenceTable.getLoadCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testFailedFirstLoadReturnsNoSnapshot() {
+    // Given
+    final var referenceTable = referenceTable(0);
+    failing.set(true);
+
+    // When
+    final var snapshot = referenceTable.getSnapshot();
+
+    // Then
+    assertThat(snapshot).isEmpty();
+    assertThat(referenceTable.getLoadCount()).isZero();
+  }
+}
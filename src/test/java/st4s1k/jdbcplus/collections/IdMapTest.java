@@ -0,0 +1,63 @@
+package st4s1k.jdbcplus.collections;
+
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.repo.Entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdMapTest {
+
+  @Test
+  void testIntegralIdsMatchAcrossBoxedTypes() {
+    // Given
+    final IdMap<String> map = IdMap.forEntity(Entity.class);
+    map.put(1, "a");
+
+    // When
+    final var byLong = map.get(1L);
+    final var byShort = map.get((short) 1);
+
+    // Then
+    assertThat(byLong).isEqualTo("a");
+    assertThat(byShort).isEqualTo("a");
+  }
+
+  @Test
+  void testIdsOutsidePrimitiveRangeAreKept() {
+    // Given
+    final IdMap<String> map = IdMap.forIdType(int.class);
+
+    // When
+    map.put(Long.MAX_VALUE, "a");
+    map.put("key", "b");
+    map.put(null, "c");
+
+    // Then
+    assertThat(map.get(Long.MAX_VALUE)).isEqualTo("a");
+    assertThat(map.get("key")).isEqualTo("b");
+    assertThat(map.get(null)).isEqualTo("c");
+    assertThat(map.size()).isEqualTo(3);
+  }
+
+  @Test
+  void testRemoveAndClear() {
+    // Given
+    final IdMap<String> map = IdMap.forIdType(Long.class);
+    map.put(1L, "a");
+    map.put(2L, "b");
+
+    // When
+    final var removed = map.remove(1);
+
+    // Then
+    assertThat(removed).isEqualTo("a");
+    assertThat(map.putIfAbsent(2L, "c")).isEqualTo("b");
+    assertThat(map.size()).isEqualTo(1);
+
+    // When
+    map.clear();
+
+    // Then
+    assertThat(map.isEmpty()).isTrue();
+  }
+}
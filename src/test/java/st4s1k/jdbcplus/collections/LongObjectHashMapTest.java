@@ -0,0 +1,55 @@
+package st4s1k.jdbcplus.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongObjectHashMapTest {
+
+  @Test
+  void testPutGetRemove() {
+    // Given
+    final var map = new LongObjectHashMap<String>();
+
+    // When
+    final var previous = map.put(1L, "a");
+    final var replaced = map.put(1L, "b");
+    final var kept = map.putIfAbsent(1L, "c");
+    map.put(-1L, "d");
+    final var removed = map.remove(1L);
+
+    // Then
+    assertThat(previous).isNull();
+    assertThat(replaced).isEqualTo("a");
+    assertThat(kept).isEqualTo("b");
+    assertThat(removed).isEqualTo("b");
+    assertThat(map.get(1L)).isNull();
+    assertThat(map.get(-1L)).isEqualTo("d");
+    assertThat(map.size()).isEqualTo(1);
+  }
+
+  @Test
+  void testMatchesHashMapUnderRandomOperations() {
+    // Given
+    final var random = new Random(42);
+    final var map = new LongObjectHashMap<Long>();
+    final var expected = new HashMap<Long, Long>();
+
+    // When
+    for (int i = 0; i < 100_000; i++) {
+      final long key = random.nextInt(2_000) * 1_024L;
+      if (random.nextBoolean()) {
+        assertThat(map.put(key, key)).isEqualTo(expected.put(key, key));
+      } else {
+        assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+      }
+    }
+
+    // Then
+    assertThat(map.size()).isEqualTo(expected.size());
+    map.forEach((key, value) -> assertThat(expected.get(key)).isEqualTo(value));
+  }
+}
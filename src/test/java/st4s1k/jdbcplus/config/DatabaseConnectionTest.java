@@ -10,6 +10,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import st4s1k.jdbcplus.DatabaseConnectionTestUtils;
 import st4s1k.jdbcplus.exceptions.InstanceAlreadyInitializedException;
 import st4s1k.jdbcplus.exceptions.InstanceNotInitializedException;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
 
 import javax.sql.DataSource;
 import java.lang.reflect.InvocationTargetException;
@@ -17,6 +18,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import static java.lang.System.Logger.Level.ERROR;
@@ -116,7 +118,6 @@ class DatabaseConnectionTest {
 
   @Test
   void testQueryTransaction() throws SQLException {
-    doNothing().when(connection).setAutoCommit(false);
     doNothing().when(connection).commit();
 
     when(dataSource.getConnection()).thenReturn(connection);
@@ -179,7 +180,6 @@ class DatabaseConnectionTest {
 
   @Test
   void testQueryTransactionOptional() throws SQLException {
-    doNothing().when(connection).setAutoCommit(false);
     doNothing().when(connection).commit();
 
     when(dataSource.getConnection()).thenReturn(connection);
@@ -195,4 +195,152 @@ class DatabaseConnectionTest {
 
     assertThat(actualResult).hasValue(expectedResult);
   }
+
+  @Test
+  void testInTransactionReusesOneConnectionAndCommitsOnce() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.createStatement()).thenReturn(statement);
+
+    DatabaseConnection.init(dataSource);
+
+    final var databaseConnection = DatabaseConnection.getInstance();
+    final var committed = new AtomicBoolean();
+    final var result = databaseConnection.inTransaction(db -> {
+      db.updateTransaction(QUERY);
+      db.updateTransaction(QUERY);
+      db.afterCommit(() -> committed.set(true));
+      assertThat(committed).isFalse();
+      return db.isInTransaction();
+    });
+
+    assertThat(result).isTrue();
+    assertThat(committed).isTrue();
+    assertThat(databaseConnection.isInTransaction()).isFalse();
+    verify(dataSource).getConnection();
+    verify(statement, times(2)).executeUpdate(QUERY);
+    verify(connection).commit();
+    verify(connection).setAutoCommit(true);
+    verify(connection).close();
+  }
+
+  @Test
+  void testInTransactionWhenStatementFailsThenRollbackAndThrow() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeUpdate(QUERY)).thenThrow(SQLException.class);
+
+    DatabaseConnection.init(dataSource);
+
+    final var databaseConnection = DatabaseConnection.getInstance();
+    final var rolledBack = new AtomicBoolean();
+
+    assertThrows(
+        JdbcPlusException.class,
+        () -> databaseConnection.inTransaction(() -> {
+          databaseConnection.afterRollback(() -> rolledBack.set(true));
+          databaseConnection.updateTransaction(QUERY);
+        })
+    );
+
+    assertThat(rolledBack).isTrue();
+    verify(connection).rollback();
+    verify(connection, never()).commit();
+    verify(connection).close();
+  }
+
+  @Test
+  void testInTransactionWhenWorkThrowsErrorThenRollbackBeforeRestoringAutoCommit()
+      throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.createStatement()).thenReturn(statement);
+
+    DatabaseConnection.init(dataSource);
+
+    final var databaseConnection = DatabaseConnection.getInstance();
+
+    assertThrows(
+        AssertionError.class,
+        () -> databaseConnection.inTransaction(() -> {
+          databaseConnection.updateTransaction(QUERY);
+          throw new AssertionError("work failed");
+        })
+    );
+
+    final var inOrder = inOrder(connection);
+    inOrder.verify(connection).setAutoCommit(false);
+    inOrder.verify(connection).rollback();
+    inOrder.verify(connection).setAutoCommit(true);
+    inOrder.verify(connection).close();
+    verify(connection, never()).commit();
+  }
+
+  @Test
+  void testQueryTransactionInAutoCommitModeDoesNotToggleOrCommit() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(eq(QUERY))).thenReturn(resultSet);
+
+    DatabaseConnection.init(dataSource);
+
+    final var databaseConnection = DatabaseConnection.getInstance();
+    final var firstResult = databaseConnection.queryTransaction(QUERY, r -> 1, () -> 0);
+    final var secondResult = databaseConnection.queryTransaction(QUERY, r -> 2, () -> 0);
+
+    assertThat(firstResult).isEqualTo(1);
+    assertThat(secondResult).isEqualTo(2);
+    verify(connection, never()).isReadOnly();
+    verify(connection, never()).setReadOnly(anyBoolean());
+    verify(connection, never()).setAutoCommit(anyBoolean());
+    verify(connection, never()).commit();
+    verify(connection, never()).rollback();
+  }
+
+  @Test
+  void testQueryTransactionWithReadOnlyHintRestoresIt() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(eq(QUERY))).thenReturn(resultSet);
+
+    DatabaseConnection.init(dataSource);
+
+    final var databaseConnection = DatabaseConnection.getInstance();
+    databaseConnection.setReadOptions(TransactionOptions.read());
+    final var actualResult = databaseConnection.queryTransaction(QUERY, r -> 1, () -> 0);
+
+    assertThat(actualResult).isEqualTo(1);
+    final var inOrder = inOrder(connection, statement);
+    inOrder.verify(connection).setReadOnly(true);
+    inOrder.verify(statement).executeQuery(QUERY);
+    inOrder.verify(connection).setReadOnly(false);
+    verify(connection, never()).commit();
+  }
+
+  @Test
+  void testUpdateTransactionWithIsolationRestoresConnectionSettings() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(true);
+    when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+    when(connection.createStatement()).thenReturn(statement);
+
+    DatabaseConnection.init(dataSource);
+
+    final var databaseConnection = DatabaseConnection.getInstance();
+    databaseConnection.updateTransaction(
+        QUERY,
+        TransactionOptions.write().withIsolation(Connection.TRANSACTION_SERIALIZABLE)
+    );
+
+    final var inOrder = inOrder(connection, statement);
+    inOrder.verify(connection).setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    inOrder.verify(connection).setAutoCommit(false);
+    inOrder.verify(statement).executeUpdate(QUERY);
+    inOrder.verify(connection).commit();
+    inOrder.verify(connection).setAutoCommit(true);
+    inOrder.verify(connection).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    verify(connection, never()).setReadOnly(anyBoolean());
+  }
 }
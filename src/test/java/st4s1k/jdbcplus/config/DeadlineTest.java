@@ -0,0 +1,98 @@
+package st4s1k.jdbcplus.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.exceptions.DeadlineExceededException;
+import st4s1k.jdbcplus.pool.JdbcPlusPool;
+import st4s1k.jdbcplus.pool.PoolConfig;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class DeadlineTest {
+
+  @Test
+  void testNestedDeadlineKeepsTheEarliestExpiry() {
+    // Given
+    final Deadline outer = Deadline.after(Duration.ofSeconds(1));
+
+    // When
+    final Deadline nested = outer.call(() -> Deadline.after(Duration.ofMinutes(1))
+        .call(() -> Deadline.current().orElseThrow()));
+
+    // Then
+    assertThat(nested.remaining()).isLessThanOrEqualTo(Duration.ofSeconds(1));
+    assertThat(Deadline.current()).isEmpty();
+  }
+
+  @Test
+  void testCancelCancelsTheStatementsInFlight() throws SQLException {
+    // Given
+    final Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+    final Statement statement = mock(Statement.class);
+    deadline.register(statement);
+
+    // When
+    deadline.cancel();
+
+    // Then
+    verify(statement).setQueryTimeout(60);
+    verify(statement).cancel();
+    assertThatThrownBy(deadline::check).isInstanceOf(DeadlineExceededException.class);
+  }
+
+  @Test
+  void testExpiredCallFailsBeforeAcquiringAConnection() throws SQLException {
+    // Given
+    final DataSource dataSource = mock(DataSource.class);
+    final DatabaseConnection databaseConnection = DatabaseConnection.of(dataSource);
+
+    // When
+    assertThatThrownBy(() -> Deadline.after(Duration.ofMillis(1)).run(() -> {
+      sleep(Duration.ofMillis(10));
+      databaseConnection.updateTransaction("delete from entity1s");
+    })).isInstanceOf(DeadlineExceededException.class);
+
+    // Then
+    verify(dataSource, never()).getConnection();
+  }
+
+  @Test
+  void testWaitForAPooledConnectionIsBoundedByTheQueryTimeout() throws SQLException {
+    // Given
+    final var dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:deadline;DB_CLOSE_DELAY=-1");
+    final var pool = new JdbcPlusPool(PoolConfig.of(dataSource).maximumPoolSize(1));
+    final DatabaseConnection databaseConnection = DatabaseConnection.of(pool);
+    databaseConnection.setQueryTimeout(Duration.ofMillis(200));
+    final long start = System.nanoTime();
+
+    // When
+    try (final Connection ignored = pool.getConnection()) {
+      assertThatThrownBy(() -> databaseConnection.queryTransaction("select 1", r -> 1))
+          .isInstanceOf(DeadlineExceededException.class);
+    } finally {
+      pool.close();
+    }
+
+    // Then
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+  }
+
+  private static void sleep(final Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package st4s1k.jdbcplus.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class GroupCommitTest {
+
+  private static final int WRITERS = 8;
+
+  private JdbcDataSource dataSource;
+  private DatabaseConnection databaseConnection;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    final var h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:groupcommit;DB_CLOSE_DELAY=-1");
+    dataSource = spy(h2);
+    databaseConnection = DatabaseConnection.of(dataSource);
+    databaseConnection.updateTransaction("create table events(id int primary key)");
+    databaseConnection.updateTransaction("insert into events(id) values (0)");
+    executor = Executors.newFixedThreadPool(WRITERS);
+    clearInvocations(dataSource);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+    databaseConnection.setGroupCommitConfig(null);
+    databaseConnection.updateTransaction("drop table events");
+  }
+
+  @Test
+  void testConcurrentUpdatesAreCommittedTogether() throws Exception {
+    // Given
+    databaseConnection.setGroupCommitConfig(GroupCommitConfig.of(Duration.ofSeconds(1))
+        .maxGroupSize(WRITERS));
+
+    // When
+    write(1, 2, 3, 4, 5, 6, 7, 8);
+
+    // Then
+    verify(dataSource, atMost(WRITERS / 2)).getConnection();
+    assertThat(countEvents()).isEqualTo(WRITERS + 1);
+  }
+
+  @Test
+  void testFailingUpdateIsRetriedAloneAndTheOthersAreCommitted() throws Exception {
+    // Given
+    databaseConnection.setGroupCommitConfig(GroupCommitConfig.of(Duration.ofSeconds(1))
+        .maxGroupSize(3));
+
+    // When
+    write(1, 0, 2);
+
+    // Then
+    assertThat(countEvents()).isEqualTo(3);
+  }
+
+  private void write(final int... ids) throws Exception {
+    final List<CompletableFuture<Void>> writes = new ArrayList<>();
+    for (final int id : ids) {
+      writes.add(CompletableFuture.runAsync(
+          () -> databaseConnection.updateTransaction("insert into events(id) values (" + id + ")"),
+          executor
+      ));
+    }
+    CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+  }
+
+  private int countEvents() {
+    databaseConnection.setGroupCommitConfig(null);
+    return databaseConnection.queryTransaction("select count(*) from events", resultSet -> {
+      try {
+        return resultSet.next() ? resultSet.getInt(1) : 0;
+      } catch (SQLException e) {
+        throw new IllegalStateException(e);
+      }
+    }).orElse(0);
+  }
+}
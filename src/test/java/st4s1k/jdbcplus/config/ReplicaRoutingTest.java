@@ -0,0 +1,124 @@
+package st4s1k.jdbcplus.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReplicaRoutingTest {
+
+  private final List<DatabaseConnection> databases = new ArrayList<>();
+  private DatabaseConnection primary;
+  private DataSource firstReplica;
+  private DataSource secondReplica;
+
+  @BeforeEach
+  void setUp() {
+    primary = createDatabase("primary");
+    firstReplica = createDatabase("replica1").getDataSource();
+    secondReplica = createDatabase("replica2").getDataSource();
+  }
+
+  @AfterEach
+  void tearDown() {
+    databases.forEach(database -> database.updateTransaction("drop table origin"));
+  }
+
+  @Test
+  void testReadsAreSpreadOverTheReplicasInTurn() {
+    // Given
+    primary.setReplicaConfig(ReplicaConfig.of(List.of(firstReplica, secondReplica)));
+
+    // When
+    final List<String> origins = List.of(readOrigin(), readOrigin(), readOrigin());
+
+    // Then
+    assertThat(origins).containsExactly("replica1", "replica2", "replica1");
+  }
+
+  @Test
+  void testReadsAfterAWriteStayOnThePrimaryWithinTheWindow() {
+    // Given
+    primary.setReplicaConfig(ReplicaConfig.of(List.of(firstReplica))
+        .readYourWritesWindow(Duration.ofMinutes(1)));
+
+    // When
+    final String beforeWrite = readOrigin();
+    primary.updateTransaction("update origin set name = 'primary'");
+    final String afterWrite = readOrigin();
+    primary.setReplicaConfig(ReplicaConfig.of(List.of(firstReplica))
+        .readYourWritesWindow(Duration.ZERO));
+    primary.updateTransaction("update origin set name = 'primary'");
+    final String withoutWindow = readOrigin();
+
+    // Then
+    assertThat(beforeWrite).isEqualTo("replica1");
+    assertThat(afterWrite).isEqualTo("primary");
+    assertThat(withoutWindow).isEqualTo("replica1");
+  }
+
+  @Test
+  void testReadsInsideATransactionStayOnThePrimary() {
+    // Given
+    primary.setReplicaConfig(ReplicaConfig.of(List.of(firstReplica, secondReplica)));
+
+    // When
+    final String origin = primary.inTransaction(
+        TransactionOptions.read(),
+        databaseConnection -> readOrigin()
+    );
+
+    // Then
+    assertThat(origin).isEqualTo("primary");
+  }
+
+  @Test
+  void testLeastInFlightChoosesTheLeastBusyReplica() {
+    // Given
+    final var router = new ReplicaRouter(
+        ReplicaConfig.of(List.of(mock(DataSource.class), mock(DataSource.class)))
+            .policy(LoadBalancingPolicy.LEAST_IN_FLIGHT)
+    );
+    final int busy = router.acquire();
+    router.release(router.acquire());
+
+    // When
+    final int chosen = router.acquire();
+
+    // Then
+    assertThat(chosen).isNotEqualTo(busy);
+  }
+
+  private String readOrigin() {
+    return primary.queryTransaction("select name from origin", ReplicaRoutingTest::getName)
+        .orElseThrow();
+  }
+
+  private static String getName(final ResultSet resultSet) {
+    try {
+      return resultSet.next() ? resultSet.getString(1) : null;
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private DatabaseConnection createDatabase(final String name) {
+    final var dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    final var database = DatabaseConnection.of(dataSource);
+    database.updateTransaction("create table origin(name varchar(16))");
+    database.updateTransaction("insert into origin(name) values ('" + name + "')");
+    databases.add(database);
+    return database;
+  }
+}
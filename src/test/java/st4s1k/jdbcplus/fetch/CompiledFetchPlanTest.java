@@ -0,0 +1,133 @@
+package st4s1k.jdbcplus.fetch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import st4s1k.jdbcplus.exceptions.InvalidMappingException;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+import st4s1k.jdbcplus.repo.Entity;
+import st4s1k.jdbcplus.repo.Entity1;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledFetchPlanTest {
+
+  private final MetadataRegistry metadataRegistry = new MetadataRegistry();
+
+  @Test
+  void testCompileWithoutPaths() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity1.class);
+
+    // When
+    final var result = metadataRegistry.getCompiledFetchPlan(fetchPlan);
+
+    // Then
+    assertThat(result.getRoot().getChildren()).isEmpty();
+    assertThat(result.getRootQuery().getSelect()).isEqualTo(
+        "select t0.id, t0.name, t0.rank, t0.entity, t0.entity4 from entity1s t0"
+    );
+  }
+
+  @Test
+  void testCompileJoinsToOneRelation() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity1.class)
+        .fetch("entity", FetchStrategy.JOIN);
+
+    // When
+    final var result = metadataRegistry.getCompiledFetchPlan(fetchPlan);
+
+    // Then
+    assertThat(result.getRootQuery().sqlWhere("name", "SomeEntity1")).isEqualTo(
+        "select t0.id, t0.name, t0.rank, t0.entity, t0.entity4, "
+            + "t1.id, t1.name, t1.rank, t1.entity4 "
+            + "from entity1s t0 left join entities t1 on t0.entity = t1.id "
+            + "where t0.name = 'SomeEntity1'"
+    );
+    assertThat(result.getRoot().getChild("entity"))
+        .hasValueSatisfying(node -> assertThat(node.getQuery()).isEmpty());
+  }
+
+  @Test
+  void testCompileBatchesManyToManyRelation() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity1.class)
+        .fetch("entity2s");
+
+    // When
+    final var result = metadataRegistry.getCompiledFetchPlan(fetchPlan);
+
+    // Then
+    final var node = result.getRoot().getChild("entity2s").orElseThrow();
+    final var query = node.getQuery().orElseThrow();
+    assertThat(node.getKind()).isEqualTo(FetchNode.Kind.MANY_TO_MANY);
+    assertThat(query.sqlIn(List.of(1, 2))).isEqualTo(
+        "select t0.id, t0.name, t0.rank, t0.entity, t0.entity3, j.entity1s_id "
+            + "from entity2s t0 join entity1s_entity2s j on j.entity2s_id = t0.id "
+            + "where j.entity1s_id in (1, 2)"
+    );
+    assertThat(query.getKeyIndex()).isEqualTo(6);
+  }
+
+  @Test
+  void testCompileBatchesOneToManyRelationByBackReference() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity.class)
+        .fetch("entity1s", FetchStrategy.JOIN);
+
+    // When
+    final var result = metadataRegistry.getCompiledFetchPlan(fetchPlan);
+
+    // Then
+    final var node = result.getRoot().getChild("entity1s").orElseThrow();
+    final var query = node.getQuery().orElseThrow();
+    assertThat(node.getStrategy()).isEqualTo(FetchStrategy.BATCH);
+    assertThat(query.getKeyColumn()).isEqualTo("t0.entity");
+    assertThat(query.getKeyIndex()).isEqualTo(4);
+  }
+
+  @Test
+  void testCompileWithDepth() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity.class).depth(1, FetchStrategy.LAZY);
+
+    // When
+    final var result = metadataRegistry.getCompiledFetchPlan(fetchPlan);
+
+    // Then
+    assertThat(result.getRoot().getChildren())
+        .extracting(node -> node.getField().getName())
+        .containsExactlyInAnyOrder("entity1s", "entity2s", "entity4");
+    assertThat(result.getRoot().getChildren())
+        .allSatisfy(node -> assertThat(node.getChildren()).isEmpty());
+  }
+
+  @Test
+  void testCompileWhenPathIsInvalidThenThrows() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity.class).fetch("entity1s.bazinga");
+
+    // When
+    final var executable = (Executable) () -> metadataRegistry.getCompiledFetchPlan(fetchPlan);
+
+    // Then
+    assertThrows(InvalidMappingException.class, executable);
+  }
+
+  @Test
+  void testGetCompiledFetchPlanReusesCompiledPlanForEqualPlans() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity.class).fetch("entity4");
+    final var equalFetchPlan = FetchPlan.of(Entity.class).fetch("entity4");
+
+    // When
+    final var first = metadataRegistry.getCompiledFetchPlan(fetchPlan);
+    final var second = metadataRegistry.getCompiledFetchPlan(equalFetchPlan);
+
+    // Then
+    assertThat(second).isSameAs(first);
+  }
+}
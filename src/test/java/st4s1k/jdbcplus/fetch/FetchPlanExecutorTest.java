@@ -0,0 +1,198 @@
+package st4s1k.jdbcplus.fetch;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.metadata.MetadataRegistry;
+import st4s1k.jdbcplus.repo.Entity;
+import st4s1k.jdbcplus.repo.Entity1;
+import st4s1k.jdbcplus.repo.Entity2;
+import st4s1k.jdbcplus.repo.Entity3;
+import st4s1k.jdbcplus.repo.JdbcPlusContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class FetchPlanExecutorTest {
+
+  private JdbcDataSource dataSource;
+  private DatabaseConnection databaseConnection;
+  private MetadataRegistry metadataRegistry;
+  private FetchPlanExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    final var h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:fetchplan;DB_CLOSE_DELAY=-1");
+    dataSource = spy(h2);
+    databaseConnection = DatabaseConnection.of(dataSource);
+    databaseConnection.updateTransaction(
+        "create table entities(id int primary key, name varchar(64), rank int, entity4 int)"
+    );
+    databaseConnection.updateTransaction(
+        "create table entity1s(id int primary key, name varchar(64), rank int, "
+            + "entity int, entity4 int)"
+    );
+    databaseConnection.updateTransaction(
+        "insert into entities(id, name, rank) values (1, 'first', 1), (2, 'second', 2)"
+    );
+    databaseConnection.updateTransaction(
+        "insert into entity1s(id, name, rank, entity) values "
+            + "(1, 'a', 1, 1), (2, 'b', 2, 1), (3, 'c', 3, 2)"
+    );
+    databaseConnection.updateTransaction(
+        "create table entity2s(id int primary key, name varchar(64), rank int, "
+            + "entity int, entity3 int)"
+    );
+    databaseConnection.updateTransaction(
+        "create table entity3s(id int primary key, name varchar(64), rank int)"
+    );
+    databaseConnection.updateTransaction(
+        "insert into entity3s(id, name, rank) values (1, 'third', 3)"
+    );
+    databaseConnection.updateTransaction(
+        "insert into entity2s(id, name, rank, entity3) values (1, 'x', 1, 1)"
+    );
+    metadataRegistry = new MetadataRegistry();
+    executor = new FetchPlanExecutor(databaseConnection, metadataRegistry, new Object());
+    clearInvocations(dataSource);
+  }
+
+  @AfterEach
+  void tearDown() {
+    databaseConnection.updateTransaction("drop table entity2s");
+    databaseConnection.updateTransaction("drop table entity3s");
+    databaseConnection.updateTransaction("drop table entity1s");
+    databaseConnection.updateTransaction("drop table entities");
+  }
+
+  @Test
+  void testToOneRelationNotInThePlanIsAReference() {
+    // Given
+    final var fetchPlan = compile(FetchPlan.of(Entity1.class));
+
+    // When
+    final var result = executor.findAll(fetchPlan);
+
+    // Then
+    assertThat(result).hasSize(3);
+    assertThat(result.get(0).getEntity().getId()).isEqualTo(1);
+    assertThat(result.get(0).getEntity().getName()).isNull();
+    assertThat(result.get(1).getEntity()).isSameAs(result.get(0).getEntity());
+    verify(dataSource, times(1)).getConnection();
+  }
+
+  @Test
+  void testJoinedToOneRelationIsMappedFromTheRootQuery() {
+    // Given
+    final var fetchPlan = compile(FetchPlan.of(Entity1.class)
+        .fetch("entity", FetchStrategy.JOIN));
+
+    // When
+    final var result = executor.findAll(fetchPlan);
+
+    // Then
+    assertThat(result).extracting(entity1 -> entity1.getEntity().getName())
+        .containsExactly("first", "first", "second");
+    assertThat(result.get(1).getEntity()).isSameAs(result.get(0).getEntity());
+    verify(dataSource, times(1)).getConnection();
+  }
+
+  @Test
+  void testBatchedToOneRelationIsLoadedWithOneQuery() {
+    // Given
+    final var fetchPlan = compile(FetchPlan.of(Entity1.class).fetch("entity"));
+
+    // When
+    final var result = executor.findAll(fetchPlan);
+
+    // Then
+    assertThat(result).extracting(entity1 -> entity1.getEntity().getName())
+        .containsExactly("first", "first", "second");
+    verify(dataSource, times(2)).getConnection();
+  }
+
+  @Test
+  void testBatchedToManyRelationIsAssignedToItsOwners() {
+    // Given
+    final var fetchPlan = compile(FetchPlan.of(Entity.class).fetch("entity1s"));
+
+    // When
+    final var result = executor.findByColumn(fetchPlan, "rank", 1);
+    final var all = executor.findAll(fetchPlan);
+
+    // Then
+    assertThat(result).hasSize(1);
+    assertThat(result.get(0).getEntity1s()).extracting(Entity1::getName).containsExactly("a", "b");
+    assertThat(all.get(0).getEntity1s()).extracting(Entity1::getName).containsExactly("a", "b");
+    assertThat(all.get(1).getEntity1s()).extracting(Entity1::getName).containsExactly("c");
+    assertThat(all.get(1).getEntity1s().get(0).getEntity()).isSameAs(all.get(1));
+    verify(dataSource, times(4)).getConnection();
+  }
+
+  @Test
+  void testBatchedToOneRelationAlreadyLoadedIsNotQueriedAgain() {
+    // Given
+    final var fetchPlan = compile(FetchPlan.of(Entity.class)
+        .fetch("entity1s")
+        .fetch("entity1s.entity"));
+
+    // When
+    final var result = executor.findAll(fetchPlan);
+
+    // Then
+    assertThat(result.get(0).getEntity1s())
+        .allSatisfy(entity1 -> assertThat(entity1.getEntity()).isSameAs(result.get(0)));
+    assertThat(result.get(0).getName()).isEqualTo("first");
+    verify(dataSource, times(2)).getConnection();
+  }
+
+  @Test
+  void testLazyToManyRelationIsLoadedOnFirstAccess() {
+    // Given
+    final var fetchPlan = compile(FetchPlan.of(Entity.class)
+        .fetch("entity1s", FetchStrategy.LAZY));
+    final var result = executor.findAll(fetchPlan);
+    final var entity1s = result.get(0).getEntity1s();
+
+    // When
+    final boolean loadedBeforeAccess = ((LazyList<Entity1>) entity1s).isLoaded();
+    final var names = entity1s.stream().map(Entity1::getName).toArray();
+
+    // Then
+    assertThat(loadedBeforeAccess).isFalse();
+    assertThat(names).containsExactly("a", "b");
+    assertThat(entity1s.get(0).getEntity()).isSameAs(result.get(0));
+    verify(dataSource, times(2)).getConnection();
+  }
+
+  @Test
+  void testReferenceOutsideThePlanIsNotReturnedByLaterLookupsOfTheSession() {
+    // Given
+    final var context = JdbcPlusContext.of(dataSource);
+    final var repository = context.getRepository();
+
+    // When
+    final Entity2 entity2;
+    final Entity3 entity3;
+    try (final var ignored = repository.openSession()) {
+      entity2 = repository.findAll(FetchPlan.of(Entity2.class)).get(0);
+      entity3 = repository.findById(1, Entity3.class).orElseThrow();
+    }
+
+    // Then
+    assertThat(entity2.getEntity3().getName()).isNull();
+    assertThat(entity3).isNotSameAs(entity2.getEntity3());
+    assertThat(entity3.getName()).isEqualTo("third");
+    context.close();
+  }
+
+  private <T> CompiledFetchPlan<T> compile(final FetchPlan<T> fetchPlan) {
+    return metadataRegistry.getCompiledFetchPlan(fetchPlan);
+  }
+}
@@ -0,0 +1,103 @@
+package st4s1k.jdbcplus.invalidation;
+
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.repo.Entity;
+import st4s1k.jdbcplus.repo.Entity7;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+class InvalidationPublisherTest {
+
+  @Test
+  void testPendingWritesAreCoalescedPerEntityClass() {
+    // Given
+    final var bus = new LoopbackInvalidationBus();
+    final var received = new ArrayList<InvalidationEvent>();
+    bus.subscribe(received::add);
+    final var publisher = new InvalidationPublisher(bus, "node", Duration.ofHours(1), 1_000);
+
+    // When
+    publisher.publish(Entity7.class, List.of(1), List.of("entity7s"));
+    publisher.publish(Entity7.class, List.of(2, 1), List.of("entity7s"));
+    publisher.publish(Entity.class, List.of(), List.of("entities"));
+    final var beforeFlush = new ArrayList<>(received);
+    publisher.flush();
+
+    // Then
+    assertThat(beforeFlush).isEmpty();
+    assertThat(received).hasSize(2);
+    assertThat(received.get(0).getOrigin()).isEqualTo("node");
+    assertThat(received.get(0).getEntityClass()).isEqualTo(Entity7.class);
+    assertThat(received.get(0).getIds()).containsExactly(1, 2);
+    assertThat(received.get(0).getTables()).containsExactly("entity7s");
+    assertThat(received.get(1).getEntityClass()).isEqualTo(Entity.class);
+    assertThat(received.get(1).getIds()).isEmpty();
+    publisher.close();
+    bus.close();
+  }
+
+  @Test
+  void testPublishFlushesWhenTooManyIdsArePending() {
+    // Given
+    final var bus = new LoopbackInvalidationBus();
+    final var received = new ArrayList<InvalidationEvent>();
+    bus.subscribe(received::add);
+    final var publisher = new InvalidationPublisher(bus, "node", Duration.ofHours(1), 2);
+
+    // When
+    publisher.publish(Entity7.class, List.of(1), Set.of("entity7s"));
+    publisher.publish(Entity7.class, List.of(2), Set.of("entity7s"));
+
+    // Then
+    assertThat(received).hasSize(1);
+    assertThat(received.get(0).getIds()).containsExactly(1, 2);
+    publisher.close();
+  }
+
+  @Test
+  void testZeroFlushIntervalPublishesImmediately() {
+    // Given
+    final var bus = new LoopbackInvalidationBus();
+    final var received = new ArrayList<InvalidationEvent>();
+    bus.subscribe(received::add);
+    final var publisher = new InvalidationPublisher(bus, "node", Duration.ZERO, 1_000);
+
+    // When
+    publisher.publish(Entity7.class, List.of(1), Set.of("entity7s"));
+
+    // Then
+    assertThat(received).hasSize(1);
+    publisher.close();
+  }
+
+  @Test
+  void testWritesOfAFailedFlushArePublishedByTheNextOne() {
+    // Given
+    final var bus = spy(new LoopbackInvalidationBus());
+    final var received = new ArrayList<InvalidationEvent>();
+    bus.subscribe(received::add);
+    doThrow(new IllegalStateException("bus down")).doCallRealMethod().when(bus).publish(anyList());
+    final var publisher = new InvalidationPublisher(bus, "node", Duration.ofHours(1), 1_000);
+    publisher.publish(Entity7.class, List.of(1), Set.of("entity7s"));
+
+    // When
+    assertThatThrownBy(publisher::flush).isInstanceOf(IllegalStateException.class);
+    publisher.publish(Entity7.class, List.of(2), Set.of("entity7s"));
+    publisher.flush();
+
+    // Then
+    assertThat(received).hasSize(1);
+    assertThat(received.get(0).getIds()).containsExactly(1, 2);
+    publisher.close();
+  }
+}
@@ -0,0 +1,146 @@
+package st4s1k.jdbcplus.invalidation;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.DatabaseConnectionTestUtils;
+import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.repo.Entity7;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class TableInvalidationBusTest {
+
+  private TableInvalidationBus firstNode;
+  private TableInvalidationBus secondNode;
+
+  @BeforeEach
+  void setUp() {
+    final var dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:invalidations;DB_CLOSE_DELAY=-1");
+    DatabaseConnection.init(dataSource);
+    final var databaseConnection = DatabaseConnection.getInstance();
+    firstNode = new TableInvalidationBus(
+        databaseConnection,
+        TableInvalidationBus.DEFAULT_TABLE,
+        Duration.ofHours(1)
+    );
+    secondNode = new TableInvalidationBus(
+        databaseConnection,
+        TableInvalidationBus.DEFAULT_TABLE,
+        Duration.ofHours(1)
+    );
+    firstNode.createTable();
+  }
+
+  @AfterEach
+  void tearDown() {
+    firstNode.close();
+    secondNode.close();
+    DatabaseConnection.getInstance().updateTransaction(
+        "drop table " + TableInvalidationBus.DEFAULT_TABLE
+    );
+    DatabaseConnectionTestUtils.resetDatabaseConnection();
+  }
+
+  @Test
+  void testPublishedEventsAreDeliveredToPollingNodes() {
+    // Given
+    final var received = new ArrayList<InvalidationEvent>();
+    firstNode.publish(List.of(
+        new InvalidationEvent("first", Entity7.class, List.of(0), List.of())
+    ));
+    secondNode.subscribe(received::add);
+
+    // When
+    firstNode.publish(List.of(
+        new InvalidationEvent("first", Entity7.class, List.of(1, 2), List.of("entity7s")),
+        new InvalidationEvent("first", Entity7.class, List.of(), List.of("entity7s"))
+    ));
+    secondNode.poll();
+    secondNode.poll();
+
+    // Then
+    assertThat(received).hasSize(2);
+    assertThat(received.get(0).getOrigin()).isEqualTo("first");
+    assertThat(received.get(0).getEntityClass()).isEqualTo(Entity7.class);
+    assertThat(received.get(0).getIds()).containsExactly(1, 2);
+    assertThat(received.get(0).getTables()).containsExactly("entity7s");
+    assertThat(received.get(1).getIds()).isEmpty();
+  }
+
+  @Test
+  void testEventsCommittedOutOfIdOrderAreDelivered() {
+    // Given
+    final var received = new ArrayList<String>();
+    secondNode.subscribe(event -> received.add(event.getOrigin()));
+
+    // When
+    insertEvent(2, "second");
+    secondNode.poll();
+    insertEvent(1, "first");
+    secondNode.poll();
+    secondNode.poll();
+
+    // Then
+    assertThat(received).containsExactly("second", "first");
+  }
+
+  @Test
+  void testIdsSkippedLongerThanTheGapTimeoutAreNotPolledAgain() {
+    // Given
+    final var received = new ArrayList<String>();
+    final var node = new TableInvalidationBus(
+        DatabaseConnection.getInstance(),
+        TableInvalidationBus.DEFAULT_TABLE,
+        Duration.ofHours(1),
+        Duration.ZERO
+    );
+    node.subscribe(event -> received.add(event.getOrigin()));
+
+    // When
+    insertEvent(2, "second");
+    node.poll();
+    insertEvent(1, "first");
+    node.poll();
+    node.close();
+
+    // Then
+    assertThat(received).containsExactly("second");
+  }
+
+  @Test
+  void testFailedPublishThrows() {
+    // Given
+    final var node = new TableInvalidationBus(
+        DatabaseConnection.getInstance(),
+        "missing_invalidations",
+        Duration.ofHours(1)
+    );
+    final var events = List.of(
+        new InvalidationEvent("first", Entity7.class, List.of(1), List.of())
+    );
+
+    // When
+    final Throwable thrown = catchThrowable(() -> node.publish(events));
+
+    // Then
+    assertThat(thrown).isInstanceOf(JdbcPlusException.class);
+  }
+
+  private static void insertEvent(final long id, final String origin) {
+    DatabaseConnection.getInstance().updateTransaction(String.format(
+        "insert into %s(id, origin) values (%d, '%s')",
+        TableInvalidationBus.DEFAULT_TABLE,
+        id,
+        origin
+    ));
+  }
+}
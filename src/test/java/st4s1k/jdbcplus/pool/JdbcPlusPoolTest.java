@@ -0,0 +1,171 @@
+package st4s1k.jdbcplus.pool;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JdbcPlusPoolTest {
+
+  private JdbcDataSource dataSource;
+  private JdbcPlusPool pool;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1");
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  @Test
+  void testHeavyConcurrentBorrowingStaysWithinMaximumPoolSize() throws Exception {
+    // Given
+    pool = new JdbcPlusPool(PoolConfig.of(dataSource).maximumPoolSize(8));
+    final int threads = 64;
+    final int borrowsPerThread = 200;
+    final var executor = Executors.newFixedThreadPool(threads);
+    final var start = new CountDownLatch(1);
+    final var maxTotal = new AtomicInteger();
+    final List<Future<Integer>> results = new ArrayList<>();
+
+    // When
+    for (int i = 0; i < threads; i++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        int selected = 0;
+        for (int j = 0; j < borrowsPerThread; j++) {
+          try (final Connection connection = pool.getConnection();
+               final var statement = connection.createStatement();
+               final var resultSet = statement.executeQuery("select 1")) {
+            resultSet.next();
+            selected += resultSet.getInt(1);
+            maxTotal.accumulateAndGet(pool.getMetrics().getTotal(), Math::max);
+          }
+        }
+        return selected;
+      }));
+    }
+    start.countDown();
+    int selected = 0;
+    for (final Future<Integer> result : results) {
+      selected += result.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // Then
+    final var metrics = pool.getMetrics();
+    assertThat(selected).isEqualTo(threads * borrowsPerThread);
+    assertThat(maxTotal.get()).isLessThanOrEqualTo(8);
+    assertThat(metrics.getActive()).isZero();
+    assertThat(metrics.getWaiting()).isZero();
+    assertThat(metrics.getTimeouts()).isZero();
+    assertThat(pool.getWaitTimes().getCount()).isEqualTo(threads * borrowsPerThread);
+  }
+
+  @Test
+  void testGetConnectionTimesOutWhenPoolIsExhausted() throws SQLException {
+    // Given
+    pool = new JdbcPlusPool(PoolConfig.of(dataSource)
+        .maximumPoolSize(1)
+        .connectionTimeout(Duration.ofMillis(100)));
+
+    // When
+    try (final Connection ignored = pool.getConnection()) {
+      assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection().close());
+    }
+
+    // Then
+    final var metrics = pool.getMetrics();
+    assertThat(metrics.getTimeouts()).isEqualTo(1);
+    assertThat(metrics.getTotal()).isEqualTo(1);
+    assertThat(metrics.getIdle()).isEqualTo(1);
+  }
+
+  @Test
+  void testClosedProxyReturnsConnectionAndRestoresDefaults() throws SQLException {
+    // Given
+    pool = new JdbcPlusPool(PoolConfig.of(dataSource).maximumPoolSize(1));
+    final Connection first = pool.getConnection();
+    first.setAutoCommit(false);
+    first.close();
+
+    // When
+    final Connection second = pool.getConnection();
+
+    // Then
+    assertThat(first.isClosed()).isTrue();
+    assertThrows(SQLException.class, first::createStatement);
+    assertThat(second.getAutoCommit()).isTrue();
+    assertThat(second.unwrap(Connection.class)).isSameAs(second);
+    assertThat(pool.getMetrics().getCreated()).isEqualTo(1);
+    second.close();
+  }
+
+  @Test
+  void testIdleConnectionsAboveMinimumAreEvicted() throws Exception {
+    // Given
+    pool = new JdbcPlusPool(PoolConfig.of(dataSource)
+        .maximumPoolSize(4)
+        .minimumIdle(1)
+        .idleTimeout(Duration.ofMillis(50))
+        .housekeepingPeriod(Duration.ofMillis(20)));
+    final var connections = List.of(
+        pool.getConnection(),
+        pool.getConnection(),
+        pool.getConnection()
+    );
+    for (final Connection connection : connections) {
+      connection.close();
+    }
+
+    // When
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (pool.getMetrics().getTotal() > 1 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+
+    // Then
+    assertThat(pool.getMetrics().getTotal()).isEqualTo(1);
+    assertThat(pool.getMetrics().getClosed()).isEqualTo(2);
+  }
+
+  @Test
+  void testConnectionsHeldTooLongAreReportedAsLeaks() throws Exception {
+    // Given
+    pool = new JdbcPlusPool(PoolConfig.of(dataSource)
+        .leakDetectionThreshold(Duration.ofMillis(30))
+        .housekeepingPeriod(Duration.ofMillis(10)));
+
+    // When
+    try (final Connection ignored = pool.getConnection()) {
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (pool.getMetrics().getLeaks() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+    }
+
+    // Then
+    assertThat(pool.getMetrics().getLeaks()).isEqualTo(1);
+  }
+}
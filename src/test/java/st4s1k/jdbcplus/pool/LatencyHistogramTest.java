@@ -0,0 +1,40 @@
+package st4s1k.jdbcplus.pool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testPercentilesAreBoundedByPowerOfTwoBuckets() {
+    // Given
+    final var histogram = new LatencyHistogram();
+
+    // When
+    for (int i = 1; i <= 99; i++) {
+      histogram.record(1_000);
+    }
+    histogram.record(1_000_000);
+
+    // Then
+    assertThat(histogram.getCount()).isEqualTo(100);
+    assertThat(histogram.getPercentile(50, TimeUnit.NANOSECONDS)).isBetween(1_000L, 1_023L);
+    assertThat(histogram.getPercentile(99, TimeUnit.NANOSECONDS)).isBetween(1_000L, 1_023L);
+    assertThat(histogram.getPercentile(100, TimeUnit.NANOSECONDS)).isEqualTo(1_000_000L);
+    assertThat(histogram.getMax(TimeUnit.MICROSECONDS)).isEqualTo(1_000);
+    assertThat(histogram.getMean(TimeUnit.NANOSECONDS)).isEqualTo(10_990.0);
+  }
+
+  @Test
+  void testEmptyHistogram() {
+    // Given
+    final var histogram = new LatencyHistogram();
+
+    // Then
+    assertThat(histogram.getPercentile(99, TimeUnit.MILLISECONDS)).isZero();
+    assertThat(histogram.getMean(TimeUnit.MILLISECONDS)).isZero();
+  }
+}
@@ -13,14 +13,22 @@ import org.springframework.test.util.ReflectionTestUtils;
 import st4s1k.jdbcplus.DatabaseConnectionTestUtils;
 import st4s1k.jdbcplus.Function;
 import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+import st4s1k.jdbcplus.invalidation.InvalidationEvent;
+import st4s1k.jdbcplus.invalidation.LoopbackInvalidationBus;
 
 import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -176,6 +184,28 @@ class AbstractJdbcPlusRepositoryTest {
     );
   }
 
+  @Test
+  void testSqlSelectAllByColumnIn() {
+    // Given
+    final var tableName = getTableName(entity.getClass());
+
+    // When
+    final var result = abstractJdbcPlusRepository.sqlSelectAllByColumnIn(
+        tableName,
+        "id",
+        List.of(1, 2, 3)
+    );
+    final var emptyResult = abstractJdbcPlusRepository.sqlSelectAllByColumnIn(
+        tableName,
+        "id",
+        List.of()
+    );
+
+    // Then
+    assertThat(result).isEqualTo("select * from %s where id in (1, 2, 3)", tableName);
+    assertThat(emptyResult).isEmpty();
+  }
+
   @Test
   void testSqlSelectAllByColumns() {
     // Given
@@ -291,6 +321,90 @@ class AbstractJdbcPlusRepositoryTest {
     inOrder.verify(databaseConnection).queryTransaction(eq(selectQuery), any(), any());
   }
 
+  @Test
+  void testSaveWithCascadeFlushesOneBatchPerTableInForeignKeyOrder() {
+    // Given
+    final var parent = new Entity5();
+    parent.setId(1);
+    parent.setName("Parent");
+    final var child1 = new Entity6();
+    child1.setId(11);
+    child1.setName("Child1");
+    final var child2 = new Entity6();
+    child2.setId(12);
+    child2.setName("Child2");
+    parent.setEntity6s(List.of(child1, child2));
+
+    // When
+    abstractJdbcPlusRepository.save(parent);
+
+    // Then
+    assertThat(child1.getEntity5()).isSameAs(parent);
+    assertThat(child2.getEntity5()).isSameAs(parent);
+    verify(databaseConnection).updateBatchTransaction(List.of(
+        List.of(abstractJdbcPlusRepository.sqlInsert(parent)),
+        List.of(
+            abstractJdbcPlusRepository.sqlInsert(child1),
+            abstractJdbcPlusRepository.sqlInsert(child2)
+        )
+    ));
+    verify(databaseConnection, never()).updateTransaction(any());
+  }
+
+  @Test
+  void testSaveSynchronizesOnlyChangedJoinTableLinks() throws SQLException {
+    // Given
+    final var linksQuery = "select entity1s_id, entity2s_id from entity1s_entity2s "
+        + "where entity1s_id in (10)";
+    final var linksResultSet = mock(ResultSet.class);
+
+    when(linksResultSet.next())
+        .thenReturn(true)
+        .thenReturn(false);
+    when(linksResultSet.getObject(1, Integer.class)).thenReturn(entity1.getId());
+    when(linksResultSet.getObject(2, Integer.class)).thenReturn(21);
+    when(databaseConnection.queryTransaction(eq(linksQuery), any(), any()))
+        .thenAnswer(invocation -> invocation
+            .<java.util.function.Function<ResultSet, Object>>getArgument(1)
+            .apply(linksResultSet));
+
+    // When
+    abstractJdbcPlusRepository.save(entity1);
+
+    // Then
+    verify(databaseConnection).updateBatchTransaction(List.of(
+        List.of(abstractJdbcPlusRepository.sqlInsert(entity1)),
+        List.of(
+            "delete from entity1s_entity2s where entity1s_id = 10 and entity2s_id in (21)",
+            "insert into entity1s_entity2s(entity1s_id, entity2s_id) values (10, 20)"
+        ),
+        List.of(
+            "insert into entity1s_entity3s(id1, id3) values (10, 30)"
+        )
+    ));
+    verify(databaseConnection, never()).updateTransaction(any());
+  }
+
+  @Test
+  void testSaveWhenJoinTableLinksCannotBeReadThenWritesNothing() {
+    // Given
+    final var linksQuery = "select entity1s_id, entity2s_id from entity1s_entity2s "
+        + "where entity1s_id in (10)";
+
+    when(databaseConnection.queryTransaction(eq(linksQuery), any(), any()))
+        .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+
+    // When
+    final Throwable thrown = catchThrowable(() -> abstractJdbcPlusRepository.save(entity1));
+
+    // Then
+    assertThat(thrown)
+        .isInstanceOf(JdbcPlusException.class)
+        .hasMessage("Could not read the links of join table entity1s_entity2s");
+    verify(databaseConnection, never()).updateTransaction(any());
+    verify(databaseConnection, never()).updateBatchTransaction(any());
+  }
+
   @Test
   void testRemove() {
     // Given
@@ -310,7 +424,7 @@ class AbstractJdbcPlusRepositoryTest {
 
     // Then
     verify(databaseConnection).queryTransaction(eq(selectQuery), any(), any());
-    verify(databaseConnection).updateTransaction(eq(expectedQuery));
+    verify(databaseConnection).updateTransactionOrThrow(eq(expectedQuery));
   }
 
   @Test
@@ -383,6 +497,337 @@ class AbstractJdbcPlusRepositoryTest {
     verify(databaseConnection).queryTransaction(eq(expectedQuery), any(), any());
   }
 
+  @Test
+  void testFindByIdWithinSessionQueriesOnlyOnce() {
+    // Given
+    final var tableName = getTableName(entity.getClass());
+    final var entityId = entity.getId();
+    final var expectedQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(
+        tableName,
+        "id",
+        entityId
+    );
+
+    when(databaseConnection.queryTransaction(eq(expectedQuery), any(), any()))
+        .thenReturn(List.of(entity));
+
+    // When
+    final Optional<Entity> first;
+    final Optional<Entity> second;
+    try (final var ignored = abstractJdbcPlusRepository.openSession()) {
+      first = abstractJdbcPlusRepository.findById(entityId, Entity.class);
+      second = abstractJdbcPlusRepository.findById(entityId, Entity.class);
+    }
+
+    // Then
+    assertThat(first).containsSame(entity);
+    assertThat(second).containsSame(entity);
+    assertThat(IdentityMap.current()).isEmpty();
+    verify(databaseConnection).queryTransaction(eq(expectedQuery), any(), any());
+  }
+
+  @Test
+  void testFindByIdOfCacheableEntityQueriesOnlyOnce() {
+    // Given
+    final var entity7 = new Entity7();
+    entity7.setId(1);
+    entity7.setName("SomeEntity7");
+    final var expectedQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(
+        getTableName(Entity7.class),
+        "id",
+        entity7.getId()
+    );
+
+    when(databaseConnection.queryTransaction(eq(expectedQuery), any(), any()))
+        .thenReturn(getRows(entity7));
+
+    // When
+    final var first = abstractJdbcPlusRepository.findById(1, Entity7.class);
+    final var second = abstractJdbcPlusRepository.findById(1, Entity7.class);
+
+    // Then
+    assertThat(first).contains(entity7);
+    assertThat(second).contains(entity7);
+    assertThat(abstractJdbcPlusRepository.getEntityCacheManager().getStats(Entity7.class))
+        .hasValueSatisfying(stats -> {
+          assertThat(stats.getHitCount()).isEqualTo(1);
+          assertThat(stats.getMissCount()).isEqualTo(1);
+        });
+    verify(databaseConnection).queryTransaction(eq(expectedQuery), any(), any());
+  }
+
+  @Test
+  void testRemoveInvalidatesCachedEntity() {
+    // Given
+    final var entity7 = new Entity7();
+    entity7.setId(1);
+    entity7.setName("SomeEntity7");
+    final var expectedQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(
+        getTableName(Entity7.class),
+        "id",
+        entity7.getId()
+    );
+
+    when(databaseConnection.queryTransaction(eq(expectedQuery), any(), any()))
+        .thenReturn(getRows(entity7));
+    abstractJdbcPlusRepository.findById(1, Entity7.class);
+
+    // When
+    abstractJdbcPlusRepository.remove(entity7);
+    abstractJdbcPlusRepository.findById(1, Entity7.class);
+
+    // Then
+    verify(databaseConnection)
+        .updateTransactionOrThrow(abstractJdbcPlusRepository.sqlRemove(entity7));
+    verify(databaseConnection, times(3)).queryTransaction(eq(expectedQuery), any(), any());
+  }
+
+  @Test
+  void testInvalidationBusEvictsEntitiesWrittenByOtherNodes() {
+    // Given
+    final var entity7 = new Entity7();
+    entity7.setId(1);
+    entity7.setName("SomeEntity7");
+    final var tableName = getTableName(Entity7.class);
+    final var expectedQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(tableName, "id", 1);
+    final var bus = new LoopbackInvalidationBus();
+    final var published = new ArrayList<InvalidationEvent>();
+    bus.subscribe(published::add);
+
+    when(databaseConnection.queryTransaction(eq(expectedQuery), any(), any()))
+        .thenReturn(getRows(entity7));
+    abstractJdbcPlusRepository.setInvalidationBus(bus, Duration.ZERO);
+    abstractJdbcPlusRepository.findById(1, Entity7.class);
+
+    // When
+    abstractJdbcPlusRepository.findById(1, Entity7.class);
+    bus.publish(List.of(
+        new InvalidationEvent("other-node", Entity7.class, List.of(1), List.of(tableName))
+    ));
+    abstractJdbcPlusRepository.findById(1, Entity7.class);
+    abstractJdbcPlusRepository.remove(entity7);
+
+    // Then
+    verify(databaseConnection, times(3)).queryTransaction(eq(expectedQuery), any(), any());
+    assertThat(published).hasSize(2);
+    assertThat(published.get(1).getOrigin()).isNotEqualTo("other-node");
+    assertThat(published.get(1).getIds()).containsExactly(1);
+    assertThat(published.get(1).getTables()).containsExactly(tableName);
+    abstractJdbcPlusRepository.setInvalidationBus(null);
+  }
+
+  @Test
+  void testReferenceDataIsReadFromMemoryUntilWritten() {
+    // Given
+    final var moldova = new Entity8();
+    moldova.setId(1);
+    moldova.setCode("MD");
+    moldova.setName("Moldova");
+    final var romania = new Entity8();
+    romania.setId(2);
+    romania.setCode("RO");
+    romania.setName("Romania");
+    final var selectAll = abstractJdbcPlusRepository.sqlSelectAll(getTableName(Entity8.class));
+
+    when(databaseConnection.queryTransaction(eq(selectAll), any(), any()))
+        .thenReturn(List.of(moldova, romania));
+
+    // When
+    final var all = abstractJdbcPlusRepository.findAll(Entity8.class);
+    final var byCode = abstractJdbcPlusRepository.findByColumn("code", "RO", Entity8.class);
+    final var byId = abstractJdbcPlusRepository.findById(1, Entity8.class);
+    final var byIds = abstractJdbcPlusRepository.findAllById(List.of(2, 1), Entity8.class);
+    abstractJdbcPlusRepository.save(romania);
+    abstractJdbcPlusRepository.findAll(Entity8.class);
+
+    // Then
+    assertThat(all).containsExactly(moldova, romania);
+    assertThat(byCode).containsExactly(romania);
+    assertThat(byId).contains(moldova);
+    assertThat(byIds).containsExactly(romania, moldova);
+    verify(databaseConnection).updateTransaction(abstractJdbcPlusRepository.sqlUpdate(romania));
+    verify(databaseConnection, times(2)).queryTransaction(eq(selectAll), any(), any());
+  }
+
+  @Test
+  void testFindAllByIdQueriesOnlyUncachedIds() {
+    // Given
+    final var first = new Entity7();
+    first.setId(1);
+    final var second = new Entity7();
+    second.setId(2);
+    final var tableName = getTableName(Entity7.class);
+    final var byIdQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(tableName, "id", 1);
+    final var inQuery = abstractJdbcPlusRepository.sqlSelectAllByColumnIn(
+        tableName,
+        "id",
+        List.of(2, 3)
+    );
+
+    when(databaseConnection.queryTransaction(eq(byIdQuery), any(), any()))
+        .thenReturn(getRows(first));
+    when(databaseConnection.queryTransaction(eq(inQuery), any(), any()))
+        .thenReturn(getRows(second));
+    abstractJdbcPlusRepository.findById(1, Entity7.class);
+
+    // When
+    final var result = abstractJdbcPlusRepository.findAllById(List.of(2, 3, 1), Entity7.class);
+
+    // Then
+    assertThat(result).containsExactly(second, first);
+    verify(databaseConnection).queryTransaction(eq(inQuery), any(), any());
+  }
+
+  @Test
+  void testFindByColumnWithQueryCacheQueriesUntilTableIsWritten() {
+    // Given
+    final var entity7 = new Entity7();
+    entity7.setId(1);
+    entity7.setName("SomeEntity7");
+    final var expectedQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(
+        getTableName(Entity7.class),
+        "name",
+        entity7.getName()
+    );
+    final var byIdQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(
+        getTableName(Entity7.class),
+        "id",
+        entity7.getId()
+    );
+
+    final var name = entity7.getName();
+
+    final var rows = List.<Object[]>of(new Object[]{entity7.getId(), name});
+
+    abstractJdbcPlusRepository.getQueryCache().setEnabled(true);
+    when(databaseConnection.queryTransaction(eq(expectedQuery), any(), any()))
+        .thenReturn(rows);
+    when(databaseConnection.queryTransaction(eq(byIdQuery), any(), any()))
+        .thenReturn(rows);
+
+    // When
+    final var first = abstractJdbcPlusRepository.findByColumn("name", name, Entity7.class);
+    final var second = abstractJdbcPlusRepository.findByColumn("name", name, Entity7.class);
+    abstractJdbcPlusRepository.save(entity7);
+    final var third = abstractJdbcPlusRepository.findByColumn("name", name, Entity7.class);
+
+    // Then
+    assertThat(first).containsExactly(entity7);
+    assertThat(second).containsExactly(entity7);
+    assertThat(third).containsExactly(entity7);
+    assertThat(abstractJdbcPlusRepository.getQueryCache().getStats().getHitCount()).isEqualTo(1);
+    verify(databaseConnection, times(2)).queryTransaction(eq(expectedQuery), any(), any());
+  }
+
+  @Test
+  void testFailedSelectIsNotCached() {
+    // Given
+    final var query = abstractJdbcPlusRepository.sqlSelectAllByColumn(
+        getTableName(Entity7.class),
+        "name",
+        "SomeEntity7"
+    );
+
+    abstractJdbcPlusRepository.getQueryCache().setEnabled(true);
+    when(databaseConnection.queryTransaction(eq(query), any(), any()))
+        .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get())
+        .thenReturn(List.<Object[]>of(new Object[]{1, "SomeEntity7"}));
+
+    // When
+    final var failed = abstractJdbcPlusRepository
+        .findByColumn("name", "SomeEntity7", Entity7.class);
+    final var retried = abstractJdbcPlusRepository
+        .findByColumn("name", "SomeEntity7", Entity7.class);
+
+    // Then
+    assertThat(failed).isEmpty();
+    assertThat(retried).extracting(Entity7::getName).containsExactly("SomeEntity7");
+    verify(databaseConnection, times(2)).queryTransaction(eq(query), any(), any());
+  }
+
+  @Test
+  void testExistenceFilterSkipsQueriesForAbsentIds() {
+    // Given
+    final var newEntity7 = new Entity7();
+    newEntity7.setId(3);
+    newEntity7.setName("NewEntity7");
+    final var tableName = getTableName(Entity7.class);
+    final var scanQuery = String.format("select id from %s", tableName);
+    final var absentQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(tableName, "id", 2);
+    final var newQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(tableName, "id", 3);
+
+    when(databaseConnection.queryTransaction(eq(scanQuery), any(), any()))
+        .thenReturn(List.of(1));
+    when(databaseConnection.queryTransaction(eq(newQuery), any(), any()))
+        .thenReturn(getRows(newEntity7));
+    abstractJdbcPlusRepository.enableExistenceFilter(Entity7.class, 1_000, 0.001);
+
+    // When
+    final var absent = abstractJdbcPlusRepository.findById(2, Entity7.class);
+    final var saved = abstractJdbcPlusRepository.save(newEntity7);
+
+    // Then
+    assertThat(absent).isEmpty();
+    assertThat(saved).contains(newEntity7);
+    assertThat(abstractJdbcPlusRepository.mightExist(Entity7.class, 3)).isTrue();
+    verify(databaseConnection).updateTransaction(abstractJdbcPlusRepository.sqlInsert(newEntity7));
+    verify(databaseConnection).queryTransaction(eq(newQuery), any(), any());
+    verify(databaseConnection, never()).queryTransaction(eq(absentQuery), any(), any());
+  }
+
+  @Test
+  void testFailedLookupAndRemoveDoNotMarkTheIdAbsent() {
+    // Given
+    final var entity7 = new Entity7();
+    entity7.setId(1);
+    entity7.setName("SomeEntity7");
+    final var tableName = getTableName(Entity7.class);
+    final var scanQuery = String.format("select id from %s", tableName);
+    final var byIdQuery = abstractJdbcPlusRepository.sqlSelectAllByColumn(tableName, "id", 1);
+    final var removeQuery = abstractJdbcPlusRepository.sqlRemove(entity7);
+
+    when(databaseConnection.queryTransaction(eq(scanQuery), any(), any()))
+        .thenReturn(List.of(1));
+    when(databaseConnection.queryTransaction(eq(byIdQuery), any(), any()))
+        .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get())
+        .thenReturn(getRows(entity7));
+    doThrow(JdbcPlusException.of("Remove failed"))
+        .when(databaseConnection).updateTransactionOrThrow(removeQuery);
+    abstractJdbcPlusRepository.enableExistenceFilter(Entity7.class, 1_000, 0.001);
+
+    // When
+    final var failedLookup = abstractJdbcPlusRepository.findById(1, Entity7.class);
+    final var removed = abstractJdbcPlusRepository.remove(entity7);
+
+    // Then
+    assertThat(failedLookup).isEmpty();
+    assertThat(removed).contains(entity7);
+    assertThat(abstractJdbcPlusRepository.mightExist(Entity7.class, 1)).isTrue();
+  }
+
+  @Test
+  void testGetObjectWithinSessionReturnsSameInstance() throws SQLException {
+    // Given
+    final var entityResultSet = getEntityResultSet(entity);
+
+    when(entityResultSet.getObject("id", Integer.class))
+        .thenReturn(entity.getId());
+    when(databaseConnection.queryTransaction(any(), any(), any()))
+        .thenReturn(List.of(entity.getEntity4()));
+
+    // When
+    final Entity first;
+    final Entity second;
+    try (final var ignored = abstractJdbcPlusRepository.openSession()) {
+      first = abstractJdbcPlusRepository.getObject(entityResultSet, Entity.class);
+      second = abstractJdbcPlusRepository.getObject(entityResultSet, Entity.class);
+    }
+
+    // Then
+    assertEntitiesAreEqualByColumnValues(first, entity);
+    assertThat(second).isSameAs(first);
+  }
+
   @Test
   void testGetObject() {
     // Given
@@ -630,4 +1075,12 @@ class AbstractJdbcPlusRepositoryTest {
     // Then
     assertThat(result).hasSameElementsAs(entities);
   }
+
+  private static List<Object[]> getRows(final Entity7... entities) {
+    final List<Object[]> rows = new ArrayList<>();
+    for (final Entity7 entity7 : entities) {
+      rows.add(new Object[]{entity7.getId(), entity7.getName()});
+    }
+    return rows;
+  }
 }
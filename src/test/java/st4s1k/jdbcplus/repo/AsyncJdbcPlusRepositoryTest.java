@@ -0,0 +1,72 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncJdbcPlusRepositoryTest {
+
+  @Mock
+  private EntityRepository repository;
+
+  @Mock
+  private Entity entity;
+
+  @Test
+  void testFindByIdAsyncCompletesWithTheRepositoryResult() {
+    // Given
+    when(repository.findById(1)).thenReturn(Optional.of(entity));
+
+    // When
+    final Optional<Entity> found;
+    try (final var asyncRepository = AsyncJdbcPlusRepository.of(repository)) {
+      found = asyncRepository.findByIdAsync(1).join();
+    }
+
+    // Then
+    assertThat(found).containsSame(entity);
+  }
+
+  @Test
+  void testBulkheadLimitsTheCallsRunningAtOnce() throws InterruptedException {
+    // Given
+    final var executor = Executors.newFixedThreadPool(8);
+    final var asyncRepository = AsyncJdbcPlusRepository.of(repository, executor, 2);
+    final var running = new AtomicInteger();
+    final var maxRunning = new AtomicInteger();
+    final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+    // When
+    for (int i = 0; i < 16; i++) {
+      futures.add(asyncRepository.supplyAsync(r -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return running.decrementAndGet();
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    executor.shutdown();
+
+    // Then
+    assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(maxRunning).hasValue(2);
+    assertThat(asyncRepository.getAvailableConcurrency()).isEqualTo(2);
+  }
+}
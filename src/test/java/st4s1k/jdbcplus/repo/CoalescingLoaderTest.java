@@ -0,0 +1,109 @@
+package st4s1k.jdbcplus.repo;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+
+class CoalescingLoaderTest {
+
+  private JdbcDataSource dataSource;
+  private JdbcPlusContext context;
+  private Entity7Repository repository;
+
+  @BeforeEach
+  void setUp() {
+    dataSource = spy(getDataSource("loader"));
+    context = JdbcPlusContext.of(dataSource);
+    repository = new Entity7Repository(context);
+    createTable(context, 10, id -> "name" + id);
+    clearInvocations(dataSource);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dropTable(context);
+    context.close();
+  }
+
+  @Test
+  void testIdsRequestedWithinTheWindowAreLoadedByOneQuery() throws Exception {
+    // Given
+    try (final var loader = CoalescingLoader.of(repository, Duration.ofMillis(200), 100)) {
+
+      // When
+      final var first = loader.findByIdAsync(1);
+      final var second = loader.findByIdAsync(2);
+      final var sameAsFirst = loader.findByIdAsync(1);
+      final var missing = loader.findByIdAsync(42);
+      CompletableFuture.allOf(first, second, sameAsFirst, missing).get(5, TimeUnit.SECONDS);
+
+      // Then
+      assertThat(first.get()).map(Entity7::getName).contains("name1");
+      assertThat(second.get()).map(Entity7::getName).contains("name2");
+      assertThat(sameAsFirst.get()).isEqualTo(first.get());
+      assertThat(missing.get()).isEmpty();
+      verify(dataSource, times(1)).getConnection();
+    }
+  }
+
+  @Test
+  void testFullBatchIsLoadedWithoutWaitingForTheWindow() throws Exception {
+    // Given
+    try (final var loader = CoalescingLoader.of(repository, Duration.ofMinutes(1), 2)) {
+
+      // When
+      final var first = loader.findByIdAsync(3);
+      final var second = loader.findByIdAsync(4);
+      final Optional<Entity7> entity = second.get(5, TimeUnit.SECONDS);
+
+      // Then
+      assertThat(entity).map(Entity7::getName).contains("name4");
+      assertThat(first.get(5, TimeUnit.SECONDS)).map(Entity7::getName).contains("name3");
+    }
+  }
+
+  @Test
+  void testLookupsRacingWithCloseAllComplete() throws Exception {
+    // Given
+    final ExecutorService callers = Executors.newFixedThreadPool(4);
+    final var loader = CoalescingLoader.of(repository, Duration.ofMillis(1), 1);
+    final List<CompletableFuture<Optional<Entity7>>> lookups = new ArrayList<>();
+    for (int id = 1; id <= 200; id++) {
+      final int requested = id % 10 + 1;
+      lookups.add(CompletableFuture.supplyAsync(() -> loader.findByIdAsync(requested), callers)
+          .thenCompose(lookup -> lookup));
+    }
+
+    // When
+    loader.close();
+    final var all = CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new))
+        .handle((ignored, e) -> e);
+    callers.shutdown();
+
+    // Then
+    assertThat(all.get(5, TimeUnit.SECONDS)).satisfiesAnyOf(
+        e -> assertThat(e).isNull(),
+        e -> assertThat(e).hasRootCauseInstanceOf(IllegalStateException.class)
+    );
+    assertThat(lookups).allMatch(CompletableFuture::isDone);
+  }
+}
@@ -0,0 +1,22 @@
+package st4s1k.jdbcplus.repo;
+
+import lombok.Data;
+import lombok.ToString;
+import st4s1k.jdbcplus.annotations.*;
+
+import java.util.List;
+
+@Data
+@ToString(onlyExplicitlyIncluded = true)
+@Table("entity5s")
+public class Entity5 {
+
+  @Id
+  private Integer id;
+
+  @Column("name")
+  private String name;
+
+  @OneToMany(targetEntity = Entity6.class, cascade = true)
+  private List<Entity6> entity6s;
+}
@@ -0,0 +1,21 @@
+package st4s1k.jdbcplus.repo;
+
+import lombok.Data;
+import lombok.ToString;
+import st4s1k.jdbcplus.annotations.*;
+
+@Data
+@ToString(onlyExplicitlyIncluded = true)
+@Table("entity6s")
+public class Entity6 {
+
+  @Id
+  private Integer id;
+
+  @Column("name")
+  private String name;
+
+  @ManyToOne
+  @JoinColumn("entity5")
+  private Entity5 entity5;
+}
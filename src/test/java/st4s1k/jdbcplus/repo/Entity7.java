@@ -0,0 +1,16 @@
+package st4s1k.jdbcplus.repo;
+
+import lombok.Data;
+import st4s1k.jdbcplus.annotations.*;
+
+@Data
+@Cacheable(maxSize = 100)
+@Table("entity7s")
+public class Entity7 {
+
+  @Id
+  private Integer id;
+
+  @Column("name")
+  private String name;
+}
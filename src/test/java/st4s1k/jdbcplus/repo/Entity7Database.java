@@ -0,0 +1,59 @@
+package st4s1k.jdbcplus.repo;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * In-memory H2 databases holding the {@code entity7s} table of {@link Entity7}.
+ */
+final class Entity7Database {
+
+  private Entity7Database() {
+  }
+
+  static JdbcDataSource getDataSource(final String name) {
+    final var dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    return dataSource;
+  }
+
+  static void createTable(final JdbcPlusContext context) {
+    createTable(context, 0, id -> "name" + id);
+  }
+
+  /**
+   * Create the table with the rows 1 to {@code rows}.
+   *
+   * @param context the context
+   * @param rows    number of rows
+   * @param name    name of the row with the given id
+   */
+  static void createTable(
+      final JdbcPlusContext context,
+      final int rows,
+      final IntFunction<String> name
+  ) {
+    final var statements = new ArrayList<String>();
+    statements.add("create table entity7s(id int primary key, name varchar(64))");
+    for (int id = 1; id <= rows; id++) {
+      statements.add(
+          "insert into entity7s(id, name) values (" + id + ", '" + name.apply(id) + "')"
+      );
+    }
+    context.getDatabaseConnection().updateBatchTransaction(List.of(statements));
+  }
+
+  static void dropTable(final JdbcPlusContext context) {
+    context.getDatabaseConnection().updateTransaction("drop table entity7s");
+  }
+
+  static Entity7 getEntity7(final int id, final String name) {
+    final var entity = new Entity7();
+    entity.setId(id);
+    entity.setName(name);
+    return entity;
+  }
+}
@@ -0,0 +1,8 @@
+package st4s1k.jdbcplus.repo;
+
+class Entity7Repository extends JdbcPlusRepository<Entity7> {
+
+  Entity7Repository(final JdbcPlusContext context) {
+    super(context);
+  }
+}
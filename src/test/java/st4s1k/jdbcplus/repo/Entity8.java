@@ -0,0 +1,19 @@
+package st4s1k.jdbcplus.repo;
+
+import lombok.Data;
+import st4s1k.jdbcplus.annotations.*;
+
+@Data
+@ReferenceData(indexes = "code")
+@Table("entity8s")
+public class Entity8 {
+
+  @Id
+  private Integer id;
+
+  @Column("code")
+  private String code;
+
+  @Column("name")
+  private String name;
+}
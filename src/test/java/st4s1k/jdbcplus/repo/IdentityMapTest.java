@@ -0,0 +1,49 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class IdentityMapTest {
+
+  @Test
+  void testNestedOpensShareTheMapUntilTheOuterOneIsClosed() {
+    // Given
+    final var scope = new Object();
+    final var outer = IdentityMap.open(scope);
+    final var inner = IdentityMap.open(scope);
+
+    // When
+    inner.close();
+    final var afterInnerClose = IdentityMap.current(scope);
+    outer.close();
+
+    // Then
+    assertThat(inner).isSameAs(outer);
+    assertThat(afterInnerClose).containsSame(outer);
+    assertThat(IdentityMap.current(scope)).isEmpty();
+  }
+
+  @Test
+  void testCloseFromAnotherThreadFailsAndKeepsTheMapOpen() {
+    // Given
+    final var scope = new Object();
+    final var identityMap = IdentityMap.open(scope);
+
+    // When
+    final Throwable thrown = CompletableFuture
+        .supplyAsync(() -> catchThrowable(identityMap::close))
+        .join();
+
+    // Then
+    assertThat(thrown)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Identity map is not open on the current thread");
+    assertThat(IdentityMap.current(scope)).containsSame(identityMap);
+    identityMap.close();
+    assertThat(IdentityMap.current(scope)).isEmpty();
+  }
+}
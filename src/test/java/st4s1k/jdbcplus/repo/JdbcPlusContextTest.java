@@ -0,0 +1,74 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+import static st4s1k.jdbcplus.repo.Entity7Database.getEntity7;
+
+class JdbcPlusContextTest {
+
+  private JdbcPlusContext first;
+  private JdbcPlusContext second;
+
+  @BeforeEach
+  void setUp() {
+    first = JdbcPlusContext.of(getDataSource("first"));
+    second = JdbcPlusContext.of(getDataSource("second"));
+    createTable(first);
+    createTable(second);
+  }
+
+  @AfterEach
+  void tearDown() {
+    for (final JdbcPlusContext context : new JdbcPlusContext[]{first, second}) {
+      dropTable(context);
+      context.close();
+    }
+  }
+
+  @Test
+  void testContextsAreIsolatedFromEachOther() {
+    // Given
+    final var firstRepository = new Entity7Repository(first);
+    final var secondRepository = new Entity7Repository(second);
+    final var entity = getEntity7(1, "first");
+
+    // When
+    firstRepository.save(entity);
+
+    // Then
+    assertThat(firstRepository.findById(1)).map(Entity7::getName).contains("first");
+    assertThat(secondRepository.findById(1)).isEmpty();
+    assertThat(first.getMetadataRegistry()).isNotSameAs(second.getMetadataRegistry());
+    assertThat(first.getEntityCacheManager()).isNotSameAs(second.getEntityCacheManager());
+  }
+
+  @Test
+  void testSessionsOfDifferentContextsDoNotShareInstances() {
+    // Given
+    for (final JdbcPlusContext context : new JdbcPlusContext[]{first, second}) {
+      context.getDatabaseConnection().updateTransaction(
+          "insert into entity7s(id, name) values (1, 'same id')"
+      );
+    }
+    final var firstRepository = new Entity7Repository(first);
+    final var secondRepository = new Entity7Repository(second);
+
+    // When
+    final Entity7 fromFirst;
+    final Entity7 fromSecond;
+    try (final var ignored = firstRepository.openSession()) {
+      fromFirst = firstRepository.findById(1).orElseThrow();
+      fromSecond = secondRepository.findById(1).orElseThrow();
+    }
+
+    // Then
+    assertThat(fromFirst).isNotSameAs(fromSecond);
+    assertThat(IdentityMap.current()).isEmpty();
+  }
+}
@@ -9,9 +9,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import st4s1k.jdbcplus.DatabaseConnectionTestUtils;
 import st4s1k.jdbcplus.config.DatabaseConnection;
+import st4s1k.jdbcplus.fetch.FetchPlan;
 import st4s1k.jdbcplus.utils.EntityUtils;
 
 import java.sql.ResultSet;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -104,6 +106,15 @@ class JdbcPlusRepositoryTest {
     verify(abstractJdbcPlusRepository).findAll(Entity.class);
   }
 
+  @Test
+  void testStream() {
+    // When
+    jdbcPlusRepository.stream(100);
+
+    // Then
+    verify(abstractJdbcPlusRepository).stream(Entity.class, 100);
+  }
+
   @Test
   void testFindByColumn() {
     // Given
@@ -117,6 +128,66 @@ class JdbcPlusRepositoryTest {
     verify(abstractJdbcPlusRepository).findByColumn(column, value, Entity.class);
   }
 
+  @Test
+  void testFindByIdWithFetchPlan() {
+    // Given
+    final var id = new Object();
+    final var fetchPlan = FetchPlan.of(Entity.class).fetch("entity4");
+
+    // When
+    jdbcPlusRepository.findById(id, fetchPlan);
+
+    // Then
+    verify(abstractJdbcPlusRepository).findById(id, fetchPlan);
+  }
+
+  @Test
+  void testFindAllWithFetchPlan() {
+    // Given
+    final var fetchPlan = FetchPlan.of(Entity.class).fetch("entity1s");
+
+    // When
+    jdbcPlusRepository.findAll(fetchPlan);
+
+    // Then
+    verify(abstractJdbcPlusRepository).findAll(fetchPlan);
+  }
+
+  @Test
+  void testFindByColumnWithFetchPlan() {
+    // Given
+    final var column = "column";
+    final var value = new Object();
+    final var fetchPlan = jdbcPlusRepository.fetchPlan().fetch("entity2s");
+
+    // When
+    jdbcPlusRepository.findByColumn(column, value, fetchPlan);
+
+    // Then
+    verify(abstractJdbcPlusRepository).findByColumn(column, value, fetchPlan);
+  }
+
+  @Test
+  void testOpenSession() {
+    // When
+    jdbcPlusRepository.openSession();
+
+    // Then
+    verify(abstractJdbcPlusRepository).openSession();
+  }
+
+  @Test
+  void testFindAllById() {
+    // Given
+    final var ids = List.of(1, 2);
+
+    // When
+    jdbcPlusRepository.findAllById(ids);
+
+    // Then
+    verify(abstractJdbcPlusRepository).findAllById(ids, Entity.class);
+  }
+
   @Test
   void testGetObject() {
     // Given
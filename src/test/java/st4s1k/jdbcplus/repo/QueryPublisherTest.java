@@ -0,0 +1,143 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.config.QueryCursor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+
+class QueryPublisherTest {
+
+  private static final int ROWS = 2_500;
+
+  private JdbcPlusContext context;
+  private final List<QueryCursor> cursors = new CopyOnWriteArrayList<>();
+  private final List<Integer> fetchSizes = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void setUp() {
+    context = JdbcPlusContext.of(getDataSource("publisher"));
+    createTable(context, ROWS, id -> "name" + id);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dropTable(context);
+    context.close();
+  }
+
+  @Test
+  void testRowsAreEmittedAsRequestedUntilCancelled() throws InterruptedException {
+    // Given
+    final var subscriber = new TestSubscriber(10, 3);
+
+    // When
+    getPublisher().subscribe(subscriber);
+
+    // Then
+    assertThat(subscriber.finished.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(subscriber.received).hasSize(30);
+    assertThat(subscriber.received.get(29).getId()).isEqualTo(30);
+    assertThat(subscriber.completed).isFalse();
+    assertThat(fetchSizes).containsExactly(10);
+    awaitClosed();
+  }
+
+  @Test
+  void testUnboundedDemandEmitsAllRowsAndCompletes() throws InterruptedException {
+    // Given
+    final var subscriber = new TestSubscriber(Long.MAX_VALUE, 1);
+
+    // When
+    getPublisher().subscribe(subscriber);
+
+    // Then
+    assertThat(subscriber.finished.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(subscriber.received).hasSize(ROWS);
+    assertThat(subscriber.completed).isTrue();
+    assertThat(fetchSizes).containsExactly(QueryPublisher.MAX_FETCH_SIZE);
+    awaitClosed();
+  }
+
+  private Flow.Publisher<Entity7> getPublisher() {
+    final AbstractJdbcPlusRepository repository = context.getRepository();
+    return new QueryPublisher<>(
+        fetchSize -> {
+          fetchSizes.add(fetchSize);
+          final QueryCursor cursor = context.getDatabaseConnection()
+              .openCursor("select * from entity7s order by id", fetchSize);
+          cursors.add(cursor);
+          return cursor;
+        },
+        resultSet -> repository.getObject(resultSet, Entity7.class),
+        QueryPublisher.getDefaultExecutor()
+    );
+  }
+
+  private void awaitClosed() throws InterruptedException {
+    for (int i = 0; i < 100 && !cursors.get(0).isClosed(); i++) {
+      Thread.sleep(10);
+    }
+    assertThat(cursors).hasSize(1);
+    assertThat(cursors.get(0).isClosed()).isTrue();
+  }
+
+  /**
+   * Requests a batch of rows at a time, then cancels
+   * after the last batch.
+   */
+  private static class TestSubscriber implements Flow.Subscriber<Entity7> {
+
+    private final long batch;
+    private final int batches;
+    private final List<Entity7> received = new CopyOnWriteArrayList<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private Flow.Subscription subscription;
+    private volatile boolean completed;
+
+    private TestSubscriber(final long batch, final int batches) {
+      this.batch = batch;
+      this.batches = batches;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(batch);
+    }
+
+    @Override
+    public void onNext(final Entity7 item) {
+      received.add(item);
+      if (received.size() % batch == 0) {
+        if (received.size() / batch < batches) {
+          subscription.request(batch);
+        } else {
+          subscription.cancel();
+          finished.countDown();
+        }
+      }
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+      finished.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      finished.countDown();
+    }
+  }
+}
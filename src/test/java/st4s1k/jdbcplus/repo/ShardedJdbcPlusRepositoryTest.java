@@ -0,0 +1,92 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+import static st4s1k.jdbcplus.repo.Entity7Database.getEntity7;
+
+class ShardedJdbcPlusRepositoryTest {
+
+  private final List<JdbcPlusContext> shards = new ArrayList<>();
+  private ShardedEntity7Repository repository;
+
+  @BeforeEach
+  void setUp() {
+    for (int i = 0; i < 3; i++) {
+      final var context = JdbcPlusContext.of(getDataSource("shard" + i));
+      createTable(context);
+      shards.add(context);
+    }
+    repository = new ShardedEntity7Repository(shards);
+    for (int id = 1; id <= 9; id++) {
+      repository.save(getEntity7(id, "name" + (10 - id)));
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    repository.close();
+    for (final JdbcPlusContext context : shards) {
+      dropTable(context);
+      context.close();
+    }
+  }
+
+  @Test
+  void testEntitiesAreRoutedToTheShardOfTheirId() {
+    // When
+    final var found = repository.findById(4);
+    final var inShards = new ArrayList<Integer>();
+    for (final JdbcPlusContext context : shards) {
+      inShards.add(context.getRepository().findAll(Entity7.class).size());
+    }
+
+    // Then
+    assertThat(found).map(Entity7::getName).contains("name6");
+    assertThat(repository.getShard(4)).isEqualTo(1);
+    assertThat(shards.get(1).getRepository().findById(4, Entity7.class)).isPresent();
+    assertThat(inShards).containsExactly(3, 3, 3);
+  }
+
+  @Test
+  void testFindAllMergesTheShardsInTheGivenOrder() {
+    // When
+    final List<Entity7> all = repository.findAll();
+    final List<Entity7> ordered = repository.findAll(Comparator.comparing(Entity7::getName));
+
+    // Then
+    assertThat(all).hasSize(9);
+    assertThat(ordered).extracting(Entity7::getId).containsExactly(9, 8, 7, 6, 5, 4, 3, 2, 1);
+  }
+
+  @Test
+  void testRemoveAndFindByColumnUseAllTheShards() {
+    // Given
+    final Entity7 entity = repository.findById(5).orElseThrow();
+
+    // When
+    repository.remove(entity);
+
+    // Then
+    assertThat(repository.findById(5)).isEmpty();
+    assertThat(repository.findByColumn("name", "name5")).isEmpty();
+    assertThat(repository.findByColumn("name", "name2")).extracting(Entity7::getId)
+        .containsExactly(8);
+  }
+
+  private static class ShardedEntity7Repository extends ShardedJdbcPlusRepository<Entity7> {
+
+    private ShardedEntity7Repository(final List<JdbcPlusContext> shards) {
+      super(shards, ShardFunction.modulo());
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.pool.JdbcPlusPool;
+import st4s1k.jdbcplus.pool.PoolConfig;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+
+class StreamTest {
+
+  private static final int ROWS = 1_000;
+
+  private JdbcPlusPool pool;
+  private JdbcPlusContext context;
+  private Entity7Repository repository;
+
+  @BeforeEach
+  void setUp() {
+    pool = new JdbcPlusPool(PoolConfig.of(getDataSource("stream")).maximumPoolSize(4));
+    context = JdbcPlusContext.of(pool);
+    repository = new Entity7Repository(context);
+    createTable(context, ROWS, id -> "name" + id % 10);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dropTable(context);
+    context.close();
+  }
+
+  @Test
+  void testRowsAreMappedOnlyWhenConsumedAndConnectionReleasedOnClose() {
+    // Given
+    final var mapped = new AtomicInteger();
+    final List<Entity7> firstFive;
+
+    // When
+    try (final var stream = repository.stream(10)) {
+      firstFive = stream.peek(entity -> mapped.incrementAndGet())
+          .limit(5)
+          .collect(Collectors.toList());
+      assertThat(pool.getMetrics().getActive()).isEqualTo(1);
+    }
+
+    // Then
+    assertThat(firstFive).hasSize(5);
+    assertThat(mapped).hasValue(5);
+    assertThat(pool.getMetrics().getActive()).isZero();
+  }
+
+  @Test
+  void testExhaustedStreamReleasesTheConnection() {
+    // When
+    final long count = repository.streamByColumn("name", "name3").count();
+
+    // Then
+    assertThat(count).isEqualTo(ROWS / 10);
+    assertThat(pool.getMetrics().getActive()).isZero();
+  }
+
+  @Test
+  void testParallelScanVisitsEveryRowOnce() {
+    // Given
+    final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+    final var visits = new AtomicInteger();
+
+    // When
+    repository.findAllParallel(4, entity -> {
+      visits.incrementAndGet();
+      ids.add(entity.getId());
+    });
+
+    // Then
+    assertThat(visits).hasValue(ROWS);
+    assertThat(ids).hasSize(ROWS);
+    assertThat(pool.getMetrics().getActive()).isZero();
+  }
+
+  @Test
+  void testParallelScanRunsOnTheConfiguredExecutorWithoutShuttingItDown() {
+    // Given
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final var tasks = new AtomicInteger();
+    final var visits = new AtomicInteger();
+    context.getRepository().setScanExecutor(task -> {
+      tasks.incrementAndGet();
+      executor.execute(task);
+    });
+
+    // When
+    repository.findAllParallel(4, entity -> visits.incrementAndGet());
+    repository.findAllParallel(4, entity -> visits.incrementAndGet());
+
+    // Then
+    assertThat(tasks).hasValue(8);
+    assertThat(visits).hasValue(2 * ROWS);
+    assertThat(executor.isShutdown()).isFalse();
+    executor.shutdown();
+  }
+
+  @Test
+  void testFailedRangeScanCancelsTheOthers() {
+    // Given
+    final var visits = new AtomicInteger();
+
+    // When
+    final Throwable thrown = catchThrowable(() -> repository.findAllParallel(4, entity -> {
+      if (entity.getId() == 1) {
+        throw new IllegalStateException("broken sink");
+      }
+      visits.incrementAndGet();
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }));
+
+    // Then
+    assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessage("broken sink");
+    assertThat(visits.get()).isLessThan(ROWS / 2);
+    assertThat(pool.getMetrics().getActive()).isZero();
+  }
+}
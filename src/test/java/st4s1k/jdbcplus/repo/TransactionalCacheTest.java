@@ -0,0 +1,86 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+import static st4s1k.jdbcplus.repo.Entity7Database.getEntity7;
+
+class TransactionalCacheTest {
+
+  private JdbcPlusContext context;
+  private Entity7Repository repository;
+
+  @BeforeEach
+  void setUp() {
+    context = JdbcPlusContext.of(getDataSource("transactionalcache"));
+    repository = new Entity7Repository(context);
+    createTable(context, 3, id -> "name" + id);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dropTable(context);
+    context.close();
+  }
+
+  @Test
+  void testRolledBackRemoveDoesNotMarkTheIdAbsent() {
+    // Given
+    context.getRepository().enableExistenceFilter(Entity7.class, 100, 0.01);
+    final Entity7 entity = repository.findById(1).orElseThrow();
+
+    // When
+    assertThatThrownBy(() -> repository.inTransaction(() -> {
+      repository.remove(entity);
+      throw new IllegalStateException("rollback");
+    })).isInstanceOf(IllegalStateException.class);
+
+    // Then
+    assertThat(repository.findById(1)).map(Entity7::getName).contains("name1");
+  }
+
+  @Test
+  void testIdMissedByAConcurrentLookupIsPresentOnceTheSaveCommits() {
+    // Given
+    context.getRepository().enableExistenceFilter(Entity7.class, 100, 0.01);
+
+    // When
+    repository.inTransaction(() -> {
+      repository.save(getEntity7(4, "name4"));
+      CompletableFuture.runAsync(() -> repository.findById(4)).join();
+      return null;
+    });
+
+    // Then
+    assertThat(repository.findById(4)).map(Entity7::getName).contains("name4");
+  }
+
+  @Test
+  void testUncommittedRowsAreNotCachedAndCommittedOnesReplaceStaleEntries() {
+    // Given
+    repository.findById(2);
+
+    // When
+    final boolean cachedInTransaction = repository.inTransaction(() -> {
+      repository.save(getEntity7(2, "changed"));
+      repository.findById(2);
+      final boolean cached = context.getEntityCacheManager().getCache(Entity7.class)
+          .flatMap(cache -> cache.get(2))
+          .isPresent();
+      CompletableFuture.runAsync(() -> repository.findById(2)).join();
+      return cached;
+    });
+
+    // Then
+    assertThat(cachedInTransaction).isFalse();
+    assertThat(repository.findById(2)).map(Entity7::getName).contains("changed");
+  }
+}
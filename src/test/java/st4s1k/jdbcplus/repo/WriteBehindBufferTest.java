@@ -0,0 +1,112 @@
+package st4s1k.jdbcplus.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import st4s1k.jdbcplus.exceptions.JdbcPlusException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static st4s1k.jdbcplus.repo.Entity7Database.createTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.dropTable;
+import static st4s1k.jdbcplus.repo.Entity7Database.getDataSource;
+import static st4s1k.jdbcplus.repo.Entity7Database.getEntity7;
+
+class WriteBehindBufferTest {
+
+  private JdbcPlusContext context;
+  private Entity7Repository repository;
+
+  @BeforeEach
+  void setUp() {
+    context = JdbcPlusContext.of(getDataSource("writebehind"));
+    repository = new Entity7Repository(context);
+    createTable(context);
+  }
+
+  @AfterEach
+  void tearDown() {
+    dropTable(context);
+    context.close();
+  }
+
+  @Test
+  void testLatestStateOfEachIdIsWrittenOnFlush() {
+    // Given
+    final var config = WriteBehindConfig.of().flushInterval(Duration.ofMinutes(1));
+    try (final var buffer = WriteBehindBuffer.of(repository, config)) {
+      for (int event = 1; event <= 100; event++) {
+        buffer.save(getEntity7(event % 10, "event" + event));
+      }
+
+      // When
+      final int pending = buffer.getPendingCount();
+      buffer.flush();
+
+      // Then
+      assertThat(pending).isEqualTo(10);
+      assertThat(buffer.getPendingCount()).isZero();
+      assertThat(repository.findAll()).hasSize(10);
+      assertThat(repository.findById(0)).map(Entity7::getName).contains("event100");
+      assertThat(repository.findById(1)).map(Entity7::getName).contains("event91");
+    }
+  }
+
+  @Test
+  void testFullBatchIsFlushedInTheBackground() throws InterruptedException {
+    // Given
+    final var config = WriteBehindConfig.of()
+        .batchSize(5)
+        .flushInterval(Duration.ofMinutes(1));
+    try (final var buffer = WriteBehindBuffer.of(repository, config)) {
+
+      // When
+      for (int id = 1; id <= 5; id++) {
+        buffer.save(getEntity7(id, "name" + id));
+      }
+      for (int i = 0; i < 100 && buffer.getPendingCount() > 0; i++) {
+        Thread.sleep(10);
+      }
+
+      // Then
+      assertThat(buffer.getPendingCount()).isZero();
+      assertThat(repository.findAll()).hasSize(5);
+    }
+  }
+
+  @Test
+  void testFailedBatchStaysPendingUntilItIsWritten() {
+    // Given
+    final var config = WriteBehindConfig.of().flushInterval(Duration.ofMinutes(1));
+    try (final var buffer = WriteBehindBuffer.of(repository, config)) {
+      buffer.save(getEntity7(1, "name1"));
+      buffer.save(getEntity7(2, "x".repeat(100)));
+
+      // When
+      assertThatThrownBy(buffer::flush).isInstanceOf(JdbcPlusException.class);
+
+      // Then
+      assertThat(buffer.getPendingCount()).isEqualTo(2);
+      assertThat(repository.findAll()).isEmpty();
+      buffer.save(getEntity7(2, "name2"));
+    }
+    assertThat(repository.findAll()).hasSize(2);
+  }
+
+  @Test
+  void testCloseWritesThePendingEntities() {
+    // Given
+    final var buffer = WriteBehindBuffer.of(repository);
+    buffer.save(getEntity7(1, "name1"));
+
+    // When
+    buffer.close();
+
+    // Then
+    assertThat(repository.findById(1)).map(Entity7::getName).contains("name1");
+    assertThatThrownBy(() -> buffer.save(getEntity7(2, "name2")))
+        .isInstanceOf(IllegalStateException.class);
+  }
+}